@@ -0,0 +1,14 @@
+package com.proyecto.kanban.exceptions;
+
+/**
+ * Excepción para errores del motor de almacenamiento (por ejemplo, fallos de la
+ * base de datos embebida). Es no comprobada para no obligar a la UI y a los
+ * servicios a declarar excepciones de infraestructura en cada llamada.
+ */
+public class AlmacenamientoException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public AlmacenamientoException(String mensaje, Throwable causa) {
+        super(mensaje, causa);
+    }
+}
@@ -0,0 +1,187 @@
+package com.proyecto.kanban.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Escritor de texto UTF-8 a un archivo a través de un {@link FileChannel}, con un
+ * búfer fijo de {@link #BUFFER} bytes: la memoria no depende de lo que se escriba.
+ *
+ * Con {@code gzip}, el búfer se comprime con un {@link Deflater} antes de llegar
+ * al canal y el archivo lleva la cabecera y la cola de gzip (se puede leer con
+ * {@code GZIPInputStream} o {@code gunzip}).
+ *
+ * Se escribe en un temporal junto al destino, que {@link #terminar()} mueve a su
+ * sitio; si se cierra sin terminar (un error, una cancelación), el temporal se
+ * borra y el destino queda como estaba. No es seguro para varios hilos.
+ */
+final class ChannelWriter implements AutoCloseable {
+    /** Tamaño del búfer de texto codificado (y del de salida comprimida). */
+    static final int BUFFER = 64 * 1024;
+
+    private static final byte[] CABECERA_GZIP = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final Path destino;
+    private final Path temporal;
+    private final FileChannel canal;
+    private final ExportProgress progreso;
+    private final byte[] bytes = new byte[BUFFER];
+    private int pos;
+    // Solo con gzip
+    private final Deflater deflater;
+    private final CRC32 crc;
+    private final byte[] comprimido;
+    private long sinComprimir;
+    private long escritos;
+    private boolean terminado;
+
+    /**
+     * @param progreso recibe los bytes que llegan al archivo (comprimidos, si hay gzip)
+     */
+    ChannelWriter(Path destino, boolean gzip, ExportProgress progreso) throws IOException {
+        this.destino = destino;
+        this.progreso = progreso;
+        Path carpeta = destino.toAbsolutePath().getParent();
+        Files.createDirectories(carpeta);
+        this.temporal = Files.createTempFile(carpeta, "." + destino.getFileName() + "-", ".tmp");
+        try {
+            this.canal = FileChannel.open(temporal, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException ex) {
+            Files.deleteIfExists(temporal);
+            throw ex;
+        }
+        if (gzip) {
+            // Lo que limita un volcado grande es la compresión: se usa el nivel más rápido
+            deflater = new Deflater(Deflater.BEST_SPEED, true);
+            crc = new CRC32();
+            comprimido = new byte[BUFFER];
+            escribirCanal(CABECERA_GZIP, CABECERA_GZIP.length);
+        } else {
+            deflater = null;
+            crc = null;
+            comprimido = null;
+        }
+    }
+
+    /** Escribe un carácter que no forma parte de un par sustituto (p. ej. un separador). */
+    void escribir(char c) throws IOException {
+        if (c < 0x80) {
+            if (pos == BUFFER) vaciar();
+            bytes[pos++] = (byte) c;
+        } else {
+            codificar(c, null, 0, 1);
+        }
+    }
+
+    void escribir(CharSequence texto) throws IOException {
+        escribir(texto, 0, texto.length());
+    }
+
+    /** Escribe los caracteres de {@code texto} entre {@code desde} (incluido) y {@code hasta}. */
+    void escribir(CharSequence texto, int desde, int hasta) throws IOException {
+        for (int i = desde; i < hasta; i++) {
+            char c = texto.charAt(i);
+            if (c < 0x80) {
+                if (pos == BUFFER) vaciar();
+                bytes[pos++] = (byte) c;
+            } else {
+                i = codificar(c, texto, i, hasta);
+            }
+        }
+    }
+
+    // Codifica un carácter no ASCII (o un par sustituto) y devuelve la posición del último leído
+    private int codificar(char c, CharSequence texto, int i, int hasta) throws IOException {
+        if (BUFFER - pos < 4) vaciar();
+        if (c < 0x800) {
+            bytes[pos++] = (byte) (0xc0 | (c >> 6));
+            bytes[pos++] = (byte) (0x80 | (c & 0x3f));
+        } else if (Character.isHighSurrogate(c) && texto != null && i + 1 < hasta
+                && Character.isLowSurrogate(texto.charAt(i + 1))) {
+            int cp = Character.toCodePoint(c, texto.charAt(++i));
+            bytes[pos++] = (byte) (0xf0 | (cp >> 18));
+            bytes[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+            bytes[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+            bytes[pos++] = (byte) (0x80 | (cp & 0x3f));
+        } else if (Character.isSurrogate(c)) {
+            // Sustituto suelto: no es texto válido
+            bytes[pos++] = '?';
+        } else {
+            bytes[pos++] = (byte) (0xe0 | (c >> 12));
+            bytes[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+            bytes[pos++] = (byte) (0x80 | (c & 0x3f));
+        }
+        return i;
+    }
+
+    /** Bytes que han llegado ya al archivo. */
+    long getBytesEscritos() {
+        return escritos;
+    }
+
+    // Pasa el búfer al canal, comprimiéndolo si hay gzip
+    private void vaciar() throws IOException {
+        if (pos == 0) return;
+        if (deflater == null) {
+            escribirCanal(bytes, pos);
+        } else {
+            crc.update(bytes, 0, pos);
+            sinComprimir += pos;
+            deflater.setInput(bytes, 0, pos);
+            while (!deflater.needsInput()) deflar();
+        }
+        pos = 0;
+    }
+
+    private void deflar() throws IOException {
+        int n = deflater.deflate(comprimido);
+        if (n > 0) escribirCanal(comprimido, n);
+    }
+
+    private void escribirCanal(byte[] origen, int n) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(origen, 0, n);
+        while (buf.hasRemaining()) canal.write(buf);
+        escritos += n;
+        progreso.bytesEscritos(n);
+    }
+
+    /**
+     * Escribe lo que queda en el búfer (y la cola de gzip), lleva el archivo a
+     * disco y lo mueve a su destino, reemplazando el que hubiera.
+     */
+    void terminar() throws IOException {
+        if (terminado) return;
+        vaciar();
+        if (deflater != null) {
+            deflater.finish();
+            while (!deflater.finished()) deflar();
+            byte[] cola = new byte[8];
+            ByteBuffer.wrap(cola).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt((int) crc.getValue()).putInt((int) sinComprimir);
+            escribirCanal(cola, cola.length);
+        }
+        canal.force(false);
+        canal.close();
+        PdfReportGenerator.mover(temporal, destino);
+        terminado = true;
+    }
+
+    /** Cierra el canal; si no se ha llamado a {@link #terminar()}, borra el temporal. */
+    @Override
+    public void close() throws IOException {
+        if (deflater != null) deflater.end();
+        if (terminado) return;
+        try {
+            canal.close();
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+}
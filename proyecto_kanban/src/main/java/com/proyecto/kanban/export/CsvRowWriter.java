@@ -0,0 +1,56 @@
+package com.proyecto.kanban.export;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * CSV según RFC 4180: una línea de cabecera con las columnas, celdas separadas
+ * por comas y líneas terminadas en CRLF. Las celdas con comas, comillas o saltos
+ * de línea van entre comillas, con las comillas interiores duplicadas.
+ */
+final class CsvRowWriter extends RowWriter {
+
+    CsvRowWriter(ChannelWriter salida, ExportProgress progreso) {
+        super(salida, progreso);
+    }
+
+    @Override
+    void empezar(List<String> columnas) throws IOException {
+        for (int i = 0; i < columnas.size(); i++) escribirCelda(i, columnas.get(i));
+        terminarFila();
+    }
+
+    @Override
+    void escribirCelda(int columna, CharSequence valor) throws IOException {
+        if (columna > 0) salida.escribir(',');
+        if (!necesitaComillas(valor)) {
+            salida.escribir(valor);
+            return;
+        }
+        salida.escribir('"');
+        int desde = 0;
+        for (int i = 0; i < valor.length(); i++) {
+            if (valor.charAt(i) == '"') {
+                salida.escribir(valor, desde, i + 1);
+                salida.escribir('"');
+                desde = i + 1;
+            }
+        }
+        salida.escribir(valor, desde, valor.length());
+        salida.escribir('"');
+    }
+
+    @Override
+    void terminarFila() throws IOException {
+        salida.escribir('\r');
+        salida.escribir('\n');
+    }
+
+    private static boolean necesitaComillas(CharSequence valor) {
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,36 @@
+package com.proyecto.kanban.export;
+
+/**
+ * Seguimiento de una exportación en curso para {@link PdfReportGenerator} y
+ * {@link RowWriter}.
+ *
+ * El generador avisa de las filas que va renderizando y de los bytes que escribe
+ * (en incrementos, no en totales) y consulta {@link #isCancelado()} entre fila y
+ * fila: si devuelve {@code true}, abandona la exportación con una
+ * {@link java.util.concurrent.CancellationException} sin dejar archivos a medias.
+ *
+ * Los avisos llegan desde el hilo que exporta, no desde el de la interfaz.
+ */
+public interface ExportProgress {
+    /** Seguimiento que no hace nada y nunca cancela. */
+    ExportProgress NINGUNO = new ExportProgress() {
+        @Override
+        public void filasRenderizadas(int filas) {
+        }
+
+        @Override
+        public void bytesEscritos(long bytes) {
+        }
+    };
+
+    /** Se han renderizado {@code filas} filas más. */
+    void filasRenderizadas(int filas);
+
+    /** Se han escrito {@code bytes} bytes más del archivo. */
+    void bytesEscritos(long bytes);
+
+    /** Indica si hay que abandonar la exportación. */
+    default boolean isCancelado() {
+        return false;
+    }
+}
@@ -0,0 +1,81 @@
+package com.proyecto.kanban.export;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * NDJSON: un objeto JSON por línea, {@code {"Columna":"valor",...}}, con todas las
+ * celdas como cadenas. Las claves se escapan una sola vez, al definir las columnas.
+ */
+final class NdjsonRowWriter extends RowWriter {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // Inicio de cada celda ya escapado: {"Columna":" o ,"Columna":"
+    private String[] prefijos;
+
+    NdjsonRowWriter(ChannelWriter salida, ExportProgress progreso) {
+        super(salida, progreso);
+    }
+
+    @Override
+    void empezar(List<String> columnas) {
+        prefijos = new String[columnas.size()];
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < prefijos.length; i++) {
+            sb.setLength(0);
+            sb.append(i == 0 ? "{\"" : ",\"");
+            escapar(columnas.get(i), sb);
+            sb.append("\":\"");
+            prefijos[i] = sb.toString();
+        }
+    }
+
+    @Override
+    void escribirCelda(int columna, CharSequence valor) throws IOException {
+        salida.escribir(prefijos[columna]);
+        int desde = 0;
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') continue;
+            salida.escribir(valor, desde, i);
+            escapar(c);
+            desde = i + 1;
+        }
+        salida.escribir(valor, desde, valor.length());
+        salida.escribir('"');
+    }
+
+    @Override
+    void terminarFila() throws IOException {
+        // Una fila sin columnas es un objeto vacío
+        if (prefijos.length == 0) salida.escribir('{');
+        salida.escribir('}');
+        salida.escribir('\n');
+    }
+
+    private void escapar(char c) throws IOException {
+        salida.escribir('\\');
+        switch (c) {
+            case '"', '\\' -> salida.escribir(c);
+            case '\n' -> salida.escribir('n');
+            case '\r' -> salida.escribir('r');
+            case '\t' -> salida.escribir('t');
+            default -> {
+                salida.escribir('u');
+                salida.escribir('0');
+                salida.escribir('0');
+                salida.escribir(HEX[c >> 4]);
+                salida.escribir(HEX[c & 0xf]);
+            }
+        }
+    }
+
+    private static void escapar(String texto, StringBuilder sb) {
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+    }
+}
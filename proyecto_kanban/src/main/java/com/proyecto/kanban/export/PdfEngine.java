@@ -0,0 +1,151 @@
+package com.proyecto.kanban.export;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Acceso a OpenHTMLToPDF y PDFBox para {@link PdfReportGenerator}, resuelto una
+ * sola vez por ejecución.
+ *
+ * Las clases y métodos se buscan por reflexión (ver {@link PdfReportGenerator})
+ * la primera vez que se necesitan y se guardan como {@link MethodHandle}s, así que
+ * cada informe ya no repite {@code Class.forName} ni {@code getMethod}.
+ *
+ * Todos los renderizados comparten la caché de métricas de fuentes de
+ * OpenHTMLToPDF ({@code PDF_FONT_METRICS}): las fuentes se leen una vez y no en
+ * cada informe. Al crear el motor se renderiza un documento mínimo con la hoja de
+ * estilos de los informes para dejar cargado lo que OpenHTMLToPDF y PDFBox
+ * inicializan en su primer uso (parser de CSS, fuentes estándar, etc.).
+ *
+ * {@code PdfRendererBuilder} sirve para un solo documento, así que no se reutilizan
+ * constructores: lo que se comparte es todo lo anterior. El número de renderizados
+ * simultáneos lo limita cada {@link PdfReportGenerator}.
+ */
+final class PdfEngine {
+    private static volatile PdfEngine instancia;
+
+    private final MethodHandle nuevoBuilder;
+    private final MethodHandle useFastMode;
+    private final MethodHandle withHtmlContent;
+    private final MethodHandle toStream;
+    private final MethodHandle useCacheStore;
+    private final MethodHandle run;
+    // Caché de métricas de fuentes compartida por todos los renderizados
+    private final Object metricasFuentes;
+    private final Object almacenMetricas;
+
+    private final MethodHandle nuevoMerger;
+    private final MethodHandle setDestinationFileName;
+    private final MethodHandle addSource;
+    private final MethodHandle mergeDocuments;
+    private final MethodHandle setupTempFileOnly;
+    private final MethodHandle setTempDir;
+
+    private PdfEngine() throws Exception {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        Class<?> builderClass;
+        try {
+            builderClass = Class.forName("com.openhtmltopdf.pdfboxout.PdfRendererBuilder");
+        } catch (ClassNotFoundException cnfe) {
+            // Si falta la dependencia en el classpath informamos claramente
+            throw new IllegalStateException("Dependencia OpenHTMLToPDF no encontrada en el classpath", cnfe);
+        }
+        Class<?> mergerClass;
+        Class<?> memoryClass;
+        try {
+            mergerClass = Class.forName("org.apache.pdfbox.multipdf.PDFMergerUtility");
+            memoryClass = Class.forName("org.apache.pdfbox.io.MemoryUsageSetting");
+        } catch (ClassNotFoundException cnfe) {
+            throw new IllegalStateException("Dependencia PDFBox no encontrada en el classpath", cnfe);
+        }
+        try {
+            Class<?> cacheStoreClass = Class.forName("com.openhtmltopdf.pdfboxout.PdfRendererBuilder$CacheStore");
+            Class<?> cacheClass = Class.forName("com.openhtmltopdf.extend.FSCacheEx");
+            nuevoBuilder = lookup.findConstructor(builderClass, MethodType.methodType(void.class));
+            useFastMode = lookup.unreflect(builderClass.getMethod("useFastMode"));
+            withHtmlContent = lookup.unreflect(builderClass.getMethod("withHtmlContent", String.class, String.class));
+            toStream = lookup.unreflect(builderClass.getMethod("toStream", OutputStream.class));
+            useCacheStore = lookup.unreflect(builderClass.getMethod("useCacheStore", cacheStoreClass, cacheClass));
+            run = lookup.unreflect(builderClass.getMethod("run"));
+            almacenMetricas = enumConstant(cacheStoreClass, "PDF_FONT_METRICS");
+            metricasFuentes = Class.forName("com.openhtmltopdf.extend.impl.FSDefaultCacheStore")
+                    .getDeclaredConstructor().newInstance();
+
+            nuevoMerger = lookup.findConstructor(mergerClass, MethodType.methodType(void.class));
+            setDestinationFileName = lookup.unreflect(mergerClass.getMethod("setDestinationFileName", String.class));
+            addSource = lookup.unreflect(mergerClass.getMethod("addSource", File.class));
+            mergeDocuments = lookup.unreflect(mergerClass.getMethod("mergeDocuments", memoryClass));
+            setupTempFileOnly = lookup.unreflect(memoryClass.getMethod("setupTempFileOnly"));
+            setTempDir = lookup.unreflect(memoryClass.getMethod("setTempDir", File.class));
+        } catch (ReflectiveOperationException roe) {
+            // Métodos de reflexión (NoSuchMethod, Instantiation, IllegalAccess, etc.)
+            throw new IllegalStateException("Error interno de reflexión al inicializar el generador PDF", roe);
+        }
+        render(PdfReportGenerator.HTML_CALENTAMIENTO, OutputStream.nullOutputStream());
+    }
+
+    /** El motor de esta ejecución; la primera llamada lo resuelve y lo calienta. */
+    static PdfEngine get() throws Exception {
+        PdfEngine motor = instancia;
+        if (motor == null) {
+            synchronized (PdfEngine.class) {
+                motor = instancia;
+                if (motor == null) {
+                    motor = new PdfEngine();
+                    instancia = motor;
+                }
+            }
+        }
+        return motor;
+    }
+
+    /** Renderiza el HTML a {@code os} con OpenHTMLToPDF. */
+    void render(String html, OutputStream os) throws Exception {
+        try {
+            Object builder = nuevoBuilder.invoke();
+            useFastMode.invoke(builder);
+            useCacheStore.invoke(builder, almacenMetricas, metricasFuentes);
+            // withHtmlContent recibe el contenido HTML y una baseUri (null si no aplica)
+            withHtmlContent.invoke(builder, html, (String) null);
+            toStream.invoke(builder, os);
+            run.invoke(builder);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable cause) {
+            // Re-lanzar con la causa original para que el UI muestre el mensaje real
+            throw new Exception("Error al generar el PDF: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Une los PDFs {@code trozos}, en orden, en {@code destino} con el
+     * {@code PDFMergerUtility} de PDFBox. Los datos intermedios van a archivos
+     * temporales en {@code temporal}, no a memoria.
+     */
+    void merge(List<Path> trozos, Path destino, Path temporal) throws Exception {
+        try {
+            Object merger = nuevoMerger.invoke();
+            setDestinationFileName.invoke(merger, destino.toString());
+            for (Path trozo : trozos) addSource.invoke(merger, trozo.toFile());
+            Object memoria = setupTempFileOnly.invoke();
+            setTempDir.invoke(memoria, temporal.toFile());
+            mergeDocuments.invoke(merger, memoria);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable cause) {
+            throw new Exception("Error al unir los trozos del PDF: " + cause.getMessage(), cause);
+        }
+    }
+
+    private static Object enumConstant(Class<?> enumClass, String nombre) {
+        for (Object c : enumClass.getEnumConstants()) {
+            if (((Enum<?>) c).name().equals(nombre)) return c;
+        }
+        throw new IllegalStateException("Constante " + nombre + " no encontrada en " + enumClass.getName());
+    }
+}
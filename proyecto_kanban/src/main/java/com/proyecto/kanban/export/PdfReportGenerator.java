@@ -1,10 +1,18 @@
 package com.proyecto.kanban.export;
 
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
-import java.lang.reflect.Method;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Semaphore;
 
 /**
  * Pequeño generador de PDF que toma un `ReportData` y produce un archivo PDF.
@@ -24,41 +32,321 @@ import java.util.List;
  *    para renderizar a `destino`.
  * 3. Los PDFs generados se suelen guardar en la carpeta `Informes` del
  *    directorio de trabajo del usuario; la UI informa al usuario de la ruta.
+ *
+ * Informes muy grandes (`generatePdfStreaming`): OpenHTMLToPDF construye el DOM y
+ * el maquetado de todo el documento antes de escribir la primera página, así que
+ * la memoria crece con el número de filas. Por eso el informe se divide en trozos
+ * de unas pocas miles de filas: cada trozo es un HTML propio que se renderiza a un
+ * PDF temporal y se descarta, y al final los trozos se unen con PDFBox (la
+ * dependencia que ya trae OpenHTMLToPDF) usando archivos temporales en lugar de
+ * memoria. Las filas se piden a las tablas al recorrerlas (`ReportTable.lazy`),
+ * así que en memoria solo hay un trozo a la vez. Opcionalmente el informe se
+ * reparte en varios PDFs de un número máximo de filas (`generatePdfsStreaming`).
+ *
+ * Motor de larga duración: las clases y métodos de OpenHTMLToPDF se resuelven una
+ * vez por ejecución (`PdfEngine`), la caché de métricas de fuentes y la hoja de
+ * estilos se comparten entre informes y el primer uso deja el renderizador
+ * "caliente". Cada generador admite como mucho `renderizadores` renderizados a la
+ * vez (cada uno tiene en memoria el DOM de su documento); para exportar muchos
+ * informes conviene usar siempre el mismo, p. ej. `compartido()`.
+ *
+ * Los métodos que reciben un `ExportProgress` avisan de las filas renderizadas y
+ * los bytes escritos, y se pueden cancelar entre fila y fila.
  */
 public class PdfReportGenerator {
+    /** Filas por trozo por defecto en {@link #generatePdfStreaming(ReportData, Path)}. */
+    public static final int FILAS_POR_TROZO_DEFECTO = 2_000;
+    /** Renderizados simultáneos por defecto: entre 1 y 4, según los procesadores. */
+    public static final int RENDERIZADORES_DEFECTO = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    // Hoja de estilos de los informes, compartida por todos los documentos
+    private static final String ESTILOS =
+            "body { font-family: Arial, Helvetica, sans-serif; margin: 20px; }\n"
+            + "h1 { color: #333; }\n"
+            + ".meta { margin-bottom: 20px; }\n"
+            + "table { width: 100%; border-collapse: collapse; margin-bottom: 20px; }\n"
+            + "th,td { border: 1px solid #ddd; padding: 8px; font-size: 12px; }\n"
+            + "th { background: #f4f4f4; text-align: left; }\n"
+            + ".kpi { font-weight: bold; font-size: 14px; }\n";
+
+    // Usar XHTML 1.0 Strict para compatibilidad XML
+    private static final String INICIO_DOCUMENTO =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<!DOCTYPE html PUBLIC \"-//W3C//DTD XHTML 1.0 Strict//EN\" "
+            + "\"http://www.w3.org/TR/xhtml1/DTD/xhtml1-strict.dtd\">\n"
+            + "<html xmlns=\"http://www.w3.org/1999/xhtml\" xml:lang=\"es\" lang=\"es\">\n"
+            + "<head>\n"
+            + "<meta http-equiv=\"Content-Type\" content=\"text/html; charset=UTF-8\" />\n"
+            + "<style type=\"text/css\">\n" + ESTILOS + "</style>\n"
+            + "</head>\n<body>\n";
+
+    // Documento mínimo con la hoja de estilos y los elementos de un informe, para calentar el motor
+    static final String HTML_CALENTAMIENTO = INICIO_DOCUMENTO
+            + "<h1>Informe</h1><div class='meta'><div><strong>a:</strong> b</div></div>\n"
+            + "<h2>Tabla</h2>\n<table summary=\"Tabla\">\n<thead>\n<tr>\n<th scope=\"col\">A</th>\n</tr>\n</thead>\n"
+            + "<tbody>\n<tr>\n<td>1 áéíóúñ</td>\n</tr>\n</tbody>\n</table>\n</body>\n</html>";
+
+    private static final PdfReportGenerator COMPARTIDO = new PdfReportGenerator();
+
+    private final Semaphore renderizadores;
+
+    public PdfReportGenerator() {
+        this(RENDERIZADORES_DEFECTO);
+    }
+
+    /** @param renderizadores número máximo de PDFs que este generador renderiza a la vez */
+    public PdfReportGenerator(int renderizadores) {
+        if (renderizadores <= 0) throw new IllegalArgumentException("Renderizadores debe ser positivo: " + renderizadores);
+        this.renderizadores = new Semaphore(renderizadores, true);
+    }
+
+    /** Generador compartido por toda la aplicación, con {@link #RENDERIZADORES_DEFECTO} renderizados a la vez. */
+    public static PdfReportGenerator compartido() {
+        return COMPARTIDO;
+    }
+
+    /**
+     * Resuelve y calienta el motor de PDF si aún no lo está, para que el primer
+     * informe no pague ese coste (p. ej. al empezar una exportación por lotes).
+     */
+    public void calentar() throws Exception {
+        PdfEngine.get();
+    }
 
     /** Genera un PDF a partir del ReportData usando OpenHTMLToPDF vía reflexión */
     public void generatePdf(ReportData data, Path destino) throws Exception {
+        generatePdf(data, destino, ExportProgress.NINGUNO);
+    }
+
+    /**
+     * Como {@link #generatePdf(ReportData, Path)}, con seguimiento: las filas se
+     * notifican todas al terminar, porque el documento se renderiza de una vez.
+     */
+    public void generatePdf(ReportData data, Path destino, ExportProgress progreso) throws Exception {
         if (destino == null) throw new IllegalArgumentException("Destino del PDF es null");
         String html = buildHtml(data);
-        try (OutputStream os = Files.newOutputStream(destino)) {
-            // Usar reflexión para evitar dependencias de módulos en tiempo de compilación
-            Class<?> builderClass = Class.forName("com.openhtmltopdf.pdfboxout.PdfRendererBuilder");
-            Object builder = builderClass.getDeclaredConstructor().newInstance();
-            Method useFastMode = builderClass.getMethod("useFastMode");
-            useFastMode.invoke(builder);
-            Method withHtml = builderClass.getMethod("withHtmlContent", String.class, String.class);
-            // withHtml recibe el contenido HTML y una baseUri (null si no aplica)
-            withHtml.invoke(builder, html, null);
-            Method toStream = builderClass.getMethod("toStream", java.io.OutputStream.class);
-            toStream.invoke(builder, os);
-            Method run = builderClass.getMethod("run");
-            run.invoke(builder);
-        } catch (java.lang.reflect.InvocationTargetException ite) {
-            // La llamada reflectiva lanzó una excepción en tiempo de ejecución: desempaquetar la causa
-            Throwable cause = ite.getCause();
-            if (cause != null) {
-                // Re-lanzar con la causa original para que el UI muestre el mensaje real
-                throw new Exception("Error al generar el PDF: " + cause.getMessage(), cause);
+        comprobarCancelado(progreso);
+        render(html, destino, progreso);
+        int filas = 0;
+        for (ReportTable table : data.getTables()) filas += table.getRowCount();
+        progreso.filasRenderizadas(filas);
+    }
+
+    /** Como {@link #generatePdfStreaming(ReportData, Path, int)} con {@link #FILAS_POR_TROZO_DEFECTO}. */
+    public void generatePdfStreaming(ReportData data, Path destino) throws Exception {
+        generatePdfStreaming(data, destino, FILAS_POR_TROZO_DEFECTO);
+    }
+
+    /**
+     * Genera el PDF por trozos de {@code filasPorTrozo} filas, con memoria acotada
+     * por el tamaño del trozo y no por el del informe. Las tablas que no caben en
+     * un trozo siguen en el siguiente, con su cabecera repetida. El PDF se escribe
+     * primero en un archivo temporal junto a {@code destino} y se mueve al final,
+     * así que si algo falla no queda un PDF a medias.
+     */
+    public void generatePdfStreaming(ReportData data, Path destino, int filasPorTrozo) throws Exception {
+        generatePdfsStreaming(data, destino, filasPorTrozo, 0);
+    }
+
+    /**
+     * Como {@link #generatePdfStreaming(ReportData, Path, int)}, pero reparte el
+     * informe en varios PDFs de como mucho {@code filasPorArchivo} filas
+     * (redondeado a trozos enteros): {@code nombre-parte-1.pdf}, {@code nombre-parte-2.pdf}...
+     * junto a {@code destino}. Cada parte empieza con el título del informe. Si todo
+     * cabe en una parte, o {@code filasPorArchivo} es 0, se genera solo {@code destino}.
+     *
+     * @return los PDFs generados, en orden
+     */
+    public List<Path> generatePdfsStreaming(ReportData data, Path destino, int filasPorTrozo,
+                                            int filasPorArchivo) throws Exception {
+        return generatePdfsStreaming(data, destino, filasPorTrozo, filasPorArchivo, ExportProgress.NINGUNO);
+    }
+
+    /**
+     * Como {@link #generatePdfsStreaming(ReportData, Path, int, int)}, con
+     * seguimiento: las filas se notifican al terminar cada trozo. Si se cancela, se
+     * lanza {@link CancellationException} y no se genera ningún archivo.
+     */
+    public List<Path> generatePdfsStreaming(ReportData data, Path destino, int filasPorTrozo,
+                                            int filasPorArchivo, ExportProgress progreso) throws Exception {
+        if (destino == null) throw new IllegalArgumentException("Destino del PDF es null");
+        if (filasPorTrozo <= 0) throw new IllegalArgumentException("Filas por trozo debe ser positivo: " + filasPorTrozo);
+        if (filasPorArchivo < 0) throw new IllegalArgumentException("Filas por archivo no puede ser negativo: " + filasPorArchivo);
+        int trozosPorArchivo = filasPorArchivo == 0 ? Integer.MAX_VALUE
+                : Math.max(1, (filasPorArchivo + filasPorTrozo - 1) / filasPorTrozo);
+
+        Path carpeta = destino.toAbsolutePath().getParent();
+        Path temporal = Files.createTempDirectory(carpeta, ".informe-");
+        try {
+            Troceado troceado = new Troceado(data, temporal, filasPorTrozo, trozosPorArchivo, progreso);
+            troceado.recorrer();
+            List<Path> partes = troceado.partes;
+            List<Path> generados = new ArrayList<>(partes.size());
+            if (partes.size() == 1) {
+                mover(partes.get(0), destino);
+                generados.add(destino);
+                return generados;
+            }
+            String nombre = destino.getFileName().toString();
+            String base = nombre.toLowerCase().endsWith(".pdf") ? nombre.substring(0, nombre.length() - 4) : nombre;
+            for (int i = 0; i < partes.size(); i++) {
+                Path parte = destino.resolveSibling(base + "-parte-" + (i + 1) + ".pdf");
+                mover(partes.get(i), parte);
+                generados.add(parte);
+            }
+            return generados;
+        } finally {
+            borrar(temporal);
+        }
+    }
+
+    /**
+     * Recorre las tablas del informe y va cerrando trozos de {@code filasPorTrozo}
+     * filas; cada {@code trozosPorArchivo} trozos (o al terminar) los une en una parte.
+     */
+    private final class Troceado {
+        private final ReportData data;
+        private final Path temporal;
+        private final int filasPorTrozo;
+        private final int trozosPorArchivo;
+        private final ExportProgress progreso;
+        private final List<Path> trozos = new ArrayList<>();
+        private final List<Path> partes = new ArrayList<>();
+        private StringBuilder sb;
+        private int filas;
+
+        Troceado(ReportData data, Path temporal, int filasPorTrozo, int trozosPorArchivo, ExportProgress progreso) {
+            this.data = data;
+            this.temporal = temporal;
+            this.filasPorTrozo = filasPorTrozo;
+            this.trozosPorArchivo = trozosPorArchivo;
+            this.progreso = progreso;
+        }
+
+        void recorrer() throws Exception {
+            empezarTrozo();
+            for (ReportTable table : data.getTables()) {
+                // Una tabla nueva no empieza al final de un trozo lleno
+                if (filas == filasPorTrozo) {
+                    cerrarTrozo();
+                    empezarTrozo();
+                }
+                appendTableStart(sb, table, false);
+                for (List<String> row : table.iterateRows()) {
+                    comprobarCancelado(progreso);
+                    if (filas == filasPorTrozo) {
+                        sb.append("</tbody>\n</table>\n");
+                        cerrarTrozo();
+                        empezarTrozo();
+                        appendTableStart(sb, table, true);
+                    }
+                    appendRow(sb, row);
+                    filas++;
+                }
+                sb.append("</tbody>\n</table>\n");
+            }
+            cerrarTrozo();
+            if (!trozos.isEmpty()) cerrarParte();
+        }
+
+        private void empezarTrozo() {
+            sb = new StringBuilder();
+            appendDocumentStart(sb);
+            // Cada parte empieza con el título y la metadata del informe
+            if (trozos.isEmpty()) {
+                String titulo = data.getTitle();
+                if (trozosPorArchivo != Integer.MAX_VALUE && !partes.isEmpty()) {
+                    titulo = titulo + " (parte " + (partes.size() + 1) + ")";
+                }
+                appendHeader(sb, titulo, data);
+            }
+            filas = 0;
+        }
+
+        private void cerrarTrozo() throws Exception {
+            sb.append("</body>\n</html>");
+            Path trozo = temporal.resolve("trozo-" + partes.size() + "-" + trozos.size() + ".pdf");
+            render(sb.toString(), trozo, progreso);
+            sb = null;
+            progreso.filasRenderizadas(filas);
+            trozos.add(trozo);
+            if (trozos.size() == trozosPorArchivo) cerrarParte();
+        }
+
+        private void cerrarParte() throws Exception {
+            comprobarCancelado(progreso);
+            Path parte = temporal.resolve("parte-" + partes.size() + ".pdf");
+            if (trozos.size() == 1) {
+                Files.move(trozos.get(0), parte);
             } else {
-                throw new Exception("Error al generar el PDF: " + ite.getMessage(), ite);
+                unir(trozos, parte, temporal);
+                for (Path trozo : trozos) Files.deleteIfExists(trozo);
             }
-        } catch (ClassNotFoundException cnfe) {
-            // Si falta la dependencia en el classpath informamos claramente
-            throw new IllegalStateException("Dependencia OpenHTMLToPDF no encontrada en el classpath", cnfe);
-        } catch (ReflectiveOperationException roe) {
-            // Métodos de reflexión (NoSuchMethod, Instantiation, IllegalAccess, etc.)
-            throw new IllegalStateException("Error interno de reflexión al inicializar el generador PDF", roe);
+            trozos.clear();
+            partes.add(parte);
+        }
+    }
+
+    /** Renderiza el HTML a {@code destino}, esperando turno si ya hay tantos renderizados como admite. */
+    private void render(String html, Path destino, ExportProgress progreso) throws Exception {
+        PdfEngine motor = PdfEngine.get();
+        renderizadores.acquire();
+        // El búfer va delante del contador: los avisos llegan por bloques y no byte a byte
+        try (OutputStream os = new BufferedOutputStream(new Contador(Files.newOutputStream(destino), progreso), 64 * 1024)) {
+            motor.render(html, os);
+        } finally {
+            renderizadores.release();
+        }
+    }
+
+    private static void comprobarCancelado(ExportProgress progreso) {
+        if (progreso.isCancelado()) throw new CancellationException("Exportación cancelada");
+    }
+
+    // Flujo de salida que avisa al seguimiento de los bytes escritos
+    private static final class Contador extends FilterOutputStream {
+        private final ExportProgress progreso;
+
+        Contador(OutputStream out, ExportProgress progreso) {
+            super(out);
+            this.progreso = progreso;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            progreso.bytesEscritos(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            progreso.bytesEscritos(len);
+        }
+    }
+
+    // Une los trozos con el motor (PDFBox), con archivos temporales en lugar de memoria
+    private void unir(List<Path> trozos, Path destino, Path temporal) throws Exception {
+        PdfEngine.get().merge(trozos, destino, temporal);
+    }
+
+    // Mueve el archivo terminado a su destino, de forma atómica si el sistema de archivos lo permite
+    // (también lo usa ChannelWriter)
+    static void mover(Path origen, Path destino) throws IOException {
+        try {
+            Files.move(origen, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(origen, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Borra la carpeta temporal de los trozos (no tiene subcarpetas)
+    private static void borrar(Path carpeta) {
+        try (DirectoryStream<Path> contenido = Files.newDirectoryStream(carpeta)) {
+            for (Path p : contenido) Files.deleteIfExists(p);
+            Files.deleteIfExists(carpeta);
+        } catch (IOException e) {
+            carpeta.toFile().deleteOnExit();
         }
     }
 
@@ -71,46 +359,14 @@ public class PdfReportGenerator {
      */
     private String buildHtml(ReportData data) {
         StringBuilder sb = new StringBuilder();
-        // Usar XHTML 1.0 Strict para compatibilidad XML
-        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
-        sb.append("<!DOCTYPE html PUBLIC \"-//W3C//DTD XHTML 1.0 Strict//EN\" ");
-        sb.append("\"http://www.w3.org/TR/xhtml1/DTD/xhtml1-strict.dtd\">\n");
-        sb.append("<html xmlns=\"http://www.w3.org/1999/xhtml\" xml:lang=\"es\" lang=\"es\">\n");
-        sb.append("<head>\n");
-        sb.append("<meta http-equiv=\"Content-Type\" content=\"text/html; charset=UTF-8\" />\n");
-        sb.append("<style type=\"text/css\">\n");
-        sb.append("body { font-family: Arial, Helvetica, sans-serif; margin: 20px; }\n");
-        sb.append("h1 { color: #333; }\n");
-        sb.append(".meta { margin-bottom: 20px; }\n");
-        sb.append("table { width: 100%; border-collapse: collapse; margin-bottom: 20px; }\n");
-        sb.append("th,td { border: 1px solid #ddd; padding: 8px; font-size: 12px; }\n");
-        sb.append("th { background: #f4f4f4; text-align: left; }\n");
-        sb.append(".kpi { font-weight: bold; font-size: 14px; }\n");
-        sb.append("</style>\n");
-        sb.append("</head>\n<body>\n");
-
-        sb.append("<h1>").append(escapeHtml(data.getTitle())).append("</h1>");
-
-        // Mostrar metadata como pares clave:valor
-        sb.append("<div class='meta'>");
-        data.getMetadata().forEach((k,v) -> sb.append("<div><strong>").append(escapeHtml(k)).append(":</strong> ").append(escapeHtml(v)).append("</div>\n"));
-        sb.append("</div>");
+        appendDocumentStart(sb);
+        appendHeader(sb, data.getTitle(), data);
 
         // Renderizar cada ReportTable en orden
         for (ReportTable table : data.getTables()) {
-            sb.append("<h2>").append(escapeHtml(table.getName())).append("</h2>\n");
-            sb.append("<table summary=\"").append(escapeHtml(table.getName())).append("\">\n");
-            sb.append("<thead>\n<tr>\n");
-            for (String col : table.getColumns()) {
-                sb.append("<th scope=\"col\">").append(escapeHtml(col)).append("</th>\n");
-            }
-            sb.append("</tr>\n</thead>\n<tbody>\n");
-            for (List<String> row : table.getRows()) {
-                sb.append("<tr>\n");
-                for (String cell : row) {
-                    sb.append("<td>").append(escapeHtml(cell == null ? "" : cell)).append("</td>\n");
-                }
-                sb.append("</tr>\n");
+            appendTableStart(sb, table, false);
+            for (List<String> row : table.iterateRows()) {
+                appendRow(sb, row);
             }
             sb.append("</tbody>\n</table>\n");
         }
@@ -119,6 +375,41 @@ public class PdfReportGenerator {
         return sb.toString();
     }
 
+    // Cabecera XHTML y estilos, hasta la apertura de <body>
+    private void appendDocumentStart(StringBuilder sb) {
+        sb.append(INICIO_DOCUMENTO);
+    }
+
+    // Título y metadata del informe
+    private void appendHeader(StringBuilder sb, String title, ReportData data) {
+        sb.append("<h1>").append(escapeHtml(title)).append("</h1>");
+
+        // Mostrar metadata como pares clave:valor
+        sb.append("<div class='meta'>");
+        data.getMetadata().forEach((k,v) -> sb.append("<div><strong>").append(escapeHtml(k)).append(":</strong> ").append(escapeHtml(v)).append("</div>\n"));
+        sb.append("</div>");
+    }
+
+    // Título de la tabla y apertura hasta <tbody>; en un trozo que continúa la tabla, con "(continuación)"
+    private void appendTableStart(StringBuilder sb, ReportTable table, boolean continuation) {
+        String title = continuation ? table.getName() + " (continuación)" : table.getName();
+        sb.append("<h2>").append(escapeHtml(title)).append("</h2>\n");
+        sb.append("<table summary=\"").append(escapeHtml(table.getName())).append("\">\n");
+        sb.append("<thead>\n<tr>\n");
+        for (String col : table.getColumns()) {
+            sb.append("<th scope=\"col\">").append(escapeHtml(col)).append("</th>\n");
+        }
+        sb.append("</tr>\n</thead>\n<tbody>\n");
+    }
+
+    private void appendRow(StringBuilder sb, List<String> row) {
+        sb.append("<tr>\n");
+        for (String cell : row) {
+            sb.append("<td>").append(escapeHtml(cell == null ? "" : cell)).append("</td>\n");
+        }
+        sb.append("</tr>\n");
+    }
+
     private String escapeHtml(String s) {
         if (s == null) return "";
         return s.replace("&","&amp;").replace("<","&lt;").replace(">","&gt;").replace("\"","&quot;").replace("'","&#39;");
@@ -15,16 +15,37 @@ import java.util.List;
  * - `ReportService` construye instancias de `ReportTable` añadiendo columnas y
  *   filas ya convertidas a `String` (p. ej. fechas formateadas, nombres de usuario),
  *   para que `PdfReportGenerator` pueda renderizarlas sin conocer el modelo.
+ *
+ * Tablas perezosas (`lazy`): en lugar de guardar las filas, la tabla tiene una
+ * fuente que las produce al recorrerla (`iterateRows`). La usan los informes muy
+ * grandes con `PdfReportGenerator.generatePdfStreaming`, que las va renderizando
+ * por trozos sin tener nunca todas en memoria. En una tabla perezosa `getRows()`
+ * está vacía y `addRow` no se puede usar.
  */
 public class ReportTable {
     private String name;
     private List<String> columns = new ArrayList<>();
     private List<List<String>> rows = new ArrayList<>();
+    // Fuente de las filas de una tabla perezosa (null en una tabla normal) y su número de filas
+    private Iterable<List<String>> rowSource;
+    private int rowCount;
 
     public ReportTable(String name) {
         this.name = name;
     }
 
+    /**
+     * Tabla perezosa: las filas se piden a {@code source} cada vez que se recorre la
+     * tabla y no se guardan. {@code rowCount} es el número de filas previsto.
+     */
+    public static ReportTable lazy(String name, List<String> columns, Iterable<List<String>> source, int rowCount) {
+        ReportTable table = new ReportTable(name);
+        table.setColumns(columns);
+        table.rowSource = source;
+        table.rowCount = rowCount;
+        return table;
+    }
+
     public String getName() { return name; }
     public List<String> getColumns() { return columns; }
     public List<List<String>> getRows() { return rows; }
@@ -33,5 +54,17 @@ public class ReportTable {
     public void setColumns(List<String> cols) { this.columns = cols; }
 
     // Añade una fila; las celdas deben estar en el mismo orden que `columns`.
-    public void addRow(List<String> row) { rows.add(row); }
+    public void addRow(List<String> row) {
+        if (rowSource != null) throw new IllegalStateException("La tabla " + name + " obtiene sus filas de una fuente");
+        rows.add(row);
+    }
+
+    // Indica si las filas salen de una fuente al recorrer la tabla (ver `lazy`).
+    public boolean isLazy() { return rowSource != null; }
+
+    // Filas en orden: las guardadas o, en una tabla perezosa, las que produce la fuente.
+    public Iterable<List<String>> iterateRows() { return rowSource != null ? rowSource : rows; }
+
+    // Número de filas (en una tabla perezosa, el previsto al crearla).
+    public int getRowCount() { return rowSource != null ? rowCount : rows.size(); }
 }
@@ -0,0 +1,195 @@
+package com.proyecto.kanban.export;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Exportación de filas a un formato legible por máquina (CSV o NDJSON), para
+ * cargas de datos en lugar de lectura humana.
+ *
+ * Las filas se escriben celda a celda ({@link #celda}, {@link #finFila}) y van
+ * directas al archivo a través de un {@link ChannelWriter}: no se guarda ninguna
+ * fila, así que exportar millones de filas ocupa la misma memoria que exportar
+ * unas pocas. Con {@code gzip}, el archivo sale ya comprimido.
+ *
+ * Como los PDFs, el archivo se escribe en un temporal junto al destino y solo
+ * {@link #terminar()} lo pone en su sitio; cerrar sin terminar lo descarta.
+ *
+ * Uso:
+ * <pre>{@code
+ * try (RowWriter salida = RowWriter.abrir(RowWriter.Formato.CSV, destino, true, ExportProgress.NINGUNO)) {
+ *     salida.columnas(List.of("Id", "Titulo"));
+ *     salida.celda("1").celda("Primera").finFila();
+ *     salida.terminar();
+ * }
+ * }</pre>
+ */
+public abstract class RowWriter implements AutoCloseable {
+    /** Filas entre avisos de progreso y comprobaciones de cancelación. */
+    public static final int FILAS_POR_AVISO = 512;
+
+    /** Formatos de salida, con la extensión de sus archivos. */
+    public enum Formato {
+        /** Valores separados por comas (RFC 4180), con una línea de cabecera. */
+        CSV("csv"),
+        /** Un objeto JSON por línea, con las columnas como claves. */
+        NDJSON("ndjson");
+
+        private final String extension;
+
+        Formato(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() { return extension; }
+
+        /** Extensión del archivo, con {@code .gz} si va comprimido. */
+        public String extension(boolean gzip) {
+            return gzip ? extension + ".gz" : extension;
+        }
+
+        /** Formato por nombre ("csv", "ndjson"), sin distinguir mayúsculas. */
+        public static Formato de(String nombre) {
+            for (Formato f : values()) {
+                if (f.extension.equalsIgnoreCase(nombre)) return f;
+            }
+            throw new IllegalArgumentException("Formato desconocido: " + nombre);
+        }
+    }
+
+    final ChannelWriter salida;
+    private final ExportProgress progreso;
+    private int numColumnas = -1;
+    private int celdas;
+    private long filas;
+    private int filasSinAvisar;
+
+    RowWriter(ChannelWriter salida, ExportProgress progreso) {
+        this.salida = salida;
+        this.progreso = progreso;
+    }
+
+    /**
+     * Abre {@code destino} para escribir filas en el formato dado (la carpeta se crea
+     * si no existe).
+     *
+     * @param progreso recibe las filas escritas y los bytes que llegan al archivo
+     */
+    public static RowWriter abrir(Formato formato, Path destino, boolean gzip, ExportProgress progreso)
+            throws IOException {
+        ChannelWriter salida = new ChannelWriter(destino, gzip, progreso);
+        return formato == Formato.CSV ? new CsvRowWriter(salida, progreso) : new NdjsonRowWriter(salida, progreso);
+    }
+
+    /**
+     * Exporta cada tabla del informe a su propio archivo: {@code destino} si solo hay
+     * una, o {@code nombre-Tabla.ext} junto a {@code destino} si hay varias. Las
+     * tablas perezosas se recorren sin cargar sus filas. Los metadatos del informe
+     * no se exportan. Si se cancela, se lanza {@link CancellationException} y no
+     * queda ningún archivo a medias.
+     *
+     * @return los archivos generados, en el orden de las tablas
+     */
+    public static List<Path> exportar(ReportData data, Path destino, Formato formato, boolean gzip,
+                                      ExportProgress progreso) throws IOException {
+        List<ReportTable> tablas = data.getTables();
+        List<Path> generados = new ArrayList<>(tablas.size());
+        String nombre = destino.getFileName().toString();
+        String sufijo = "." + formato.extension(gzip);
+        String base = nombre.endsWith(sufijo) ? nombre.substring(0, nombre.length() - sufijo.length()) : nombre;
+        for (ReportTable table : tablas) {
+            Path archivo = tablas.size() == 1 ? destino
+                    : destino.resolveSibling(base + "-" + table.getName().replaceAll("[^\\p{L}\\p{N}_-]", "_") + sufijo);
+            try (RowWriter salida = abrir(formato, archivo, gzip, progreso)) {
+                salida.escribir(table);
+                salida.terminar();
+            }
+            generados.add(archivo);
+        }
+        return generados;
+    }
+
+    /** Define las columnas; se llama una vez, antes de la primera fila. */
+    public RowWriter columnas(List<String> columnas) throws IOException {
+        if (numColumnas >= 0) throw new IllegalStateException("Las columnas ya están definidas");
+        numColumnas = columnas.size();
+        empezar(columnas);
+        return this;
+    }
+
+    /** Añade la siguiente celda de la fila actual; {@code null} se escribe como vacía. */
+    public RowWriter celda(CharSequence valor) throws IOException {
+        if (numColumnas < 0) throw new IllegalStateException("Faltan las columnas");
+        if (celdas == numColumnas) throw new IllegalStateException("La fila tiene más de " + numColumnas + " celdas");
+        escribirCelda(celdas++, valor != null ? valor : "");
+        return this;
+    }
+
+    /**
+     * Termina la fila actual, que debe tener una celda por columna.
+     *
+     * @throws CancellationException si el seguimiento pide cancelar (se mira cada {@link #FILAS_POR_AVISO} filas)
+     */
+    public void finFila() throws IOException {
+        if (celdas != numColumnas) {
+            throw new IllegalStateException("La fila tiene " + celdas + " celdas y hay " + numColumnas + " columnas");
+        }
+        terminarFila();
+        celdas = 0;
+        filas++;
+        if (++filasSinAvisar == FILAS_POR_AVISO) {
+            avisar();
+            if (progreso.isCancelado()) throw new CancellationException("Exportación cancelada");
+        }
+    }
+
+    /**
+     * Escribe las columnas y todas las filas de la tabla (si es perezosa, a medida
+     * que las produce su fuente).
+     *
+     * @throws CancellationException si el seguimiento pide cancelar
+     */
+    public void escribir(ReportTable table) throws IOException {
+        columnas(table.getColumns());
+        for (List<String> fila : table.iterateRows()) {
+            for (String valor : fila) celda(valor);
+            finFila();
+        }
+    }
+
+    /** Filas escritas hasta ahora. */
+    public long getFilas() { return filas; }
+
+    /** Bytes que han llegado ya al archivo. */
+    public long getBytesEscritos() { return salida.getBytesEscritos(); }
+
+    /** Escribe lo pendiente y pone el archivo en su destino. */
+    public void terminar() throws IOException {
+        if (celdas != 0) throw new IllegalStateException("La última fila está sin terminar");
+        avisar();
+        salida.terminar();
+    }
+
+    /** Cierra el archivo; sin {@link #terminar()}, lo descarta. */
+    @Override
+    public void close() throws IOException {
+        salida.close();
+    }
+
+    private void avisar() {
+        if (filasSinAvisar > 0) progreso.filasRenderizadas(filasSinAvisar);
+        filasSinAvisar = 0;
+    }
+
+    /** Escribe lo que el formato necesita antes de las filas. */
+    abstract void empezar(List<String> columnas) throws IOException;
+
+    /** Escribe la celda de la columna {@code columna} (desde 0) de la fila actual. */
+    abstract void escribirCelda(int columna, CharSequence valor) throws IOException;
+
+    /** Escribe el final de la fila actual. */
+    abstract void terminarFila() throws IOException;
+}
@@ -0,0 +1,154 @@
+package com.proyecto.kanban.main;
+
+import com.proyecto.kanban.export.ExportProgress;
+import com.proyecto.kanban.export.PdfReportGenerator;
+import com.proyecto.kanban.export.RowWriter;
+import com.proyecto.kanban.model.Proyecto;
+import com.proyecto.kanban.model.Usuario;
+import com.proyecto.kanban.service.BatchExport;
+import com.proyecto.kanban.service.ProjectService;
+import com.proyecto.kanban.service.ReportPeriod;
+import com.proyecto.kanban.service.ReportService;
+import com.proyecto.kanban.storage.DurableStorage;
+import com.proyecto.kanban.storage.Repository;
+import com.proyecto.kanban.storage.SqlStorageEngine;
+import com.proyecto.kanban.storage.StorageEngine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Exportación por lotes sin interfaz gráfica (p. ej. para el cierre de mes desde
+ * una tarea programada): genera el resumen en PDF de cada proyecto para cada uno de
+ * los últimos periodos, con {@link BatchExport}.
+ *
+ * Uso (con el jar de la aplicación):
+ * {@code java -cp kanban.jar com.proyecto.kanban.main.BatchExportApp [opciones]}
+ * - {@code --usuario email}: solo los proyectos de ese usuario (por defecto, todos).
+ * - {@code --semanas N} o {@code --meses N}: periodos a exportar (por defecto, 12 semanas).
+ * - {@code --hasta AAAA-MM-DD}: último día incluido (por defecto, hoy).
+ * - {@code --salida carpeta}: carpeta de los PDFs (por defecto, {@code Informes}).
+ * - {@code --hilos N}: proyectos que se exportan a la vez.
+ * - {@code --volcado csv|ndjson}: en lugar de los PDFs, vuelca todas las tareas de
+ *   los proyectos a un único archivo {@code tareas-AAAA-MM-DD.csv} (o {@code .ndjson})
+ *   para cargas de datos; {@code --gzip} lo comprime. Ignora los periodos.
+ *
+ * Los datos se leen de la misma carpeta y con el mismo motor que {@link MainApp}
+ * ({@code -Dkanban.datos}, {@code -Dkanban.motor}); conviene ejecutarlo con la
+ * aplicación cerrada. Termina con código 1 si algún proyecto falla y 2 si los
+ * argumentos no son válidos.
+ */
+public class BatchExportApp {
+
+    public static void main(String[] args) throws Exception {
+        String email = null;
+        int cantidad = 12;
+        boolean meses = false;
+        LocalDate hasta = LocalDate.now();
+        Path salida = BatchExport.carpetaInformes();
+        int hilos = BatchExport.HILOS_DEFECTO;
+        RowWriter.Formato volcado = null;
+        boolean gzip = false;
+        List<ReportPeriod> periodos;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String valor = i + 1 < args.length ? args[i + 1] : null;
+                switch (args[i]) {
+                    case "--usuario" -> email = requerido(args[i], valor);
+                    case "--semanas" -> { cantidad = Integer.parseInt(requerido(args[i], valor)); meses = false; }
+                    case "--meses" -> { cantidad = Integer.parseInt(requerido(args[i], valor)); meses = true; }
+                    case "--hasta" -> hasta = LocalDate.parse(requerido(args[i], valor));
+                    case "--salida" -> salida = Paths.get(requerido(args[i], valor));
+                    case "--hilos" -> hilos = Integer.parseInt(requerido(args[i], valor));
+                    case "--volcado" -> volcado = RowWriter.Formato.de(requerido(args[i], valor));
+                    case "--gzip" -> { gzip = true; continue; }
+                    default -> throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+                }
+                i++;
+            }
+            // Un número de periodos no positivo también es un argumento no válido
+            periodos = meses ? ReportPeriod.ultimosMeses(cantidad, hasta) : ReportPeriod.ultimasSemanas(cantidad, hasta);
+        } catch (RuntimeException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println("Uso: BatchExportApp [--usuario email] [--semanas N | --meses N] [--hasta AAAA-MM-DD]"
+                    + " [--salida carpeta] [--hilos N] [--volcado csv|ndjson [--gzip]]");
+            System.exit(2);
+            return;
+        }
+        DurableStorage storage = null;
+        StorageEngine engine = null;
+        Repository repository;
+        Path datos = carpetaDatos();
+        if (datos != null && "sql".equalsIgnoreCase(System.getProperty("kanban.motor"))) {
+            Files.createDirectories(datos);
+            engine = SqlStorageEngine.open(datos.resolve("kanban"));
+            repository = new Repository(engine);
+        } else if (datos != null) {
+            storage = DurableStorage.open(datos);
+            repository = storage.getRepository();
+        } else {
+            repository = new Repository();
+        }
+
+        BatchExport.Resultado resultado = null;
+        try {
+            ProjectService projectService = new ProjectService(repository);
+            List<Proyecto> proyectos = null;
+            if (email != null) {
+                Usuario usuario = repository.buscarUsuarioPorEmail(email).orElse(null);
+                if (usuario != null) proyectos = projectService.getProyectosUsuario(usuario);
+                else System.err.println("Usuario no encontrado: " + email);
+            } else {
+                proyectos = projectService.getProyectos();
+            }
+            if (proyectos != null && volcado != null) {
+                volcar(proyectos, salida.resolve("tareas-" + hasta + "." + volcado.extension(gzip)), volcado, gzip);
+                return;
+            }
+            if (proyectos != null) {
+                System.out.println("Exportando " + proyectos.size() + " proyectos x " + periodos.size()
+                        + " periodos (" + periodos.get(0).desde() + " - " + periodos.get(periodos.size() - 1).hasta()
+                        + ") a " + salida.toAbsolutePath());
+                resultado = new BatchExport(new ReportService(), PdfReportGenerator.compartido(), hilos)
+                        .exportar(proyectos, periodos, salida);
+            }
+        } finally {
+            if (storage != null) storage.close();
+            if (engine != null) engine.close();
+        }
+        if (resultado == null) System.exit(2);
+
+        System.out.println(resultado.archivos().size() + " PDFs generados en "
+                + resultado.duracion().toMillis() / 1000.0 + " s");
+        resultado.errores().forEach(e -> System.err.println("Error: " + e));
+        if (!resultado.isCompleto()) System.exit(1);
+    }
+
+    private static void volcar(List<Proyecto> proyectos, Path destino, RowWriter.Formato formato, boolean gzip)
+            throws IOException {
+        long inicio = System.nanoTime();
+        long filas;
+        try (RowWriter salida = RowWriter.abrir(formato, destino, gzip, ExportProgress.NINGUNO)) {
+            filas = new ReportService().volcarTareas(proyectos, salida);
+            salida.terminar();
+        }
+        System.out.println(filas + " tareas de " + proyectos.size() + " proyectos volcadas a "
+                + destino.toAbsolutePath() + " en " + (System.nanoTime() - inicio) / 1_000_000 / 1000.0 + " s");
+    }
+
+    // Como en MainApp, que no se puede usar aquí: cargarla exige JavaFX
+    private static Path carpetaDatos() {
+        String prop = System.getProperty("kanban.datos");
+        if (prop == null) return Paths.get(System.getProperty("user.dir"), "Datos");
+        return prop.isBlank() ? null : Paths.get(prop);
+    }
+
+    private static String requerido(String opcion, String valor) {
+        if (valor == null) throw new IllegalArgumentException("Falta el valor de " + opcion);
+        return valor;
+    }
+}
@@ -0,0 +1,101 @@
+package com.proyecto.kanban.main;
+
+import com.proyecto.kanban.model.EstadoTarea;
+import com.proyecto.kanban.model.Etiqueta;
+import com.proyecto.kanban.model.FechaLimite;
+import com.proyecto.kanban.model.Prioridad;
+import com.proyecto.kanban.model.Proyecto;
+import com.proyecto.kanban.model.Tarea;
+import com.proyecto.kanban.model.Usuario;
+import com.proyecto.kanban.storage.Repository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mide la memoria que ocupa cada tarea en el heap, para comprobar el efecto de los
+ * cambios en la representación del modelo.
+ *
+ * Crea un proyecto con N tareas variadas (con y sin asignado, fecha límite y
+ * etiquetas, en todos los estados) y muestra los bytes por tarea en tres pasos:
+ * solo las tareas, con los índices de vencimientos y estadísticas activos, y
+ * registradas en el motor en memoria (búsqueda por id). Los títulos se crean antes
+ * de medir y no cuentan: dependen de los datos, no del modelo.
+ *
+ * Uso: {@code java -cp kanban.jar com.proyecto.kanban.main.HeapFootprintApp [--tareas N]}
+ * (por defecto 200.000). Conviene darle heap de sobra ({@code -Xmx1g}) para que las
+ * recolecciones entre medidas sean completas.
+ */
+public class HeapFootprintApp {
+
+    public static void main(String[] args) {
+        int n = 200_000;
+        for (int i = 0; i < args.length; i++) {
+            if ("--tareas".equals(args[i]) && i + 1 < args.length) {
+                n = Integer.parseInt(args[++i]);
+            } else {
+                System.err.println("Uso: HeapFootprintApp [--tareas N]");
+                System.exit(2);
+                return;
+            }
+        }
+
+        Usuario usuario = new Usuario("Ana", "ana@ejemplo.com");
+        List<Etiqueta> etiquetas = List.of(new Etiqueta("bug", "#ff0000"), new Etiqueta("ui", "#00ff00"),
+                new Etiqueta("api", "#0000ff"));
+        String[] titulos = new String[n];
+        for (int i = 0; i < n; i++) titulos[i] = "Tarea " + i;
+        Prioridad[] prioridades = Prioridad.values();
+        EstadoTarea[] estados = EstadoTarea.values();
+
+        long base = heapUsado();
+        Proyecto proyecto = new Proyecto("Medida", "");
+        List<Tarea> tareas = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            FechaLimite limite = i % 3 == 0 ? new FechaLimite(LocalDate.of(2030, 1, 1 + i % 28)) : null;
+            Tarea t = new Tarea(titulos[i], "", i % 2 == 0 ? usuario : null, limite,
+                    prioridades[i % prioridades.length], estados[i % estados.length]);
+            if (i % 2 == 0) t.agregarEtiqueta(etiquetas.get(i % etiquetas.size()));
+            proyecto.agregarTarea(t);
+            tareas.add(t);
+        }
+        long conTareas = heapUsado();
+        informar("tareas", conTareas - base, n);
+
+        proyecto.indiceVencimientosActivo();
+        proyecto.estadisticasActivas();
+        long conIndices = heapUsado();
+        informar("+ vencimientos y estadísticas", conIndices - conTareas, n);
+
+        Repository repository = new Repository();
+        repository.agregarProyecto(proyecto);
+        String ultimo = tareas.get(n - 1).getId();
+        if (repository.buscarTarea(ultimo).isEmpty()) throw new IllegalStateException("Tarea no registrada");
+        long conRegistro = heapUsado();
+        informar("+ registro por id", conRegistro - conIndices, n);
+        informar("total", conRegistro - base, n);
+
+        // Mantiene vivo lo medido hasta el final
+        if (repository.getProyectos().size() + tareas.size() + titulos.length == 0) System.out.println();
+    }
+
+    private static void informar(String paso, long bytes, int tareas) {
+        System.out.printf("%-32s %,12d bytes  %6d bytes/tarea%n", paso, bytes, bytes / tareas);
+    }
+
+    // Heap ocupado tras varias recolecciones seguidas
+    private static long heapUsado() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
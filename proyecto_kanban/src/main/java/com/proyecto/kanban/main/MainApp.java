@@ -1,37 +1,89 @@
 package com.proyecto.kanban.main;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.stage.Stage;
+import com.proyecto.kanban.service.AsyncServices;
 import com.proyecto.kanban.service.AuthService;
+import com.proyecto.kanban.service.ProjectService;
+import com.proyecto.kanban.service.ReportService;
+import com.proyecto.kanban.service.TaskService;
+import com.proyecto.kanban.storage.DurableStorage;
 import com.proyecto.kanban.storage.Repository;
+import com.proyecto.kanban.storage.SqlStorageEngine;
+import com.proyecto.kanban.storage.StorageEngine;
 import com.proyecto.kanban.view.LoginView;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 /**
  * Clase principal de la aplicación Kanban.
+ *
+ * Persistencia: por defecto los datos se guardan en la carpeta {@code Datos} del
+ * directorio de trabajo. Se puede elegir otra carpeta con {@code -Dkanban.datos=ruta},
+ * o trabajar solo en memoria con {@code -Dkanban.datos=} (valor vacío).
+ *
+ * Motor: {@code -Dkanban.motor=log} (por defecto) usa memoria + log/snapshots
+ * ({@link DurableStorage}); {@code -Dkanban.motor=sql} usa la base de datos H2
+ * embebida ({@link SqlStorageEngine}) dentro de la misma carpeta.
+ *
+ * Las vistas llaman a los servicios a través de {@link AsyncServices}, fuera del
+ * hilo de JavaFX, para que la ventana no se congele mientras se lee o escribe en disco.
  */
 public class MainApp extends Application {
-    
+
     private AuthService authService;
+    private AsyncServices servicios;
     private Repository repository;
-    
+    private DurableStorage storage;
+    private StorageEngine engine;
+
     @Override
     public void init() throws Exception {
-        repository = new Repository();
+        Path datos = carpetaDatos();
+        if (datos != null && "sql".equalsIgnoreCase(System.getProperty("kanban.motor"))) {
+            Files.createDirectories(datos);
+            engine = SqlStorageEngine.open(datos.resolve("kanban"));
+            repository = new Repository(engine);
+        } else if (datos != null) {
+            storage = DurableStorage.open(datos);
+            repository = storage.getRepository();
+        } else {
+            repository = new Repository();
+        }
         authService = new AuthService(repository);
+        servicios = new AsyncServices(authService, new ProjectService(repository), new TaskService(repository),
+                new ReportService(), Platform::runLater);
     }
-    
+
     @Override
     public void start(Stage primaryStage) {
         primaryStage.setTitle("Kanban Planner");
         primaryStage.setMaximized(true); // Maximizar ventana para mejor visualización
         showLoginScreen(primaryStage);
     }
-    
+
+    @Override
+    public void stop() throws Exception {
+        servicios.close();
+        // Vuelca el log pendiente y deja un snapshot para que el próximo arranque sea rápido
+        if (storage != null) storage.close();
+        if (engine != null) engine.close();
+    }
+
     private void showLoginScreen(Stage stage) {
-        LoginView loginView = new LoginView(authService);
+        LoginView loginView = new LoginView(servicios);
         loginView.show(stage);
     }
-    
+
+    private static Path carpetaDatos() {
+        String prop = System.getProperty("kanban.datos");
+        if (prop == null) return Paths.get(System.getProperty("user.dir"), "Datos");
+        return prop.isBlank() ? null : Paths.get(prop);
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
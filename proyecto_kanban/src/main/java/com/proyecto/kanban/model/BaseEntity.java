@@ -1,5 +1,6 @@
 package com.proyecto.kanban.model;
 
+import java.util.Objects;
 import java.util.UUID;
 
 /**
@@ -10,16 +11,91 @@ import java.util.UUID;
  * - Servir como ejemplo pedagógico de herencia (usando la palabra clave `extends`).
  *
  * Uso:
- * - Las clases que extiendan {@code BaseEntity} heredarán el campo {@code id}
+ * - Las clases que extiendan {@code BaseEntity} heredarán el identificador
  *   y el método {@link #getId()} sin necesitar declararlo de nuevo.
  * - En el constructor de la subclase se llama a {@code super()} para ejecutar
- *   la inicialización definida aquí (generación del UUID).
+ *   la inicialización definida aquí (generación del id con el {@link GeneradorIds}
+ *   configurado; por defecto {@link GeneradorIdsTemporal}, que ordena los ids por
+ *   momento de creación y no usa {@code SecureRandom}).
+ * - Al restaurar una entidad desde disco se usa {@link #BaseEntity(String)} para
+ *   conservar el id original en lugar de generar uno nuevo.
+ *
+ * Memoria: un UUID en forma canónica (36 caracteres hexadecimales en minúscula con
+ * guiones) se guarda como sus 128 bits en dos {@code long}, en lugar de un String de
+ * unos 80 bytes por entidad; {@link #getId()} devuelve el texto construido a partir
+ * de ellos, y {@link #getClaveId()} una clave compacta para mapas e índices. Los ids que no tienen esa forma (datos antiguos o escritos a mano) se
+ * conservan tal cual.
  */
 public abstract class BaseEntity {
-    /** Identificador único generado al crear la instancia. */
-    protected final String id = UUID.randomUUID().toString();
+    private static volatile GeneradorIds generador = new GeneradorIdsTemporal();
+
+    /** Identificador único generado al crear la instancia: mitades alta y baja del UUID. */
+    private final long idAlto;
+    private final long idBajo;
+    // Solo para ids que no son un UUID canónico; null en el caso normal
+    private final String idTexto;
+
+    protected BaseEntity() {
+        this(null);
+    }
+
+    /** Crea la entidad con un id conocido; si es {@code null} se genera uno nuevo. */
+    protected BaseEntity(String id) {
+        if (id == null) {
+            UUID uuid = generador.siguiente();
+            this.idAlto = uuid.getMostSignificantBits();
+            this.idBajo = uuid.getLeastSignificantBits();
+            this.idTexto = null;
+        } else {
+            ClaveId clave = ClaveId.de(id);
+            this.idAlto = clave.alto();
+            this.idBajo = clave.bajo();
+            this.idTexto = clave.texto();
+        }
+    }
+
+    /**
+     * Cambia el generador de los ids de las entidades que se creen a partir de ahora
+     * (las restauradas desde disco conservan el suyo).
+     */
+    public static void setGeneradorIds(GeneradorIds nuevo) {
+        generador = Objects.requireNonNull(nuevo);
+    }
 
+    /**
+     * El id en texto. Se construye en cada llamada: para indexar o comparar
+     * entidades por id, mejor {@link #getClaveId()}, {@link #mismoId} o {@link #compararId}.
+     */
     public String getId() {
-        return id;
+        return idTexto != null ? idTexto : new UUID(idAlto, idBajo).toString();
+    }
+
+    /** El id en forma compacta, para usarlo como clave sin construir su texto. */
+    public final ClaveId getClaveId() {
+        return new ClaveId(idAlto, idBajo, idTexto);
+    }
+
+    /** Compara los ids sin construir su texto. */
+    protected final boolean mismoId(BaseEntity otra) {
+        return idAlto == otra.idAlto && idBajo == otra.idBajo && Objects.equals(idTexto, otra.idTexto);
+    }
+
+    /** Hash del id coherente con {@link #mismoId}, sin construir su texto. */
+    protected final int hashId() {
+        return idTexto != null ? idTexto.hashCode() : Long.hashCode(idAlto ^ idBajo);
+    }
+
+    /**
+     * Orden total entre ids, coherente con {@link #mismoId} y sin construir su
+     * texto: primero los UUID canónicos, por sus bits, y después el resto, por su texto.
+     */
+    public static int compararId(BaseEntity a, BaseEntity b) {
+        if (a.idTexto == null && b.idTexto == null) {
+            int c = Long.compareUnsigned(a.idAlto, b.idAlto);
+            return c != 0 ? c : Long.compareUnsigned(a.idBajo, b.idBajo);
+        }
+        if (a.idTexto == null) return -1;
+        if (b.idTexto == null) return 1;
+        return a.idTexto.compareTo(b.idTexto);
     }
 }
@@ -0,0 +1,128 @@
+package com.proyecto.kanban.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Catálogo de etiquetas de un proyecto.
+ *
+ * Guarda una única instancia de {@link Etiqueta} por nombre normalizado (sin espacios
+ * y en minúsculas): las tareas del proyecto referencian esa instancia en lugar de
+ * copias propias. Por eso renombrar o cambiar el color de una etiqueta es una sola
+ * operación sobre el catálogo que ven todas las tareas a la vez, y comprobar si una
+ * tarea ya tiene una etiqueta es una comparación de identidad.
+ *
+ * Cada entrada conserva su id (el de la primera etiqueta con ese nombre) y cuenta
+ * cuántas tareas en memoria la usan. Las entradas sin uso se mantienen para que el
+ * id no cambie si la etiqueta se vuelve a usar.
+ */
+public class CatalogoEtiquetas {
+
+    private final Map<String, Etiqueta> porNombre = new LinkedHashMap<>();
+    private final Map<String, Etiqueta> porId = new HashMap<>();
+    private final Map<Etiqueta, Integer> usos = new HashMap<>();
+
+    CatalogoEtiquetas() {}
+
+    /** Etiqueta del catálogo con ese nombre (sin distinguir mayúsculas ni espacios). */
+    public Optional<Etiqueta> buscar(String nombre) {
+        return Optional.ofNullable(porNombre.get(normalizar(nombre)));
+    }
+
+    /** Etiqueta del catálogo con ese id. */
+    public Optional<Etiqueta> buscarPorId(String id) {
+        return Optional.ofNullable(porId.get(id));
+    }
+
+    /** Número de tareas en memoria que usan la etiqueta. */
+    public int getUsos(Etiqueta etiqueta) {
+        return usos.getOrDefault(etiqueta, 0);
+    }
+
+    /** Todas las etiquetas del catálogo, en orden de alta. */
+    public List<Etiqueta> getEtiquetas() {
+        return new ArrayList<>(porNombre.values());
+    }
+
+    /** Etiquetas usadas por al menos una tarea, en orden de alta. */
+    public List<Etiqueta> getEtiquetasEnUso() {
+        List<Etiqueta> enUso = new ArrayList<>();
+        for (Etiqueta e : porNombre.values()) {
+            if (getUsos(e) > 0) enUso.add(e);
+        }
+        return enUso;
+    }
+
+    public int size() {
+        return porNombre.size();
+    }
+
+    /**
+     * Instancia del catálogo para esa etiqueta: la existente con el mismo nombre o,
+     * si no hay, la propia etiqueta, que pasa a formar parte del catálogo.
+     */
+    public Etiqueta internar(Etiqueta etiqueta) {
+        Etiqueta existente = porNombre.get(normalizar(etiqueta.getNombre()));
+        if (existente != null) return existente;
+        porNombre.put(normalizar(etiqueta.getNombre()), etiqueta);
+        porId.putIfAbsent(etiqueta.getId(), etiqueta);
+        return etiqueta;
+    }
+
+    /** Cambia el color de la etiqueta para todas las tareas que la usan. */
+    public void recolorear(Etiqueta etiqueta, String color) {
+        comprobarEntrada(etiqueta);
+        etiqueta.setColor(color);
+    }
+
+    // --- Mantenimiento (lo invocan Proyecto y Tarea) ---
+
+    /**
+     * Cambia el nombre de una entrada del catálogo. El proyecto actualiza después
+     * sus índices (ver {@link Proyecto#renombrarEtiqueta}).
+     * @throws IllegalArgumentException si el nombre está vacío o ya lo usa otra etiqueta
+     */
+    void renombrar(Etiqueta etiqueta, String nombre) {
+        comprobarEntrada(etiqueta);
+        if (nombre == null || nombre.trim().isEmpty()) {
+            throw new IllegalArgumentException("El nombre de la etiqueta no puede estar vacío");
+        }
+        String nueva = normalizar(nombre);
+        Etiqueta otra = porNombre.get(nueva);
+        if (otra != null && otra != etiqueta) {
+            throw new IllegalArgumentException("Ya existe una etiqueta llamada '" + otra.getNombre() + "'");
+        }
+        porNombre.remove(normalizar(etiqueta.getNombre()));
+        etiqueta.setNombre(nombre.trim());
+        porNombre.put(nueva, etiqueta);
+    }
+
+    void usada(Etiqueta etiqueta) {
+        usos.merge(etiqueta, 1, Integer::sum);
+    }
+
+    void liberada(Etiqueta etiqueta) {
+        usos.computeIfPresent(etiqueta, (e, n) -> n > 1 ? n - 1 : null);
+    }
+
+    /** Pone a cero los contadores de uso; el proyecto vuelve a contar sus tareas. */
+    void reiniciarUsos() {
+        usos.clear();
+    }
+
+    private void comprobarEntrada(Etiqueta etiqueta) {
+        if (etiqueta == null || porNombre.get(normalizar(etiqueta.getNombre())) != etiqueta) {
+            throw new IllegalArgumentException("La etiqueta no pertenece al catálogo del proyecto");
+        }
+    }
+
+    /** Clave de una etiqueta en el catálogo y en los índices: nombre sin espacios y en minúsculas. */
+    static String normalizar(String nombre) {
+        return nombre == null ? "" : nombre.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,167 @@
+package com.proyecto.kanban.model;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Cerrojos de lectura/escritura de los proyectos, repartidos en franjas.
+ *
+ * Cada proyecto usa la franja que le corresponde por su id, así que las operaciones
+ * sobre proyectos distintos casi nunca se esperan entre sí, no hay un cerrojo global
+ * y el número de cerrojos no crece con el de proyectos. Los servicios hacen las
+ * modificaciones de un proyecto (tareas, miembros, índices) con {@link #escribir} y
+ * las consultas con {@link #leer}.
+ *
+ * Las consultas no publican copias del proyecto: leen los objetos vivos con el
+ * cerrojo de lectura de la franja. Dos consultas sobre proyectos ya cargados no se
+ * esperan entre sí, pero sí esperan a cualquier modificación en curso de la misma
+ * franja (aunque sea de otro proyecto), y las modificaciones esperan a que terminen
+ * las consultas. Una consulta sobre un proyecto con tareas aún sin cargar pasa al
+ * cerrojo de escritura, porque cargar un bloque modifica la lista y los índices:
+ * mientras tanto excluye a las demás consultas de la franja.
+ *
+ * Reglas para no interbloquearse:
+ * - Las franjas de varios proyectos se toman en orden creciente
+ *   ({@link #escribir(Collection, Supplier)}, {@link #leerTodo}).
+ * - Quien ya tiene una franja y necesita otra menor no espera por ella: se intenta
+ *   sin esperar ({@link #escribirEnOrden}).
+ * - Dentro de {@link #leer} no se puede pasar a escritura en la misma franja: se
+ *   lanza {@link IllegalStateException} en lugar de quedarse esperando.
+ * - El cerrojo del proyecto se toma antes que los internos del almacenamiento.
+ */
+public final class CerrojosProyecto {
+    private static final int FRANJAS = 64;
+    private static final ReentrantReadWriteLock[] CERROJOS = new ReentrantReadWriteLock[FRANJAS];
+
+    static {
+        for (int i = 0; i < FRANJAS; i++) CERROJOS[i] = new ReentrantReadWriteLock();
+    }
+
+    private CerrojosProyecto() {}
+
+    /** Cerrojo de la franja del proyecto (compartido con otros proyectos de la misma franja). */
+    public static ReentrantReadWriteLock de(Proyecto proyecto) {
+        return CERROJOS[franja(proyecto)];
+    }
+
+    /** Ejecuta una consulta sobre el proyecto; sin proyecto, la ejecuta sin cerrojo. */
+    public static <T> T leer(Proyecto proyecto, Supplier<T> consulta) {
+        if (proyecto == null) return consulta.get();
+        ReentrantReadWriteLock cerrojo = de(proyecto);
+        if (cerrojo.isWriteLockedByCurrentThread()) return consulta.get();
+        cerrojo.readLock().lock();
+        try {
+            if (!proyecto.hayTareasPendientes()) return consulta.get();
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+        return escribir(proyecto, consulta);
+    }
+
+    /** Ejecuta una modificación del proyecto con su cerrojo de escritura. */
+    public static <T> T escribir(Proyecto proyecto, Supplier<T> cambio) {
+        if (proyecto == null) return cambio.get();
+        ReentrantReadWriteLock cerrojo = de(proyecto);
+        comprobarSinLectura(cerrojo);
+        cerrojo.writeLock().lock();
+        try {
+            return cambio.get();
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Como {@link #escribir(Proyecto, Supplier)}, para quien puede tener ya tomada la
+     * franja de otro proyecto (p. ej. una búsqueda por id que carga la tarea en su
+     * proyecto). Solo se espera por la franja si es mayor que todas las que tiene el
+     * hilo; si no, se intenta sin esperar.
+     * @throws IllegalStateException si la franja está ocupada y esperarla rompería el orden
+     */
+    public static <T> T escribirEnOrden(Proyecto proyecto, Supplier<T> cambio) {
+        ReentrantReadWriteLock cerrojo = de(proyecto);
+        comprobarSinLectura(cerrojo);
+        if (cerrojo.isWriteLockedByCurrentThread() || mayorTomada() < franja(proyecto)) {
+            cerrojo.writeLock().lock();
+        } else if (!cerrojo.writeLock().tryLock()) {
+            throw new IllegalStateException("El proyecto está bloqueado y esperarlo podría interbloquear");
+        }
+        try {
+            return cambio.get();
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /** @see #escribir(Proyecto, Supplier) */
+    public static void modificar(Proyecto proyecto, Runnable cambio) {
+        escribir(proyecto, () -> {
+            cambio.run();
+            return null;
+        });
+    }
+
+    /**
+     * Ejecuta una modificación que afecta a varios proyectos con el cerrojo de
+     * escritura de todas sus franjas, tomadas en orden creciente.
+     */
+    public static <T> T escribir(Collection<Proyecto> proyectos, Supplier<T> cambio) {
+        int[] franjas = proyectos.stream().filter(Objects::nonNull)
+                .mapToInt(CerrojosProyecto::franja).distinct().sorted().toArray();
+        for (int f : franjas) comprobarSinLectura(CERROJOS[f]);
+        int tomadas = 0;
+        try {
+            for (int f : franjas) {
+                CERROJOS[f].writeLock().lock();
+                tomadas++;
+            }
+            return cambio.get();
+        } finally {
+            while (tomadas > 0) CERROJOS[franjas[--tomadas]].writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ejecuta una consulta con el cerrojo de lectura de todas las franjas: mientras
+     * dura, nadie modifica ningún proyecto (p. ej. para una instantánea coherente de
+     * todo el repositorio). No se puede llamar con un proyecto bloqueado para escritura.
+     */
+    public static <T> T leerTodo(Supplier<T> consulta) {
+        for (ReentrantReadWriteLock c : CERROJOS) {
+            if (c.isWriteLockedByCurrentThread()) {
+                throw new IllegalStateException("No se puede bloquear todo con un proyecto en escritura");
+            }
+        }
+        int tomadas = 0;
+        try {
+            for (ReentrantReadWriteLock c : CERROJOS) {
+                c.readLock().lock();
+                tomadas++;
+            }
+            return consulta.get();
+        } finally {
+            while (tomadas > 0) CERROJOS[--tomadas].readLock().unlock();
+        }
+    }
+
+    private static void comprobarSinLectura(ReentrantReadWriteLock cerrojo) {
+        if (cerrojo.getReadHoldCount() > 0 && !cerrojo.isWriteLockedByCurrentThread()) {
+            throw new IllegalStateException("No se puede modificar un proyecto dentro de una consulta sobre él");
+        }
+    }
+
+    // Mayor franja que tiene tomada este hilo, en lectura o escritura (-1 si ninguna)
+    private static int mayorTomada() {
+        for (int i = FRANJAS - 1; i >= 0; i--) {
+            if (CERROJOS[i].isWriteLockedByCurrentThread() || CERROJOS[i].getReadHoldCount() > 0) return i;
+        }
+        return -1;
+    }
+
+    private static int franja(Proyecto proyecto) {
+        int h = proyecto.hashId();
+        return (h ^ (h >>> 16)) & (FRANJAS - 1);
+    }
+}
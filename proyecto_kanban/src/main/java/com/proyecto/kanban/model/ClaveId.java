@@ -0,0 +1,48 @@
+package com.proyecto.kanban.model;
+
+import java.util.UUID;
+
+/**
+ * Id de una entidad en la forma compacta de {@link BaseEntity}, para usarlo como
+ * clave de mapas sin construir su texto: un UUID canónico son sus dos mitades y
+ * {@code texto} es {@code null}; cualquier otro id se guarda tal cual en
+ * {@code texto}. Dos claves son iguales si y solo si lo son sus ids.
+ *
+ * Ocupa unos 32 bytes frente a los ~80 del String de 36 caracteres, y
+ * {@link #de(String)} la obtiene del texto sin formatear nada.
+ */
+public record ClaveId(long alto, long bajo, String texto) {
+
+    /** Clave del id dado, que no puede ser {@code null}. */
+    public static ClaveId de(String id) {
+        if (!esUuidCanonico(id)) return new ClaveId(0, 0, id);
+        return new ClaveId(hex(id, 0, 8) << 32 | hex(id, 9, 13) << 16 | hex(id, 14, 18),
+                hex(id, 19, 23) << 48 | hex(id, 24, 36), null);
+    }
+
+    /** El id en texto, el mismo que devuelve {@link BaseEntity#getId()}. */
+    @Override
+    public String toString() {
+        return texto != null ? texto : new UUID(alto, bajo).toString();
+    }
+
+    /**
+     * Solo se compactan los ids que {@link UUID#toString()} volvería a escribir
+     * exactamente igual, para que {@link #toString()} devuelva el mismo texto.
+     */
+    private static boolean esUuidCanonico(String id) {
+        if (id.length() != 36) return false;
+        for (int i = 0; i < 36; i++) {
+            char c = id.charAt(i);
+            boolean guion = i == 8 || i == 13 || i == 18 || i == 23;
+            if (guion ? c != '-' : !((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) return false;
+        }
+        return true;
+    }
+
+    private static long hex(String s, int desde, int hasta) {
+        long valor = 0;
+        for (int i = desde; i < hasta; i++) valor = valor << 4 | Character.digit(s.charAt(i), 16);
+        return valor;
+    }
+}
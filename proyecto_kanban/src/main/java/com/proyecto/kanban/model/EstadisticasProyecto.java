@@ -0,0 +1,127 @@
+package com.proyecto.kanban.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Contadores agregados de las tareas de un proyecto: total, tareas por estado,
+ * sin asignar y por usuario asignado, y la suma de {@link Tarea#getProgressPercent()}.
+ *
+ * Leerlos es O(1): no se recorren las tareas. Como {@link IndiceVencimientos}, se
+ * construyen la primera vez que se consultan (con todas las tareas cargadas) y desde
+ * entonces se actualizan de forma incremental: {@link Tarea} avisa desde
+ * {@code cambiarEstado} y {@code asignarUsuario}, y {@link Proyecto} al añadir una
+ * tarea. Quitar o reordenar tareas ya renumera la lista entera, y en ese caso los
+ * contadores se recalculan junto con los índices.
+ *
+ * Las tareas vencidas dependen del momento de la consulta, no de un cambio, así que
+ * no son un contador de esta clase: las cuenta {@link IndiceVencimientos#contarVencidas}.
+ */
+public class EstadisticasProyecto {
+    private static final EstadoTarea[] ESTADOS = EstadoTarea.values();
+
+    private final int[] porEstado = new int[ESTADOS.length];
+    // Tareas de cada usuario asignado (Usuario compara por id sin construir su texto)
+    private final Map<Usuario, Integer> porAsignado = new HashMap<>();
+    private int total;
+    private int sinAsignar;
+    private long sumaProgreso;
+    // Se marca al terminar de construirlo: quien lo ve activo lo ve completo
+    private volatile boolean activo;
+
+    EstadisticasProyecto() {}
+
+    /** Indica si los contadores ya se calcularon y se mantienen al día. */
+    public boolean isActivo() {
+        return activo;
+    }
+
+    /** Número de tareas del proyecto. */
+    public int getTotal() {
+        return total;
+    }
+
+    /** Número de tareas en ese estado. */
+    public int contar(EstadoTarea estado) {
+        return estado == null ? 0 : porEstado[estado.ordinal()];
+    }
+
+    /** Número de tareas sin usuario asignado. */
+    public int getSinAsignar() {
+        return sinAsignar;
+    }
+
+    /** Número de tareas asignadas al usuario. */
+    public int asignadasA(Usuario usuario) {
+        return usuario == null ? sinAsignar : porAsignado.getOrDefault(usuario, 0);
+    }
+
+    /** Media de {@link Tarea#getProgressPercent()} de las tareas (0 sin tareas). */
+    public double getProgresoMedio() {
+        return total == 0 ? 0 : (double) sumaProgreso / total;
+    }
+
+    // --- Mantenimiento (lo invocan Proyecto y Tarea) ---
+
+    /** Calcula los contadores con las tareas dadas (todas las del proyecto) y los activa. */
+    void activar(Iterable<Tarea> tareas) {
+        limpiar();
+        for (Tarea t : tareas) sumar(t);
+        activo = true;
+    }
+
+    /** Tarea nueva en el proyecto. */
+    void agregar(Tarea t) {
+        if (activo) sumar(t);
+    }
+
+    void estadoCambiado(EstadoTarea antes, EstadoTarea despues) {
+        if (!activo || antes == despues) return;
+        if (antes != null) porEstado[antes.ordinal()]--;
+        if (despues != null) porEstado[despues.ordinal()]++;
+        sumaProgreso += progreso(despues) - progreso(antes);
+    }
+
+    void asignadoCambiado(Usuario antes, Usuario despues) {
+        if (!activo) return;
+        if (Objects.equals(antes, despues)) return;
+        contarAsignado(antes, -1);
+        contarAsignado(despues, 1);
+    }
+
+    void limpiar() {
+        Arrays.fill(porEstado, 0);
+        porAsignado.clear();
+        total = 0;
+        sinAsignar = 0;
+        sumaProgreso = 0;
+    }
+
+    private void sumar(Tarea t) {
+        total++;
+        EstadoTarea estado = t.getEstado();
+        if (estado != null) porEstado[estado.ordinal()]++;
+        sumaProgreso += t.getProgressPercent();
+        contarAsignado(t.getAsignadoA(), 1);
+    }
+
+    private void contarAsignado(Usuario usuario, int delta) {
+        if (usuario == null) {
+            sinAsignar += delta;
+        } else {
+            porAsignado.merge(usuario, delta, (a, b) -> a + b == 0 ? null : a + b);
+        }
+    }
+
+    // Mismo criterio que Tarea.getProgressPercent()
+    private static int progreso(EstadoTarea estado) {
+        if (estado == null) return 0;
+        return switch (estado) {
+            case PENDIENTE -> 0;
+            case EN_PROGRESO -> 50;
+            case COMPLETADA -> 100;
+        };
+    }
+}
@@ -5,12 +5,25 @@ package com.proyecto.kanban.model;
  * Ejemplo: "Urgente", "Diseño", "Revisión", etc.
  *
  * Las etiquetas son objetos ligeros (nombre + color) y se usan para categorizar tareas.
+ * Tienen un id estable (heredado de {@link BaseEntity}) que se conserva al guardarlas.
+ *
+ * Dentro de un proyecto cada nombre tiene una sola instancia, compartida por todas
+ * sus tareas ({@link CatalogoEtiquetas}). Para renombrarla o cambiarle el color en
+ * todo el proyecto se usan {@link Proyecto#renombrarEtiqueta} y
+ * {@link CatalogoEtiquetas#recolorear}; {@link #setNombre} sobre una etiqueta del
+ * catálogo dejaría sus índices desactualizados.
  */
-public class Etiqueta {
+public class Etiqueta extends BaseEntity {
     private String nombre;
     private String color;
 
     public Etiqueta(String nombre, String color) {
+        this(null, nombre, color);
+    }
+
+    /** Recrea una etiqueta conservando su id original (restauración desde disco). */
+    public Etiqueta(String id, String nombre, String color) {
+        super(id);
         this.nombre = nombre;
         this.color = color;
     }
@@ -4,6 +4,7 @@ import com.proyecto.kanban.exceptions.FechaInvalidaException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.Objects;
 
 /**
@@ -41,6 +42,15 @@ public class FechaLimite {
         this.fechaHora = fechaHora;
     }
 
+    /**
+     * Reconstruye una fecha ya validada (la que {@link Tarea} guarda en forma compacta)
+     * sin volver a comprobarla.
+     */
+    FechaLimite(LocalDate fecha, LocalDateTime fechaHora) {
+        this.fecha = fecha;
+        this.fechaHora = fechaHora;
+    }
+
     /**
      * Valida que la fecha sea correcta.
      * @throws FechaInvalidaException si algun componente de la fecha es invalido
@@ -93,12 +103,25 @@ public class FechaLimite {
 
     /** Devuelve true si la fecha esta antes de hoy (vencida) */
     public boolean estaVencida() {
-        // Si hay hora, comparar con now exacto; si solo hay fecha, comparar por dia.
+        return estaVencida(LocalDateTime.now());
+    }
+
+    /**
+     * Devuelve true si el plazo ya habia terminado en el momento indicado.
+     * Si hay hora, se compara con el momento exacto; si solo hay fecha, por dia.
+     */
+    public boolean estaVencida(LocalDateTime momento) {
         if (fecha == null) return false;
-        if (fechaHora != null) {
-            return fechaHora.isBefore(LocalDateTime.now());
-        }
-        return fecha.isBefore(LocalDate.now());
+        return getFinDelPlazo().isBefore(momento);
+    }
+
+    /**
+     * Ultimo instante dentro del plazo: la fecha con hora si existe o, si no, el
+     * final del dia. Es la clave por la que se ordenan los vencimientos.
+     */
+    public LocalDateTime getFinDelPlazo() {
+        if (fecha == null) return null;
+        return fechaHora != null ? fechaHora : fecha.atTime(LocalTime.MAX);
     }
 
     /** Formato legible ISO (yyyy-MM-dd). Util para guardar como String. */
@@ -0,0 +1,25 @@
+package com.proyecto.kanban.model;
+
+import java.util.List;
+
+/**
+ * Origen externo de las tareas de un proyecto (snapshot en disco, base de datos...).
+ * Lo usa {@link TareasPaginadas} para cargar las tareas por bloques bajo demanda.
+ */
+public interface FuenteTareas {
+
+    /** Número total de tareas disponibles en la fuente. */
+    int contar();
+
+    /**
+     * Carga {@code cantidad} tareas empezando en la posición {@code desde}, en orden.
+     * Debe devolver exactamente {@code cantidad} tareas.
+     */
+    List<Tarea> cargar(int desde, int cantidad);
+
+    /**
+     * Posición de la tarea con ese id dentro de la fuente, o {@code -1} si no está.
+     * Permite localizar una tarea concreta sin cargar todas las demás.
+     */
+    int posicionDe(String tareaId);
+}
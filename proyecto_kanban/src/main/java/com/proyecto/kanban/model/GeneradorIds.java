@@ -0,0 +1,25 @@
+package com.proyecto.kanban.model;
+
+import java.util.UUID;
+
+/**
+ * Estrategia con la que {@link BaseEntity} genera el id de las entidades nuevas.
+ *
+ * Los ids son UUID de 128 bits escritos en forma canónica, así que cualquier
+ * generador sirve para el almacenamiento y la representación compacta de
+ * {@link BaseEntity}. Por defecto se usa {@link GeneradorIdsTemporal}; se puede
+ * cambiar con {@link BaseEntity#setGeneradorIds(GeneradorIds)}.
+ *
+ * Las implementaciones deben poder llamarse desde varios hilos a la vez.
+ */
+@FunctionalInterface
+public interface GeneradorIds {
+
+    /** Id para una entidad nueva. */
+    UUID siguiente();
+
+    /** UUID aleatorios (versión 4) de {@link UUID#randomUUID()}: sin orden y más lentos. */
+    static GeneradorIds aleatorio() {
+        return UUID::randomUUID;
+    }
+}
@@ -0,0 +1,108 @@
+package com.proyecto.kanban.model;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Generador de ids ordenados por momento de creación: UUID de la versión 7
+ * (RFC 9562), equivalentes a un ULID pero con la forma de UUID que ya usa el
+ * almacenamiento.
+ *
+ * Distribución de los 128 bits:
+ * - 48 bits: milisegundos desde 1970 (válido hasta el año 10889).
+ * - 4 bits: versión (7).
+ * - 12 bits: contador dentro del mismo milisegundo.
+ * - 2 bits: variante (10).
+ * - 62 bits: aleatorios, de {@link ThreadLocalRandom}.
+ *
+ * Cada id es estrictamente mayor que el anterior generado por la misma instancia,
+ * también entre hilos: el par milisegundo + contador se reserva con una operación
+ * CAS sobre un {@link AtomicLong}, sin bloqueos ni {@code SecureRandom}. Si en un
+ * milisegundo se agota el contador (4096 ids) o el reloj retrocede, se sigue con el
+ * milisegundo siguiente al último usado, así que el orden nunca se rompe.
+ *
+ * Orden: el texto canónico de los ids, su {@link #codificar codificación binaria}
+ * comparada byte a byte sin signo y {@link #ORDEN} dan el mismo orden, que es el
+ * de creación. Por eso los índices por id de los motores de almacenamiento quedan
+ * agrupados por antigüedad y un rango de fechas de creación es un rango de ids
+ * (ver {@link #primeroDesde(Instant)}). {@link UUID#compareTo} no sirve para esto:
+ * compara los {@code long} con signo.
+ */
+public final class GeneradorIdsTemporal implements GeneradorIds {
+
+    /** Orden de creación de los ids generados (comparación sin signo de los 128 bits). */
+    public static final Comparator<UUID> ORDEN = (a, b) -> {
+        int c = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return c != 0 ? c : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    };
+
+    private static final int BITS_CONTADOR = 12;
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANTE = 0x8000_0000_0000_0000L;
+    private static final long MASCARA_ALEATORIA = 0x3FFF_FFFF_FFFF_FFFFL;
+
+    private final LongSupplier reloj;
+    // Milisegundo y contador del último id: (milisegundos << 12) | contador
+    private final AtomicLong ultimo = new AtomicLong();
+
+    /** Generador con el reloj del sistema. */
+    public GeneradorIdsTemporal() {
+        this(System::currentTimeMillis);
+    }
+
+    /** Generador con otro reloj (milisegundos desde 1970), p. ej. para pruebas. */
+    public GeneradorIdsTemporal(LongSupplier reloj) {
+        this.reloj = reloj;
+    }
+
+    @Override
+    public UUID siguiente() {
+        long ahora = reloj.getAsLong() << BITS_CONTADOR;
+        long marca = ultimo.updateAndGet(previo -> Math.max(ahora, previo + 1));
+        long alto = (marca >>> BITS_CONTADOR) << 16 | VERSION | (marca & ((1 << BITS_CONTADOR) - 1));
+        long bajo = VARIANTE | (ThreadLocalRandom.current().nextLong() & MASCARA_ALEATORIA);
+        return new UUID(alto, bajo);
+    }
+
+    /**
+     * Momento de creación guardado en un id de la versión 7.
+     * @throws IllegalArgumentException si el id no es de la versión 7
+     */
+    public static Instant instanteDe(UUID id) {
+        if (id.version() != 7) throw new IllegalArgumentException("El id no está ordenado por tiempo: " + id);
+        return Instant.ofEpochMilli(id.getMostSignificantBits() >>> 16);
+    }
+
+    /** @see #instanteDe(UUID) */
+    public static Instant instanteDe(String id) {
+        return instanteDe(UUID.fromString(id));
+    }
+
+    /**
+     * Menor id posible creado en {@code momento} o después: cota inferior inclusiva
+     * para recorrer por rango de fechas de creación un índice ordenado por id.
+     */
+    public static UUID primeroDesde(Instant momento) {
+        return new UUID(momento.toEpochMilli() << 16 | VERSION, VARIANTE);
+    }
+
+    /** Los 128 bits del id en orden big-endian: ordenar los arrays sin signo es ordenar los ids. */
+    public static byte[] codificar(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+
+    /** Inversa de {@link #codificar(UUID)}. */
+    public static UUID decodificar(byte[] bytes) {
+        if (bytes.length != 16) throw new IllegalArgumentException("Un id ocupa 16 bytes, no " + bytes.length);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
@@ -0,0 +1,143 @@
+package com.proyecto.kanban.model;
+
+import com.proyecto.kanban.util.RoaringBitmap;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Índices secundarios de las tareas de un proyecto, uno por valor de cada campo
+ * filtrable: estado, prioridad, usuario asignado y etiqueta.
+ *
+ * Cada índice es un {@link RoaringBitmap} de posiciones en {@link Proyecto#getTareas()}.
+ * Solo contiene tareas ya en memoria (las que siguen en la fuente se indexan al
+ * cargar su bloque). Se mantiene al día de forma incremental: {@link Tarea} avisa
+ * desde {@code cambiarEstado}, {@code setPrioridad}, {@code asignarUsuario} y
+ * {@code agregarEtiqueta}; si la lista se reordena se reconstruye entero.
+ *
+ * Una combinación de filtros se resuelve con unas pocas intersecciones de
+ * bitmaps ({@link #filtrar}) en lugar de recorrer las tareas.
+ *
+ * Las etiquetas se indexan por nombre normalizado (sin espacios y en minúsculas),
+ * la misma clave que usa {@link CatalogoEtiquetas}; para renombrar una etiqueta
+ * asignada hay que usar {@link Proyecto#renombrarEtiqueta}.
+ */
+public class IndiceTareas {
+
+    private final RoaringBitmap cargadas = new RoaringBitmap();
+    private final Map<EstadoTarea, RoaringBitmap> porEstado = new EnumMap<>(EstadoTarea.class);
+    private final Map<Prioridad, RoaringBitmap> porPrioridad = new EnumMap<>(Prioridad.class);
+    private final Map<Usuario, RoaringBitmap> porAsignado = new HashMap<>();
+    private final Map<String, RoaringBitmap> porEtiqueta = new HashMap<>();
+    // Se incrementa con cada cambio; permite saber si un resultado de filtrar() sigue vigente
+    private long version;
+
+    IndiceTareas() {}
+
+    /**
+     * Posiciones de las tareas en memoria que cumplen todos los criterios no nulos
+     * (sin criterios: todas las tareas en memoria). El resultado es una copia.
+     *
+     * @param etiqueta nombre de etiqueta, sin distinguir mayúsculas
+     */
+    public RoaringBitmap filtrar(EstadoTarea estado, Prioridad prioridad, Usuario asignado, String etiqueta) {
+        RoaringBitmap r = cargadas;
+        if (estado != null) r = and(r, porEstado.get(estado));
+        if (prioridad != null) r = and(r, porPrioridad.get(prioridad));
+        if (asignado != null) r = and(r, porAsignado.get(asignado));
+        if (etiqueta != null) r = and(r, porEtiqueta.get(normalizar(etiqueta)));
+        return r == cargadas ? cargadas.copia() : r;
+    }
+
+    /** Número de cambios aplicados al índice desde su creación. */
+    public long getVersion() {
+        return version;
+    }
+
+    private static RoaringBitmap and(RoaringBitmap actual, RoaringBitmap indice) {
+        return indice == null ? new RoaringBitmap() : RoaringBitmap.and(actual, indice);
+    }
+
+    // --- Mantenimiento (lo invocan Proyecto y Tarea) ---
+
+    void agregar(Tarea t) {
+        int pos = t.posicion;
+        if (pos < 0) return;
+        cargadas.add(pos);
+        if (t.getEstado() != null) bitmap(porEstado, t.getEstado()).add(pos);
+        if (t.getPrioridad() != null) bitmap(porPrioridad, t.getPrioridad()).add(pos);
+        if (t.getAsignadoA() != null) bitmap(porAsignado, t.getAsignadoA()).add(pos);
+        for (Etiqueta e : t.getEtiquetas()) bitmap(porEtiqueta, normalizar(e.getNombre())).add(pos);
+        version++;
+    }
+
+    void estadoCambiado(Tarea t, EstadoTarea antes) {
+        mover(porEstado, antes, t.getEstado(), t.posicion);
+    }
+
+    void prioridadCambiada(Tarea t, Prioridad antes) {
+        mover(porPrioridad, antes, t.getPrioridad(), t.posicion);
+    }
+
+    void asignadoCambiado(Tarea t, Usuario antes) {
+        mover(porAsignado, antes, t.getAsignadoA(), t.posicion);
+    }
+
+    void etiquetaAgregada(Tarea t, Etiqueta e) {
+        if (t.posicion < 0) return;
+        bitmap(porEtiqueta, normalizar(e.getNombre())).add(t.posicion);
+        version++;
+    }
+
+    void etiquetasQuitadas(Tarea t, Iterable<Etiqueta> quitadas) {
+        if (t.posicion < 0) return;
+        for (Etiqueta e : quitadas) quitar(porEtiqueta, normalizar(e.getNombre()), t.posicion);
+        version++;
+    }
+
+    /** La etiqueta cambió de nombre: su bitmap pasa a la clave nueva. */
+    void etiquetaRenombrada(String antes, String despues) {
+        String claveAntes = normalizar(antes);
+        String claveDespues = normalizar(despues);
+        if (claveAntes.equals(claveDespues)) return;
+        RoaringBitmap b = porEtiqueta.remove(claveAntes);
+        if (b == null) return;
+        RoaringBitmap existente = porEtiqueta.putIfAbsent(claveDespues, b);
+        if (existente != null) {
+            for (int p = b.nextSetBit(0); p >= 0; p = b.nextSetBit(p + 1)) existente.add(p);
+        }
+        version++;
+    }
+
+    /** Vacía el índice; el proyecto vuelve a añadir las tareas en memoria. */
+    void limpiar() {
+        cargadas.clear();
+        porEstado.clear();
+        porPrioridad.clear();
+        porAsignado.clear();
+        porEtiqueta.clear();
+        version++;
+    }
+
+    private <K> void mover(Map<K, RoaringBitmap> indice, K antes, K despues, int pos) {
+        if (pos < 0 || Objects.equals(antes, despues)) return;
+        if (antes != null) quitar(indice, antes, pos);
+        if (despues != null) bitmap(indice, despues).add(pos);
+        version++;
+    }
+
+    private static <K> void quitar(Map<K, RoaringBitmap> indice, K clave, int pos) {
+        RoaringBitmap b = indice.get(clave);
+        if (b != null && b.remove(pos) && b.isEmpty()) indice.remove(clave);
+    }
+
+    private static <K> RoaringBitmap bitmap(Map<K, RoaringBitmap> indice, K clave) {
+        return indice.computeIfAbsent(clave, k -> new RoaringBitmap());
+    }
+
+    private static String normalizar(String nombreEtiqueta) {
+        return CatalogoEtiquetas.normalizar(nombreEtiqueta);
+    }
+}
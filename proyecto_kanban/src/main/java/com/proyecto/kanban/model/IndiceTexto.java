@@ -0,0 +1,212 @@
+package com.proyecto.kanban.model;
+
+import com.proyecto.kanban.util.RoaringBitmap;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido de texto de las tareas de un proyecto: título, descripción y
+ * nombres de etiqueta.
+ *
+ * Cada palabra se normaliza quitando acentos y mayúsculas ("Diseño" y "diseno"
+ * son la misma palabra) y apunta a un {@link RoaringBitmap} de posiciones en
+ * {@link Proyecto#getTareas()}, uno por campo. Las palabras se guardan ordenadas,
+ * así que una búsqueda por prefijo es un rango del mapa.
+ *
+ * El índice se construye la primera vez que se busca en el proyecto (abrir un
+ * proyecto no tokeniza nada) y desde entonces se actualiza de forma incremental:
+ * {@link Tarea} avisa desde {@code setTitulo}, {@code setDescripcion},
+ * {@code agregarEtiqueta} y {@code limpiarEtiquetas}.
+ *
+ * Las etiquetas se renombran con {@link Proyecto#renombrarEtiqueta}, que reindexa
+ * aquí solo las tareas que la usan.
+ */
+public class IndiceTexto {
+
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+
+    /** Campos indexados, con su peso en la puntuación. */
+    private enum Campo {
+        TITULO(3.0), ETIQUETA(2.0), DESCRIPCION(1.0);
+
+        final double peso;
+
+        Campo(double peso) {
+            this.peso = peso;
+        }
+    }
+
+    /** Posición de una tarea que cumple la consulta y su puntuación. */
+    public record Coincidencia(int posicion, double puntuacion) {}
+
+    private final Map<Campo, NavigableMap<String, RoaringBitmap>> porCampo = new HashMap<>();
+    private final RoaringBitmap indexadas = new RoaringBitmap();
+    // Se marca al terminar de construirlo: quien lo ve activo lo ve completo
+    private volatile boolean activo;
+
+    IndiceTexto() {
+        for (Campo c : Campo.values()) porCampo.put(c, new TreeMap<>());
+    }
+
+    /** Indica si el índice ya se construyó y se mantiene al día. */
+    public boolean isActivo() {
+        return activo;
+    }
+
+    /**
+     * Busca las tareas que contienen todas las palabras de la consulta. Cada palabra
+     * casa también como prefijo ("dis" encuentra "diseño"), con menos puntuación que
+     * la palabra exacta. Las palabras más raras y los títulos puntúan más.
+     *
+     * @return coincidencias ordenadas por puntuación descendente y, a igualdad, por posición
+     */
+    public List<Coincidencia> buscar(String consulta, int limite) {
+        List<String> terminos = new ArrayList<>(new LinkedHashSet<>(tokenizar(consulta)));
+        if (terminos.isEmpty() || limite <= 0) return List.of();
+        int total = Math.max(1, indexadas.cardinality());
+
+        Map<Integer, Double> puntuaciones = null;
+        for (String termino : terminos) {
+            Map<Integer, Double> delTermino = new HashMap<>();
+            for (Campo campo : Campo.values()) {
+                // Por campo cuenta la mejor palabra que case con el término
+                Map<Integer, Double> delCampo = new HashMap<>();
+                NavigableMap<String, RoaringBitmap> palabras = porCampo.get(campo)
+                        .subMap(termino, true, termino + Character.MAX_VALUE, false);
+                for (Map.Entry<String, RoaringBitmap> e : palabras.entrySet()) {
+                    RoaringBitmap posiciones = e.getValue();
+                    if (puntuaciones != null && !hayComun(posiciones, puntuaciones)) continue;
+                    double idf = Math.log(1.0 + (double) total / posiciones.cardinality());
+                    double valor = campo.peso * idf * (e.getKey().length() == termino.length() ? 1.0 : 0.6);
+                    for (int p = posiciones.nextSetBit(0); p >= 0; p = posiciones.nextSetBit(p + 1)) {
+                        if (puntuaciones == null || puntuaciones.containsKey(p)) delCampo.merge(p, valor, Math::max);
+                    }
+                }
+                delCampo.forEach((p, v) -> delTermino.merge(p, v, Double::sum));
+            }
+            if (puntuaciones != null) {
+                final Map<Integer, Double> previas = puntuaciones;
+                delTermino.replaceAll((p, v) -> v + previas.get(p));
+            }
+            puntuaciones = delTermino;
+            if (puntuaciones.isEmpty()) return List.of();
+        }
+
+        List<Coincidencia> resultado = new ArrayList<>(puntuaciones.size());
+        puntuaciones.forEach((p, v) -> resultado.add(new Coincidencia(p, v)));
+        resultado.sort((a, b) -> a.puntuacion() != b.puntuacion()
+                ? Double.compare(b.puntuacion(), a.puntuacion())
+                : Integer.compare(a.posicion(), b.posicion()));
+        return resultado.size() > limite ? new ArrayList<>(resultado.subList(0, limite)) : resultado;
+    }
+
+    private static boolean hayComun(RoaringBitmap posiciones, Map<Integer, Double> candidatas) {
+        if (candidatas.size() < posiciones.cardinality()) {
+            for (int p : candidatas.keySet()) if (posiciones.contains(p)) return true;
+            return false;
+        }
+        for (int p = posiciones.nextSetBit(0); p >= 0; p = posiciones.nextSetBit(p + 1)) {
+            if (candidatas.containsKey(p)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Divide un texto en palabras normalizadas: minúsculas, sin acentos ni diéresis
+     * (la "ñ" pasa a "n") y sin signos de puntuación.
+     */
+    public static List<String> tokenizar(String texto) {
+        if (texto == null || texto.isBlank()) return List.of();
+        String plano = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        List<String> palabras = new ArrayList<>();
+        for (String p : SEPARADORES.split(plano.toLowerCase(Locale.ROOT))) {
+            if (!p.isEmpty()) palabras.add(p);
+        }
+        return palabras;
+    }
+
+    // --- Mantenimiento (lo invocan Proyecto y Tarea) ---
+
+    /** Activa el índice indexando las tareas dadas (todas las del proyecto). */
+    void activar(Iterable<Tarea> tareas) {
+        limpiar();
+        for (Tarea t : tareas) if (t.posicion >= 0) indexarTarea(t);
+        activo = true;
+    }
+
+    void agregar(Tarea t) {
+        if (!activo || t.posicion < 0) return;
+        indexarTarea(t);
+    }
+
+    private void indexarTarea(Tarea t) {
+        indexadas.add(t.posicion);
+        indexar(Campo.TITULO, t.getTitulo(), t.posicion);
+        indexar(Campo.DESCRIPCION, t.getDescripcion(), t.posicion);
+        for (Etiqueta e : t.getEtiquetas()) indexar(Campo.ETIQUETA, e.getNombre(), t.posicion);
+    }
+
+    void tituloCambiado(Tarea t, String antes) {
+        reindexar(Campo.TITULO, t, antes, t.getTitulo());
+    }
+
+    void descripcionCambiada(Tarea t, String antes) {
+        reindexar(Campo.DESCRIPCION, t, antes, t.getDescripcion());
+    }
+
+    void etiquetaAgregada(Tarea t, Etiqueta e) {
+        if (!activo || t.posicion < 0) return;
+        indexar(Campo.ETIQUETA, e.getNombre(), t.posicion);
+    }
+
+    void etiquetasQuitadas(Tarea t, Iterable<Etiqueta> quitadas) {
+        if (!activo || t.posicion < 0) return;
+        for (Etiqueta e : quitadas) desindexar(Campo.ETIQUETA, e.getNombre(), t.posicion);
+        // Una palabra quitada puede seguir en otra etiqueta de la tarea
+        for (Etiqueta e : t.getEtiquetas()) indexar(Campo.ETIQUETA, e.getNombre(), t.posicion);
+    }
+
+    /** Una etiqueta de la tarea cambió de nombre ({@code antes}): se reindexan sus etiquetas. */
+    void etiquetaRenombrada(Tarea t, String antes) {
+        if (!activo || t.posicion < 0) return;
+        desindexar(Campo.ETIQUETA, antes, t.posicion);
+        for (Etiqueta e : t.getEtiquetas()) indexar(Campo.ETIQUETA, e.getNombre(), t.posicion);
+    }
+
+    /** Vacía el índice sin desactivarlo; el proyecto vuelve a añadir las tareas. */
+    void limpiar() {
+        for (NavigableMap<String, RoaringBitmap> palabras : porCampo.values()) palabras.clear();
+        indexadas.clear();
+    }
+
+    private void reindexar(Campo campo, Tarea t, String antes, String despues) {
+        if (!activo || t.posicion < 0) return;
+        desindexar(campo, antes, t.posicion);
+        indexar(campo, despues, t.posicion);
+    }
+
+    private void indexar(Campo campo, String texto, int pos) {
+        NavigableMap<String, RoaringBitmap> palabras = porCampo.get(campo);
+        for (String p : tokenizar(texto)) palabras.computeIfAbsent(p, k -> new RoaringBitmap()).add(pos);
+    }
+
+    private void desindexar(Campo campo, String texto, int pos) {
+        NavigableMap<String, RoaringBitmap> palabras = porCampo.get(campo);
+        Set<String> unicas = new LinkedHashSet<>(tokenizar(texto));
+        for (String p : unicas) {
+            RoaringBitmap b = palabras.get(p);
+            if (b != null && b.remove(pos) && b.isEmpty()) palabras.remove(p);
+        }
+    }
+}
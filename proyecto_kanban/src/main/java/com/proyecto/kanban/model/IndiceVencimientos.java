@@ -0,0 +1,160 @@
+package com.proyecto.kanban.model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Índice ordenado de las tareas abiertas (no completadas) de un proyecto que
+ * tienen fecha límite, por el final de su plazo ({@link FechaLimite#getFinDelPlazo()}).
+ *
+ * Las consultas "vencidas a un momento dado", "vencen en un intervalo" y "próximo
+ * vencimiento" son recorridos de un rango del árbol, sin evaluar las demás tareas.
+ *
+ * Como {@link IndiceTexto}, se construye la primera vez que se consulta y desde
+ * entonces {@link Tarea} lo actualiza desde {@code cambiarEstado} y
+ * {@code setFechaLimite}. Cambiar una {@link FechaLimite} ya asignada con
+ * {@code setFecha} no lo actualiza: hay que volver a asignarla a la tarea.
+ *
+ * {@link #contarVencidas} guarda el último momento consultado y cuántas tareas
+ * estaban vencidas entonces; la siguiente consulta solo recorre las que vencieron
+ * entre ambos momentos, y los cambios de las tareas ajustan la cuenta al recolocarlas.
+ */
+public class IndiceVencimientos {
+
+    /**
+     * Clave del árbol: final del plazo y, para desempatar, id de la tarea (sin
+     * construir su texto). Sin tarea, es la cota inferior ({@code ultima = false})
+     * o superior inclusiva ({@code ultima = true}) de un instante.
+     */
+    private record Clave(LocalDateTime fin, Tarea tarea, boolean ultima) implements Comparable<Clave> {
+        @Override
+        public int compareTo(Clave o) {
+            int c = fin.compareTo(o.fin);
+            if (c != 0) return c;
+            if (tarea == null || o.tarea == null) return Integer.compare(orden(), o.orden());
+            return BaseEntity.compararId(tarea, o.tarea);
+        }
+
+        private int orden() {
+            return tarea != null ? 0 : ultima ? 1 : -1;
+        }
+    }
+
+    private final NavigableMap<Clave, Tarea> porFin = new TreeMap<>();
+    // Clave actual de cada tarea indexada (por identidad), para poder quitarla cuando cambia
+    private final Map<Tarea, Clave> claves = new IdentityHashMap<>();
+    // Momento de la última cuenta de vencidas (null: sin contar) y el resultado
+    private LocalDateTime corte;
+    private int vencidasAlCorte;
+    // Se marca al terminar de construirlo: quien lo ve activo lo ve completo
+    private volatile boolean activo;
+
+    IndiceVencimientos() {}
+
+    /** Indica si el índice ya se construyó y se mantiene al día. */
+    public boolean isActivo() {
+        return activo;
+    }
+
+    /** Tareas abiertas cuyo plazo terminó antes de {@code momento}, de la más antigua a la más reciente. */
+    public List<Tarea> vencidas(LocalDateTime momento) {
+        return valores(porFin.headMap(desde(momento), false));
+    }
+
+    /** Tareas abiertas cuyo plazo termina en {@code [desde, hasta]}, por orden de vencimiento. */
+    public List<Tarea> vencenEntre(LocalDateTime desde, LocalDateTime hasta) {
+        if (hasta.isBefore(desde)) return List.of();
+        return valores(porFin.subMap(desde(desde), true, hasta(hasta), true));
+    }
+
+    /** Tareas abiertas cuyo plazo termina como muy tarde en {@code hasta} (incluidas las ya vencidas). */
+    public List<Tarea> vencenHasta(LocalDateTime hasta) {
+        return valores(porFin.headMap(hasta(hasta), true));
+    }
+
+    /** Tarea abierta con el plazo más próximo que aún no ha terminado en {@code momento}. */
+    public Optional<Tarea> proxima(LocalDateTime momento) {
+        Map.Entry<Clave, Tarea> e = porFin.ceilingEntry(desde(momento));
+        return e != null ? Optional.of(e.getValue()) : Optional.empty();
+    }
+
+    /**
+     * Número de tareas abiertas cuyo plazo terminó antes de {@code momento}. Si el
+     * momento no es anterior al de la consulta previa, solo se recorren las tareas
+     * que vencieron desde entonces: consultar con la hora actual cuesta O(1) amortizado.
+     */
+    public synchronized int contarVencidas(LocalDateTime momento) {
+        if (corte == null || momento.isBefore(corte)) {
+            vencidasAlCorte = porFin.headMap(desde(momento), false).size();
+        } else {
+            vencidasAlCorte += porFin.subMap(desde(corte), true, desde(momento), false).size();
+        }
+        corte = momento;
+        return vencidasAlCorte;
+    }
+
+    /** Número de tareas abiertas con fecha límite. */
+    public int size() {
+        return porFin.size();
+    }
+
+    private static List<Tarea> valores(Map<Clave, Tarea> rango) {
+        return new ArrayList<>(rango.values());
+    }
+
+    // --- Mantenimiento (lo invocan Proyecto y Tarea) ---
+
+    /** Activa el índice con las tareas dadas (todas las del proyecto). */
+    void activar(Iterable<Tarea> tareas) {
+        limpiar();
+        for (Tarea t : tareas) recolocar(t);
+        activo = true;
+    }
+
+    /** Recoloca la tarea según su estado y fecha límite actuales. */
+    void actualizar(Tarea t) {
+        if (activo) recolocar(t);
+    }
+
+    private void recolocar(Tarea t) {
+        Clave anterior = claves.remove(t);
+        if (anterior != null) {
+            porFin.remove(anterior);
+            if (vencidaAlCorte(anterior)) vencidasAlCorte--;
+        }
+        if (t.posicion < 0 || !abierta(t)) return;
+        Clave nueva = new Clave(t.finDelPlazo(), t, false);
+        porFin.put(nueva, t);
+        claves.put(t, nueva);
+        if (vencidaAlCorte(nueva)) vencidasAlCorte++;
+    }
+
+    void limpiar() {
+        porFin.clear();
+        claves.clear();
+        corte = null;
+        vencidasAlCorte = 0;
+    }
+
+    private static Clave desde(LocalDateTime momento) {
+        return new Clave(momento, null, false);
+    }
+
+    private static Clave hasta(LocalDateTime momento) {
+        return new Clave(momento, null, true);
+    }
+
+    private boolean vencidaAlCorte(Clave clave) {
+        return corte != null && clave.fin().isBefore(corte);
+    }
+
+    private static boolean abierta(Tarea t) {
+        return t.finDelPlazo() != null && t.getEstado() != null && t.getEstado() != EstadoTarea.COMPLETADA;
+    }
+}
@@ -0,0 +1,25 @@
+package com.proyecto.kanban.model;
+
+/**
+ * Recibe los cambios de la lista de tareas de un proyecto que no pasan por los
+ * servicios: tareas que entran en memoria, que salen de la lista o que cambian de
+ * posición. Lo usa la capa de almacenamiento (ver {@link Proyecto#setObservadorTareas}).
+ *
+ * Se llama con el cerrojo de escritura del proyecto tomado, desde el hilo que
+ * modifica la lista.
+ */
+@FunctionalInterface
+public interface ObservadorTareas {
+
+    /** La tarea pasa a estar en memoria: se cargó de la fuente o se añadió. */
+    void cargada(Tarea tarea);
+
+    /** La tarea ya no está en la lista del proyecto (se quitó o se sustituyó). */
+    default void quitada(Tarea tarea) {}
+
+    /**
+     * Las tareas en las posiciones {@code [desde, hasta)} cambiaron de posición;
+     * todas están en memoria.
+     */
+    default void reordenadas(int desde, int hasta) {}
+}
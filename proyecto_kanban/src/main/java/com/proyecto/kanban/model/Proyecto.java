@@ -1,7 +1,10 @@
 package com.proyecto.kanban.model;
 
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Representa un proyecto que contiene múltiples tareas.
@@ -22,8 +25,29 @@ import java.util.List;
 public class Proyecto extends BaseEntity {
     private String nombre;
     private String descripcion;
-    private List<Tarea> tareas;
-    private List<Usuario> miembros;
+    // Lista paginada: con una fuente externa, las tareas se cargan por bloques al accederlas
+    private final TareasPaginadas tareas = new TareasPaginadas(this::tareaEnMemoria, this::reindexarTareas,
+            this::tareaQuitada);
+    // Bitmaps por estado/prioridad/asignado/etiqueta de las tareas en memoria
+    private final IndiceTareas indice = new IndiceTareas();
+    // Índice invertido de texto; se construye en la primera búsqueda
+    private final IndiceTexto indiceTexto = new IndiceTexto();
+    // Una instancia de Etiqueta por nombre, compartida por todas las tareas
+    private final CatalogoEtiquetas catalogoEtiquetas = new CatalogoEtiquetas();
+    // Tareas abiertas ordenadas por fecha límite; se construye en la primera consulta
+    private final IndiceVencimientos indiceVencimientos = new IndiceVencimientos();
+    // Contadores por estado y asignado; se calculan en la primera consulta
+    private final EstadisticasProyecto estadisticas = new EstadisticasProyecto();
+    // Recibe las tareas que pasan a estar en memoria o salen de la lista y los cambios de posición
+    private volatile ObservadorTareas observadorTareas;
+    // Conjunto ordenado por alta: comprobar pertenencia es una búsqueda en hash.
+    // Copia al escribir: se sustituye entero en cada alta o baja, así que leerlo no
+    // necesita cerrojo y recorrerlo nunca falla aunque otro hilo cambie los miembros.
+    private volatile Set<Usuario> miembros = Collections.emptySet();
+    // Aumenta con cada alta o baja de miembro, tarea nueva o cambio del catálogo de etiquetas
+    private final AtomicLong version = new AtomicLong();
+    // Como version, y además con cualquier cambio dentro de una tarea o de la lista de tareas
+    private final AtomicLong versionContenido = new AtomicLong();
 
     public Proyecto(String nombre, Usuario lider) {
         this(nombre, "");
@@ -38,26 +62,59 @@ public class Proyecto extends BaseEntity {
         // es necesario invocar `super()` de forma explícita.
         this.nombre = nombre;
         this.descripcion = descripcion;
-        this.tareas = new ArrayList<>();
-        this.miembros = new ArrayList<>();
+    }
+
+    /** Recrea un proyecto conservando su id original (restauración desde disco). */
+    public Proyecto(String id, String nombre, String descripcion) {
+        super(id);
+        this.nombre = nombre;
+        this.descripcion = descripcion;
     }
 
     // Métodos principales
-    /** Agrega un miembro (usuario) al proyecto. */
+    /**
+     * Agrega un miembro (usuario) al proyecto. La relación es bidireccional:
+     * también se anota el id del proyecto en {@link Usuario#getProjectIds()}.
+     */
     public void agregarMiembro(Usuario usuario) {
-        if (usuario != null && !miembros.contains(usuario)) miembros.add(usuario);
+        if (usuario == null) return;
+        synchronized (this) {
+            if (miembros.contains(usuario)) return;
+            Set<Usuario> copia = new LinkedHashSet<>(miembros);
+            copia.add(usuario);
+            miembros = Collections.unmodifiableSet(copia);
+            version.incrementAndGet();
+            versionContenido.incrementAndGet();
+        }
+        usuario.agregarProyecto(getId());
     }
 
-    /** Elimina un miembro (usuario) del proyecto. */
+    /** Elimina un miembro (usuario) del proyecto y la referencia inversa en el usuario. */
     public void eliminarMiembro(Usuario usuario) {
-        if (usuario != null) miembros.remove(usuario);
+        if (usuario == null) return;
+        synchronized (this) {
+            if (!miembros.contains(usuario)) return;
+            Set<Usuario> copia = new LinkedHashSet<>(miembros);
+            copia.remove(usuario);
+            miembros = Collections.unmodifiableSet(copia);
+            version.incrementAndGet();
+            versionContenido.incrementAndGet();
+        }
+        usuario.removerProyecto(getId());
+    }
+
+    /** Indica si el usuario es miembro del proyecto. */
+    public boolean esMiembro(Usuario usuario) {
+        return usuario != null && miembros.contains(usuario);
     }
 
     /** Añade una tarea al proyecto (composición). */
     public void agregarTarea(Tarea tarea) {
         if (tarea != null) {
             tareas.add(tarea);
-            tarea.setProyecto(this);
+            tareaEnMemoria(tarea);
+            version.incrementAndGet();
+            versionContenido.incrementAndGet();
         }
     }
 
@@ -72,11 +129,198 @@ public class Proyecto extends BaseEntity {
     public String getNombre() { return nombre; }
     public String getDescripcion() { return descripcion; }
     public List<Tarea> getTareas() { return tareas; }
-    public List<Usuario> getMiembros() { return miembros; }
+    /**
+     * Miembros en orden de alta: copia inmutable del momento de la llamada, que no
+     * cambia aunque después se añadan o quiten miembros (usar agregarMiembro/eliminarMiembro).
+     */
+    public Set<Usuario> getMiembros() { return miembros; }
+    /**
+     * Versión del proyecto: aumenta al dar de alta o de baja un miembro, añadir una
+     * tarea o renombrar una etiqueta del catálogo (los cambios dentro de una tarea
+     * cambian la versión de la tarea, no esta). Solo vive en memoria; la usan las
+     * operaciones condicionales de {@code ProjectService}.
+     */
+    public long getVersion() { return version.get(); }
+    /**
+     * Versión del contenido: aumenta con todo lo que aumenta {@link #getVersion()} y,
+     * además, con cualquier cambio de una tarea del proyecto o del orden de la lista
+     * de tareas. Dos lecturas con la misma versión de contenido vieron las mismas
+     * tareas; la usa la caché de informes de {@code ReportService}. Solo vive en memoria.
+     */
+    public long getVersionContenido() { return versionContenido.get(); }
+    /** Índices secundarios de las tareas en memoria (ver {@link IndiceTareas}). */
+    public IndiceTareas getIndice() { return indice; }
+    /** Índice de texto de las tareas (ver {@link IndiceTexto}); puede no estar activo aún. */
+    public IndiceTexto getIndiceTexto() { return indiceTexto; }
+    /** Catálogo de etiquetas de las tareas en memoria (ver {@link CatalogoEtiquetas}). */
+    public CatalogoEtiquetas getCatalogoEtiquetas() { return catalogoEtiquetas; }
+    /** Índice de vencimientos (ver {@link IndiceVencimientos}); puede no estar activo aún. */
+    public IndiceVencimientos getIndiceVencimientos() { return indiceVencimientos; }
+    /** Contadores agregados (ver {@link EstadisticasProyecto}); pueden no estar activos aún. */
+    public EstadisticasProyecto getEstadisticas() { return estadisticas; }
+
+    /**
+     * Índice de texto listo para buscar: la primera vez carga todas las tareas y
+     * las indexa; después solo se actualiza con los cambios.
+     */
+    public IndiceTexto indiceTextoActivo() {
+        if (!indiceTexto.isActivo()) {
+            // Varias consultas pueden llegar a la vez con el cerrojo de lectura: solo una lo construye
+            synchronized (indiceTexto) {
+                if (!indiceTexto.isActivo()) {
+                    tareas.cargarTodo();
+                    indiceTexto.activar(tareas);
+                }
+            }
+        }
+        return indiceTexto;
+    }
+
+    /** Catálogo de etiquetas con todas las tareas del proyecto cargadas (usos completos). */
+    public CatalogoEtiquetas catalogoEtiquetasCompleto() {
+        tareas.cargarTodo();
+        return catalogoEtiquetas;
+    }
+
+    /**
+     * Renombra una etiqueta del catálogo: todas las tareas la comparten, así que el
+     * cambio se ve en todas a la vez. El índice por etiqueta solo cambia de clave; el
+     * índice de texto, si está activo, reindexa las tareas que la usan.
+     * @throws IllegalArgumentException si el nombre está vacío o ya existe otra etiqueta con él
+     */
+    public void renombrarEtiqueta(Etiqueta etiqueta, String nombre) {
+        String anterior = etiqueta != null ? etiqueta.getNombre() : null;
+        catalogoEtiquetas.renombrar(etiqueta, nombre);
+        version.incrementAndGet();
+        versionContenido.incrementAndGet();
+        indice.etiquetaRenombrada(anterior, etiqueta.getNombre());
+        if (indiceTexto.isActivo()) {
+            var posiciones = indice.filtrar(null, null, null, etiqueta.getNombre());
+            for (int p = posiciones.nextSetBit(0); p >= 0; p = posiciones.nextSetBit(p + 1)) {
+                indiceTexto.etiquetaRenombrada(tareas.get(p), anterior);
+            }
+        }
+    }
+
+    /** Índice de vencimientos listo para consultar; la primera vez carga todas las tareas. */
+    public IndiceVencimientos indiceVencimientosActivo() {
+        if (!indiceVencimientos.isActivo()) {
+            synchronized (indiceVencimientos) {
+                if (!indiceVencimientos.isActivo()) {
+                    tareas.cargarTodo();
+                    indiceVencimientos.activar(tareas);
+                }
+            }
+        }
+        return indiceVencimientos;
+    }
+
+    /**
+     * Contadores agregados listos para leer, junto con el índice de vencimientos (para
+     * contar las vencidas); la primera vez carga todas las tareas.
+     */
+    public EstadisticasProyecto estadisticasActivas() {
+        indiceVencimientosActivo();
+        if (!estadisticas.isActivo()) {
+            synchronized (estadisticas) {
+                if (!estadisticas.isActivo()) {
+                    tareas.cargarTodo();
+                    estadisticas.activar(tareas);
+                }
+            }
+        }
+        return estadisticas;
+    }
 
     @Override
     public String toString() {
         return String.format("Proyecto{id=%s, nombre='%s', descripcion='%s', miembros=%d, tareas=%d}",
                 getId(), nombre, descripcion, miembros.size(), tareas.size());
     }
+
+    /**
+     * Asocia una fuente externa a las tareas: solo se decodifican los bloques a los
+     * que se accede (ver {@link TareasPaginadas}). Lo usa la capa de almacenamiento
+     * para que abrir un proyecto grande no cargue todas sus tareas.
+     */
+    public void setFuenteTareas(FuenteTareas fuente) {
+        tareas.setFuente(fuente);
+    }
+
+    /**
+     * Indica si alguna tarea está ya en memoria o la lista cambió respecto a su fuente.
+     * Si es {@code false}, la fuente sigue siendo una copia exacta de las tareas.
+     */
+    public boolean isTareasCargadas() {
+        return !tareas.isIntacta();
+    }
+
+    /**
+     * Registra un observador que recibe cada tarea del proyecto presente en memoria
+     * (las ya cargadas al registrarlo y, después, las que se cargan o se añaden), las
+     * que salen de la lista y los cambios de posición. Lo usa la capa de
+     * almacenamiento para mantener su índice de tareas por id y sus posiciones.
+     */
+    public void setObservadorTareas(ObservadorTareas observador) {
+        this.observadorTareas = observador;
+        if (observador != null) tareas.forEachCargada(observador::cargada);
+    }
+
+    /**
+     * Busca por id una tarea del proyecto que todavía no se ha cargado, cargando
+     * solo su bloque. Las tareas ya en memoria se localizan vía el observador.
+     */
+    public Tarea buscarTareaPendiente(String tareaId) {
+        return tareas.buscarPendiente(tareaId);
+    }
+
+    /** Carga todas las tareas pendientes de la fuente externa. */
+    public void cargarTodasLasTareas() {
+        tareas.cargarTodo();
+    }
+
+    /** Indica si quedan tareas sin cargar desde la fuente externa. */
+    public boolean hayTareasPendientes() {
+        return tareas.hayPendientes();
+    }
+
+    private void tareaEnMemoria(Tarea tarea) {
+        tarea.setProyecto(this);
+        tarea.internarEtiquetas(catalogoEtiquetas);
+        indice.agregar(tarea);
+        indiceTexto.agregar(tarea);
+        indiceVencimientos.actualizar(tarea);
+        // Activas, ya no quedan tareas por cargar: la que llega es nueva
+        estadisticas.agregar(tarea);
+        ObservadorTareas observador = observadorTareas;
+        if (observador != null) observador.cargada(tarea);
+    }
+
+    /** Lo llama {@link Tarea} cada vez que cambia una tarea del proyecto. */
+    void tareaCambiada() {
+        versionContenido.incrementAndGet();
+    }
+
+    /** Las posiciones cambiaron: se reconstruyen los índices con las tareas en memoria. */
+    private void tareaQuitada(Tarea tarea) {
+        ObservadorTareas observador = observadorTareas;
+        if (observador != null) observador.quitada(tarea);
+    }
+
+    private void reindexarTareas(int desde, int hasta) {
+        versionContenido.incrementAndGet();
+        indice.limpiar();
+        tareas.forEachCargada(indice::agregar);
+        catalogoEtiquetas.reiniciarUsos();
+        tareas.forEachCargada(t -> t.getEtiquetas().forEach(catalogoEtiquetas::usada));
+        if (indiceTexto.isActivo()) {
+            indiceTexto.limpiar();
+            tareas.forEachCargada(indiceTexto::agregar);
+        }
+        // Una tarea quitada de la lista deja de contar como vencimiento del proyecto
+        if (indiceVencimientos.isActivo()) indiceVencimientos.activar(tareas);
+        if (estadisticas.isActivo()) estadisticas.activar(tareas);
+        ObservadorTareas observador = observadorTareas;
+        if (observador != null) observador.reordenadas(desde, hasta);
+    }
 }
@@ -1,8 +1,13 @@
 package com.proyecto.kanban.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 
 /**
@@ -14,21 +19,51 @@ import java.time.format.DateTimeFormatter;
  * - Etiqueta: agregación. Una tarea puede contener varias etiquetas describiendo
  *   categorías, colores o estados adicionales.
  *
+ * Identidad: extiende {@link BaseEntity}, así que cada tarea tiene un id estable que
+ * se conserva en disco. Los servicios permiten buscarla por id
+ * ({@code TaskService.findTareaById}) sin recorrer los proyectos.
+ *
+ * Memoria: un proyecto grande tiene muchas tareas en memoria, así que sus campos se
+ * guardan de forma compacta y los getters devuelven vistas construidas al vuelo:
+ * - Las fechas son {@code long} (nanosegundos desde 1970-01-01T00:00, sin zona) en
+ *   lugar de objetos {@link LocalDateTime}; {@link #SIN_FECHA} equivale a {@code null}.
+ * - La fecha límite son esos mismos {@code long} más un indicador de si lleva hora;
+ *   {@link #getFechaLimite()} devuelve una {@link FechaLimite} nueva en cada llamada.
+ * - Prioridad y estado son el ordinal del enum en un {@code byte} (-1 = {@code null}).
+ * - Las etiquetas son un array del tamaño justo con las instancias compartidas del
+ *   catálogo del proyecto, en lugar de un {@link ArrayList}; sin etiquetas no ocupa nada.
+ * Modificar la {@link FechaLimite} o la lista devueltas no cambia la tarea: hay que
+ * usar {@link #setFechaLimite}, {@link #agregarEtiqueta} o {@link #limpiarEtiquetas}.
+ *
  * Nota: se ha eliminado la serialización de la clase para mantener el proyecto simple
  * y centrado en una simulación por consola.
  */
-public class Tarea {
+public class Tarea extends BaseEntity {
+    /** Valor de los campos de fecha compactos que equivale a {@code null}. */
+    static final long SIN_FECHA = Long.MIN_VALUE;
+
+    private static final Prioridad[] PRIORIDADES = Prioridad.values();
+    private static final EstadoTarea[] ESTADOS = EstadoTarea.values();
+    private static final Etiqueta[] SIN_ETIQUETAS = new Etiqueta[0];
+    private static final long NANOS_POR_SEGUNDO = 1_000_000_000L;
+
     private String titulo;
     private String descripcion;
     private Usuario asignadoA;
-    private FechaLimite fechaLimite;
-    private Prioridad prioridad;
-    private EstadoTarea estado;
-    private List<Etiqueta> etiquetas;
     private Proyecto proyecto; // Referencia al proyecto al que pertenece la tarea
-    private final LocalDateTime fechaCreacion;
-    private LocalDateTime fechaCierre;
-    private LocalDateTime fechaInicio;
+    private Etiqueta[] etiquetas = SIN_ETIQUETAS;
+    private long fechaCreacion;
+    private long fechaCierre = SIN_FECHA;
+    private long fechaInicio = SIN_FECHA;
+    // Fecha límite: si lleva hora, la fecha y hora; si no, el día (epochDay)
+    private long fechaLimite = SIN_FECHA;
+    private boolean limiteConHora;
+    private byte prioridad;
+    private byte estado;
+    // Posición en la lista de tareas del proyecto (-1 si no está en ninguna); la mantiene TareasPaginadas
+    int posicion = -1;
+    // Crece con cada cambio de la tarea; se modifica con el cerrojo del proyecto y se lee sin él
+    private volatile long version;
 
     /**
      * Constructor principal de Tarea.
@@ -47,14 +82,23 @@ public class Tarea {
      */
     public Tarea(String titulo, String descripcion, Usuario asignadoA, FechaLimite fechaLimite,
                  Prioridad prioridad, EstadoTarea estado) {
+        this(null, titulo, descripcion, asignadoA, fechaLimite, prioridad, estado);
+    }
+
+    /**
+     * Recrea una tarea conservando su id original. Lo usa la capa de almacenamiento
+     * al recuperar datos; con {@code id == null} se genera uno nuevo.
+     */
+    public Tarea(String id, String titulo, String descripcion, Usuario asignadoA, FechaLimite fechaLimite,
+                 Prioridad prioridad, EstadoTarea estado) {
+        super(id);
         this.titulo = titulo;
         this.descripcion = descripcion;
         this.asignadoA = asignadoA;
-        this.fechaLimite = fechaLimite;
-        this.prioridad = prioridad;
-        this.estado = estado;
-        this.etiquetas = new ArrayList<>();
-        this.fechaCreacion = LocalDateTime.now();
+        guardarFechaLimite(fechaLimite);
+        this.prioridad = ordinal(prioridad);
+        this.estado = ordinal(estado);
+        this.fechaCreacion = marca(LocalDateTime.now());
     }
 
     /**
@@ -73,58 +117,209 @@ public class Tarea {
     }
 
     /** Fecha y hora en que se creó la tarea. */
-    public LocalDateTime getFechaCreacion() { return fechaCreacion; }
+    public LocalDateTime getFechaCreacion() { return fecha(fechaCreacion); }
 
     // Getters simples
     public String getTitulo() { return titulo; }
     public String getDescripcion() { return descripcion; }
     public Usuario getAsignadoA() { return asignadoA; }
-    public FechaLimite getFechaLimite() { return fechaLimite; }
-    public Prioridad getPrioridad() { return prioridad; }
-    public EstadoTarea getEstado() { return estado; }
-    public List<Etiqueta> getEtiquetas() { return etiquetas; }
+    public FechaLimite getFechaLimite() {
+        if (fechaLimite == SIN_FECHA) return null;
+        if (!limiteConHora) return new FechaLimite(LocalDate.ofEpochDay(fechaLimite), null);
+        LocalDateTime fechaHora = fecha(fechaLimite);
+        return new FechaLimite(fechaHora.toLocalDate(), fechaHora);
+    }
+    public Prioridad getPrioridad() { return prioridad < 0 ? null : PRIORIDADES[prioridad]; }
+    public EstadoTarea getEstado() { return estado < 0 ? null : ESTADOS[estado]; }
+    /** Etiquetas de la tarea, en orden de alta (vista de solo lectura). */
+    public List<Etiqueta> getEtiquetas() { return Collections.unmodifiableList(Arrays.asList(etiquetas)); }
     public Proyecto getProyecto() { return proyecto; }
+    /** Indica si la tarea sigue en la lista de tareas de su proyecto (no se quitó ni se sustituyó). */
+    public boolean isEnProyecto() { return proyecto != null && posicion >= 0; }
+
+    /**
+     * Versión de la tarea: aumenta con cada cambio de sus campos o etiquetas, así que
+     * dos lecturas con la misma versión vieron la misma tarea. Solo vive en memoria
+     * (una tarea recién cargada empieza en 0); sirve para detectar cambios ajenos
+     * entre que se lee una tarea y se guarda una edición (ver
+     * {@code TaskService#updateTask(Tarea, TaskService.Instantanea, ...)}).
+     */
+    public long getVersion() { return version; }
     public void setProyecto(Proyecto proyecto) { this.proyecto = proyecto; }
 
-    /** Añade una etiqueta a la tarea evitando duplicados por nombre (case-insensitive). */
+    /**
+     * Añade una etiqueta a la tarea evitando duplicados por nombre (case-insensitive).
+     * Si la tarea está en un proyecto, se guarda la instancia del catálogo de etiquetas
+     * del proyecto con ese nombre ({@link CatalogoEtiquetas}) y el duplicado se detecta
+     * por identidad, sin comparar nombres.
+     */
     public void agregarEtiqueta(Etiqueta etiqueta) {
         if (etiqueta == null) return;
-        String nombreNueva = etiqueta.getNombre() != null ? etiqueta.getNombre().trim() : "";
+        Proyecto indexado = proyectoIndexado();
+        if (indexado == null) {
+            if (!existeEtiquetaConNombre(etiqueta.getNombre())) {
+                anadirEtiqueta(etiqueta);
+                cambiada();
+            }
+            return;
+        }
+        CatalogoEtiquetas catalogo = indexado.getCatalogoEtiquetas();
+        Etiqueta canonica = catalogo.internar(etiqueta);
+        if (contieneInstancia(canonica)) return;
+        anadirEtiqueta(canonica);
+        cambiada();
+        catalogo.usada(canonica);
+        indexado.getIndice().etiquetaAgregada(this, canonica);
+        indexado.getIndiceTexto().etiquetaAgregada(this, canonica);
+    }
+
+    /**
+     * Sustituye las etiquetas por las instancias del catálogo del proyecto (uniendo
+     * las que tengan el mismo nombre) y las cuenta como usadas. Se aplica cuando la
+     * tarea entra en memoria dentro de un proyecto.
+     */
+    void internarEtiquetas(CatalogoEtiquetas catalogo) {
+        if (etiquetas.length == 0) return;
+        Etiqueta[] originales = etiquetas;
+        etiquetas = SIN_ETIQUETAS;
+        for (Etiqueta e : originales) {
+            Etiqueta canonica = catalogo.internar(e);
+            if (!contieneInstancia(canonica)) {
+                anadirEtiqueta(canonica);
+                catalogo.usada(canonica);
+            }
+        }
+    }
+
+    private void anadirEtiqueta(Etiqueta etiqueta) {
+        Etiqueta[] nuevas = Arrays.copyOf(etiquetas, etiquetas.length + 1);
+        nuevas[etiquetas.length] = etiqueta;
+        etiquetas = nuevas;
+    }
+
+    private boolean contieneInstancia(Etiqueta etiqueta) {
+        for (Etiqueta e : etiquetas) {
+            if (e == etiqueta) return true;
+        }
+        return false;
+    }
+
+    private boolean existeEtiquetaConNombre(String nombre) {
+        String nombreNueva = nombre != null ? nombre.trim() : "";
         // Evitar etiquetas duplicadas por nombre (case-insensitive)
-        boolean existe = etiquetas.stream().anyMatch(e -> {
+        return Arrays.stream(etiquetas).anyMatch(e -> {
             String n = e.getNombre() != null ? e.getNombre().trim() : "";
             return !n.isEmpty() && !nombreNueva.isEmpty() && n.equalsIgnoreCase(nombreNueva);
         });
-        if (!existe) {
-            etiquetas.add(etiqueta);
+    }
+
+    /** Indica si la tarea tiene una etiqueta con ese nombre (sin distinguir mayúsculas ni espacios). */
+    public boolean tieneEtiqueta(String nombre) {
+        String clave = CatalogoEtiquetas.normalizar(nombre);
+        for (Etiqueta e : etiquetas) {
+            if (CatalogoEtiquetas.normalizar(e.getNombre()).equals(clave)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Quita la etiqueta con ese nombre (sin distinguir mayúsculas ni espacios).
+     * @return {@code true} si la tarea la tenía
+     */
+    public boolean quitarEtiqueta(String nombre) {
+        String clave = CatalogoEtiquetas.normalizar(nombre);
+        for (int i = 0; i < etiquetas.length; i++) {
+            if (!CatalogoEtiquetas.normalizar(etiquetas[i].getNombre()).equals(clave)) continue;
+            Etiqueta quitada = etiquetas[i];
+            Etiqueta[] restantes = etiquetas.length == 1 ? SIN_ETIQUETAS : new Etiqueta[etiquetas.length - 1];
+            System.arraycopy(etiquetas, 0, restantes, 0, i);
+            System.arraycopy(etiquetas, i + 1, restantes, i, etiquetas.length - i - 1);
+            etiquetas = restantes;
+            cambiada();
+            Proyecto indexado = proyectoIndexado();
+            if (indexado != null) {
+                indexado.getCatalogoEtiquetas().liberada(quitada);
+                indexado.getIndice().etiquetasQuitadas(this, List.of(quitada));
+                indexado.getIndiceTexto().etiquetasQuitadas(this, List.of(quitada));
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Quita todas las etiquetas de la tarea. La usa la capa de almacenamiento
+     * antes de volver a aplicar las etiquetas guardadas.
+     */
+    public void limpiarEtiquetas() {
+        if (etiquetas.length == 0) return;
+        List<Etiqueta> quitadas = Arrays.asList(etiquetas);
+        etiquetas = SIN_ETIQUETAS;
+        cambiada();
+        Proyecto indexado = proyectoIndexado();
+        if (indexado != null) {
+            for (Etiqueta e : quitadas) indexado.getCatalogoEtiquetas().liberada(e);
+            indexado.getIndice().etiquetasQuitadas(this, quitadas);
+            indexado.getIndiceTexto().etiquetasQuitadas(this, quitadas);
         }
     }
 
     /** Cambia el estado de la tarea (p.ej. PENDIENTE -> EN_PROGRESO -> COMPLETADA). */
     public void cambiarEstado(EstadoTarea nuevoEstado) {
         if (nuevoEstado != null) {
-            this.estado = nuevoEstado;
+            EstadoTarea anterior = getEstado();
+            this.estado = ordinal(nuevoEstado);
+            cambiada();
             // Registrar fecha de cierre cuando se marca como COMPLETADA
             if (nuevoEstado == EstadoTarea.COMPLETADA) {
-                this.fechaCierre = LocalDateTime.now();
+                this.fechaCierre = marca(LocalDateTime.now());
             } else {
-                this.fechaCierre = null;
+                this.fechaCierre = SIN_FECHA;
             }
             // Registrar fechaInicio la primera vez que pasa a EN_PROGRESO
-            if (nuevoEstado == EstadoTarea.EN_PROGRESO && this.fechaInicio == null) {
-                this.fechaInicio = LocalDateTime.now();
+            if (nuevoEstado == EstadoTarea.EN_PROGRESO && this.fechaInicio == SIN_FECHA) {
+                this.fechaInicio = marca(LocalDateTime.now());
+            }
+            Proyecto indexado = proyectoIndexado();
+            if (indexado != null) {
+                indexado.getIndice().estadoCambiado(this, anterior);
+                indexado.getIndiceVencimientos().actualizar(this);
+                indexado.getEstadisticas().estadoCambiado(anterior, nuevoEstado);
             }
         }
     }
 
     /** Asigna un usuario responsable a la tarea. */
     public void asignarUsuario(Usuario usuario) {
+        Usuario anterior = this.asignadoA;
         this.asignadoA = usuario;
+        cambiada();
+        Proyecto indexado = proyectoIndexado();
+        if (indexado != null) {
+            indexado.getIndice().asignadoCambiado(this, anterior);
+            indexado.getEstadisticas().asignadoCambiado(anterior, usuario);
+        }
     }
 
     /** Cambia la prioridad de la tarea. */
     public void setPrioridad(Prioridad prioridad) {
-        if (prioridad != null) this.prioridad = prioridad;
+        if (prioridad == null) return;
+        Prioridad anterior = getPrioridad();
+        this.prioridad = ordinal(prioridad);
+        cambiada();
+        Proyecto indexado = proyectoIndexado();
+        if (indexado != null) indexado.getIndice().prioridadCambiada(this, anterior);
+    }
+
+    // Anota un cambio: aumenta la versión de la tarea y la del contenido de su proyecto
+    private void cambiada() {
+        version++;
+        if (proyecto != null) proyecto.tareaCambiada();
+    }
+
+    /** Proyecto cuyos índices hay que mantener al día, o {@code null} si la tarea no está en uno. */
+    private Proyecto proyectoIndexado() {
+        return proyecto != null && posicion >= 0 ? proyecto : null;
     }
 
     /**
@@ -134,6 +329,7 @@ public class Tarea {
      * - COMPLETADA -> 100%
      */
     public int getProgressPercent() {
+        EstadoTarea estado = getEstado();
         if (estado == null) return 0;
         return switch (estado) {
             case PENDIENTE -> 0;
@@ -144,33 +340,95 @@ public class Tarea {
 
     /** Modifica la fecha límite de la tarea. */
     public void setFechaLimite(FechaLimite fechaLimite) {
-        this.fechaLimite = fechaLimite;
+        guardarFechaLimite(fechaLimite);
+        cambiada();
+        Proyecto indexado = proyectoIndexado();
+        if (indexado != null) indexado.getIndiceVencimientos().actualizar(this);
     }
 
     /** Fecha y hora en la que la tarea fue completada (si aplica). */
-    public LocalDateTime getFechaCierre() { return fechaCierre; }
+    public LocalDateTime getFechaCierre() { return fecha(fechaCierre); }
 
     /** Fecha y hora en la que la tarea pasó a EN_PROGRESO (si aplica). */
-    public LocalDateTime getFechaInicio() { return fechaInicio; }
+    public LocalDateTime getFechaInicio() { return fecha(fechaInicio); }
+
+    /**
+     * Restaura las marcas de tiempo guardadas en disco. Solo debe usarla la capa
+     * de almacenamiento: en uso normal las fechas las registra {@link #cambiarEstado}.
+     */
+    public void restaurarFechas(LocalDateTime creacion, LocalDateTime inicio, LocalDateTime cierre) {
+        if (creacion != null) this.fechaCreacion = marca(creacion);
+        this.fechaInicio = marca(inicio);
+        this.fechaCierre = marca(cierre);
+        cambiada();
+    }
+
+    /**
+     * Último instante del plazo (ver {@link FechaLimite#getFinDelPlazo()}) sin crear
+     * la {@link FechaLimite}, o {@code null} si no hay fecha límite.
+     */
+    public LocalDateTime finDelPlazo() {
+        if (fechaLimite == SIN_FECHA) return null;
+        return limiteConHora ? fecha(fechaLimite) : LocalDate.ofEpochDay(fechaLimite).atTime(LocalTime.MAX);
+    }
+
+    private void guardarFechaLimite(FechaLimite limite) {
+        if (limite == null || limite.getFecha() == null) {
+            this.fechaLimite = SIN_FECHA;
+            this.limiteConHora = false;
+        } else if (limite.getFechaHora() != null) {
+            this.fechaLimite = marca(limite.getFechaHora());
+            this.limiteConHora = true;
+        } else {
+            this.fechaLimite = limite.getFecha().toEpochDay();
+            this.limiteConHora = false;
+        }
+    }
+
+    /** Fecha y hora en nanosegundos desde 1970-01-01T00:00 (años 1678 a 2261). */
+    static long marca(LocalDateTime fecha) {
+        if (fecha == null) return SIN_FECHA;
+        return Math.addExact(Math.multiplyExact(fecha.toEpochSecond(ZoneOffset.UTC), NANOS_POR_SEGUNDO), fecha.getNano());
+    }
+
+    static LocalDateTime fecha(long marca) {
+        if (marca == SIN_FECHA) return null;
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(marca, NANOS_POR_SEGUNDO),
+                (int) Math.floorMod(marca, NANOS_POR_SEGUNDO), ZoneOffset.UTC);
+    }
+
+    private static byte ordinal(Enum<?> valor) {
+        return (byte) (valor != null ? valor.ordinal() : -1);
+    }
         /** Modifica el título de la tarea. */
         public void setTitulo(String titulo) {
             if (titulo != null && !titulo.trim().isEmpty()) {
+                String anterior = this.titulo;
                 this.titulo = titulo.trim();
+                cambiada();
+                Proyecto indexado = proyectoIndexado();
+                if (indexado != null) indexado.getIndiceTexto().tituloCambiado(this, anterior);
             }
         }
 
         /** Modifica la descripción de la tarea. */
         public void setDescripcion(String descripcion) {
+            String anterior = this.descripcion;
             this.descripcion = descripcion != null ? descripcion.trim() : "";
+            cambiada();
+            Proyecto indexado = proyectoIndexado();
+            if (indexado != null) indexado.getIndiceTexto().descripcionCambiada(this, anterior);
         }
     @Override
     public String toString() {
         String asignado = asignadoA != null ? asignadoA.getNombre() : "Sin asignar";
-        String fechaStr = fechaLimite != null ? fechaLimite.toString() : "Sin fecha";
-        String creado = fechaCreacion != null ? fechaCreacion.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) : "-";
+        FechaLimite limite = getFechaLimite();
+        String fechaStr = limite != null ? limite.toString() : "Sin fecha";
+        LocalDateTime creacion = getFechaCreacion();
+        String creado = creacion != null ? creacion.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) : "-";
         return "Tarea: " + titulo + " | Creada: " + creado + " | Asignado a: " + asignado +
-               " | Prioridad: " + prioridad + " | Estado: " + estado +
+               " | Prioridad: " + getPrioridad() + " | Estado: " + getEstado() +
                " | Fecha límite: " + fechaStr +
-               " | Etiquetas: " + etiquetas;
+               " | Etiquetas: " + getEtiquetas();
     }
 }
@@ -0,0 +1,195 @@
+package com.proyecto.kanban.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+
+/**
+ * Lista de tareas de un proyecto que se carga por bloques bajo demanda.
+ *
+ * Si tiene una {@link FuenteTareas}, las posiciones {@code [0, total)} se leen de ella
+ * en bloques de {@link #TAMANO_BLOQUE} la primera vez que se accede a alguna de ellas;
+ * {@link #size()} no carga nada. Las tareas que se añaden después viven solo en memoria.
+ * Sin fuente se comporta como un {@code ArrayList} normal.
+ *
+ * Recorrer la lista completa (for-each, streams) carga todos los bloques; para
+ * mostrar solo una parte conviene usar {@code ProjectService.paginaTareas}.
+ *
+ * Cada tarea en memoria conoce su posición en la lista (la usan los bitmaps de
+ * {@link IndiceTareas}). Añadir al final no mueve a nadie; insertar en medio,
+ * quitar o reemplazar renumera las tareas y avisa con {@code alReordenar} del tramo
+ * de posiciones afectado, y con {@code alQuitar} de la tarea que sale de la lista.
+ */
+public class TareasPaginadas extends AbstractList<Tarea> implements RandomAccess {
+
+    /** Número de tareas que se cargan juntas desde la fuente. */
+    public static final int TAMANO_BLOQUE = 256;
+
+    private final Consumer<Tarea> alCargar;
+    private final Reordenacion alReordenar;
+    private final Consumer<Tarea> alQuitar;
+    private FuenteTareas fuente;
+    private Tarea[] elementos = new Tarea[10];
+    private int size;
+    // Posiciones [0, totalFuente) pertenecen a la fuente; pueden estar aún sin cargar (null)
+    private int totalFuente;
+    private int bloquesSinCargar;
+    private boolean modificada;
+
+    /** Tramo {@code [desde, hasta)} de posiciones cuyas tareas cambiaron de posición. */
+    @FunctionalInterface
+    public interface Reordenacion {
+        void reordenadas(int desde, int hasta);
+    }
+
+    /** @param alCargar acción aplicada a cada tarea al cargarla (p. ej. fijar su proyecto) */
+    public TareasPaginadas(Consumer<Tarea> alCargar) {
+        this(alCargar, (desde, hasta) -> {}, t -> {});
+    }
+
+    /**
+     * @param alCargar acción aplicada a cada tarea al cargarla
+     * @param alReordenar acción tras cambiar la posición de tareas ya en memoria
+     * @param alQuitar acción aplicada a cada tarea que sale de la lista
+     */
+    public TareasPaginadas(Consumer<Tarea> alCargar, Reordenacion alReordenar, Consumer<Tarea> alQuitar) {
+        this.alCargar = alCargar;
+        this.alReordenar = alReordenar;
+        this.alQuitar = alQuitar;
+    }
+
+    /** Asocia una fuente a una lista vacía. Las tareas no se leen hasta que se accede a ellas. */
+    public void setFuente(FuenteTareas fuente) {
+        if (size > 0) throw new IllegalStateException("La lista ya contiene tareas");
+        this.fuente = fuente;
+        this.totalFuente = fuente.contar();
+        this.size = totalFuente;
+        this.elementos = new Tarea[Math.max(10, totalFuente)];
+        this.bloquesSinCargar = (totalFuente + TAMANO_BLOQUE - 1) / TAMANO_BLOQUE;
+        this.modificada = false;
+        if (bloquesSinCargar == 0) this.fuente = null;
+    }
+
+    /**
+     * Indica si la lista sigue exactamente como está en la fuente: ninguna tarea
+     * cargada (y por tanto ninguna modificada) y nada añadido ni quitado.
+     */
+    public boolean isIntacta() {
+        return fuente != null && !modificada && bloquesSinCargar == (totalFuente + TAMANO_BLOQUE - 1) / TAMANO_BLOQUE;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Tarea get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Índice " + index + ", tamaño " + size);
+        Tarea t = elementos[index];
+        if (t == null) {
+            cargarBloque(index / TAMANO_BLOQUE);
+            t = elementos[index];
+        }
+        return t;
+    }
+
+    @Override
+    public Tarea set(int index, Tarea tarea) {
+        Tarea anterior = get(index);
+        elementos[index] = tarea;
+        modificada = true;
+        anterior.posicion = -1;
+        tarea.posicion = index;
+        alQuitar.accept(anterior);
+        alReordenar.reordenadas(index, index + 1);
+        return anterior;
+    }
+
+    @Override
+    public void add(int index, Tarea tarea) {
+        if (index < 0 || index > size) throw new IndexOutOfBoundsException("Índice " + index + ", tamaño " + size);
+        if (tarea == null) throw new NullPointerException("La tarea no puede ser null");
+        if (index < size) cargarTodo();
+        if (size == elementos.length) elementos = Arrays.copyOf(elementos, size + (size >> 1) + 1);
+        System.arraycopy(elementos, index, elementos, index + 1, size - index);
+        elementos[index] = tarea;
+        size++;
+        modificada = true;
+        modCount++;
+        if (index == size - 1) {
+            tarea.posicion = index;
+        } else {
+            renumerar(index);
+        }
+    }
+
+    @Override
+    public Tarea remove(int index) {
+        cargarTodo();
+        Tarea anterior = get(index);
+        System.arraycopy(elementos, index + 1, elementos, index, size - index - 1);
+        elementos[--size] = null;
+        modificada = true;
+        modCount++;
+        anterior.posicion = -1;
+        alQuitar.accept(anterior);
+        renumerar(index);
+        return anterior;
+    }
+
+    /** Actualiza la posición de las tareas desde {@code desde} y avisa del reordenamiento. */
+    private void renumerar(int desde) {
+        for (int i = desde; i < size; i++) elementos[i].posicion = i;
+        alReordenar.reordenadas(desde, size);
+    }
+
+    /**
+     * Busca entre las tareas aún no cargadas la que tiene ese id, cargando solo su
+     * bloque. Devuelve {@code null} si no hay fuente o la tarea no está en ella.
+     */
+    public Tarea buscarPendiente(String tareaId) {
+        if (fuente == null || tareaId == null) return null;
+        int pos = fuente.posicionDe(tareaId);
+        return pos >= 0 && pos < totalFuente ? get(pos) : null;
+    }
+
+    /** Indica si quedan tareas de la fuente sin cargar. */
+    public boolean hayPendientes() {
+        return fuente != null;
+    }
+
+    /** Aplica la acción a las tareas ya cargadas en memoria, sin cargar bloques. */
+    public void forEachCargada(Consumer<Tarea> accion) {
+        for (int i = 0; i < size; i++) {
+            if (elementos[i] != null) accion.accept(elementos[i]);
+        }
+    }
+
+    /** Carga todos los bloques pendientes y suelta la fuente. */
+    public void cargarTodo() {
+        if (fuente == null) return;
+        int bloques = (totalFuente + TAMANO_BLOQUE - 1) / TAMANO_BLOQUE;
+        for (int b = 0; b < bloques && fuente != null; b++) {
+            if (elementos[b * TAMANO_BLOQUE] == null) cargarBloque(b);
+        }
+    }
+
+    private void cargarBloque(int bloque) {
+        int desde = bloque * TAMANO_BLOQUE;
+        int cantidad = Math.min(TAMANO_BLOQUE, totalFuente - desde);
+        List<Tarea> cargadas = fuente.cargar(desde, cantidad);
+        if (cargadas.size() != cantidad) {
+            throw new IllegalStateException("La fuente devolvió " + cargadas.size() + " tareas, se esperaban " + cantidad);
+        }
+        for (int k = 0; k < cantidad; k++) {
+            Tarea t = cargadas.get(k);
+            elementos[desde + k] = t;
+            t.posicion = desde + k;
+            alCargar.accept(t);
+        }
+        if (--bloquesSinCargar == 0) fuente = null;
+    }
+}
@@ -1,8 +1,10 @@
 package com.proyecto.kanban.model;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * Representa un usuario del sistema.
@@ -10,6 +12,7 @@ import java.util.Objects;
  * Relación con otras clases:
  * - Proyecto: un usuario puede pertenecer a varios proyectos (agregación). Se guardan referencias
  *   sencillas en `projectIds` para mantener el modelo simple y evitar ciclos complejos.
+ *   `Proyecto.agregarMiembro` / `eliminarMiembro` las mantienen sincronizadas.
  * - Tarea: las tareas pueden tener un Usuario asignado (asociación).
  *
  * Nota: esta clase es un POJO simple usado en memoria durante la simulación
@@ -25,14 +28,15 @@ import java.util.Objects;
 public class Usuario extends BaseEntity {
     private String nombre;
     private String email;
-    private final List<String> projectIds; // referencias a proyectos por id
+    private final Set<String> projectIds; // referencias a proyectos por id, en orden de alta
 
     /**
      * Crea un nuevo Usuario. Se genera un UUID para el id.
      *
-     * Nota sobre {@code UUID.randomUUID()}: genera un identificador único universal
-     * (UUID) en forma de cadena. Se usa aquí para dar a cada usuario un id único
-     * sin necesidad de depender de una base de datos que asigne ids.
+     * Nota sobre el id: {@link BaseEntity} genera un identificador único universal
+     * (UUID) ordenado por momento de creación ({@link GeneradorIdsTemporal}). Se usa
+     * aquí para dar a cada usuario un id único sin necesidad de depender de una base
+     * de datos que asigne ids.
      *
      * @param nombre nombre del usuario (puede ser vacío)
      * @param email email del usuario (usado para login en esta simulación)
@@ -44,31 +48,49 @@ public class Usuario extends BaseEntity {
         // compilador invoca el constructor no-args del padre implícitamente.
         this.nombre = nombre != null ? nombre : "";
         this.email = email != null ? email : "";
-        this.projectIds = new ArrayList<>();
+        this.projectIds = new LinkedHashSet<>();
+    }
+
+    /**
+     * Recrea un Usuario conservando su id original. Lo usa la capa de
+     * almacenamiento al recuperar datos desde disco.
+     */
+    public Usuario(String id, String nombre, String email) {
+        super(id);
+        this.nombre = nombre != null ? nombre : "";
+        this.email = email != null ? email : "";
+        this.projectIds = new LinkedHashSet<>();
     }
 
     /* Getters y setters básicos */
-    public String getId() { return id; }
     public String getNombre() { return nombre; }
     public void setNombre(String nombre) { this.nombre = nombre; }
     public String getEmail() { return email; }
     public void setEmail(String email) { this.email = email; }
 
     /* Manejo de asociación con proyectos (solo almacena IDs) */
+    // Sincronizados: proyectos distintos (con cerrojos distintos) pueden dar de alta
+    // o de baja al mismo usuario a la vez.
+
     /** Devuelve copia de la lista de projectIds para evitar exposición directa. */
-    public List<String> getProjectIds() {
+    public synchronized List<String> getProjectIds() {
         return new ArrayList<>(projectIds);
     }
 
+    /** Indica si el usuario es miembro del proyecto con ese id. */
+    public synchronized boolean perteneceA(String projectId) {
+        return projectIds.contains(projectId);
+    }
+
     /** Añade la referencia a un proyecto (por id) si no existe. */
-    public void agregarProyecto(String projectId) {
-        if (projectId != null && !projectIds.contains(projectId)) {
+    public synchronized void agregarProyecto(String projectId) {
+        if (projectId != null) {
             projectIds.add(projectId);
         }
     }
 
     /** Remueve la referencia a un proyecto (por id). */
-    public void removerProyecto(String projectId) {
+    public synchronized void removerProyecto(String projectId) {
         projectIds.remove(projectId);
     }
 
@@ -82,11 +104,11 @@ public class Usuario extends BaseEntity {
         if (this == o) return true;
         if (!(o instanceof Usuario)) return false;
         Usuario usuario = (Usuario) o;
-        return getId().equals(usuario.getId());
+        return mismoId(usuario);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(getId());
+        return hashId();
     }
 }
@@ -0,0 +1,239 @@
+package com.proyecto.kanban.service;
+
+import com.proyecto.kanban.export.RowWriter;
+import com.proyecto.kanban.model.EstadoTarea;
+import com.proyecto.kanban.model.Etiqueta;
+import com.proyecto.kanban.model.Tarea;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Acumulador de los KPIs y las filas del resumen de un proyecto
+ * ({@link ReportService#buildResumenProyecto}).
+ *
+ * Cada tarea se evalúa una sola vez: se calcula si se creó o se cerró en el
+ * periodo y con eso se suman todos los contadores y se formatea su fila. Dos
+ * acumuladores se {@link #combinar combinan} sumando sus contadores, así que un
+ * proyecto grande se reparte en tramos entre los hilos de un {@link ForkJoinPool}
+ * y el resultado es el mismo que el de un único recorrido. Las filas no se
+ * combinan: cada tramo escribe las suyas en su posición de una lista compartida.
+ * Para el informe por trozos se recorre sin filas ({@link #recorrerSinFilas}): las
+ * filas se formatean después, al renderizarlas ({@link #fila}).
+ *
+ * Para varios periodos del mismo proyecto (exportación por lotes) hay un único
+ * recorrido ({@link #recorrerPeriodos}): cada tarea se lee una vez y suma a todos
+ * los periodos, y las filas, que no dependen del periodo, se formatean una vez y
+ * se comparten.
+ */
+final class AcumuladorResumen {
+    /** A partir de este número de tareas el recorrido se reparte entre varios hilos. */
+    static final int UMBRAL_PARALELO = 20_000;
+    // Tamaño de tramo por debajo del cual una tarea del fork-join ya no se divide
+    private static final int TRAMO_MINIMO = 4_096;
+
+    private final LocalDateTime inicio;
+    private final LocalDateTime fin;
+    // Fila de cada tarea en su posición; compartido por todos los tramos (null: sin filas)
+    private final List<List<String>> filas;
+    private long creadas;
+    private long completadas;
+    private long enProgreso;
+    private long pendientes;
+    private long vencidas;
+    private long sumaProgreso;
+
+    private AcumuladorResumen(LocalDateTime inicio, LocalDateTime fin, List<List<String>> filas) {
+        this.inicio = inicio;
+        this.fin = fin;
+        this.filas = filas;
+    }
+
+    /**
+     * Recorre las tareas (todas en memoria) y devuelve el acumulador con el
+     * resultado; con {@link #UMBRAL_PARALELO} tareas o más, en paralelo.
+     */
+    static AcumuladorResumen recorrer(List<Tarea> tareas, LocalDateTime inicio, LocalDateTime fin) {
+        List<List<String>> filas = filasVacias(tareas.size());
+        return recorrer(tareas, inicio, fin, filas);
+    }
+
+    /** Como {@link #recorrer}, pero solo los KPIs: no formatea ni guarda las filas. */
+    static AcumuladorResumen recorrerSinFilas(List<Tarea> tareas, LocalDateTime inicio, LocalDateTime fin) {
+        return recorrer(tareas, inicio, fin, null);
+    }
+
+    private static AcumuladorResumen recorrer(List<Tarea> tareas, LocalDateTime inicio, LocalDateTime fin,
+                                              List<List<String>> filas) {
+        if (tareas.size() < UMBRAL_PARALELO) return tramo(tareas, 0, tareas.size(), inicio, fin, filas);
+        return ForkJoinPool.commonPool().invoke(new Reparto(tareas, 0, tareas.size(), inicio, fin, filas));
+    }
+
+    // Una posición por tarea, ya creada: los tramos solo hacen set() en posiciones distintas
+    private static List<List<String>> filasVacias(int n) {
+        return new ArrayList<>(Collections.nCopies(n, null));
+    }
+
+    private static AcumuladorResumen tramo(List<Tarea> tareas, int desde, int hasta,
+                                           LocalDateTime inicio, LocalDateTime fin, List<List<String>> filas) {
+        AcumuladorResumen a = new AcumuladorResumen(inicio, fin, filas);
+        for (int i = desde; i < hasta; i++) a.acumular(tareas.get(i), i);
+        return a;
+    }
+
+    /**
+     * Recorre una vez las tareas (todas en memoria) y devuelve un acumulador por
+     * periodo, en el mismo orden; todos comparten las mismas filas.
+     */
+    static AcumuladorResumen[] recorrerPeriodos(List<Tarea> tareas, LocalDateTime[] inicios, LocalDateTime[] fines) {
+        List<List<String>> filas = filasVacias(tareas.size());
+        AcumuladorResumen[] periodos = new AcumuladorResumen[inicios.length];
+        for (int p = 0; p < periodos.length; p++) periodos[p] = new AcumuladorResumen(inicios[p], fines[p], filas);
+        for (int i = 0; i < tareas.size(); i++) {
+            Tarea t = tareas.get(i);
+            LocalDateTime creacion = t.getFechaCreacion();
+            LocalDateTime cierre = t.getFechaCierre();
+            EstadoTarea estado = t.getEstado();
+            for (AcumuladorResumen a : periodos) a.sumar(t, creacion, cierre, estado);
+            filas.set(i, fila(t, i + 1, creacion, cierre, estado));
+        }
+        return periodos;
+    }
+
+    /** Suma la tarea a los KPIs y escribe su fila en la posición {@code i} del listado. */
+    private void acumular(Tarea t, int i) {
+        LocalDateTime creacion = t.getFechaCreacion();
+        LocalDateTime cierre = t.getFechaCierre();
+        EstadoTarea estado = t.getEstado();
+        sumar(t, creacion, cierre, estado);
+        if (filas != null) filas.set(i, fila(t, i + 1, creacion, cierre, estado));
+    }
+
+    private void sumar(Tarea t, LocalDateTime creacion, LocalDateTime cierre, EstadoTarea estado) {
+        if (enPeriodo(cierre)) completadas++;
+        if (enPeriodo(creacion)) {
+            creadas++;
+            sumaProgreso += t.getProgressPercent();
+            if (estado == EstadoTarea.EN_PROGRESO) enProgreso++;
+            else if (estado == EstadoTarea.PENDIENTE) pendientes++;
+            // Abierta y con el plazo terminado como muy tarde al final del periodo
+            LocalDateTime plazo = t.finDelPlazo();
+            if (estado != null && estado != EstadoTarea.COMPLETADA && plazo != null && !plazo.isAfter(fin)) vencidas++;
+        }
+    }
+
+    /** Suma a este acumulador los contadores de otro tramo. */
+    AcumuladorResumen combinar(AcumuladorResumen siguiente) {
+        creadas += siguiente.creadas;
+        completadas += siguiente.completadas;
+        enProgreso += siguiente.enProgreso;
+        pendientes += siguiente.pendientes;
+        vencidas += siguiente.vencidas;
+        sumaProgreso += siguiente.sumaProgreso;
+        return this;
+    }
+
+    private boolean enPeriodo(LocalDateTime momento) {
+        return momento != null && !momento.isBefore(inicio) && !momento.isAfter(fin);
+    }
+
+    /** Fila del listado de tareas; {@code numero} es su número en el listado (desde 1). */
+    static List<String> fila(Tarea t, int numero) {
+        return fila(t, numero, t.getFechaCreacion(), t.getFechaCierre(), t.getEstado());
+    }
+
+    private static List<String> fila(Tarea t, int numero, LocalDateTime creacion, LocalDateTime cierre,
+                                     EstadoTarea estado) {
+        return List.of(
+                String.valueOf(numero),
+                t.getTitulo(),
+                t.getAsignadoA() != null ? t.getAsignadoA().getNombre() : "",
+                t.getPrioridad() != null ? t.getPrioridad().name() : "",
+                estado != null ? estado.name() : "",
+                creacion != null ? creacion.toLocalDate().toString() : "",
+                cierre != null ? cierre.toLocalDate().toString() : "",
+                t.getFechaLimite() != null ? t.getFechaLimite().toString() : "",
+                etiquetas(t, new StringBuilder()).toString());
+    }
+
+    /**
+     * Escribe las celdas de la fila del listado directamente en {@code salida}, sin
+     * crear la lista (volcados de tareas). No termina la fila: quien llama puede
+     * añadir más celdas. {@code aux} se reutiliza entre filas para las etiquetas.
+     */
+    static void escribirFila(Tarea t, int numero, RowWriter salida, StringBuilder aux) throws IOException {
+        EstadoTarea estado = t.getEstado();
+        LocalDateTime creacion = t.getFechaCreacion();
+        LocalDateTime cierre = t.getFechaCierre();
+        aux.setLength(0);
+        salida.celda(aux.append(numero))
+                .celda(t.getTitulo())
+                .celda(t.getAsignadoA() != null ? t.getAsignadoA().getNombre() : "")
+                .celda(t.getPrioridad() != null ? t.getPrioridad().name() : "")
+                .celda(estado != null ? estado.name() : "")
+                .celda(creacion != null ? creacion.toLocalDate().toString() : "")
+                .celda(cierre != null ? cierre.toLocalDate().toString() : "")
+                .celda(t.getFechaLimite() != null ? t.getFechaLimite().toString() : "");
+        aux.setLength(0);
+        salida.celda(etiquetas(t, aux));
+    }
+
+    // Nombres de las etiquetas separados por ';'
+    private static StringBuilder etiquetas(Tarea t, StringBuilder sb) {
+        for (Etiqueta e : t.getEtiquetas()) {
+            if (sb.length() > 0) sb.append(';');
+            sb.append(e.getNombre());
+        }
+        return sb;
+    }
+
+    long getCreadas() { return creadas; }
+    long getCompletadas() { return completadas; }
+    long getEnProgreso() { return enProgreso; }
+    long getPendientes() { return pendientes; }
+    long getVencidas() { return vencidas; }
+    /** Filas del listado de tareas, en el orden del proyecto. */
+    List<List<String>> getFilas() { return filas; }
+
+    /** Progreso medio (0/50/100 según estado) de las tareas creadas en el periodo, redondeado. */
+    int getProgreso() {
+        return creadas == 0 ? 0 : (int) Math.round(sumaProgreso / (double) creadas);
+    }
+
+    /** Divide el rango por la mitad hasta {@link #TRAMO_MINIMO} y combina los tramos. */
+    private static final class Reparto extends RecursiveTask<AcumuladorResumen> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Tarea> tareas;
+        private final int desde;
+        private final int hasta;
+        private final LocalDateTime inicio;
+        private final LocalDateTime fin;
+        private final List<List<String>> filas;
+
+        Reparto(List<Tarea> tareas, int desde, int hasta, LocalDateTime inicio, LocalDateTime fin,
+                List<List<String>> filas) {
+            this.tareas = tareas;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.inicio = inicio;
+            this.fin = fin;
+            this.filas = filas;
+        }
+
+        @Override
+        protected AcumuladorResumen compute() {
+            if (hasta - desde <= TRAMO_MINIMO) return tramo(tareas, desde, hasta, inicio, fin, filas);
+            int medio = (desde + hasta) >>> 1;
+            Reparto derecha = new Reparto(tareas, medio, hasta, inicio, fin, filas);
+            derecha.fork();
+            AcumuladorResumen izquierda = new Reparto(tareas, desde, medio, inicio, fin, filas).compute();
+            return izquierda.combinar(derecha.join());
+        }
+    }
+}
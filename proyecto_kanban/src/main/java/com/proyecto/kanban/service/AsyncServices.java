@@ -0,0 +1,266 @@
+package com.proyecto.kanban.service;
+
+import com.proyecto.kanban.export.ReportData;
+import com.proyecto.kanban.model.EstadoTarea;
+import com.proyecto.kanban.model.FechaLimite;
+import com.proyecto.kanban.model.Prioridad;
+import com.proyecto.kanban.model.Proyecto;
+import com.proyecto.kanban.model.Tarea;
+import com.proyecto.kanban.model.Usuario;
+import com.proyecto.kanban.storage.FiltroTareas;
+import com.proyecto.kanban.storage.PaginaTareas;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Fachada asíncrona de los servicios para la interfaz.
+ *
+ * Cada llamada se ejecuta en un hilo de trabajo y devuelve un
+ * {@link CompletableFuture} que se completa en el hilo de la interfaz: el que se
+ * pasa como {@code entrega} (en la aplicación, {@code Platform::runLater}). Así las
+ * operaciones que leen de disco o recorren muchas tareas no congelan la ventana, y
+ * quien recibe el resultado puede tocar los controles directamente.
+ *
+ * Los hilos de trabajo son pocos ({@link #HILOS_DEFECTO}) y de tipo daemon: los
+ * servicios ya se pueden usar desde varios hilos ({@link com.proyecto.kanban.model.CerrojosProyecto}),
+ * y más hilos solo competirían por los mismos cerrojos y el mismo disco.
+ *
+ * Cancelar el futuro devuelto evita que la operación empiece si aún espera turno;
+ * si ya está en marcha, termina, pero su resultado se descarta. No se interrumpe el
+ * hilo: una interrupción a mitad de una escritura cerraría el canal del log.
+ *
+ * Con {@link #ultimo} las peticiones se agrupan por clave: una nueva petición con la
+ * misma clave (otra búsqueda, otro filtro de la misma columna) cancela la anterior,
+ * y solo se entrega el resultado de la última.
+ *
+ * Los servicios síncronos siguen disponibles ({@link #getProjectService()}, etc.) y
+ * son los mismos objetos que usa la fachada.
+ *
+ * Las exportaciones a PDF no usan estos hilos sino su propia cola
+ * ({@link #getExportaciones()}): son largas y no deben retrasar el resto de operaciones.
+ */
+public class AsyncServices implements AutoCloseable {
+    /** Hilos de trabajo por defecto: entre 2 y 4, según los procesadores. */
+    public static final int HILOS_DEFECTO = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    /** Espera máxima de {@link #close()} a las operaciones en marcha. */
+    public static final long ESPERA_CIERRE_MS = 5_000;
+    /** Clave con la que {@link #getEstadisticas} agrupa sus peticiones. */
+    public static final String CLAVE_ESTADISTICAS = "estadisticas";
+
+    private final AuthService authService;
+    private final ProjectService projectService;
+    private final TaskService taskService;
+    private final ReportService reportService;
+    private final Executor entrega;
+    private final ExecutorService trabajo;
+    private final ExportJobs exportaciones;
+    // Última petición de cada clave de ultimo(); se quita al terminar
+    private final Map<Object, CompletableFuture<?>> vigentes = new ConcurrentHashMap<>();
+
+    public AsyncServices(AuthService authService, ProjectService projectService, TaskService taskService,
+                         ReportService reportService, Executor entrega) {
+        this(authService, projectService, taskService, reportService, entrega, HILOS_DEFECTO);
+    }
+
+    /**
+     * @param entrega ejecutor del hilo de la interfaz, donde se completan los futuros
+     * @param hilos número de hilos de trabajo
+     */
+    public AsyncServices(AuthService authService, ProjectService projectService, TaskService taskService,
+                         ReportService reportService, Executor entrega, int hilos) {
+        this.authService = authService;
+        this.projectService = projectService;
+        this.taskService = taskService;
+        this.reportService = reportService;
+        this.entrega = entrega;
+        this.exportaciones = new ExportJobs(reportService, entrega);
+        AtomicInteger contador = new AtomicInteger();
+        this.trabajo = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "kanban-async-" + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public AuthService getAuthService() {
+        return authService;
+    }
+
+    public ProjectService getProjectService() {
+        return projectService;
+    }
+
+    public TaskService getTaskService() {
+        return taskService;
+    }
+
+    public ReportService getReportService() {
+        return reportService;
+    }
+
+    /** Cola de exportaciones en segundo plano; avisa a sus oyentes en el hilo de la interfaz. */
+    public ExportJobs getExportaciones() {
+        return exportaciones;
+    }
+
+    /**
+     * Ejecuta una operación en un hilo de trabajo. El futuro se completa en el hilo
+     * de la interfaz con el resultado o con la excepción que lanzó la operación.
+     */
+    public <T> CompletableFuture<T> ejecutar(Supplier<T> operacion) {
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        Future<?> tarea;
+        try {
+            tarea = trabajo.submit(() -> {
+                if (resultado.isDone()) return;
+                try {
+                    T valor = operacion.get();
+                    if (!resultado.isDone()) entrega.execute(() -> resultado.complete(valor));
+                } catch (Throwable ex) {
+                    if (!resultado.isDone()) entrega.execute(() -> resultado.completeExceptionally(ex));
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            resultado.completeExceptionally(ex);
+            return resultado;
+        }
+        // Si aún espera turno, no llega a empezar
+        resultado.whenComplete((valor, ex) -> {
+            if (resultado.isCancelled()) tarea.cancel(false);
+        });
+        return resultado;
+    }
+
+    /** @see #ejecutar(Supplier) */
+    public CompletableFuture<Void> ejecutar(Runnable operacion) {
+        return ejecutar(() -> {
+            operacion.run();
+            return null;
+        });
+    }
+
+    /**
+     * Como {@link #ejecutar(Supplier)}, pero cancela la petición anterior con la
+     * misma clave que siga pendiente: solo se entrega el resultado de la última.
+     */
+    public <T> CompletableFuture<T> ultimo(Object clave, Supplier<T> operacion) {
+        CompletableFuture<T> nueva = ejecutar(operacion);
+        CompletableFuture<?> anterior = vigentes.put(clave, nueva);
+        if (anterior != null) anterior.cancel(false);
+        nueva.whenComplete((valor, ex) -> vigentes.remove(clave, nueva));
+        return nueva;
+    }
+
+    /** Cancela la petición pendiente con esa clave, si la hay. */
+    public void cancelar(Object clave) {
+        CompletableFuture<?> pendiente = vigentes.remove(clave);
+        if (pendiente != null) pendiente.cancel(false);
+    }
+
+    /**
+     * Atiende el resultado de un futuro de esta fachada: {@code alTerminar} con el
+     * valor o {@code alFallar} con la causa original. Las peticiones canceladas no
+     * avisan a ninguno de los dos.
+     */
+    public static <T> void atender(CompletableFuture<T> futuro, Consumer<? super T> alTerminar,
+                                   Consumer<Throwable> alFallar) {
+        futuro.whenComplete((valor, ex) -> {
+            if (ex == null) {
+                alTerminar.accept(valor);
+                return;
+            }
+            Throwable causa = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            if (!(causa instanceof CancellationException)) alFallar.accept(causa);
+        });
+    }
+
+    // ---- Operaciones de los servicios ----
+
+    public CompletableFuture<Usuario> login(String email) {
+        return ejecutar(() -> authService.login(email));
+    }
+
+    public CompletableFuture<Usuario> signup(String nombre, String email) {
+        return ejecutar(() -> authService.signup(nombre, email));
+    }
+
+    public CompletableFuture<List<Proyecto>> getProyectosUsuario(Usuario usuario) {
+        return ultimo("proyectosUsuario", () -> projectService.getProyectosUsuario(usuario));
+    }
+
+    public CompletableFuture<Proyecto> crearProyecto(String nombre, String descripcion, Usuario lider) {
+        return ejecutar(() -> projectService.crearProyecto(nombre, descripcion, lider));
+    }
+
+    /**
+     * Página de tareas; las peticiones con la misma {@code clave} (p. ej. la columna
+     * que se rellena) se agrupan, así que un filtro nuevo sustituye al anterior.
+     */
+    public CompletableFuture<PaginaTareas> paginaTareas(Object clave, Proyecto proyecto, FiltroTareas filtro,
+                                                        String continuacion, int tamano) {
+        return ultimo(clave, () -> projectService.paginaTareas(proyecto, filtro, continuacion, tamano));
+    }
+
+    /** Contadores del proyecto; una petición nueva sustituye a la anterior. */
+    public CompletableFuture<ProjectStats> getEstadisticas(Proyecto proyecto) {
+        return ultimo(CLAVE_ESTADISTICAS, () -> projectService.getEstadisticas(proyecto));
+    }
+
+    /** Crea la tarea, la registra en el servicio de tareas y la añade al proyecto. */
+    public CompletableFuture<Tarea> crearTarea(Proyecto proyecto, String titulo, String descripcion, Usuario asignado,
+                                               FechaLimite fechaLimite, Prioridad prioridad, EstadoTarea estado) {
+        return ejecutar(() -> {
+            Tarea nueva = taskService.createTask(titulo, descripcion, asignado, fechaLimite, prioridad, estado);
+            taskService.agregarTarea(nueva);
+            if (proyecto != null) projectService.agregarTarea(proyecto, nueva);
+            return nueva;
+        });
+    }
+
+    /** @see TaskService#updateTask(Tarea, TaskService.Instantanea, String, String, FechaLimite, Prioridad, EstadoTarea, Usuario) */
+    public CompletableFuture<TaskService.ResultadoEdicion> updateTask(Tarea tarea, TaskService.Instantanea base,
+                                                                     String titulo, String descripcion,
+                                                                     FechaLimite fechaLimite, Prioridad prioridad,
+                                                                     EstadoTarea estado, Usuario asignado) {
+        return ejecutar(() -> taskService.updateTask(tarea, base, titulo, descripcion, fechaLimite, prioridad,
+                estado, asignado));
+    }
+
+    public CompletableFuture<ReportData> buildResumenProyecto(Proyecto proyecto, LocalDate desde, LocalDate hasta) {
+        return ejecutar(() -> reportService.buildResumenProyecto(proyecto, desde, hasta));
+    }
+
+    /**
+     * Cancela las peticiones agrupadas pendientes y las exportaciones, no admite más y espera (como mucho
+     * {@link #ESPERA_CIERRE_MS} ms) a que terminen las ya encoladas, p. ej. una tarea
+     * que se está guardando, para cerrar después el almacenamiento sin perderla.
+     */
+    @Override
+    public void close() {
+        exportaciones.close();
+        vigentes.values().forEach(f -> f.cancel(false));
+        vigentes.clear();
+        trabajo.shutdown();
+        try {
+            trabajo.awaitTermination(ESPERA_CIERRE_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -2,8 +2,9 @@ package com.proyecto.kanban.service;
 
 import com.proyecto.kanban.model.Usuario;
 import com.proyecto.kanban.storage.Repository;
-// Persistencia eliminada: el repositorio ahora vive solo en memoria
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -12,6 +13,12 @@ import java.util.Optional;
  * Implementa operaciones básicas:
  * - signup: crea un usuario si el email no existe
  * - login: busca usuario por email
+ * - importarUsuarios: alta masiva de un directorio de usuarios
+ *
+ * Las búsquedas por email no distinguen mayúsculas y usan el índice del motor de
+ * almacenamiento, así que su coste no crece con el número de cuentas. Comprobar
+ * el email y dar de alta se hace sin que otro hilo pueda registrar el mismo email
+ * entre medias.
  *
  * NOTA: Este servicio es intencionalmente simple (sin password). Es suficiente
  * para la simulación por consola; en un proyecto real habría hashing y almacenamiento seguro.
@@ -28,14 +35,14 @@ public class AuthService {
      * @return Usuario creado o null si ya existe el email.
      */
     public Usuario signup(String nombre, String email) {
-        // Simple: verificar que no exista email
-        Optional<Usuario> exists = repo.getUsuarios().stream()
-                .filter(u -> u.getEmail().equalsIgnoreCase(email))
-                .findFirst();
-        if (exists.isPresent()) return null;
-        Usuario u = new Usuario(nombre, email);
-        repo.getUsuarios().add(u);
-        return u;
+        synchronized (repo) {
+            // Simple: verificar que no exista email
+            Optional<Usuario> exists = repo.buscarUsuarioPorEmail(email);
+            if (exists.isPresent()) return null;
+            Usuario u = new Usuario(nombre, email);
+            repo.agregarUsuario(u);
+            return u;
+        }
     }
 
     /** 
@@ -43,16 +50,26 @@ public class AuthService {
      * Esto es válido para nuestra simulación donde no necesitamos autenticación real.
      */
     public Usuario login(String email) {
-        return repo.getUsuarios().stream()
-                .filter(u -> u.getEmail().equalsIgnoreCase(email))
-                .findFirst()
-                .orElseGet(() -> {
-                    // Si no existe, creamos un usuario automáticamente
-                    String nombre = email.split("@")[0]; // Usamos la parte antes del @ como nombre
-                    Usuario nuevoUsuario = new Usuario(nombre, email);
-                    repo.getUsuarios().add(nuevoUsuario);
-                    return nuevoUsuario;
-                });
+        synchronized (repo) {
+            return repo.buscarUsuarioPorEmail(email)
+                    .orElseGet(() -> {
+                        // Si no existe, creamos un usuario automáticamente
+                        String nombre = email.split("@")[0]; // Usamos la parte antes del @ como nombre
+                        Usuario nuevoUsuario = new Usuario(nombre, email);
+                        repo.agregarUsuario(nuevoUsuario);
+                        return nuevoUsuario;
+                    });
+        }
+    }
+
+    /**
+     * Da de alta un lote de usuarios en una sola pasada. Los que tienen un email
+     * ya registrado (o repetido antes en el mismo lote) se omiten.
+     * @return Usuarios creados, en el orden del lote
+     */
+    public List<Usuario> importarUsuarios(Collection<Usuario> usuarios) {
+        if (usuarios == null || usuarios.isEmpty()) return List.of();
+        return repo.importarUsuarios(usuarios);
     }
 
     /**
@@ -0,0 +1,170 @@
+package com.proyecto.kanban.service;
+
+import com.proyecto.kanban.export.ExportProgress;
+import com.proyecto.kanban.export.PdfReportGenerator;
+import com.proyecto.kanban.export.ReportData;
+import com.proyecto.kanban.model.Proyecto;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exportación por lotes: el resumen en PDF de varios proyectos para cada uno de
+ * varios periodos (p. ej. todos los proyectos, las 12 últimas semanas).
+ *
+ * Cada proyecto es una tarea de un grupo acotado de hilos ({@link #HILOS_DEFECTO}).
+ * La tarea recorre las tareas del proyecto una sola vez para todos los periodos
+ * ({@link ReportService#buildResumenesProyecto}) y luego genera un PDF por periodo.
+ * Los PDFs se generan por trozos con el generador compartido: cada uno se escribe
+ * en un temporal de la misma carpeta y se mueve al final, así que en la carpeta de
+ * destino nunca hay un informe a medias.
+ *
+ * Un proyecto que falla no detiene el lote: su error se anota en el
+ * {@link Resultado} y se sigue con los demás.
+ */
+public class BatchExport {
+    /** Proyectos que se exportan a la vez por defecto: entre 1 y 4, según los procesadores. */
+    public static final int HILOS_DEFECTO = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private final ReportService reportService;
+    private final PdfReportGenerator generador;
+    private final int hilos;
+
+    public BatchExport(ReportService reportService) {
+        this(reportService, PdfReportGenerator.compartido(), HILOS_DEFECTO);
+    }
+
+    /** @param hilos número de proyectos que se exportan a la vez */
+    public BatchExport(ReportService reportService, PdfReportGenerator generador, int hilos) {
+        if (hilos <= 0) throw new IllegalArgumentException("Hilos debe ser positivo: " + hilos);
+        this.reportService = reportService;
+        this.generador = generador;
+        this.hilos = hilos;
+    }
+
+    /** Resultado de un lote: los PDFs generados y un mensaje por cada proyecto que falló. */
+    public record Resultado(List<Path> archivos, List<String> errores, Duration duracion) {
+        public boolean isCompleto() {
+            return errores.isEmpty();
+        }
+    }
+
+    /** Carpeta {@code Informes} del directorio de trabajo, donde se guardan los informes por defecto. */
+    public static Path carpetaInformes() {
+        return Paths.get(System.getProperty("user.dir"), "Informes");
+    }
+
+    /**
+     * Nombre del PDF del resumen de un proyecto para un periodo:
+     * {@code Nombre_del_proyecto-resumen_desde_hasta.pdf}, sin caracteres que no
+     * admita un nombre de archivo.
+     */
+    public static String nombreArchivo(Proyecto proyecto, LocalDate desde, LocalDate hasta) {
+        return nombreBase(proyecto.getNombre())
+                + "-resumen_" + (desde != null ? desde.toString() : "inicio")
+                + "_" + (hasta != null ? hasta.toString() : "hoy") + ".pdf";
+    }
+
+    private static String nombreBase(String nombreProyecto) {
+        return nombreProyecto.replaceAll("\\s+", "_").replaceAll("[\\\\/:*?\"<>|]", "");
+    }
+
+    /** @see #exportar(Collection, List, Path, ExportProgress) */
+    public Resultado exportar(Collection<Proyecto> proyectos, List<ReportPeriod> periodos, Path carpeta) throws Exception {
+        return exportar(proyectos, periodos, carpeta, ExportProgress.NINGUNO);
+    }
+
+    /**
+     * Exporta el resumen de cada proyecto para cada periodo a {@code carpeta} (se
+     * crea si no existe). Si dos proyectos se llaman igual, sus archivos llevan el
+     * final del id para no pisarse.
+     *
+     * @param progreso recibe las filas y bytes de todos los PDFs, desde varios hilos a la vez
+     * @throws CancellationException si se cancela; los PDFs ya terminados se quedan
+     */
+    public Resultado exportar(Collection<Proyecto> proyectos, List<ReportPeriod> periodos, Path carpeta,
+                              ExportProgress progreso) throws Exception {
+        long inicio = System.nanoTime();
+        Files.createDirectories(carpeta);
+        Map<String, Integer> repetidos = new HashMap<>();
+        for (Proyecto p : proyectos) repetidos.merge(nombreBase(p.getNombre()), 1, Integer::sum);
+
+        List<Path> archivos = Collections.synchronizedList(new ArrayList<>());
+        List<String> errores = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger contador = new AtomicInteger();
+        ExecutorService grupo = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "kanban-lote-" + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            generador.calentar();
+            List<Future<?>> tareas = new ArrayList<>(proyectos.size());
+            for (Proyecto proyecto : proyectos) {
+                boolean repetido = repetidos.get(nombreBase(proyecto.getNombre())) > 1;
+                tareas.add(grupo.submit(() -> exportarProyecto(proyecto, periodos, carpeta, repetido, progreso,
+                        archivos, errores)));
+            }
+            for (Future<?> f : tareas) {
+                try {
+                    f.get();
+                } catch (ExecutionException ex) {
+                    errores.add(ex.getCause().toString());
+                }
+            }
+        } finally {
+            // Sin interrumpir: una interrupción a mitad de una escritura cerraría el canal del log
+            grupo.shutdown();
+        }
+        if (progreso.isCancelado()) throw new CancellationException("Exportación por lotes cancelada");
+        List<Path> ordenados = new ArrayList<>(archivos);
+        Collections.sort(ordenados);
+        return new Resultado(List.copyOf(ordenados), List.copyOf(errores), Duration.ofNanos(System.nanoTime() - inicio));
+    }
+
+    private void exportarProyecto(Proyecto proyecto, List<ReportPeriod> periodos, Path carpeta, boolean repetido,
+                                  ExportProgress progreso, List<Path> archivos, List<String> errores) {
+        if (progreso.isCancelado()) return;
+        try {
+            List<ReportData> informes = reportService.buildResumenesProyecto(proyecto, periodos);
+            for (int i = 0; i < informes.size(); i++) {
+                if (progreso.isCancelado()) return;
+                ReportPeriod periodo = periodos.get(i);
+                String nombre = nombreArchivo(proyecto, periodo.desde(), periodo.hasta());
+                if (repetido) nombre = nombre.replaceFirst("-resumen_", "-" + sufijoId(proyecto) + "-resumen_");
+                archivos.addAll(generador.generatePdfsStreaming(informes.get(i), carpeta.resolve(nombre),
+                        PdfReportGenerator.FILAS_POR_TROZO_DEFECTO, 0, progreso));
+                // El informe ya está en disco: que no siga ocupando memoria hasta el final del proyecto
+                informes.set(i, null);
+            }
+        } catch (CancellationException ex) {
+            // Se comprueba al terminar el lote
+        } catch (Exception ex) {
+            String msg = ex.getMessage() != null ? ex.getMessage() : ex.toString();
+            errores.add(proyecto.getNombre() + ": " + msg);
+        }
+    }
+
+    // Los ids empiezan por la marca de tiempo: el final es la parte que los distingue
+    private static String sufijoId(Proyecto proyecto) {
+        String id = proyecto.getId();
+        return id.length() > 8 ? id.substring(id.length() - 8) : id;
+    }
+}
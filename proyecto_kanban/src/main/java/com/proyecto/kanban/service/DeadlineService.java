@@ -0,0 +1,127 @@
+package com.proyecto.kanban.service;
+
+import com.proyecto.kanban.model.CerrojosProyecto;
+import com.proyecto.kanban.model.IndiceVencimientos;
+import com.proyecto.kanban.model.Proyecto;
+import com.proyecto.kanban.model.Tarea;
+import com.proyecto.kanban.storage.Repository;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Consultas de vencimiento sobre las tareas abiertas (no completadas) con fecha límite.
+ *
+ * Cada proyecto mantiene un índice ordenado por final de plazo
+ * ({@link IndiceVencimientos}), así que "vencidas", "vencen en los próximos N días"
+ * y "próximo vencimiento" son recorridos de un rango. Las consultas globales
+ * (todos los proyectos del repositorio, o una colección dada) combinan los rangos
+ * de cada proyecto, que ya vienen ordenados.
+ *
+ * Cada proyecto se consulta con su cerrojo de lectura ({@link CerrojosProyecto}); al
+ * combinar se usa el plazo leído entonces, no el actual, porque otro hilo puede
+ * cambiar la tarea mientras tanto.
+ */
+public class DeadlineService {
+    private final Repository repository;
+
+    public DeadlineService(Repository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Tareas abiertas del proyecto cuyo plazo había terminado en {@code momento}.
+     * @return Tareas de la más atrasada a la menos
+     */
+    public List<Tarea> vencidas(Proyecto proyecto, LocalDateTime momento) {
+        if (proyecto == null) return List.of();
+        return CerrojosProyecto.leer(proyecto, () -> proyecto.indiceVencimientosActivo().vencidas(momento));
+    }
+
+    /**
+     * Tareas abiertas del proyecto que vencen desde {@code momento} hasta el final
+     * del día {@code dias} días después (0 = lo que queda de hoy).
+     * @return Tareas por orden de vencimiento
+     */
+    public List<Tarea> vencenEnDias(Proyecto proyecto, LocalDateTime momento, int dias) {
+        if (proyecto == null || dias < 0) return List.of();
+        LocalDateTime hasta = finDelDia(momento, dias);
+        return CerrojosProyecto.leer(proyecto, () -> proyecto.indiceVencimientosActivo().vencenEntre(momento, hasta));
+    }
+
+    /** Tarea abierta del proyecto con el vencimiento más próximo a partir de {@code momento}. */
+    public Optional<Tarea> proximoVencimiento(Proyecto proyecto, LocalDateTime momento) {
+        if (proyecto == null) return Optional.empty();
+        return CerrojosProyecto.leer(proyecto, () -> proyecto.indiceVencimientosActivo().proxima(momento));
+    }
+
+    /** Tareas vencidas en {@code momento} en todos los proyectos del repositorio. */
+    public List<Tarea> vencidas(LocalDateTime momento) {
+        return vencidas(repository.getProyectos(), momento);
+    }
+
+    /** Tareas vencidas en {@code momento} en los proyectos dados, de la más atrasada a la menos. */
+    public List<Tarea> vencidas(Collection<Proyecto> proyectos, LocalDateTime momento) {
+        return combinar(proyectos, p -> p.indiceVencimientosActivo().vencidas(momento));
+    }
+
+    /** Tareas que vencen en los próximos {@code dias} días en todos los proyectos del repositorio. */
+    public List<Tarea> vencenEnDias(LocalDateTime momento, int dias) {
+        return vencenEnDias(repository.getProyectos(), momento, dias);
+    }
+
+    /** Tareas que vencen en los próximos {@code dias} días en los proyectos dados. */
+    public List<Tarea> vencenEnDias(Collection<Proyecto> proyectos, LocalDateTime momento, int dias) {
+        if (dias < 0) return List.of();
+        LocalDateTime hasta = finDelDia(momento, dias);
+        return combinar(proyectos, p -> p.indiceVencimientosActivo().vencenEntre(momento, hasta));
+    }
+
+    /** Próximo vencimiento de cualquier proyecto del repositorio. */
+    public Optional<Tarea> proximoVencimiento(LocalDateTime momento) {
+        return proximoVencimiento(repository.getProyectos(), momento);
+    }
+
+    /** Próximo vencimiento entre los proyectos dados. */
+    public Optional<Tarea> proximoVencimiento(Collection<Proyecto> proyectos, LocalDateTime momento) {
+        Vencimiento mejor = null;
+        for (Proyecto p : proyectos) {
+            Vencimiento v = CerrojosProyecto.leer(p, () ->
+                    p.indiceVencimientosActivo().proxima(momento).map(Vencimiento::de).orElse(null));
+            if (v != null && (mejor == null || v.fin().isBefore(mejor.fin()))) mejor = v;
+        }
+        return Optional.ofNullable(mejor).map(Vencimiento::tarea);
+    }
+
+    private static List<Tarea> combinar(Collection<Proyecto> proyectos, Function<Proyecto, List<Tarea>> rango) {
+        List<Vencimiento> vencimientos = new ArrayList<>();
+        for (Proyecto p : proyectos) {
+            CerrojosProyecto.leer(p, () -> {
+                for (Tarea t : rango.apply(p)) vencimientos.add(Vencimiento.de(t));
+                return null;
+            });
+        }
+        // Cada rango ya está ordenado: la ordenación estable solo intercala
+        vencimientos.sort(Comparator.comparing(Vencimiento::fin));
+        List<Tarea> resultado = new ArrayList<>(vencimientos.size());
+        for (Vencimiento v : vencimientos) resultado.add(v.tarea());
+        return resultado;
+    }
+
+    /** Tarea con el final de su plazo leído mientras se tenía el cerrojo de su proyecto. */
+    private record Vencimiento(Tarea tarea, LocalDateTime fin) {
+        static Vencimiento de(Tarea t) {
+            return new Vencimiento(t, t.getFechaLimite().getFinDelPlazo());
+        }
+    }
+
+    private static LocalDateTime finDelDia(LocalDateTime momento, int dias) {
+        return momento.toLocalDate().plusDays(dias).atTime(LocalTime.MAX);
+    }
+}
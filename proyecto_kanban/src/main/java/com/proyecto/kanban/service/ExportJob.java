@@ -0,0 +1,145 @@
+package com.proyecto.kanban.service;
+
+import com.proyecto.kanban.export.ExportProgress;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Una exportación encolada en {@link ExportJobs}: su estado, su progreso (filas
+ * renderizadas de las previstas y bytes de PDF escritos) y su resultado.
+ *
+ * Se puede consultar desde cualquier hilo. {@link #cancelar()} es cooperativo: una
+ * exportación en cola ya no empieza y una en curso se detiene en la siguiente fila,
+ * sin dejar archivos a medias.
+ */
+public class ExportJob {
+    public enum Estado { EN_COLA, EN_CURSO, TERMINADO, FALLIDO, CANCELADO }
+
+    private final int id;
+    private final String descripcion;
+    private final Path destino;
+    private final AtomicLong filas = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final CompletableFuture<List<Path>> resultado = new CompletableFuture<>();
+    private final Consumer<ExportJob> alProgresar;
+    private final Consumer<ExportJob> alCancelar;
+    // Momento (System.nanoTime) del último aviso de progreso; lo usa ExportJobs para espaciarlos
+    final AtomicLong ultimoAviso = new AtomicLong();
+    private volatile Estado estado = Estado.EN_COLA;
+    private volatile int filasPrevistas;
+    private volatile boolean cancelado;
+    private volatile List<Path> archivos = List.of();
+    private volatile Throwable error;
+
+    // Seguimiento que recibe el generador de PDF
+    private final ExportProgress progreso = new ExportProgress() {
+        @Override
+        public void filasRenderizadas(int n) {
+            filas.addAndGet(n);
+            alProgresar.accept(ExportJob.this);
+        }
+
+        @Override
+        public void bytesEscritos(long n) {
+            bytes.addAndGet(n);
+            alProgresar.accept(ExportJob.this);
+        }
+
+        @Override
+        public boolean isCancelado() {
+            return cancelado;
+        }
+    };
+
+    ExportJob(int id, String descripcion, Path destino, Consumer<ExportJob> alProgresar,
+              Consumer<ExportJob> alCancelar) {
+        this.id = id;
+        this.descripcion = descripcion;
+        this.destino = destino;
+        this.alProgresar = alProgresar;
+        this.alCancelar = alCancelar;
+    }
+
+    public int getId() { return id; }
+    public String getDescripcion() { return descripcion; }
+    public Path getDestino() { return destino; }
+    public Estado getEstado() { return estado; }
+
+    /** Filas que tendrá el informe (0 mientras no se conocen). */
+    public int getFilasPrevistas() { return filasPrevistas; }
+    public long getFilasRenderizadas() { return filas.get(); }
+    public long getBytesEscritos() { return bytes.get(); }
+
+    /** PDFs generados (vacío hasta que termina bien). */
+    public List<Path> getArchivos() { return archivos; }
+
+    /** Causa del fallo, si ha fallado. */
+    public Throwable getError() { return error; }
+
+    /** Indica si ya no va a cambiar de estado. */
+    public boolean isTerminado() {
+        Estado e = estado;
+        return e == Estado.TERMINADO || e == Estado.FALLIDO || e == Estado.CANCELADO;
+    }
+
+    /** Fracción hecha, entre 0 y 1, o -1 si aún no se sabe cuántas filas tendrá. */
+    public double getFraccion() {
+        if (estado == Estado.TERMINADO) return 1;
+        int previstas = filasPrevistas;
+        if (previstas <= 0) return -1;
+        return Math.min(1, (double) filas.get() / previstas);
+    }
+
+    /**
+     * Futuro con los PDFs generados; falla con la causa del error o se cancela si
+     * se cancela la exportación.
+     */
+    public CompletableFuture<List<Path>> getResultado() { return resultado; }
+
+    /** Pide cancelar la exportación; no hace nada si ya ha terminado. */
+    public void cancelar() {
+        if (cancelado || isTerminado()) return;
+        cancelado = true;
+        alCancelar.accept(this);
+    }
+
+    public boolean isCancelado() { return cancelado; }
+
+    // --- Ciclo de vida (lo lleva ExportJobs) ---
+
+    ExportProgress getProgreso() { return progreso; }
+
+    void empezar() {
+        estado = Estado.EN_CURSO;
+    }
+
+    void setFilasPrevistas(int filasPrevistas) {
+        this.filasPrevistas = filasPrevistas;
+    }
+
+    void terminar(List<Path> archivos) {
+        this.archivos = List.copyOf(archivos);
+        estado = Estado.TERMINADO;
+        resultado.complete(this.archivos);
+    }
+
+    void fallar(Throwable error) {
+        this.error = error;
+        estado = Estado.FALLIDO;
+        resultado.completeExceptionally(error);
+    }
+
+    void anular() {
+        estado = Estado.CANCELADO;
+        resultado.cancel(false);
+    }
+
+    @Override
+    public String toString() {
+        return "ExportJob{" + id + ", " + descripcion + ", " + estado + "}";
+    }
+}
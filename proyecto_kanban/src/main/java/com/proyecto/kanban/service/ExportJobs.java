@@ -0,0 +1,238 @@
+package com.proyecto.kanban.service;
+
+import com.proyecto.kanban.export.PdfReportGenerator;
+import com.proyecto.kanban.export.ReportData;
+import com.proyecto.kanban.export.ReportTable;
+import com.proyecto.kanban.model.Proyecto;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Cola de exportaciones a PDF en segundo plano.
+ *
+ * Cada exportación es un {@link ExportJob} que espera turno en una cola acotada
+ * ({@link #COLA_MAXIMA}) y la ejecuta uno de unos pocos hilos de trabajo
+ * ({@link #HILOS_DEFECTO}): exportar ocupa memoria y CPU, así que más hilos solo
+ * harían más lenta cada exportación. Los informes se generan siempre por trozos
+ * ({@link PdfReportGenerator#generatePdfsStreaming}), con el generador compartido.
+ *
+ * Los oyentes ({@link #agregarOyente}) reciben los cambios de estado y, como mucho
+ * cada {@link #AVISO_PROGRESO_MS} ms por exportación, los de progreso; se les avisa
+ * en el hilo {@code entrega} (en la aplicación, el de JavaFX). La lista de
+ * exportaciones guarda las {@link #HISTORIAL} últimas terminadas.
+ *
+ * Un lote ({@link #exportarLote}) es una sola exportación de la cola, que reparte
+ * sus proyectos entre los hilos de {@link BatchExport}.
+ */
+public class ExportJobs implements AutoCloseable {
+    /** Exportaciones simultáneas por defecto. */
+    public static final int HILOS_DEFECTO = 2;
+    /** Exportaciones que pueden esperar turno; más allá se rechazan. */
+    public static final int COLA_MAXIMA = 32;
+    /** Intervalo mínimo entre avisos de progreso de una misma exportación. */
+    public static final long AVISO_PROGRESO_MS = 200;
+    /** Exportaciones terminadas que se conservan en {@link #getTrabajos()}. */
+    public static final int HISTORIAL = 50;
+    /** Espera máxima de {@link #close()} a las exportaciones en curso. */
+    public static final long ESPERA_CIERRE_MS = 5_000;
+
+    private final ReportService reportService;
+    private final PdfReportGenerator generador;
+    private final Executor entrega;
+    private final ThreadPoolExecutor trabajo;
+    private final AtomicInteger ids = new AtomicInteger();
+    private final List<ExportJob> trabajos = new CopyOnWriteArrayList<>();
+    // Tarea encolada de cada exportación que aún no ha empezado
+    private final Map<ExportJob, Runnable> enCola = new ConcurrentHashMap<>();
+    private final List<Consumer<ExportJob>> oyentes = new CopyOnWriteArrayList<>();
+
+    public ExportJobs(ReportService reportService, Executor entrega) {
+        this(reportService, PdfReportGenerator.compartido(), entrega, HILOS_DEFECTO);
+    }
+
+    /**
+     * @param entrega ejecutor donde se avisa a los oyentes
+     * @param hilos número de exportaciones simultáneas
+     */
+    public ExportJobs(ReportService reportService, PdfReportGenerator generador, Executor entrega, int hilos) {
+        this.reportService = reportService;
+        this.generador = generador;
+        this.entrega = entrega;
+        AtomicInteger contador = new AtomicInteger();
+        this.trabajo = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(COLA_MAXIMA), r -> {
+            Thread t = new Thread(r, "kanban-export-" + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Encola la exportación del resumen del proyecto en el periodo a {@code destino}.
+     *
+     * @throws IllegalStateException si ya hay {@link #COLA_MAXIMA} exportaciones esperando
+     */
+    public ExportJob exportarResumen(Proyecto proyecto, LocalDate desde, LocalDate hasta, Path destino) {
+        String descripcion = proyecto.getNombre() + " (" + desde + " - " + hasta + ")";
+        return encolar(descripcion, destino, job -> {
+            ReportData data = reportService.buildResumenProyectoStreaming(proyecto, desde, hasta);
+            int filas = 0;
+            for (ReportTable table : data.getTables()) filas += table.getRowCount();
+            job.setFilasPrevistas(filas);
+            return generador.generatePdfsStreaming(data, job.getDestino(),
+                    PdfReportGenerator.FILAS_POR_TROZO_DEFECTO, 0, job.getProgreso());
+        });
+    }
+
+    /**
+     * Encola la exportación por lotes de los proyectos para los periodos a
+     * {@code carpeta} (ver {@link BatchExport}). Si algún proyecto falla, la
+     * exportación termina como fallida, con los errores en el mensaje; los PDFs de
+     * los demás proyectos se quedan en la carpeta.
+     *
+     * @throws IllegalStateException si ya hay {@link #COLA_MAXIMA} exportaciones esperando
+     */
+    public ExportJob exportarLote(Collection<Proyecto> proyectos, List<ReportPeriod> periodos, Path carpeta) {
+        String descripcion = "Lote: " + proyectos.size() + " proyectos x " + periodos.size() + " periodos";
+        List<Proyecto> copia = List.copyOf(proyectos);
+        List<ReportPeriod> periodosCopia = List.copyOf(periodos);
+        return encolar(descripcion, carpeta, job -> {
+            BatchExport.Resultado resultado = new BatchExport(reportService, generador, BatchExport.HILOS_DEFECTO)
+                    .exportar(copia, periodosCopia, carpeta, job.getProgreso());
+            if (!resultado.isCompleto()) {
+                throw new IllegalStateException(resultado.errores().size() + " proyectos con error (" +
+                        resultado.archivos().size() + " PDFs generados): " + resultado.errores().get(0));
+            }
+            return resultado.archivos();
+        });
+    }
+
+    /** Trabajo de una exportación: genera los PDFs y devuelve sus rutas. */
+    private interface Exportacion {
+        List<Path> ejecutar(ExportJob job) throws Exception;
+    }
+
+    private ExportJob encolar(String descripcion, Path destino, Exportacion exportacion) {
+        ExportJob job = new ExportJob(ids.incrementAndGet(), descripcion, destino, this::avisarProgreso, this::alCancelar);
+        Runnable tarea = () -> ejecutar(job, exportacion);
+        enCola.put(job, tarea);
+        trabajos.add(job);
+        try {
+            trabajo.execute(tarea);
+        } catch (RejectedExecutionException ex) {
+            enCola.remove(job);
+            trabajos.remove(job);
+            throw new IllegalStateException("Hay demasiadas exportaciones en cola (" + COLA_MAXIMA + ")", ex);
+        }
+        recortarHistorial();
+        avisar(job);
+        return job;
+    }
+
+    /** Exportaciones en curso, en cola y las últimas terminadas, por orden de llegada. */
+    public List<ExportJob> getTrabajos() {
+        return new ArrayList<>(trabajos);
+    }
+
+    /** Quita de la lista las exportaciones terminadas. */
+    public void limpiarTerminados() {
+        trabajos.removeIf(ExportJob::isTerminado);
+    }
+
+    /** Exportaciones aún no terminadas. */
+    public int pendientes() {
+        int n = 0;
+        for (ExportJob j : trabajos) if (!j.isTerminado()) n++;
+        return n;
+    }
+
+    public void agregarOyente(Consumer<ExportJob> oyente) {
+        oyentes.add(oyente);
+    }
+
+    public void quitarOyente(Consumer<ExportJob> oyente) {
+        oyentes.remove(oyente);
+    }
+
+    private void ejecutar(ExportJob job, Exportacion exportacion) {
+        enCola.remove(job);
+        if (job.isCancelado()) {
+            job.anular();
+            avisar(job);
+            return;
+        }
+        job.empezar();
+        avisar(job);
+        try {
+            job.terminar(exportacion.ejecutar(job));
+        } catch (CancellationException ex) {
+            job.anular();
+        } catch (Exception | LinkageError ex) {
+            job.fallar(ex);
+        }
+        avisar(job);
+    }
+
+    // Una exportación que aún espera turno se quita de la cola y se da por cancelada ya
+    private void alCancelar(ExportJob job) {
+        Runnable tarea = enCola.remove(job);
+        if (tarea != null && trabajo.remove(tarea)) {
+            job.anular();
+            avisar(job);
+        }
+    }
+
+    private void avisarProgreso(ExportJob job) {
+        long ahora = System.nanoTime();
+        long anterior = job.ultimoAviso.get();
+        if (ahora - anterior >= TimeUnit.MILLISECONDS.toNanos(AVISO_PROGRESO_MS)
+                && job.ultimoAviso.compareAndSet(anterior, ahora)) {
+            avisar(job);
+        }
+    }
+
+    private void avisar(ExportJob job) {
+        if (oyentes.isEmpty()) return;
+        entrega.execute(() -> oyentes.forEach(o -> o.accept(job)));
+    }
+
+    // Descarta las terminadas más antiguas por encima del historial
+    private void recortarHistorial() {
+        int terminadas = 0;
+        for (ExportJob j : trabajos) if (j.isTerminado()) terminadas++;
+        for (ExportJob j : trabajos) {
+            if (terminadas <= HISTORIAL) break;
+            if (j.isTerminado() && trabajos.remove(j)) terminadas--;
+        }
+    }
+
+    /**
+     * Cancela las exportaciones pendientes, no admite más y espera (como mucho
+     * {@link #ESPERA_CIERRE_MS} ms) a que se detengan las que están en curso.
+     */
+    @Override
+    public void close() {
+        for (ExportJob j : trabajos) j.cancelar();
+        trabajo.shutdown();
+        try {
+            trabajo.awaitTermination(ESPERA_CIERRE_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,17 +1,40 @@
 package com.proyecto.kanban.service;
 
+import com.proyecto.kanban.model.CerrojosProyecto;
+import com.proyecto.kanban.model.EstadisticasProyecto;
+import com.proyecto.kanban.model.EstadoTarea;
 import com.proyecto.kanban.model.Proyecto;
 import com.proyecto.kanban.model.Tarea;
 import com.proyecto.kanban.model.Usuario;
+import com.proyecto.kanban.storage.FiltroTareas;
+import com.proyecto.kanban.storage.PaginaTareas;
 import com.proyecto.kanban.storage.Repository;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * Servicio para la gestión de proyectos en el sistema Kanban.
  * Maneja la creación, actualización y consulta de proyectos.
+ *
+ * Se puede usar desde varios hilos: cada operación toma el cerrojo de su proyecto
+ * ({@link CerrojosProyecto}), de escritura para los cambios y de lectura para las
+ * consultas, así que proyectos distintos se modifican en paralelo.
+ *
+ * Las altas de tareas y de miembros tienen una variante condicional que recibe la
+ * versión del proyecto leída antes ({@link Proyecto#getVersion()}) y no hace nada
+ * si otro cambió el proyecto desde entonces.
+ *
+ * Los contadores del proyecto (tareas por estado, vencidas, progreso medio) se leen
+ * con {@link #getEstadisticas} sin recorrer las tareas.
  */
 public class ProjectService {
+    /** Tamaño de página por defecto para listar tareas. */
+    public static final int TAMANO_PAGINA_DEFECTO = 30;
+
     private final Repository repository;
 
     public ProjectService(Repository repository) {
@@ -32,19 +55,100 @@ public class ProjectService {
         if (lider != null) {
             proyecto.agregarMiembro(lider);
         }
-        repository.getProyectos().add(proyecto);
+        repository.agregarProyecto(proyecto);
         return proyecto;
     }
 
     /**
-     * Obtiene todos los proyectos donde el usuario es miembro.
+     * Obtiene todos los proyectos donde el usuario es miembro. Se resuelve con el
+     * índice de membresía (ids de proyecto del usuario), sin recorrer todos los proyectos.
      * @param usuario Usuario del que se quieren obtener los proyectos
      * @return Lista de proyectos donde el usuario es miembro
      */
     public List<Proyecto> getProyectosUsuario(Usuario usuario) {
-        return repository.getProyectos().stream()
-                .filter(p -> p.getMiembros().contains(usuario))
-                .collect(Collectors.toList());
+        return repository.proyectosDeUsuario(usuario);
+    }
+
+    /** Todos los proyectos del repositorio (p. ej. para la exportación por lotes). */
+    public List<Proyecto> getProyectos() {
+        return new ArrayList<>(repository.getProyectos());
+    }
+
+    /**
+     * Busca un proyecto por su id usando el registro del repositorio.
+     * @param id Identificador del proyecto
+     * @return El proyecto, o vacío si no existe
+     */
+    public Optional<Proyecto> findProyectoById(String id) {
+        return repository.buscarProyecto(id);
+    }
+
+    /**
+     * Busca tareas del proyecto según el filtro. Con el motor SQL se resuelve
+     * como una consulta sobre índices en lugar de recorrer la lista.
+     * @param proyecto Proyecto en el que buscar
+     * @param filtro Criterios (los campos null no filtran)
+     * @return Tareas que cumplen el filtro, en el orden del proyecto
+     */
+    public List<Tarea> buscarTareas(Proyecto proyecto, FiltroTareas filtro) {
+        if (proyecto == null) return List.of();
+        return CerrojosProyecto.leer(proyecto, () -> repository.buscarTareas(proyecto, filtro));
+    }
+
+    /**
+     * Obtiene una página de tareas del proyecto que cumplen el filtro. Solo se
+     * cargan las tareas necesarias para llenarla, no el proyecto completo.
+     * @param proyecto Proyecto del que se listan las tareas
+     * @param filtro Criterios (null = todas)
+     * @param continuacion Cursor de la página anterior, o null para la primera
+     * @param tamano Número máximo de tareas de la página
+     * @return La página y el cursor de la siguiente (null si es la última)
+     */
+    public PaginaTareas paginaTareas(Proyecto proyecto, FiltroTareas filtro, String continuacion, int tamano) {
+        if (proyecto == null) return new PaginaTareas(List.of(), null);
+        return CerrojosProyecto.leer(proyecto, () -> repository.paginaTareas(proyecto, filtro, continuacion, tamano));
+    }
+
+    /**
+     * Obtiene una página de tareas del proyecto en un estado, con el tamaño por defecto.
+     * @param proyecto Proyecto del que se listan las tareas
+     * @param estado Estado (columna) de las tareas
+     * @param continuacion Cursor de la página anterior, o null para la primera
+     * @return La página y el cursor de la siguiente
+     */
+    public PaginaTareas paginaTareas(Proyecto proyecto, EstadoTarea estado, String continuacion) {
+        return paginaTareas(proyecto, new FiltroTareas(estado, null, null, null), continuacion, TAMANO_PAGINA_DEFECTO);
+    }
+
+    /**
+     * Contadores del proyecto en este momento. La primera consulta de un proyecto
+     * carga sus tareas y calcula los contadores; desde entonces el modelo los
+     * mantiene al día y cada consulta es O(1).
+     * @param proyecto Proyecto del que se quieren los contadores
+     * @return Instantánea con las tareas por estado, vencidas, sin asignar y el progreso medio
+     */
+    public ProjectStats getEstadisticas(Proyecto proyecto) {
+        LocalDateTime ahora = LocalDateTime.now();
+        if (proyecto == null) return new ProjectStats(0, porEstado(null), 0, 0, 0, ahora);
+        return CerrojosProyecto.leer(proyecto, () -> {
+            EstadisticasProyecto e = proyecto.estadisticasActivas();
+            int vencidas = proyecto.getIndiceVencimientos().contarVencidas(ahora);
+            return new ProjectStats(e.getTotal(), porEstado(e), vencidas, e.getSinAsignar(), e.getProgresoMedio(), ahora);
+        });
+    }
+
+    /**
+     * Número de tareas del proyecto asignadas al usuario ({@code null}: sin asignar), en O(1).
+     */
+    public int tareasAsignadas(Proyecto proyecto, Usuario usuario) {
+        if (proyecto == null) return 0;
+        return CerrojosProyecto.leer(proyecto, () -> proyecto.estadisticasActivas().asignadasA(usuario));
+    }
+
+    private static Map<EstadoTarea, Integer> porEstado(EstadisticasProyecto e) {
+        Map<EstadoTarea, Integer> mapa = new EnumMap<>(EstadoTarea.class);
+        for (EstadoTarea estado : EstadoTarea.values()) mapa.put(estado, e != null ? e.contar(estado) : 0);
+        return mapa;
     }
 
     /**
@@ -54,19 +158,56 @@ public class ProjectService {
      */
     public void agregarTarea(Proyecto proyecto, Tarea tarea) {
         if (proyecto != null && tarea != null) {
-            proyecto.agregarTarea(tarea);
+            CerrojosProyecto.modificar(proyecto, () -> {
+                proyecto.agregarTarea(tarea);
+                repository.getJournal().tareaAgregada(proyecto, tarea);
+            });
         }
     }
 
+    /**
+     * Añade la tarea solo si el proyecto sigue en {@code versionEsperada}.
+     * @return {@code true} si se añadió; {@code false} si el proyecto cambió antes
+     */
+    public boolean agregarTarea(Proyecto proyecto, Tarea tarea, long versionEsperada) {
+        if (proyecto == null || tarea == null) return false;
+        return CerrojosProyecto.escribir(proyecto, () -> {
+            if (proyecto.getVersion() != versionEsperada) return false;
+            proyecto.agregarTarea(tarea);
+            repository.getJournal().tareaAgregada(proyecto, tarea);
+            return true;
+        });
+    }
+
     /**
      * Añade un miembro al proyecto si no está ya incluido.
      * @param proyecto Proyecto al que se añadirá el miembro
      * @param usuario Usuario a añadir como miembro
      */
     public void agregarMiembro(Proyecto proyecto, Usuario usuario) {
-        if (proyecto != null && usuario != null) {
-            proyecto.agregarMiembro(usuario);
-        }
+        if (proyecto == null || usuario == null) return;
+        CerrojosProyecto.modificar(proyecto, () -> {
+            if (!proyecto.esMiembro(usuario)) {
+                proyecto.agregarMiembro(usuario);
+                repository.getJournal().miembroAgregado(proyecto, usuario);
+            }
+        });
+    }
+
+    /**
+     * Añade un miembro solo si el proyecto sigue en {@code versionEsperada}.
+     * @return {@code true} si el usuario es miembro al terminar; {@code false} si el proyecto cambió antes
+     */
+    public boolean agregarMiembro(Proyecto proyecto, Usuario usuario, long versionEsperada) {
+        if (proyecto == null || usuario == null) return false;
+        return CerrojosProyecto.escribir(proyecto, () -> {
+            if (proyecto.getVersion() != versionEsperada) return false;
+            if (!proyecto.esMiembro(usuario)) {
+                proyecto.agregarMiembro(usuario);
+                repository.getJournal().miembroAgregado(proyecto, usuario);
+            }
+            return true;
+        });
     }
 
     /**
@@ -75,8 +216,28 @@ public class ProjectService {
      * @param usuario Usuario a eliminar
      */
     public void eliminarMiembro(Proyecto proyecto, Usuario usuario) {
-        if (proyecto != null && usuario != null) {
-            proyecto.eliminarMiembro(usuario);
-        }
+        if (proyecto == null) return;
+        CerrojosProyecto.modificar(proyecto, () -> {
+            if (proyecto.esMiembro(usuario)) {
+                proyecto.eliminarMiembro(usuario);
+                repository.getJournal().miembroEliminado(proyecto, usuario);
+            }
+        });
+    }
+
+    /**
+     * Elimina un miembro solo si el proyecto sigue en {@code versionEsperada}.
+     * @return {@code true} si el usuario no es miembro al terminar; {@code false} si el proyecto cambió antes
+     */
+    public boolean eliminarMiembro(Proyecto proyecto, Usuario usuario, long versionEsperada) {
+        if (proyecto == null) return false;
+        return CerrojosProyecto.escribir(proyecto, () -> {
+            if (proyecto.getVersion() != versionEsperada) return false;
+            if (proyecto.esMiembro(usuario)) {
+                proyecto.eliminarMiembro(usuario);
+                repository.getJournal().miembroEliminado(proyecto, usuario);
+            }
+            return true;
+        });
     }
 }
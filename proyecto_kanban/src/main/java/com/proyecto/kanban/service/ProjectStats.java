@@ -0,0 +1,31 @@
+package com.proyecto.kanban.service;
+
+import com.proyecto.kanban.model.EstadoTarea;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Instantánea de los contadores de un proyecto ({@link ProjectService#getEstadisticas}).
+ * Se obtiene en O(1): sale de contadores que el modelo mantiene al día con cada
+ * cambio, no de recorrer las tareas.
+ *
+ * @param total número de tareas
+ * @param porEstado tareas de cada estado (todos los estados están presentes)
+ * @param vencidas tareas abiertas cuyo plazo terminó antes de {@code momento}
+ * @param sinAsignar tareas sin usuario asignado
+ * @param progresoMedio media de {@code Tarea.getProgressPercent()}, de 0 a 100
+ * @param momento instante con el que se contaron las vencidas
+ */
+public record ProjectStats(int total, Map<EstadoTarea, Integer> porEstado, int vencidas, int sinAsignar,
+                           double progresoMedio, LocalDateTime momento) {
+
+    public ProjectStats {
+        porEstado = Map.copyOf(porEstado);
+    }
+
+    /** Número de tareas en ese estado. */
+    public int contar(EstadoTarea estado) {
+        return porEstado.getOrDefault(estado, 0);
+    }
+}
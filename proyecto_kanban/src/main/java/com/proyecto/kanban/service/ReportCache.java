@@ -0,0 +1,106 @@
+package com.proyecto.kanban.service;
+
+import com.proyecto.kanban.export.ReportData;
+import com.proyecto.kanban.export.ReportTable;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caché de los resúmenes ya construidos por {@link ReportService}, por proyecto y
+ * periodo.
+ *
+ * Cada informe se guarda con la versión de contenido que tenía el proyecto al
+ * construirlo ({@code Proyecto.getVersionContenido()}), que cambia con cualquier
+ * cambio de sus tareas: un informe solo se devuelve si la versión coincide con la
+ * actual, así que no se sirve uno anterior a un cambio de las tareas. Los viejos se
+ * descartan al buscarlos. Renombrar un usuario no cambia la versión de los
+ * proyectos: los informes guardados conservan el nombre anterior.
+ *
+ * Tamaño acotado por número de informes y por filas en total (lo que de verdad
+ * ocupa memoria): al pasarse de cualquiera de los dos se expulsan los usados hace
+ * más tiempo (LRU). Un informe con más filas que el total no se guarda.
+ *
+ * Métodos sincronizados: la caché es pequeña y cada operación dura muy poco.
+ */
+final class ReportCache {
+    /** Proyecto y periodo de un informe. */
+    record Clave(String proyectoId, LocalDate desde, LocalDate hasta) {}
+
+    private record Entrada(long version, ReportData data, long filas) {}
+
+    private final int maxInformes;
+    private final long maxFilas;
+    // En orden de acceso: el primero es el usado hace más tiempo
+    private final LinkedHashMap<Clave, Entrada> entradas = new LinkedHashMap<>(16, 0.75f, true);
+    private long filas;
+    private long aciertos;
+    private long fallos;
+    private long expulsiones;
+    private long obsoletas;
+
+    /** Con {@code maxInformes == 0} la caché no guarda nada (pero cuenta los fallos). */
+    ReportCache(int maxInformes, long maxFilas) {
+        if (maxInformes < 0) throw new IllegalArgumentException("Máximo de informes negativo: " + maxInformes);
+        if (maxFilas < 0) throw new IllegalArgumentException("Máximo de filas negativo: " + maxFilas);
+        this.maxInformes = maxInformes;
+        this.maxFilas = maxFilas;
+    }
+
+    /** El informe guardado para la clave si se construyó con esa versión, o {@code null}. */
+    synchronized ReportData buscar(Clave clave, long version) {
+        Entrada e = entradas.get(clave);
+        if (e != null && e.version == version) {
+            aciertos++;
+            return e.data;
+        }
+        if (e != null) {
+            quitar(clave, e);
+            obsoletas++;
+        }
+        fallos++;
+        return null;
+    }
+
+    /** Guarda el informe construido con esa versión, expulsando los menos usados si no cabe. */
+    synchronized void guardar(Clave clave, long version, ReportData data) {
+        long peso = filas(data);
+        if (maxInformes == 0 || peso > maxFilas) return;
+        Entrada anterior = entradas.put(clave, new Entrada(version, data, peso));
+        if (anterior != null) filas -= anterior.filas;
+        filas += peso;
+        Iterator<Map.Entry<Clave, Entrada>> it = entradas.entrySet().iterator();
+        while ((entradas.size() > maxInformes || filas > maxFilas) && it.hasNext()) {
+            Map.Entry<Clave, Entrada> mayor = it.next();
+            if (mayor.getKey().equals(clave)) continue;
+            filas -= mayor.getValue().filas;
+            it.remove();
+            expulsiones++;
+        }
+    }
+
+    synchronized void limpiar() {
+        entradas.clear();
+        filas = 0;
+    }
+
+    synchronized ReportCacheStats estadisticas() {
+        return new ReportCacheStats(aciertos, fallos, expulsiones, obsoletas, entradas.size(), filas);
+    }
+
+    private void quitar(Clave clave, Entrada e) {
+        entradas.remove(clave);
+        filas -= e.filas;
+    }
+
+    // Peso del informe: sus filas guardadas (las tablas perezosas no ocupan)
+    private static long filas(ReportData data) {
+        long n = 0;
+        for (ReportTable table : data.getTables()) {
+            if (!table.isLazy()) n += table.getRows().size();
+        }
+        return n;
+    }
+}
@@ -0,0 +1,21 @@
+package com.proyecto.kanban.service;
+
+/**
+ * Instantánea de las métricas de la caché de informes ({@link ReportService#getEstadisticasCache}).
+ * Los contadores se acumulan desde que se creó el servicio.
+ *
+ * @param aciertos búsquedas que devolvieron un informe guardado
+ * @param fallos búsquedas que tuvieron que construir el informe
+ * @param expulsiones informes expulsados por falta de sitio
+ * @param obsoletas informes descartados porque el proyecto había cambiado (también cuentan como fallos)
+ * @param informes informes guardados ahora
+ * @param filas filas que ocupan ahora los informes guardados
+ */
+public record ReportCacheStats(long aciertos, long fallos, long expulsiones, long obsoletas, int informes, long filas) {
+
+    /** Fracción de búsquedas que acertaron, de 0 a 1 (0 si aún no hubo ninguna). */
+    public double tasaAciertos() {
+        long total = aciertos + fallos;
+        return total == 0 ? 0 : aciertos / (double) total;
+    }
+}
@@ -0,0 +1,52 @@
+package com.proyecto.kanban.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Periodo de un resumen de proyecto: de {@code desde} a {@code hasta}, ambos
+ * incluidos. Las fábricas generan las listas habituales de la exportación por
+ * lotes, del periodo más antiguo al más reciente.
+ */
+public record ReportPeriod(LocalDate desde, LocalDate hasta) {
+    public ReportPeriod {
+        if (desde == null || hasta == null) throw new IllegalArgumentException("El periodo necesita fecha de inicio y de fin");
+        if (hasta.isBefore(desde)) throw new IllegalArgumentException("Periodo invertido: " + desde + " - " + hasta);
+    }
+
+    /** Las {@code n} últimas semanas completas (de lunes a domingo) hasta la que contiene {@code dia}. */
+    public static List<ReportPeriod> ultimasSemanas(int n, LocalDate dia) {
+        comprobarCantidad(n);
+        LocalDate lunes = dia.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        List<ReportPeriod> periodos = new ArrayList<>(n);
+        for (int i = n - 1; i >= 0; i--) {
+            LocalDate inicio = lunes.minusWeeks(i);
+            periodos.add(new ReportPeriod(inicio, inicio.plusDays(6)));
+        }
+        return periodos;
+    }
+
+    /** Los {@code n} últimos meses naturales hasta el que contiene {@code dia}. */
+    public static List<ReportPeriod> ultimosMeses(int n, LocalDate dia) {
+        comprobarCantidad(n);
+        LocalDate primero = dia.withDayOfMonth(1);
+        List<ReportPeriod> periodos = new ArrayList<>(n);
+        for (int i = n - 1; i >= 0; i--) {
+            LocalDate inicio = primero.minusMonths(i);
+            periodos.add(new ReportPeriod(inicio, inicio.with(TemporalAdjusters.lastDayOfMonth())));
+        }
+        return periodos;
+    }
+
+    private static void comprobarCantidad(int n) {
+        if (n <= 0) throw new IllegalArgumentException("Número de periodos no válido: " + n);
+    }
+
+    @Override
+    public String toString() {
+        return desde + " - " + hasta;
+    }
+}
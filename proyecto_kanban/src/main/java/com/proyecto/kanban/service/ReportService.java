@@ -1,15 +1,23 @@
 package com.proyecto.kanban.service;
 
+import com.proyecto.kanban.model.CerrojosProyecto;
 import com.proyecto.kanban.model.Proyecto;
 import com.proyecto.kanban.model.Tarea;
 import com.proyecto.kanban.export.ReportData;
 import com.proyecto.kanban.export.ReportTable;
+import com.proyecto.kanban.export.RowWriter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.NoSuchElementException;
 
 /**
  * Servicio que construye reportes consolidados a partir de un Proyecto y un rango de fechas.
@@ -17,9 +25,61 @@ import java.util.stream.Collectors;
  * Propósito: permitir exportar un "Resumen Semanal/Mensual" con métricas (KPIs) clave
  * y un listado detallado de tareas. Los datos se estructuran en un `ReportData` (DTOs)
  * para que la UI o PdfReportGenerator puedan consumirlos sin conocer la lógica del modelo.
+ *
+ * Todos los KPIs y el listado salen de un único recorrido de las tareas
+ * ({@link AcumuladorResumen}), repartido entre los hilos del {@code ForkJoinPool}
+ * común cuando el proyecto es grande.
+ *
+ * Los resúmenes construidos se guardan en una caché ({@link ReportCache}) por
+ * proyecto, periodo y versión de contenido del proyecto: volver a pedir el mismo
+ * resumen de un proyecto que no ha cambiado no recorre sus tareas. Los informes
+ * que devuelve la caché son compartidos, así que no se deben modificar.
  */
 public class ReportService {
+    /** Tareas que lee de una vez, con el cerrojo del proyecto, la tabla perezosa del informe por trozos. */
+    public static final int FILAS_POR_LECTURA = 512;
+    /** Informes que guarda la caché por defecto. */
+    public static final int CACHE_INFORMES_DEFECTO = 64;
+    /** Filas que pueden ocupar en total los informes de la caché por defecto. */
+    public static final long CACHE_FILAS_DEFECTO = 100_000;
+    /**
+     * Tareas a partir de las cuales {@link #buildResumenProyectoStreaming} no construye
+     * el informe en memoria (ni lo guarda en la caché) si no lo encuentra en ella.
+     */
+    public static final int FILAS_CACHE_STREAMING = 5_000;
+
+    private static final List<String> COLUMNAS_TAREAS =
+            List.of("Id","Titulo","Asignado","Prioridad","Estado","Creada","Cierre","FechaLimite","Etiquetas");
+    private static final List<String> COLUMNAS_VOLCADO;
+
+    static {
+        List<String> columnas = new ArrayList<>(List.of("ProyectoId", "Proyecto"));
+        columnas.addAll(COLUMNAS_TAREAS);
+        COLUMNAS_VOLCADO = List.copyOf(columnas);
+    }
+
+    private final ReportCache cache;
+
     public ReportService() {
+        this(CACHE_INFORMES_DEFECTO, CACHE_FILAS_DEFECTO);
+    }
+
+    /**
+     * @param cacheInformes informes que guarda como mucho la caché (0: sin caché)
+     * @param cacheFilas filas que pueden ocupar en total los informes de la caché
+     */
+    public ReportService(int cacheInformes, long cacheFilas) {
+        this.cache = new ReportCache(cacheInformes, cacheFilas);
+    }
+
+    /** Aciertos, fallos y expulsiones de la caché de informes hasta ahora. */
+    public ReportCacheStats getEstadisticasCache() {
+        return cache.estadisticas();
+    }
+
+    /** Vacía la caché de informes (las métricas se conservan). */
+    public void limpiarCache() {
+        cache.limpiar();
     }
 
     /**
@@ -28,98 +88,234 @@ public class ReportService {
      * @param proyecto el proyecto a reportar
      * @param desde fecha inicio del periodo (incluida)
      * @param hasta fecha fin del periodo (incluida)
-     * @return ReportData con dos tablas: "Resumen" (KPIs) y "Tareas" (listado detallado)
+     * @return ReportData con dos tablas: "Resumen" (KPIs) y "Tareas" (listado detallado);
+     *         puede venir de la caché, así que no se debe modificar
      */
     public ReportData buildResumenProyecto(Proyecto proyecto, LocalDate desde, LocalDate hasta) {
+        // Con el cerrojo de lectura del proyecto: los KPIs y el listado salen del mismo estado,
+        // y la versión de contenido no cambia mientras se construye
+        return CerrojosProyecto.leer(proyecto, () -> {
+            proyecto.cargarTodasLasTareas();
+            ReportCache.Clave clave = new ReportCache.Clave(proyecto.getId(), desde, hasta);
+            long version = proyecto.getVersionContenido();
+            ReportData data = cache.buscar(clave, version);
+            if (data == null) {
+                data = construirResumen(proyecto, desde, hasta);
+                cache.guardar(clave, version, data);
+            }
+            return data;
+        });
+    }
+
+    /**
+     * Como {@link #buildResumenProyecto}, pero para informes muy grandes: los KPIs se
+     * calculan ahora y la tabla "Tareas" es perezosa ({@link ReportTable#lazy}). Sus
+     * filas se leen del proyecto de {@link #FILAS_POR_LECTURA} en {@link #FILAS_POR_LECTURA}
+     * al recorrerla, cada tanda con el cerrojo de lectura, así que el informe nunca
+     * tiene todas las filas en memoria. Pensado para {@code PdfReportGenerator.generatePdfStreaming}.
+     *
+     * Las tareas que se añadan mientras se recorre no aparecen; si entretanto se
+     * quitan tareas, el listado puede saltarse o repetir alguna.
+     *
+     * Si la caché tiene el resumen completo y al día, se devuelve ese; si no, los
+     * proyectos de hasta {@link #FILAS_CACHE_STREAMING} tareas se resumen como en
+     * {@link #buildResumenProyecto} (y quedan en la caché), porque caben de sobra.
+     */
+    public ReportData buildResumenProyectoStreaming(Proyecto proyecto, LocalDate desde, LocalDate hasta) {
+        return CerrojosProyecto.leer(proyecto, () -> {
+            proyecto.cargarTodasLasTareas();
+            int total = proyecto.getTareas().size();
+            ReportCache.Clave clave = new ReportCache.Clave(proyecto.getId(), desde, hasta);
+            long version = proyecto.getVersionContenido();
+            ReportData guardado = cache.buscar(clave, version);
+            if (guardado != null) return guardado;
+            if (total <= FILAS_CACHE_STREAMING) {
+                ReportData data = construirResumen(proyecto, desde, hasta);
+                cache.guardar(clave, version, data);
+                return data;
+            }
+            ReportData data = new ReportData();
+            LocalDateTime start = desde.atStartOfDay();
+            LocalDateTime end = hasta.atTime(LocalTime.MAX);
+            agregarCabecera(data, proyecto, desde, hasta);
+            data.addTable(tablaResumen(AcumuladorResumen.recorrerSinFilas(proyecto.getTareas(), start, end)));
+            data.addTable(ReportTable.lazy("Tareas", COLUMNAS_TAREAS, () -> new FilasTareas(proyecto, total), total));
+            return data;
+        });
+    }
+
+    /**
+     * Resúmenes del proyecto para varios periodos (exportación por lotes), uno por
+     * periodo y en el mismo orden. Las tareas se recorren una sola vez para todos
+     * los periodos y las filas del listado, iguales en todos, se comparten. Los
+     * periodos que ya están en la caché no se recorren; los demás se guardan en ella.
+     */
+    public List<ReportData> buildResumenesProyecto(Proyecto proyecto, List<ReportPeriod> periodos) {
+        return CerrojosProyecto.leer(proyecto, () -> {
+            proyecto.cargarTodasLasTareas();
+            long version = proyecto.getVersionContenido();
+            List<ReportData> informes = new ArrayList<>(periodos.size());
+            List<Integer> faltan = new ArrayList<>();
+            for (int p = 0; p < periodos.size(); p++) {
+                ReportPeriod periodo = periodos.get(p);
+                ReportData data = cache.buscar(new ReportCache.Clave(proyecto.getId(), periodo.desde(), periodo.hasta()), version);
+                informes.add(data);
+                if (data == null) faltan.add(p);
+            }
+            if (faltan.isEmpty()) return informes;
+
+            LocalDateTime[] inicios = new LocalDateTime[faltan.size()];
+            LocalDateTime[] fines = new LocalDateTime[faltan.size()];
+            for (int i = 0; i < inicios.length; i++) {
+                inicios[i] = periodos.get(faltan.get(i)).desde().atStartOfDay();
+                fines[i] = periodos.get(faltan.get(i)).hasta().atTime(LocalTime.MAX);
+            }
+            AcumuladorResumen[] acumulados = AcumuladorResumen.recorrerPeriodos(proyecto.getTareas(), inicios, fines);
+            for (int i = 0; i < acumulados.length; i++) {
+                ReportPeriod periodo = periodos.get(faltan.get(i));
+                ReportData data = new ReportData();
+                agregarCabecera(data, proyecto, periodo.desde(), periodo.hasta());
+                data.addTable(tablaResumen(acumulados[i]));
+                data.addTable(tablaTareas(acumulados[i]));
+                cache.guardar(new ReportCache.Clave(proyecto.getId(), periodo.desde(), periodo.hasta()), version, data);
+                informes.set(faltan.get(i), data);
+            }
+            return informes;
+        });
+    }
+
+    /**
+     * Vuelca todas las tareas de los proyectos en {@code salida}, para cargas de
+     * datos: una fila por tarea con el id y el nombre del proyecto delante de las
+     * columnas del listado del resumen (sin filtrar por periodo). Define las
+     * columnas de {@code salida} pero no la termina.
+     *
+     * Las tareas se leen de {@link #FILAS_POR_LECTURA} en {@link #FILAS_POR_LECTURA},
+     * cada tanda con el cerrojo de lectura de su proyecto, y se escriben celda a
+     * celda sin formar filas: la memoria no depende del número de tareas. Como en
+     * {@link #buildResumenProyectoStreaming}, los cambios hechos mientras se vuelca
+     * un proyecto pueden no aparecer o hacer que se salte o repita alguna tarea.
+     *
+     * @return filas escritas
+     * @throws java.util.concurrent.CancellationException si el seguimiento de {@code salida} pide cancelar
+     */
+    public long volcarTareas(Collection<Proyecto> proyectos, RowWriter salida) throws IOException {
+        salida.columnas(COLUMNAS_VOLCADO);
+        StringBuilder aux = new StringBuilder();
+        try {
+            for (Proyecto proyecto : proyectos) {
+                int total = CerrojosProyecto.leer(proyecto, () -> {
+                    proyecto.cargarTodasLasTareas();
+                    return proyecto.getTareas().size();
+                });
+                for (int desde = 0; desde < total; desde += FILAS_POR_LECTURA) {
+                    int primera = desde;
+                    CerrojosProyecto.leer(proyecto, () -> {
+                        List<Tarea> tareas = proyecto.getTareas();
+                        int hasta = Math.min(Math.min(total, tareas.size()), primera + FILAS_POR_LECTURA);
+                        try {
+                            for (int i = primera; i < hasta; i++) {
+                                salida.celda(proyecto.getId()).celda(proyecto.getNombre());
+                                AcumuladorResumen.escribirFila(tareas.get(i), i + 1, salida, aux);
+                                salida.finFila();
+                            }
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        }
+                        return null;
+                    });
+                }
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        return salida.getFilas();
+    }
+
+    private ReportData construirResumen(Proyecto proyecto, LocalDate desde, LocalDate hasta) {
         ReportData data = new ReportData();
+        agregarCabecera(data, proyecto, desde, hasta);
+
+        // Convertir fechas a rangos de LocalDateTime para comparar
+        LocalDateTime start = desde.atStartOfDay();
+        LocalDateTime end = hasta.atTime(LocalTime.MAX);
+
+        // Un único recorrido calcula todos los KPIs y las filas del listado (en paralelo si hay muchas tareas).
+        // Los workers solo leen: quien llama ha cargado ya las tareas, con el cerrojo del proyecto tomado.
+        AcumuladorResumen acumulado = AcumuladorResumen.recorrer(proyecto.getTareas(), start, end);
+        data.addTable(tablaResumen(acumulado));
+
+        data.addTable(tablaTareas(acumulado));
+
+        return data;
+    }
+
+    private static ReportTable tablaTareas(AcumuladorResumen acumulado) {
+        // --- Tabla de Tareas Detalladas ---
+        // Listado de TODAS las tareas del proyecto con sus detalles formateados.
+        ReportTable tareasTable = new ReportTable("Tareas");
+        tareasTable.setColumns(COLUMNAS_TAREAS);
+        tareasTable.getRows().addAll(acumulado.getFilas());
+        return tareasTable;
+    }
+
+    private static void agregarCabecera(ReportData data, Proyecto proyecto, LocalDate desde, LocalDate hasta) {
         // Titulo y metadata
         data.setTitle("Resumen del proyecto: " + proyecto.getNombre());
         data.getMetadata().put("proyectoId", proyecto.getId());
         data.getMetadata().put("proyectoNombre", proyecto.getNombre());
         data.getMetadata().put("periodoDesde", desde.toString());
         data.getMetadata().put("periodoHasta", hasta.toString());
+    }
 
-        // Convertir fechas a rangos de LocalDateTime para comparar
-        LocalDateTime start = desde.atStartOfDay();
-        LocalDateTime end = hasta.atTime(LocalTime.MAX);
-
-        List<Tarea> tareas = proyecto.getTareas();
-
-        // Contar tareas creadas en el periodo (usando fechaCreacion)
-        long creadas = tareas.stream()
-                .filter(t -> t.getFechaCreacion() != null && !t.getFechaCreacion().isBefore(start) && !t.getFechaCreacion().isAfter(end))
-                .count();
-
-        // Contar tareas completadas en el periodo (usando fechaCierre)
-        long completadas = tareas.stream()
-                .filter(t -> t.getFechaCierre() != null && !t.getFechaCierre().isBefore(start) && !t.getFechaCierre().isAfter(end))
-                .count();
-
-        // Contar tareas "En progreso" creadas en el periodo
-        long enProgreso = tareas.stream()
-                .filter(t -> t.getFechaCreacion() != null && !t.getFechaCreacion().isBefore(start) && !t.getFechaCreacion().isAfter(end))
-                .filter(t -> t.getEstado() != null && t.getEstado().toString().equals("EN_PROGRESO"))
-                .count();
-        
-        // Contar tareas "Pendiente" creadas en el periodo
-        long pendientes = tareas.stream()
-                .filter(t -> t.getFechaCreacion() != null && !t.getFechaCreacion().isBefore(start) && !t.getFechaCreacion().isAfter(end))
-                .filter(t -> t.getEstado() != null && t.getEstado().toString().equals("PENDIENTE"))
-                .count();
-
-        // Contar tareas vencidas (creadas en el periodo y con fechaLimite pasada, no completadas)
-        long vencidas = tareas.stream()
-                .filter(t -> t.getFechaCreacion() != null && !t.getFechaCreacion().isBefore(start) && !t.getFechaCreacion().isAfter(end))
-                .filter(t -> t.getFechaLimite() != null && t.getFechaLimite().getFecha().isBefore(hasta.plusDays(1)))
-                .filter(t -> t.getEstado() != null && !t.getEstado().toString().equals("COMPLETADA"))
-                .count();
-
-        // Filtrar tareas creadas dentro del periodo para calcular progreso period-limited
-        List<Tarea> tareasEnPeriodo = tareas.stream()
-                .filter(t -> t.getFechaCreacion() != null && !t.getFechaCreacion().isBefore(start) && !t.getFechaCreacion().isAfter(end))
-                .collect(Collectors.toList());
-
-        // Progreso promedio sobre las tareas del periodo (0/50/100 según estado)
-        double sumaPesos = tareasEnPeriodo.stream().mapToInt(Tarea::getProgressPercent).sum();
-        int progreso = tareasEnPeriodo.isEmpty() ? 0 : (int) Math.round(sumaPesos / (double) tareasEnPeriodo.size());
-
+    private static ReportTable tablaResumen(AcumuladorResumen acumulado) {
         // --- Tabla de Resumen (KPIs) ---
         ReportTable resumen = new ReportTable("Resumen");
         resumen.setColumns(List.of("Metric", "Value"));
-        resumen.addRow(List.of("Tareas creadas", String.valueOf(creadas)));
-        resumen.addRow(List.of("Tareas completadas", String.valueOf(completadas)));
-        resumen.addRow(List.of("En progreso", String.valueOf(enProgreso)));
-        resumen.addRow(List.of("Pendientes", String.valueOf(pendientes)));
-        resumen.addRow(List.of("Vencidas", String.valueOf(vencidas)));
-        resumen.addRow(List.of("Progreso %", String.valueOf(progreso)));
-        data.addTable(resumen);
+        resumen.addRow(List.of("Tareas creadas", String.valueOf(acumulado.getCreadas())));
+        resumen.addRow(List.of("Tareas completadas", String.valueOf(acumulado.getCompletadas())));
+        resumen.addRow(List.of("En progreso", String.valueOf(acumulado.getEnProgreso())));
+        resumen.addRow(List.of("Pendientes", String.valueOf(acumulado.getPendientes())));
+        resumen.addRow(List.of("Vencidas", String.valueOf(acumulado.getVencidas())));
+        resumen.addRow(List.of("Progreso %", String.valueOf(acumulado.getProgreso())));
+        return resumen;
+    }
 
-        // --- Tabla de Tareas Detalladas ---
-        // Listado de TODAS las tareas del proyecto con sus detalles formateados.
-        ReportTable tareasTable = new ReportTable("Tareas");
-        tareasTable.setColumns(List.of("Id","Titulo","Asignado","Prioridad","Estado","Creada","Cierre","FechaLimite","Etiquetas"));
-        int idCounter = 1;
-        for (Tarea t : tareas) {
-            // Convertir atributos a cadenas para la tabla
-            String etiquetas = t.getEtiquetas().stream().map(e -> e.getNombre()).collect(Collectors.joining(";"));
-            String asignado = t.getAsignadoA() != null ? t.getAsignadoA().getNombre() : "";
-            String fechaCre = t.getFechaCreacion() != null ? t.getFechaCreacion().toLocalDate().toString() : "";
-            String fechaCierre = t.getFechaCierre() != null ? t.getFechaCierre().toLocalDate().toString() : "";
-            String fechaLim = t.getFechaLimite() != null ? t.getFechaLimite().toString() : "";
-            tareasTable.addRow(List.of(
-                    String.valueOf(idCounter++),
-                    t.getTitulo(),
-                    asignado,
-                    t.getPrioridad() != null ? t.getPrioridad().name() : "",
-                    t.getEstado() != null ? t.getEstado().name() : "",
-                    fechaCre,
-                    fechaCierre,
-                    fechaLim,
-                    etiquetas
-            ));
+    /**
+     * Filas de la tabla perezosa "Tareas": lee del proyecto una tanda de tareas con
+     * el cerrojo de lectura, la formatea y la entrega fila a fila.
+     */
+    private static final class FilasTareas implements Iterator<List<String>> {
+        private final Proyecto proyecto;
+        private final int total;
+        private final ArrayDeque<List<String>> tanda = new ArrayDeque<>(FILAS_POR_LECTURA);
+        private int siguiente;
+
+        FilasTareas(Proyecto proyecto, int total) {
+            this.proyecto = proyecto;
+            this.total = total;
         }
-        data.addTable(tareasTable);
 
-        return data;
+        @Override
+        public boolean hasNext() {
+            if (tanda.isEmpty() && siguiente < total) leerTanda();
+            return !tanda.isEmpty();
+        }
+
+        @Override
+        public List<String> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return tanda.poll();
+        }
+
+        private void leerTanda() {
+            CerrojosProyecto.leer(proyecto, () -> {
+                List<Tarea> tareas = proyecto.getTareas();
+                int hasta = Math.min(Math.min(total, tareas.size()), siguiente + FILAS_POR_LECTURA);
+                for (int i = siguiente; i < hasta; i++) tanda.add(AcumuladorResumen.fila(tareas.get(i), i + 1));
+                siguiente = hasta > siguiente ? hasta : total;
+                return null;
+            });
+        }
     }
 }
@@ -0,0 +1,91 @@
+package com.proyecto.kanban.service;
+
+import com.proyecto.kanban.model.CerrojosProyecto;
+import com.proyecto.kanban.model.IndiceTexto;
+import com.proyecto.kanban.model.Proyecto;
+import com.proyecto.kanban.model.Tarea;
+import com.proyecto.kanban.model.Usuario;
+import com.proyecto.kanban.storage.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Servicio de búsqueda de texto sobre las tareas.
+ *
+ * Busca en título, descripción y nombres de etiqueta usando el índice invertido de
+ * cada proyecto ({@link IndiceTexto}): sin distinguir acentos ni mayúsculas, con
+ * cada palabra de la consulta casando también como prefijo, y con los resultados
+ * ordenados por relevancia. Todas las palabras de la consulta deben aparecer.
+ *
+ * La primera búsqueda en un proyecto carga e indexa todas sus tareas; las
+ * siguientes solo consultan el índice, que se mantiene al día con los cambios.
+ * Cada proyecto se consulta con su cerrojo de lectura ({@link CerrojosProyecto}).
+ */
+public class SearchService {
+    /** Número de resultados por defecto. */
+    public static final int LIMITE_DEFECTO = 50;
+
+    private final Repository repository;
+
+    /**
+     * Tarea encontrada con su puntuación (mayor = más relevante).
+     * @param tarea Tarea que cumple la consulta
+     * @param proyecto Proyecto al que pertenece
+     * @param puntuacion Relevancia según las palabras y campos en que aparece
+     */
+    public record Resultado(Tarea tarea, Proyecto proyecto, double puntuacion) {}
+
+    public SearchService(Repository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Busca en las tareas de un proyecto.
+     * @param proyecto Proyecto en el que buscar
+     * @param consulta Texto libre (palabras separadas por espacios)
+     * @param limite Número máximo de resultados
+     * @return Resultados ordenados por relevancia
+     */
+    public List<Resultado> buscar(Proyecto proyecto, String consulta, int limite) {
+        if (proyecto == null || limite <= 0) return List.of();
+        return CerrojosProyecto.leer(proyecto, () -> {
+            List<Tarea> tareas = proyecto.getTareas();
+            List<Resultado> resultado = new ArrayList<>();
+            for (IndiceTexto.Coincidencia c : proyecto.indiceTextoActivo().buscar(consulta, limite)) {
+                resultado.add(new Resultado(tareas.get(c.posicion()), proyecto, c.puntuacion()));
+            }
+            return resultado;
+        });
+    }
+
+    /**
+     * Busca en todos los proyectos de los que el usuario es miembro y mezcla los
+     * resultados por relevancia.
+     * @param usuario Usuario cuyos proyectos se consultan
+     * @param consulta Texto libre
+     * @param limite Número máximo de resultados en total
+     * @return Resultados ordenados por relevancia
+     */
+    public List<Resultado> buscarEnProyectosDe(Usuario usuario, String consulta, int limite) {
+        if (usuario == null) return List.of();
+        return buscar(repository.proyectosDeUsuario(usuario), consulta, limite);
+    }
+
+    /**
+     * Busca en varios proyectos y mezcla los resultados por relevancia.
+     * @param proyectos Proyectos en los que buscar
+     * @param consulta Texto libre
+     * @param limite Número máximo de resultados en total
+     * @return Resultados ordenados por relevancia
+     */
+    public List<Resultado> buscar(Collection<Proyecto> proyectos, String consulta, int limite) {
+        if (proyectos == null || limite <= 0) return List.of();
+        List<Resultado> resultado = new ArrayList<>();
+        for (Proyecto p : proyectos) resultado.addAll(buscar(p, consulta, limite));
+        resultado.sort(Comparator.comparingDouble(Resultado::puntuacion).reversed());
+        return resultado.size() > limite ? new ArrayList<>(resultado.subList(0, limite)) : resultado;
+    }
+}
@@ -2,16 +2,109 @@ package com.proyecto.kanban.service;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import com.proyecto.kanban.model.CerrojosProyecto;
 import com.proyecto.kanban.model.Etiqueta;
 import com.proyecto.kanban.model.EstadoTarea;
 import com.proyecto.kanban.model.FechaLimite;
 import com.proyecto.kanban.model.Prioridad;
+import com.proyecto.kanban.model.Proyecto;
 import com.proyecto.kanban.model.Tarea;
 import com.proyecto.kanban.model.Usuario;
+import com.proyecto.kanban.storage.Repository;
+import com.proyecto.kanban.util.RoaringBitmap;
 
+/**
+ * Operaciones sobre tareas: una a una o en lote.
+ *
+ * Cada operación termina con un único {@link CambioTareas} para los oyentes
+ * registrados con {@link #agregarOyente}, también las de lote: la vista puede
+ * redibujar una sola vez aunque cambien cientos de tareas. Los índices del proyecto
+ * se actualizan de forma incremental al modificar cada tarea, sin reconstruirse.
+ *
+ * Se puede usar desde varios hilos: cada operación modifica las tareas con el
+ * cerrojo de escritura de su proyecto ({@link CerrojosProyecto}), o de todos los
+ * proyectos afectados en las de lote, y avisa a los oyentes ya sin cerrojo.
+ *
+ * Ediciones sin cerrojo durante la espera del usuario: se toma una
+ * {@link Instantanea} al empezar ({@link #leerParaEditar}) y se guarda con
+ * {@link #updateTask(Tarea, Instantanea, String, String, FechaLimite, Prioridad, EstadoTarea, Usuario)},
+ * que compara la versión de la tarea ({@link Tarea#getVersion()}) y, si otro la
+ * cambió mientras tanto, solo aplica la edición cuando no toca los mismos campos.
+ * Los procesos en segundo plano usan {@link #modificarSiVersion} del mismo modo.
+ */
 public class TaskService {
+    /** Repositorio cuyo journal recibe los cambios de tareas; puede ser null (solo memoria). */
+    private final Repository repository;
+    private final List<Consumer<CambioTareas>> oyentes = new CopyOnWriteArrayList<>();
+
+    /**
+     * Aviso de una operación del servicio.
+     * @param tareas Tareas modificadas por la operación, sin repetidos y en el orden recibido
+     */
+    public record CambioTareas(List<Tarea> tareas) {
+        /** Proyectos a los que pertenecen las tareas modificadas. */
+        public Set<Proyecto> proyectos() {
+            Set<Proyecto> proyectos = new LinkedHashSet<>();
+            for (Tarea t : tareas) if (t.getProyecto() != null) proyectos.add(t.getProyecto());
+            return proyectos;
+        }
+    }
+
+    /** Campos de una tarea que se editan desde el diálogo y se comparan al detectar conflictos. */
+    public enum CampoTarea { TITULO, DESCRIPCION, ESTADO, PRIORIDAD, FECHA_LIMITE, ASIGNADO }
+
+    /**
+     * Valores editables de una tarea en una versión, leídos juntos.
+     * @param version Versión de la tarea en el momento de la lectura
+     */
+    public record Instantanea(long version, String titulo, String descripcion, EstadoTarea estado,
+                              Prioridad prioridad, FechaLimite fechaLimite, Usuario asignado) {
+        static Instantanea de(Tarea t) {
+            return new Instantanea(t.getVersion(), t.getTitulo(), t.getDescripcion(), t.getEstado(),
+                    t.getPrioridad(), t.getFechaLimite(), t.getAsignadoA());
+        }
+
+        /** Valor del campo en esta instantánea. */
+        public Object valor(CampoTarea campo) {
+            return switch (campo) {
+                case TITULO -> titulo;
+                case DESCRIPCION -> descripcion;
+                case ESTADO -> estado;
+                case PRIORIDAD -> prioridad;
+                case FECHA_LIMITE -> fechaLimite;
+                case ASIGNADO -> asignado;
+            };
+        }
+    }
+
+    /**
+     * Resultado de guardar una edición basada en una {@link Instantanea}.
+     * @param aplicada Si se guardó la edición (sin conflictos)
+     * @param conflictos Campos que el editor y otro cambiaron a valores distintos; vacío si se aplicó
+     * @param actual Estado de la tarea tras la operación: base para reintentar o mostrar los conflictos
+     */
+    public record ResultadoEdicion(boolean aplicada, Set<CampoTarea> conflictos, Instantanea actual) {}
+
     /** Servicio liviano con operaciones sobre tareas. */
-    public TaskService() {}
+    public TaskService() {
+        this(null);
+    }
+
+    /** Servicio que notifica cada cambio al journal del repositorio (persistencia). */
+    public TaskService(Repository repository) {
+        this.repository = repository;
+    }
 
     /** Crea una tarea en memoria (no persiste por sí sola). */
     public Tarea createTask(String titulo, String descripcion, Usuario asignado,
@@ -21,29 +114,263 @@ public class TaskService {
 
     /** Añade una etiqueta simple a la tarea. */
     public void addEtiqueta(Tarea tarea, String nombre, String color) {
-        if (tarea != null) tarea.agregarEtiqueta(new Etiqueta(nombre, color));
+        if (tarea == null) return;
+        CerrojosProyecto.modificar(tarea.getProyecto(), () -> {
+            tarea.agregarEtiqueta(new Etiqueta(nombre, color));
+            registrarCambio(tarea);
+        });
+        avisar(List.of(tarea));
     }
 
     /** Mueve la tarea a un nuevo estado. */
     public void moveToEstado(Tarea tarea, EstadoTarea estado) {
-        if (tarea != null) tarea.cambiarEstado(estado);
+        if (tarea == null) return;
+        CerrojosProyecto.modificar(tarea.getProyecto(), () -> {
+            tarea.cambiarEstado(estado);
+            registrarCambio(tarea);
+        });
+        avisar(List.of(tarea));
     }
 
     /** Actualiza campos de la tarea de forma centralizada. */
     public void updateTask(Tarea tarea, String titulo, String descripcion, FechaLimite fechaLimite,
                            Prioridad prioridad, EstadoTarea estado, Usuario asignado) {
         if (tarea == null) return;
-        if (titulo != null) tarea.setTitulo(titulo);
-        if (descripcion != null) tarea.setDescripcion(descripcion);
-        if (estado != null) tarea.cambiarEstado(estado);
-        if (prioridad != null) tarea.setPrioridad(prioridad);
-        if (fechaLimite != null) tarea.setFechaLimite(fechaLimite);
-        // asignado puede ser null para desasignar
-        tarea.asignarUsuario(asignado);
+        CerrojosProyecto.modificar(tarea.getProyecto(), () -> {
+            if (titulo != null) tarea.setTitulo(titulo);
+            if (descripcion != null) tarea.setDescripcion(descripcion);
+            if (estado != null) tarea.cambiarEstado(estado);
+            if (prioridad != null) tarea.setPrioridad(prioridad);
+            if (fechaLimite != null) tarea.setFechaLimite(fechaLimite);
+            // asignado puede ser null para desasignar
+            tarea.asignarUsuario(asignado);
+            registrarCambio(tarea);
+        });
+        avisar(List.of(tarea));
+    }
+
+    /** Lee los valores editables de la tarea y su versión de una vez, para empezar una edición. */
+    public Instantanea leerParaEditar(Tarea tarea) {
+        return CerrojosProyecto.leer(tarea.getProyecto(), () -> Instantanea.de(tarea));
+    }
+
+    /**
+     * Guarda una edición empezada con {@link #leerParaEditar}. Los argumentos se
+     * interpretan como en {@link #updateTask(Tarea, String, String, FechaLimite, Prioridad, EstadoTarea, Usuario)}
+     * y solo se aplican los campos cuyo valor difiere de {@code base}.
+     *
+     * Si la tarea sigue en la versión de {@code base}, la edición se aplica. Si otro
+     * la cambió entretanto, se aplica igualmente cuando ninguno de los campos
+     * editados cambió también por otro lado (o cambió al mismo valor); si no, no se
+     * toca nada y el resultado lleva los campos en conflicto y el estado actual.
+     */
+    public ResultadoEdicion updateTask(Tarea tarea, Instantanea base, String titulo, String descripcion,
+                                       FechaLimite fechaLimite, Prioridad prioridad, EstadoTarea estado,
+                                       Usuario asignado) {
+        if (tarea == null || base == null) throw new IllegalArgumentException("Falta la tarea o su versión de partida");
+        Set<CampoTarea> editados = EnumSet.noneOf(CampoTarea.class);
+        if (titulo != null && !titulo.trim().isEmpty() && !titulo.trim().equals(base.titulo())) editados.add(CampoTarea.TITULO);
+        if (descripcion != null && !descripcion.trim().equals(Objects.toString(base.descripcion(), ""))) {
+            editados.add(CampoTarea.DESCRIPCION);
+        }
+        if (estado != null && estado != base.estado()) editados.add(CampoTarea.ESTADO);
+        if (prioridad != null && prioridad != base.prioridad()) editados.add(CampoTarea.PRIORIDAD);
+        if (fechaLimite != null && !fechaLimite.equals(base.fechaLimite())) editados.add(CampoTarea.FECHA_LIMITE);
+        if (!Objects.equals(asignado, base.asignado())) editados.add(CampoTarea.ASIGNADO);
+        Instantanea editor = new Instantanea(base.version(), titulo != null ? titulo.trim() : null,
+                descripcion != null ? descripcion.trim() : null, estado, prioridad, fechaLimite, asignado);
+
+        ResultadoEdicion resultado = CerrojosProyecto.escribir(tarea.getProyecto(), () -> {
+            Instantanea actual = Instantanea.de(tarea);
+            Set<CampoTarea> conflictos = EnumSet.noneOf(CampoTarea.class);
+            if (actual.version() != base.version()) {
+                for (CampoTarea c : editados) {
+                    boolean cambioAjeno = !Objects.equals(actual.valor(c), base.valor(c));
+                    if (cambioAjeno && !Objects.equals(actual.valor(c), editor.valor(c))) conflictos.add(c);
+                }
+            }
+            if (!conflictos.isEmpty()) return new ResultadoEdicion(false, conflictos, actual);
+            if (editados.isEmpty()) return new ResultadoEdicion(true, conflictos, actual);
+            if (editados.contains(CampoTarea.TITULO)) tarea.setTitulo(titulo);
+            if (editados.contains(CampoTarea.DESCRIPCION)) tarea.setDescripcion(descripcion);
+            if (editados.contains(CampoTarea.ESTADO)) tarea.cambiarEstado(estado);
+            if (editados.contains(CampoTarea.PRIORIDAD)) tarea.setPrioridad(prioridad);
+            if (editados.contains(CampoTarea.FECHA_LIMITE)) tarea.setFechaLimite(fechaLimite);
+            if (editados.contains(CampoTarea.ASIGNADO)) tarea.asignarUsuario(asignado);
+            registrarCambio(tarea);
+            return new ResultadoEdicion(true, conflictos, Instantanea.de(tarea));
+        });
+        if (resultado.aplicada() && !editados.isEmpty()) avisar(List.of(tarea));
+        return resultado;
+    }
+
+    /**
+     * Aplica {@code cambio} a la tarea solo si sigue en {@code versionEsperada}
+     * (compare-and-set): para procesos que leen una tarea, deciden sin cerrojo y
+     * después la modifican.
+     * @return {@code true} si se aplicó; {@code false} si otro la cambió antes
+     */
+    public boolean modificarSiVersion(Tarea tarea, long versionEsperada, Consumer<Tarea> cambio) {
+        if (tarea == null) return false;
+        boolean aplicado = CerrojosProyecto.escribir(tarea.getProyecto(), () -> {
+            if (tarea.getVersion() != versionEsperada) return false;
+            cambio.accept(tarea);
+            registrarCambio(tarea);
+            return true;
+        });
+        if (aplicado) avisar(List.of(tarea));
+        return aplicado;
+    }
+
+    // --- Operaciones en lote ---
+    // Se validan los argumentos antes de tocar ninguna tarea, así que o se aplica el
+    // cambio a todas o a ninguna. Las tareas que ya tenían el valor pedido no se
+    // modifican ni se registran. El journal recibe el lote completo de una vez
+    // (ChangeJournal#tareasModificadas) y los oyentes un solo CambioTareas. Se
+    // comprueba y se aplica con los cerrojos de todos los proyectos del lote tomados.
+
+    /**
+     * Mueve varias tareas a un estado.
+     * @return Número de tareas que cambiaron de estado
+     * @throws IllegalArgumentException si el estado es null o alguna tarea es null
+     */
+    public int moverTareas(Collection<Tarea> tareas, EstadoTarea estado) {
+        if (estado == null) throw new IllegalArgumentException("El estado no puede ser nulo");
+        return aplicarEnLote(tareas, t -> t.getEstado() != estado, t -> t.cambiarEstado(estado));
+    }
+
+    /**
+     * Asigna varias tareas al mismo usuario; con {@code null} las desasigna.
+     * @return Número de tareas cuyo responsable cambió
+     * @throws IllegalArgumentException si alguna tarea es null
+     */
+    public int reasignarTareas(Collection<Tarea> tareas, Usuario usuario) {
+        return aplicarEnLote(tareas, t -> !Objects.equals(t.getAsignadoA(), usuario), t -> t.asignarUsuario(usuario));
+    }
+
+    /**
+     * Cambia la prioridad de varias tareas.
+     * @return Número de tareas cuya prioridad cambió
+     * @throws IllegalArgumentException si la prioridad es null o alguna tarea es null
+     */
+    public int cambiarPrioridad(Collection<Tarea> tareas, Prioridad prioridad) {
+        if (prioridad == null) throw new IllegalArgumentException("La prioridad no puede ser nula");
+        return aplicarEnLote(tareas, t -> t.getPrioridad() != prioridad, t -> t.setPrioridad(prioridad));
+    }
+
+    /**
+     * Añade una etiqueta a varias tareas. En cada proyecto se usa la etiqueta de su
+     * catálogo con ese nombre, si ya existe.
+     * @return Número de tareas que no tenían la etiqueta
+     * @throws IllegalArgumentException si el nombre está vacío o alguna tarea es null
+     */
+    public int etiquetarTareas(Collection<Tarea> tareas, String nombre, String color) {
+        if (nombre == null || nombre.trim().isEmpty()) {
+            throw new IllegalArgumentException("El nombre de la etiqueta no puede estar vacío");
+        }
+        return aplicarEnLote(tareas, t -> !t.tieneEtiqueta(nombre),
+                t -> t.agregarEtiqueta(new Etiqueta(nombre.trim(), color)));
+    }
+
+    /**
+     * Quita una etiqueta (por nombre, sin distinguir mayúsculas) de varias tareas.
+     * @return Número de tareas que la tenían
+     * @throws IllegalArgumentException si alguna tarea es null
+     */
+    public int desetiquetarTareas(Collection<Tarea> tareas, String nombre) {
+        return aplicarEnLote(tareas, t -> t.tieneEtiqueta(nombre), t -> t.quitarEtiqueta(nombre));
+    }
+
+    private int aplicarEnLote(Collection<Tarea> tareas, Predicate<Tarea> cambia, Consumer<Tarea> cambio) {
+        if (tareas == null) return 0;
+        Set<Tarea> vistas = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Tarea> lote = new ArrayList<>();
+        Set<Proyecto> proyectos = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Tarea t : tareas) {
+            if (t == null) throw new IllegalArgumentException("La lista de tareas contiene una tarea nula");
+            if (vistas.add(t)) {
+                lote.add(t);
+                proyectos.add(t.getProyecto());
+            }
+        }
+        List<Tarea> afectadas = CerrojosProyecto.escribir(proyectos, () -> {
+            List<Tarea> cambian = new ArrayList<>();
+            for (Tarea t : lote) if (cambia.test(t)) cambian.add(t);
+            if (cambian.isEmpty()) return cambian;
+            for (Tarea t : cambian) cambio.accept(t);
+            if (repository != null) repository.getJournal().tareasModificadas(cambian);
+            return cambian;
+        });
+        avisar(afectadas);
+        return afectadas.size();
+    }
+
+    /** Registra un oyente que recibe un {@link CambioTareas} tras cada operación del servicio. */
+    public void agregarOyente(Consumer<CambioTareas> oyente) {
+        if (oyente != null) oyentes.add(oyente);
+    }
+
+    public void quitarOyente(Consumer<CambioTareas> oyente) {
+        oyentes.remove(oyente);
+    }
+
+    private void avisar(List<Tarea> tareas) {
+        if (oyentes.isEmpty() || tareas.isEmpty()) return;
+        CambioTareas cambio = new CambioTareas(Collections.unmodifiableList(tareas));
+        for (Consumer<CambioTareas> oyente : oyentes) oyente.accept(cambio);
+    }
+
+    /**
+     * Busca una tarea por su id en cualquier proyecto, usando el registro por id del
+     * repositorio (sin recorrer proyectos). Sin repositorio busca entre las tareas
+     * registradas en este servicio.
+     */
+    public Optional<Tarea> findTareaById(String id) {
+        if (id == null) return Optional.empty();
+        if (repository != null) return repository.buscarTarea(id);
+        return tareas.stream().filter(t -> id.equals(t.getId())).findFirst();
+    }
+
+    /**
+     * Renombra una etiqueta del catálogo del proyecto; el cambio se ve en todas las
+     * tareas que la usan. Con persistencia se registra cada una de esas tareas,
+     * porque el almacenamiento guarda las etiquetas junto a cada tarea.
+     * @throws IllegalArgumentException si el nombre está vacío o ya existe otra etiqueta con él
+     */
+    public void renombrarEtiqueta(Proyecto proyecto, Etiqueta etiqueta, String nombre) {
+        if (proyecto == null || etiqueta == null) return;
+        avisar(CerrojosProyecto.escribir(proyecto, () -> {
+            proyecto.catalogoEtiquetasCompleto();
+            proyecto.renombrarEtiqueta(etiqueta, nombre);
+            return registrarCambiosEtiqueta(proyecto, etiqueta);
+        }));
+    }
+
+    /** Cambia el color de una etiqueta del catálogo del proyecto en todas sus tareas. */
+    public void recolorearEtiqueta(Proyecto proyecto, Etiqueta etiqueta, String color) {
+        if (proyecto == null || etiqueta == null) return;
+        avisar(CerrojosProyecto.escribir(proyecto, () -> {
+            proyecto.catalogoEtiquetasCompleto().recolorear(etiqueta, color);
+            return registrarCambiosEtiqueta(proyecto, etiqueta);
+        }));
+    }
+
+    /** Registra en el journal las tareas que usan la etiqueta y las devuelve. */
+    private List<Tarea> registrarCambiosEtiqueta(Proyecto proyecto, Etiqueta etiqueta) {
+        RoaringBitmap posiciones = proyecto.getIndice().filtrar(null, null, null, etiqueta.getNombre());
+        List<Tarea> todas = proyecto.getTareas();
+        List<Tarea> afectadas = new ArrayList<>(posiciones.cardinality());
+        for (int p = posiciones.nextSetBit(0); p >= 0; p = posiciones.nextSetBit(p + 1)) afectadas.add(todas.get(p));
+        if (repository != null) repository.getJournal().tareasModificadas(afectadas);
+        return afectadas;
+    }
+
+    private void registrarCambio(Tarea tarea) {
+        if (repository != null) repository.getJournal().tareaModificada(tarea);
     }
 
-    /** Lista de tareas en memoria. Usada para la interfaz gráfica. */
-    private List<Tarea> tareas = new ArrayList<>();
+    /** Lista de tareas en memoria. Usada para la interfaz gráfica (copia al escribir: se lee sin cerrojo). */
+    private final List<Tarea> tareas = new CopyOnWriteArrayList<>();
 
     /** Agrega una tarea a la lista. */
     public void agregarTarea(Tarea tarea) {
@@ -0,0 +1,43 @@
+package com.proyecto.kanban.storage;
+
+import com.proyecto.kanban.model.Proyecto;
+import com.proyecto.kanban.model.Tarea;
+import com.proyecto.kanban.model.Usuario;
+
+import java.util.Collection;
+
+/**
+ * Receptor de las mutaciones que hacen los servicios sobre el {@link Repository}.
+ *
+ * Los servicios (`AuthService`, `ProjectService`, `TaskService`) notifican aquí
+ * cada cambio después de aplicarlo en memoria. La implementación por defecto
+ * ({@link #NONE}) no hace nada, de modo que el repositorio sigue funcionando
+ * solo en memoria; {@link DurableStorage} registra los cambios en disco.
+ */
+public interface ChangeJournal {
+
+    /** Journal vacío: no registra nada (modo solo memoria). */
+    ChangeJournal NONE = new ChangeJournal() {};
+
+    default void usuarioCreado(Usuario usuario) {}
+
+    default void proyectoCreado(Proyecto proyecto) {}
+
+    default void miembroAgregado(Proyecto proyecto, Usuario usuario) {}
+
+    default void miembroEliminado(Proyecto proyecto, Usuario usuario) {}
+
+    default void tareaAgregada(Proyecto proyecto, Tarea tarea) {}
+
+    /** Cualquier cambio de campos, estado o etiquetas de una tarea ya registrada. */
+    default void tareaModificada(Tarea tarea) {}
+
+    /**
+     * Cambios de varias tareas hechos en una sola operación (las operaciones en lote
+     * de {@code TaskService}). Por defecto se notifican una a una; los journals que
+     * pueden hacerlo los registran de forma atómica: o todos o ninguno.
+     */
+    default void tareasModificadas(Collection<Tarea> tareas) {
+        for (Tarea t : tareas) tareaModificada(t);
+    }
+}
@@ -0,0 +1,468 @@
+package com.proyecto.kanban.storage;
+
+import com.proyecto.kanban.model.CerrojosProyecto;
+import com.proyecto.kanban.model.ClaveId;
+import com.proyecto.kanban.model.Proyecto;
+import com.proyecto.kanban.model.Tarea;
+import com.proyecto.kanban.model.Usuario;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Modo persistente del {@link Repository}: log append-only + snapshots compactados.
+ *
+ * Funcionamiento:
+ * - Al abrir, mapea el snapshot más reciente y reaplica solo la cola del log
+ *   posterior a él, de modo que el arranque depende del tamaño del último
+ *   snapshot y no de toda la historia. Del snapshot solo se decodifica la lista
+ *   de usuarios y proyectos; las tareas de cada proyecto se leen al abrirlo.
+ * - Como {@link ChangeJournal}, recibe cada mutación que hacen los servicios y
+ *   la añade al {@link WriteAheadLog} (group commit en segundo plano).
+ * - Cada {@code umbralCompactacion} registros el hilo compactor captura el
+ *   estado en memoria, rota el log, escribe el snapshot y borra los segmentos y
+ *   snapshots que ya no hacen falta. Se conserva el snapshot anterior y el log
+ *   desde él: si el último resulta ilegible, se recupera desde el anterior sin
+ *   perder nada. Si el log no cubre ese tramo, abrir falla en lugar de recuperar
+ *   un estado incompleto.
+ *
+ * Los registros pueden llegar desde varios hilos: se serializan sobre este objeto.
+ * La captura se hace con el cerrojo de lectura de todos los proyectos
+ * ({@link CerrojosProyecto#leerTodo}) y después este monitor, así que ningún
+ * proyecto cambia a medias mientras se copia y el log rota justo después del
+ * último cambio capturado. Los servicios solo esperan durante la captura; la
+ * escritura a disco no bloquea a nadie.
+ *
+ * Por eso un cambio se da por hecho antes de estar en disco: una caída antes del
+ * fsync de su lote lo pierde (ver {@link WriteAheadLog}; es el tiempo de escribir un
+ * lote, normalmente milisegundos). Quien necesite la garantía llama a {@link #sync()}.
+ * Si el log falla al escribir, los cambios siguientes se rechazan con
+ * {@link UncheckedIOException} en lugar de darse por guardados.
+ */
+public final class DurableStorage implements ChangeJournal, AutoCloseable {
+
+    /** Registros de log entre snapshots por defecto. */
+    public static final int DEFAULT_UMBRAL_COMPACTACION = 10_000;
+
+    // Tipos de registro del log
+    static final byte USUARIO = 1;
+    static final byte PROYECTO = 2;
+    static final byte MIEMBRO_ALTA = 3;
+    static final byte MIEMBRO_BAJA = 4;
+    // Formato anterior a los ids de tarea: la tarea se identificaba por su posición
+    static final byte TAREA_ALTA_SIN_ID = 5;
+    static final byte TAREA_CAMBIO_POR_POSICION = 6;
+    static final byte TAREA_ALTA = 7;
+    static final byte TAREA_CAMBIO = 8;
+    // Cambios de varias tareas en un único registro: al recuperar se aplican todos o ninguno
+    static final byte TAREAS_CAMBIO = 9;
+
+    private final Path dir;
+    private final Repository repo;
+    private final WriteAheadLog wal;
+    private final int umbralCompactacion;
+    private final ExecutorService compactor;
+    /** Bloques de tareas del snapshot mapeado que aún no se han decodificado. */
+    private final Map<Proyecto, ByteBuffer> bloquesPendientes;
+    private int registrosDesdeSnapshot;
+    // Hay una compactación encargada al compactor que aún no ha capturado el estado
+    private boolean compactacionPedida;
+    private boolean cerrado;
+    // Primer fallo de una compactación en segundo plano (los siguientes, suprimidos)
+    private IOException errorCompactacion;
+
+    private DurableStorage(Path dir, SnapshotStore.Loaded estado, WriteAheadLog wal, int umbralCompactacion,
+                           int registrosRecuperados) {
+        this.dir = dir;
+        this.repo = estado.repo();
+        this.bloquesPendientes = estado.bloquesPendientes();
+        this.wal = wal;
+        this.umbralCompactacion = umbralCompactacion;
+        this.registrosDesdeSnapshot = registrosRecuperados;
+        this.compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "kanban-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        repo.setJournal(this);
+    }
+
+    public static DurableStorage open(Path dir) throws IOException {
+        return open(dir, DEFAULT_UMBRAL_COMPACTACION);
+    }
+
+    /**
+     * Abre (o crea) el almacenamiento en {@code dir} y recupera su estado.
+     * @param umbralCompactacion número de registros de log tras el cual se toma un snapshot
+     */
+    public static DurableStorage open(Path dir, int umbralCompactacion) throws IOException {
+        Files.createDirectories(dir);
+        SnapshotStore.Loaded estado = new SnapshotStore.Loaded(new Repository(), new HashMap<>(), false);
+        long base = 0;
+        List<Long> snapshots = SnapshotStore.listSnapshots(dir);
+        List<Long> ilegibles = new ArrayList<>();
+        IOException errorSnapshot = null;
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            try {
+                estado = SnapshotStore.read(dir, snapshots.get(i));
+                base = snapshots.get(i);
+                break;
+            } catch (IOException ex) {
+                // Snapshot ilegible: se prueba con el anterior, si el log cubre desde él (se comprueba al reaplicar)
+                ilegibles.add(snapshots.get(i));
+                if (errorSnapshot == null) errorSnapshot = ex;
+                else errorSnapshot.addSuppressed(ex);
+            }
+        }
+
+        Repository repo = estado.repo();
+        Map<String, Usuario> usuarios = new HashMap<>();
+        for (Usuario u : repo.getUsuarios()) usuarios.put(u.getId(), u);
+        Map<String, Proyecto> proyectos = new HashMap<>();
+        for (Proyecto p : repo.getProyectos()) proyectos.put(p.getId(), p);
+        Map<ClaveId, Tarea> tareas = new HashMap<>();
+
+        long siguiente = base;
+        int reaplicados = 0;
+        boolean legado = estado.legado();
+        // Con un snapshot ilegible, el log tiene que traer sin huecos todo lo posterior
+        // al snapshot usado, al menos hasta donde llegaba el ilegible
+        boolean continuo = true;
+        for (long segmento : WriteAheadLog.listSegments(dir)) {
+            for (WriteAheadLog.Entry e : WriteAheadLog.readSegment(WriteAheadLog.segmentPath(dir, segmento))) {
+                if (e.lsn() < base) continue;
+                if (e.lsn() != siguiente) continuo = false;
+                if (errorSnapshot != null && !continuo) break;
+                aplicar(repo, usuarios, proyectos, tareas, e);
+                legado |= e.tipo() == TAREA_ALTA_SIN_ID || e.tipo() == TAREA_CAMBIO_POR_POSICION;
+                siguiente = Math.max(siguiente, e.lsn() + 1);
+                reaplicados++;
+            }
+        }
+        if (errorSnapshot != null) {
+            long exigido = ilegibles.get(0);
+            if (!continuo || siguiente < exigido) {
+                throw new IOException("El snapshot " + exigido + " no se puede leer y el log ya no cubre los cambios desde "
+                        + base + ": abrirlo perdería datos", errorSnapshot);
+            }
+            // Recuperado del todo sin ellos: se apartan para no volver a intentar leerlos
+            for (long lsn : ilegibles) {
+                Path archivo = SnapshotStore.snapshotPath(dir, lsn);
+                Files.move(archivo, archivo.resolveSibling(archivo.getFileName() + ".ilegible"),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        WriteAheadLog wal = new WriteAheadLog(dir, siguiente);
+        DurableStorage storage = new DurableStorage(dir, estado, wal, umbralCompactacion, reaplicados);
+        if (legado) {
+            // Datos sin ids de tarea: se cargan y se reescriben ya con ids, para que
+            // los próximos registros (que referencian tareas por id) sean recuperables
+            for (Proyecto p : repo.getProyectos()) p.cargarTodasLasTareas();
+            storage.compactar();
+        }
+        return storage;
+    }
+
+    /** Repositorio recuperado; sus mutaciones vía servicios se registran aquí. */
+    public Repository getRepository() {
+        return repo;
+    }
+
+    /** Espera a que todos los cambios registrados hasta ahora estén en disco. */
+    public void sync() throws IOException {
+        wal.sync();
+    }
+
+    // ---------------------------------------------------------------------
+    // ChangeJournal
+    // ---------------------------------------------------------------------
+
+    @Override
+    public void usuarioCreado(Usuario usuario) {
+        registrar(USUARIO, out -> RecordCodec.writeUsuario(out, usuario));
+    }
+
+    @Override
+    public void proyectoCreado(Proyecto proyecto) {
+        registrar(PROYECTO, out -> RecordCodec.writeProyecto(out, proyecto));
+        for (Usuario m : proyecto.getMiembros()) miembroAgregado(proyecto, m);
+    }
+
+    @Override
+    public void miembroAgregado(Proyecto proyecto, Usuario usuario) {
+        registrar(MIEMBRO_ALTA, out -> {
+            RecordCodec.writeString(out, proyecto.getId());
+            RecordCodec.writeString(out, usuario.getId());
+        });
+    }
+
+    @Override
+    public void miembroEliminado(Proyecto proyecto, Usuario usuario) {
+        registrar(MIEMBRO_BAJA, out -> {
+            RecordCodec.writeString(out, proyecto.getId());
+            RecordCodec.writeString(out, usuario.getId());
+        });
+    }
+
+    @Override
+    public void tareaAgregada(Proyecto proyecto, Tarea tarea) {
+        registrar(TAREA_ALTA, out -> {
+            RecordCodec.writeString(out, proyecto.getId());
+            RecordCodec.writeTarea(out, tarea);
+        });
+    }
+
+    @Override
+    public void tareaModificada(Tarea tarea) {
+        Proyecto proyecto = tarea.getProyecto();
+        if (proyecto == null) return; // tarea suelta, todavía no forma parte del repositorio
+        registrar(TAREA_CAMBIO, out -> {
+            RecordCodec.writeString(out, proyecto.getId());
+            RecordCodec.writeTarea(out, tarea);
+        });
+    }
+
+    @Override
+    public void tareasModificadas(Collection<Tarea> tareas) {
+        List<Tarea> registradas = new ArrayList<>(tareas.size());
+        for (Tarea t : tareas) if (t.getProyecto() != null) registradas.add(t);
+        if (registradas.size() <= 1) {
+            for (Tarea t : registradas) tareaModificada(t);
+            return;
+        }
+        registrar(TAREAS_CAMBIO, out -> {
+            out.writeInt(registradas.size());
+            for (Tarea t : registradas) {
+                RecordCodec.writeString(out, t.getProyecto().getId());
+                RecordCodec.writeTarea(out, t);
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface Payload {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private synchronized void registrar(byte tipo, Payload payload) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            payload.write(out);
+            out.flush();
+            wal.append(tipo, bytes.toByteArray());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        // Quien registra tiene tomado el cerrojo de su proyecto: la captura, que
+        // necesita todos, no se puede hacer aquí y se encarga al compactor
+        if (++registrosDesdeSnapshot >= umbralCompactacion && !compactacionPedida && !cerrado) {
+            compactacionPedida = true;
+            compactor.execute(() -> {
+                try {
+                    compactar();
+                } catch (UncheckedIOException ex) {
+                    fallo(ex.getCause());
+                }
+            });
+        }
+    }
+
+    /**
+     * Captura el estado actual, rota el log y encarga al compactor escribir el
+     * snapshot. No se puede llamar con un proyecto bloqueado para escritura.
+     */
+    public void compactar() {
+        CerrojosProyecto.leerTodo(() -> {
+            capturar();
+            return null;
+        });
+    }
+
+    private synchronized void capturar() {
+        compactacionPedida = false;
+        if (cerrado) return;
+        byte[] body;
+        try {
+            body = SnapshotStore.encode(repo, bloquesPendientes);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        long lsn;
+        try {
+            lsn = wal.roll();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        registrosDesdeSnapshot = 0;
+        compactor.submit(() -> {
+            try {
+                SnapshotStore.write(dir, lsn, body);
+                wal.awaitRoll(lsn);
+                limpiarAnteriores(lsn);
+            } catch (IOException ex) {
+                fallo(ex);
+            }
+        });
+    }
+
+    /**
+     * Guarda el fallo de una compactación en segundo plano para lanzarlo al
+     * cerrar. El log sigue intacto, así que no se pierde nada: solo crece hasta
+     * que una compactación posterior salga bien.
+     */
+    private synchronized void fallo(IOException ex) {
+        if (errorCompactacion == null) errorCompactacion = ex;
+        else errorCompactacion.addSuppressed(ex);
+    }
+
+    /**
+     * Tras escribir el snapshot {@code lsn}, borra lo que ya no hace falta para
+     * recuperar: se conservan el snapshot anterior a él y los segmentos con
+     * registros desde ese anterior (todos, si no había ninguno), para poder
+     * recuperar desde ahí si el nuevo resulta ilegible. Un snapshot anterior puede
+     * seguir mapeado (proyectos sin abrir) y algunos sistemas no permiten borrarlo;
+     * en ese caso se reintenta en la próxima compactación.
+     */
+    private void limpiarAnteriores(long lsn) throws IOException {
+        long previo = 0;
+        for (long snapshot : SnapshotStore.listSnapshots(dir)) {
+            if (snapshot < lsn) previo = Math.max(previo, snapshot);
+        }
+        for (long snapshot : SnapshotStore.listSnapshots(dir)) {
+            if (snapshot < previo) borrar(SnapshotStore.snapshotPath(dir, snapshot));
+        }
+        // Un segmento va desde su LSN inicial hasta el inicial del siguiente
+        List<Long> segmentos = WriteAheadLog.listSegments(dir);
+        for (int i = 0; i + 1 < segmentos.size(); i++) {
+            if (segmentos.get(i + 1) <= previo) borrar(WriteAheadLog.segmentPath(dir, segmentos.get(i)));
+        }
+    }
+
+    private static void borrar(Path archivo) {
+        try {
+            Files.deleteIfExists(archivo);
+        } catch (IOException ex) {
+            // Se reintenta en la próxima compactación
+        }
+    }
+
+    /**
+     * Toma un snapshot final si hay registros pendientes y cierra el log. Si alguna
+     * compactación en segundo plano falló, lo lanza después de cerrar.
+     */
+    @Override
+    public void close() throws IOException {
+        CerrojosProyecto.leerTodo(() -> {
+            synchronized (this) {
+                if (registrosDesdeSnapshot > 0) capturar();
+                cerrado = true;
+            }
+            return null;
+        });
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        wal.close();
+        repo.setJournal(ChangeJournal.NONE);
+        if (errorCompactacion != null) throw new IOException("No se pudo compactar el log", errorCompactacion);
+    }
+
+    // ---------------------------------------------------------------------
+    // Recuperación
+    // ---------------------------------------------------------------------
+
+    /**
+     * Reaplica un registro del log. {@code tareas} es un registro por id de las
+     * tareas que el propio reaplicado ya tiene a mano (ver {@link #buscarTarea}).
+     */
+    private static void aplicar(Repository repo, Map<String, Usuario> usuarios, Map<String, Proyecto> proyectos,
+                                Map<ClaveId, Tarea> tareas, WriteAheadLog.Entry e) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(e.payload()));
+        switch (e.tipo()) {
+            case USUARIO -> {
+                Usuario u = RecordCodec.readUsuario(in);
+                if (usuarios.putIfAbsent(u.getId(), u) == null) repo.getUsuarios().add(u);
+            }
+            case PROYECTO -> {
+                Proyecto p = RecordCodec.readProyecto(in);
+                if (proyectos.putIfAbsent(p.getId(), p) == null) repo.getProyectos().add(p);
+            }
+            case MIEMBRO_ALTA, MIEMBRO_BAJA -> {
+                Proyecto p = proyectos.get(RecordCodec.readString(in));
+                Usuario u = usuarios.get(RecordCodec.readString(in));
+                if (p == null || u == null) return;
+                if (e.tipo() == MIEMBRO_ALTA) p.agregarMiembro(u); else p.eliminarMiembro(u);
+            }
+            case TAREA_ALTA, TAREA_ALTA_SIN_ID -> {
+                Proyecto p = proyectos.get(RecordCodec.readString(in));
+                if (p == null) return;
+                Tarea t = RecordCodec.readTarea(in, usuarios, e.tipo() == TAREA_ALTA);
+                p.agregarTarea(t);
+                tareas.put(t.getClaveId(), t);
+            }
+            case TAREA_CAMBIO -> aplicarCambioTarea(usuarios, proyectos, tareas, in);
+            case TAREAS_CAMBIO -> {
+                int n = in.readInt();
+                for (int i = 0; i < n; i++) aplicarCambioTarea(usuarios, proyectos, tareas, in);
+            }
+            case TAREA_CAMBIO_POR_POSICION -> {
+                Proyecto p = proyectos.get(RecordCodec.readString(in));
+                int indice = in.readInt();
+                if (p != null && indice < p.getTareas().size()) {
+                    RecordCodec.readCamposTarea(in, p.getTareas().get(indice), usuarios, false);
+                }
+            }
+            default -> throw new IOException("Tipo de registro desconocido: " + e.tipo());
+        }
+    }
+
+    private static void aplicarCambioTarea(Map<String, Usuario> usuarios, Map<String, Proyecto> proyectos,
+                                           Map<ClaveId, Tarea> tareas, DataInputStream in) throws IOException {
+        Proyecto p = proyectos.get(RecordCodec.readString(in));
+        String tareaId = RecordCodec.readString(in);
+        Tarea t = p != null ? buscarTarea(p, tareaId, tareas) : null;
+        // Sin tarea destino los campos se leen en una tarea desechable, para llegar al siguiente cambio
+        if (t == null) t = new Tarea("", "", null, null, null, null);
+        RecordCodec.readCamposTarea(in, t, usuarios, true);
+    }
+
+    /**
+     * Busca la tarea dentro de su proyecto, sin pasar por el registro global del
+     * motor. Las creadas en el log ya están en {@code tareas}; las del snapshot se
+     * piden a la fuente del proyecto, que carga solo su bloque. Si el proyecto ya
+     * se cargó entero (y soltó su fuente), se registran sus tareas de una vez.
+     */
+    private static Tarea buscarTarea(Proyecto p, String tareaId, Map<ClaveId, Tarea> tareas) {
+        ClaveId clave = ClaveId.de(tareaId);
+        Tarea t = tareas.get(clave);
+        if (t != null) return t;
+        if (p.hayTareasPendientes()) {
+            t = p.buscarTareaPendiente(tareaId);
+        } else {
+            for (Tarea cargada : p.getTareas()) tareas.putIfAbsent(cargada.getClaveId(), cargada);
+            t = tareas.get(clave);
+        }
+        if (t != null) tareas.put(clave, t);
+        return t;
+    }
+}
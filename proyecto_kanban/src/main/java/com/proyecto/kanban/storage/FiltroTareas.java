@@ -0,0 +1,41 @@
+package com.proyecto.kanban.storage;
+
+import com.proyecto.kanban.model.EstadoTarea;
+import com.proyecto.kanban.model.IndiceTareas;
+import com.proyecto.kanban.model.Prioridad;
+import com.proyecto.kanban.model.Tarea;
+import com.proyecto.kanban.model.Usuario;
+import com.proyecto.kanban.util.RoaringBitmap;
+
+/**
+ * Criterios para buscar tareas de un proyecto. Cada campo en {@code null}
+ * significa "sin filtrar por ese criterio".
+ *
+ * @param estado estado de la tarea
+ * @param prioridad prioridad de la tarea
+ * @param asignado usuario responsable
+ * @param etiqueta nombre de etiqueta (se compara sin distinguir mayúsculas)
+ */
+public record FiltroTareas(EstadoTarea estado, Prioridad prioridad, Usuario asignado, String etiqueta) {
+
+    /** Filtro que acepta todas las tareas. */
+    public static final FiltroTareas TODAS = new FiltroTareas(null, null, null, null);
+
+    /** Evalúa el filtro sobre una tarea en memoria. */
+    public boolean acepta(Tarea t) {
+        if (estado != null && t.getEstado() != estado) return false;
+        if (prioridad != null && t.getPrioridad() != prioridad) return false;
+        if (asignado != null && !asignado.equals(t.getAsignadoA())) return false;
+        if (etiqueta != null) {
+            String buscada = etiqueta.trim();
+            return t.getEtiquetas().stream()
+                    .anyMatch(e -> e.getNombre() != null && e.getNombre().trim().equalsIgnoreCase(buscada));
+        }
+        return true;
+    }
+
+    /** Posiciones de las tareas en memoria que cumplen el filtro, según los índices del proyecto. */
+    public RoaringBitmap coincidencias(IndiceTareas indice) {
+        return indice.filtrar(estado, prioridad, asignado, etiqueta);
+    }
+}
@@ -0,0 +1,277 @@
+package com.proyecto.kanban.storage;
+
+import com.proyecto.kanban.model.CerrojosProyecto;
+import com.proyecto.kanban.model.ClaveId;
+import com.proyecto.kanban.model.ObservadorTareas;
+import com.proyecto.kanban.model.Proyecto;
+import com.proyecto.kanban.model.Tarea;
+import com.proyecto.kanban.model.Usuario;
+import com.proyecto.kanban.util.ListaAnexable;
+import com.proyecto.kanban.util.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Motor en memoria: mantiene listas de usuarios y proyectos, igual que el
+ * {@link Repository} original. Las listas devueltas son las reales (no copias),
+ * por eso {@link DurableStorage} puede reconstruir el estado sobre ellas.
+ *
+ * Las búsquedas por email usan un índice hash por email normalizado (sin
+ * espacios y en minúsculas). Como la lista de usuarios es pública y se rellena
+ * directamente al recuperar desde disco, el índice se pone al día de forma
+ * incremental: indexa los usuarios añadidos al final desde la última búsqueda.
+ *
+ * Los proyectos de un usuario salen de sus {@link Usuario#getProjectIds()}
+ * (que mantiene {@link Proyecto#agregarMiembro}) y de un índice id -> posición
+ * de proyecto actualizado del mismo modo, sin recorrer todos los proyectos.
+ *
+ * Registro por id: proyectos vía ese mismo índice; tareas en un mapa id -> tarea
+ * que cada proyecto alimenta (ver {@link Proyecto#setObservadorTareas}) con las
+ * tareas que pasan a memoria y del que quita las que salen de su lista. Una tarea aún sin cargar se localiza con el índice
+ * de ids del snapshot, que dice en qué proyecto está, y se carga solo su bloque.
+ *
+ * Los filtros de tareas ({@link #buscarTareas}, {@code paginaTareas}) se resuelven
+ * con los bitmaps por estado/prioridad/asignado/etiqueta de cada proyecto
+ * ({@link Proyecto#getIndice()}).
+ *
+ * Concurrencia: las listas ({@link ListaAnexable}) se leen sin cerrojo y crecen por
+ * el final sin copiarse, también al recuperar desde disco, que añade uno a uno; los
+ * índices son mapas concurrentes. Así las consultas no toman ningún cerrojo mientras
+ * los índices estén al día; las altas y la puesta al día se serializan sobre el motor. Los proyectos añadidos
+ * directamente a la lista (al recuperar desde disco) se registran en la primera
+ * consulta sin su cerrojo: todavía no los usa nadie más. Las tareas pendientes de
+ * cargar se buscan con el cerrojo de escritura de su proyecto, tomado respetando el
+ * orden de franjas ({@link CerrojosProyecto#escribirEnOrden}).
+ */
+public class InMemoryStorageEngine implements StorageEngine {
+
+    private volatile List<Usuario> usuarios = new ListaAnexable<>();
+    private volatile List<Proyecto> proyectos = new ListaAnexable<>();
+    // Índice email normalizado -> usuario (gana el primero, como en la búsqueda lineal original).
+    // Al reconstruirlo se sustituye entero, así que nunca se lee a medio llenar.
+    private volatile Map<String, Usuario> porEmail = new ConcurrentHashMap<>();
+    // Número de elementos de `usuarios` ya reflejados en `porEmail`
+    private volatile int indexados;
+    // Índice id de proyecto -> posición en `proyectos` (orden de creación)
+    private volatile Map<String, Integer> posicionProyecto = new ConcurrentHashMap<>();
+    // Registro de tareas en memoria por id (en forma compacta: no construye su texto)
+    private volatile Map<ClaveId, Tarea> tareasPorId = new ConcurrentHashMap<>();
+    // Proyecto de cada tarea del snapshot del que se recuperó; null si no hay índice
+    private volatile Function<ClaveId, Proyecto> localizadorPendientes;
+
+    @Override
+    public List<Usuario> getUsuarios() { return usuarios; }
+    /** Sustituye la lista de usuarios; se copia en una lista segura entre hilos, que es la que devuelve {@link #getUsuarios()}. */
+    @Override
+    public synchronized void setUsuarios(List<Usuario> usuarios) {
+        this.usuarios = new ListaAnexable<>(usuarios);
+        porEmail = new ConcurrentHashMap<>();
+        indexados = 0;
+    }
+
+    @Override
+    public List<Proyecto> getProyectos() { return proyectos; }
+    /** Sustituye la lista de proyectos; se copia como en {@link #setUsuarios}. */
+    @Override
+    public synchronized void setProyectos(List<Proyecto> proyectos) {
+        // Los que se van dejan de alimentar el registro; los nuevos se suscriben en la próxima consulta
+        for (Proyecto anterior : this.proyectos) anterior.setObservadorTareas(null);
+        this.proyectos = new ListaAnexable<>(proyectos);
+        posicionProyecto = new ConcurrentHashMap<>();
+        tareasPorId = new ConcurrentHashMap<>();
+        localizadorPendientes = null;
+    }
+
+    /**
+     * Índice id de tarea -> proyecto de las tareas del snapshot del que se recupera
+     * el motor (ver {@link IndiceIdsSnapshot}). Con él, una tarea sin cargar se busca
+     * solo en su proyecto; sin él, en cada proyecto con tareas pendientes.
+     */
+    void setLocalizadorPendientes(Function<ClaveId, Proyecto> localizador) {
+        this.localizadorPendientes = localizador;
+    }
+
+    @Override
+    public Optional<Usuario> buscarUsuarioPorEmail(String email) {
+        if (email == null) return Optional.empty();
+        if (indexados != usuarios.size()) sincronizarIndice();
+        String clave = normalizarEmail(email);
+        Usuario u = porEmail.get(clave);
+        if (u != null && !clave.equals(normalizarEmail(u.getEmail()))) {
+            // El email se cambió después de indexarlo: reconstruir una vez
+            reconstruirIndice();
+            u = porEmail.get(clave);
+        }
+        return Optional.ofNullable(u);
+    }
+
+    @Override
+    public synchronized void agregarUsuario(Usuario usuario) {
+        sincronizarIndice();
+        usuarios.add(usuario);
+        porEmail.putIfAbsent(normalizarEmail(usuario.getEmail()), usuario);
+        indexados++;
+    }
+
+    /** Añade de una vez los usuarios cuyo email no existe, recorriendo el lote una sola vez. */
+    @Override
+    public synchronized List<Usuario> importarUsuarios(Collection<Usuario> nuevos) {
+        sincronizarIndice();
+        List<Usuario> agregados = new ArrayList<>(nuevos.size());
+        for (Usuario u : nuevos) {
+            if (porEmail.putIfAbsent(normalizarEmail(u.getEmail()), u) == null) agregados.add(u);
+        }
+        usuarios.addAll(agregados);
+        indexados = usuarios.size();
+        return agregados;
+    }
+
+    /** Indexa los usuarios añadidos a la lista por fuera de {@link #agregarUsuario}. */
+    private synchronized void sincronizarIndice() {
+        if (usuarios.size() < indexados) {
+            reconstruirIndice();
+            return;
+        }
+        for (int i = indexados; i < usuarios.size(); i++) {
+            Usuario u = usuarios.get(i);
+            porEmail.putIfAbsent(normalizarEmail(u.getEmail()), u);
+        }
+        indexados = usuarios.size();
+    }
+
+    private synchronized void reconstruirIndice() {
+        Map<String, Usuario> nuevo = new ConcurrentHashMap<>();
+        int n = 0;
+        for (Usuario u : usuarios) {
+            nuevo.putIfAbsent(normalizarEmail(u.getEmail()), u);
+            n++;
+        }
+        porEmail = nuevo;
+        indexados = n;
+        sincronizarIndice();
+    }
+
+    static String normalizarEmail(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public synchronized void agregarProyecto(Proyecto proyecto) {
+        sincronizarProyectos();
+        proyectos.add(proyecto);
+        sincronizarProyectos();
+    }
+
+    @Override
+    public List<Proyecto> proyectosDeUsuario(Usuario usuario) {
+        if (usuario == null) return List.of();
+        Map<String, Integer> posiciones = posicionesProyecto();
+        List<Proyecto> lista = proyectos;
+        List<Proyecto> resultado = new ArrayList<>();
+        for (String id : usuario.getProjectIds()) {
+            Integer pos = posiciones.get(id);
+            if (pos != null && pos < lista.size()) resultado.add(lista.get(pos));
+        }
+        resultado.sort(Comparator.comparingInt(p -> posiciones.get(p.getId())));
+        return resultado;
+    }
+
+    @Override
+    public Optional<Proyecto> buscarProyectoPorId(String id) {
+        Integer pos = posicionesProyecto().get(id);
+        List<Proyecto> lista = proyectos;
+        return pos != null && pos < lista.size() ? Optional.of(lista.get(pos)) : Optional.empty();
+    }
+
+    @Override
+    public Optional<Tarea> buscarTareaPorId(String id) {
+        if (id == null) return Optional.empty();
+        posicionesProyecto();
+        ClaveId clave = ClaveId.de(id);
+        Tarea t = tareasPorId.get(clave);
+        if (t != null) {
+            if (esDelMotor(t)) return Optional.of(t);
+            tareasPorId.remove(clave, t);
+        }
+        Function<ClaveId, Proyecto> localizador = localizadorPendientes;
+        if (localizador != null) {
+            // Las tareas creadas después del snapshot están todas en el registro
+            Proyecto p = localizador.apply(clave);
+            return Optional.ofNullable(p != null ? buscarPendiente(p, id) : null);
+        }
+        for (Proyecto p : proyectos) {
+            t = buscarPendiente(p, id);
+            if (t != null) return Optional.of(t);
+        }
+        return Optional.empty();
+    }
+
+    /** La tarea sigue en la lista de un proyecto de este motor (no se quitó ni se sustituyó). */
+    private boolean esDelMotor(Tarea t) {
+        if (!t.isEnProyecto()) return false;
+        Proyecto p = t.getProyecto();
+        Integer pos = posicionProyecto.get(p.getId());
+        List<Proyecto> lista = proyectos;
+        return pos != null && pos < lista.size() && lista.get(pos) == p;
+    }
+
+    /** Carga solo el bloque de la tarea; al cargarse entra en el registro a través del observador. */
+    private static Tarea buscarPendiente(Proyecto p, String id) {
+        if (!p.hayTareasPendientes()) return null;
+        return CerrojosProyecto.escribirEnOrden(p, () -> p.hayTareasPendientes() ? p.buscarTareaPendiente(id) : null);
+    }
+
+    /** Índice de posiciones de proyecto al día; sin cerrojo si no hay proyectos nuevos. */
+    private Map<String, Integer> posicionesProyecto() {
+        if (posicionProyecto.size() != proyectos.size()) sincronizarProyectos();
+        return posicionProyecto;
+    }
+
+    /**
+     * Indexa los proyectos añadidos a la lista desde la última consulta y se
+     * suscribe a sus tareas para el registro por id. La posición se publica
+     * después de suscribirse, para que quien encuentre el proyecto encuentre
+     * también sus tareas ya cargadas.
+     */
+    private synchronized void sincronizarProyectos() {
+        if (proyectos.size() < posicionProyecto.size()) {
+            posicionProyecto = new ConcurrentHashMap<>();
+            tareasPorId = new ConcurrentHashMap<>();
+        }
+        Map<ClaveId, Tarea> registro = tareasPorId;
+        for (int i = posicionProyecto.size(); i < proyectos.size(); i++) {
+            Proyecto p = proyectos.get(i);
+            p.setObservadorTareas(new ObservadorTareas() {
+                @Override
+                public void cargada(Tarea t) {
+                    registro.put(t.getClaveId(), t);
+                }
+
+                @Override
+                public void quitada(Tarea t) {
+                    registro.remove(t.getClaveId(), t);
+                }
+            });
+            posicionProyecto.put(p.getId(), i);
+        }
+    }
+
+    /** Carga las tareas pendientes y resuelve el filtro con los bitmaps del proyecto. */
+    @Override
+    public List<Tarea> buscarTareas(Proyecto proyecto, FiltroTareas filtro) {
+        proyecto.cargarTodasLasTareas();
+        List<Tarea> todas = proyecto.getTareas();
+        RoaringBitmap coinciden = filtro.coincidencias(proyecto.getIndice());
+        List<Tarea> resultado = new ArrayList<>(coinciden.cardinality());
+        for (int i = coinciden.nextSetBit(0); i >= 0; i = coinciden.nextSetBit(i + 1)) resultado.add(todas.get(i));
+        return resultado;
+    }
+}
@@ -0,0 +1,141 @@
+package com.proyecto.kanban.storage;
+
+import com.proyecto.kanban.model.ClaveId;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índice id de tarea -> (proyecto, posición en su bloque) de un snapshot, guardado
+ * en el propio archivo a continuación del directorio (desde la versión 5).
+ *
+ * Sirve para localizar una tarea que aún no se ha cargado sin recorrer los
+ * proyectos ni leer los ids de su bloque: se carga solo el bloque que la contiene.
+ *
+ * Los ids que son UUID canónicos van en una tabla hash de direccionamiento abierto
+ * que se consulta directamente sobre el archivo mapeado, sin copiarla al heap:
+ * cada hueco son 24 bytes (mitades del id, índice del proyecto en el directorio
+ * o -1 si está libre, y posición), y al menos la mitad están libres. Los demás ids
+ * (datos antiguos o escritos a mano) son raros y van en una lista que se lee al abrir.
+ *
+ * Formato:
+ * <pre>
+ * [int huecos][huecos x (long alto, long bajo, int proyecto, int posicion)]
+ * [int m][m x (String id, int proyecto, int posicion)]
+ * </pre>
+ */
+final class IndiceIdsSnapshot {
+    private static final int HUECO = 24;
+
+    /** Ubicación de una tarea: índice de su proyecto en el directorio y posición en su bloque. */
+    record Ubicacion(int proyecto, int posicion) {}
+
+    private final ByteBuffer tabla;
+    private final int mascara;
+    private final Map<String, Ubicacion> otros;
+
+    private IndiceIdsSnapshot(ByteBuffer tabla, int huecos, Map<String, Ubicacion> otros) {
+        this.tabla = tabla;
+        this.mascara = huecos - 1;
+        this.otros = otros;
+    }
+
+    /** Ubicación de la tarea con ese id, o {@code null} si no está en el snapshot. */
+    Ubicacion buscar(ClaveId id) {
+        if (id.texto() != null) return otros.get(id.texto());
+        // Lecturas absolutas: no cambian el estado del buffer y se pueden hacer desde varios hilos
+        for (int h = hueco(id.alto(), id.bajo()) & mascara; ; h = (h + 1) & mascara) {
+            int base = h * HUECO;
+            int proyecto = tabla.getInt(base + 16);
+            if (proyecto < 0) return null;
+            if (tabla.getLong(base) == id.alto() && tabla.getLong(base + 8) == id.bajo()) {
+                return new Ubicacion(proyecto, tabla.getInt(base + 20));
+            }
+        }
+    }
+
+    /** Lee el índice que empieza en {@code posicion} del snapshot mapeado. */
+    static IndiceIdsSnapshot leer(ByteBuffer mapa, int posicion) throws IOException {
+        int huecos = mapa.getInt(posicion);
+        long fin = posicion + 4 + (long) huecos * HUECO;
+        if (huecos <= 0 || Integer.bitCount(huecos) != 1 || fin > mapa.capacity()) {
+            throw new IOException("Índice de ids de tarea inválido");
+        }
+        ByteBuffer tabla = mapa.slice(posicion + 4, huecos * HUECO);
+        DataInputStream in = new DataInputStream(new ByteBufferInputStream(mapa.duplicate().position((int) fin)));
+        int m = in.readInt();
+        Map<String, Ubicacion> otros = new HashMap<>();
+        for (int i = 0; i < m; i++) otros.put(RecordCodec.readString(in), new Ubicacion(in.readInt(), in.readInt()));
+        return new IndiceIdsSnapshot(tabla, huecos, otros);
+    }
+
+    /** Acumula los ids de las tareas mientras se escribe el snapshot y luego escribe el índice. */
+    static final class Constructor {
+        private long[] altos = new long[1024];
+        private long[] bajos = new long[1024];
+        private int[] ubicaciones = new int[2048];
+        private int n;
+        private final List<String> otrosIds = new ArrayList<>();
+        private final List<Ubicacion> otrasUbicaciones = new ArrayList<>();
+
+        void agregar(ClaveId id, int proyecto, int posicion) {
+            if (id.texto() != null) {
+                otrosIds.add(id.texto());
+                otrasUbicaciones.add(new Ubicacion(proyecto, posicion));
+                return;
+            }
+            if (n == altos.length) {
+                altos = Arrays.copyOf(altos, n * 2);
+                bajos = Arrays.copyOf(bajos, n * 2);
+                ubicaciones = Arrays.copyOf(ubicaciones, n * 4);
+            }
+            altos[n] = id.alto();
+            bajos[n] = id.bajo();
+            ubicaciones[2 * n] = proyecto;
+            ubicaciones[2 * n + 1] = posicion;
+            n++;
+        }
+
+        void escribir(DataOutputStream out) throws IOException {
+            int huecos = 1;
+            while (huecos < 2 * n) huecos <<= 1;
+            int mascara = huecos - 1;
+            // Posición en los arrays de la tarea que ocupa cada hueco (-1: libre)
+            int[] ocupante = new int[huecos];
+            Arrays.fill(ocupante, -1);
+            for (int i = 0; i < n; i++) {
+                int h = hueco(altos[i], bajos[i]) & mascara;
+                while (ocupante[h] >= 0 && (altos[ocupante[h]] != altos[i] || bajos[ocupante[h]] != bajos[i])) {
+                    h = (h + 1) & mascara;
+                }
+                ocupante[h] = i;
+            }
+            out.writeInt(huecos);
+            for (int i : ocupante) {
+                out.writeLong(i >= 0 ? altos[i] : 0);
+                out.writeLong(i >= 0 ? bajos[i] : 0);
+                out.writeInt(i >= 0 ? ubicaciones[2 * i] : -1);
+                out.writeInt(i >= 0 ? ubicaciones[2 * i + 1] : 0);
+            }
+            out.writeInt(otrosIds.size());
+            for (int i = 0; i < otrosIds.size(); i++) {
+                RecordCodec.writeString(out, otrosIds.get(i));
+                out.writeInt(otrasUbicaciones.get(i).proyecto());
+                out.writeInt(otrasUbicaciones.get(i).posicion());
+            }
+        }
+    }
+
+    // Mezcla las dos mitades: los ids temporales comparten los bits altos
+    private static int hueco(long alto, long bajo) {
+        long h = (alto ^ Long.rotateLeft(bajo, 32)) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,53 @@
+package com.proyecto.kanban.storage;
+
+import com.proyecto.kanban.model.Tarea;
+
+import java.util.List;
+
+/**
+ * Una página de tareas de un proyecto y el cursor para pedir la siguiente.
+ *
+ * El cursor ({@code continuacion}) es un texto opaco para quien lo recibe: solo
+ * hay que devolverlo tal cual para continuar. Es {@code null} en la última página.
+ *
+ * @param tareas tareas de la página, en el orden del proyecto
+ * @param continuacion cursor de la página siguiente, o {@code null} si no hay más
+ */
+public record PaginaTareas(List<Tarea> tareas, String continuacion) {
+
+    private static final String PREFIJO = "p";
+
+    public PaginaTareas {
+        tareas = List.copyOf(tareas);
+    }
+
+    public boolean hayMas() {
+        return continuacion != null;
+    }
+
+    static PaginaTareas ultima(List<Tarea> tareas) {
+        return new PaginaTareas(tareas, null);
+    }
+
+    /** Página cuya siguiente empieza en la posición {@code siguiente} del proyecto. */
+    static PaginaTareas conContinuacion(List<Tarea> tareas, int siguiente) {
+        return new PaginaTareas(tareas, PREFIJO + Integer.toString(siguiente, 36));
+    }
+
+    /**
+     * Posición del proyecto a la que apunta un cursor; {@code null} es el principio.
+     * @throws IllegalArgumentException si el cursor no fue emitido por esta clase
+     */
+    static int posicion(String continuacion) {
+        if (continuacion == null) return 0;
+        if (continuacion.startsWith(PREFIJO)) {
+            try {
+                int pos = Integer.parseInt(continuacion.substring(PREFIJO.length()), 36);
+                if (pos >= 0) return pos;
+            } catch (NumberFormatException ignored) {
+                // cae al error de abajo
+            }
+        }
+        throw new IllegalArgumentException("Cursor de página inválido: " + continuacion);
+    }
+}
@@ -0,0 +1,177 @@
+package com.proyecto.kanban.storage;
+
+import com.proyecto.kanban.model.Etiqueta;
+import com.proyecto.kanban.model.EstadoTarea;
+import com.proyecto.kanban.model.FechaLimite;
+import com.proyecto.kanban.model.Prioridad;
+import com.proyecto.kanban.model.Proyecto;
+import com.proyecto.kanban.model.Tarea;
+import com.proyecto.kanban.model.Usuario;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codificación binaria compartida por el log de escritura ({@link WriteAheadLog})
+ * y los snapshots ({@link SnapshotStore}).
+ *
+ * Las relaciones se guardan por id (el asignado de una tarea, los miembros de un
+ * proyecto) y se resuelven al leer contra el mapa de usuarios ya cargados.
+ *
+ * Las tareas empiezan por su id, seguido de los campos; cada etiqueta guarda id,
+ * nombre y color. Los registros anteriores a los ids (snapshots v3 y tipos de log
+ * heredados) se leen con {@code conId = false} y reciben ids nuevos.
+ */
+final class RecordCodec {
+
+    private RecordCodec() {}
+
+    static void writeString(DataOutput out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int len = in.readInt();
+        if (len < 0) return null;
+        // Una longitud corrupta no debe reservar un array enorme antes de fallar
+        if (in instanceof InputStream s && len > s.available()) {
+            throw new EOFException("Cadena de " + len + " bytes con solo " + s.available() + " disponibles");
+        }
+        byte[] bytes = new byte[len];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeDateTime(DataOutput out, LocalDateTime t) throws IOException {
+        out.writeBoolean(t != null);
+        if (t != null) {
+            out.writeLong(t.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(t.getNano());
+        }
+    }
+
+    static LocalDateTime readDateTime(DataInput in) throws IOException {
+        if (!in.readBoolean()) return null;
+        long seconds = in.readLong();
+        int nano = in.readInt();
+        return LocalDateTime.ofEpochSecond(seconds, nano, ZoneOffset.UTC);
+    }
+
+    static void writeUsuario(DataOutput out, Usuario u) throws IOException {
+        writeString(out, u.getId());
+        writeString(out, u.getNombre());
+        writeString(out, u.getEmail());
+    }
+
+    static Usuario readUsuario(DataInput in) throws IOException {
+        return new Usuario(readString(in), readString(in), readString(in));
+    }
+
+    /** Escribe el estado completo de una tarea (id, campos, etiquetas y marcas de tiempo). */
+    static void writeTarea(DataOutput out, Tarea t) throws IOException {
+        writeString(out, t.getId());
+        writeString(out, t.getTitulo());
+        writeString(out, t.getDescripcion());
+        writeString(out, t.getAsignadoA() != null ? t.getAsignadoA().getId() : null);
+        FechaLimite limite = t.getFechaLimite();
+        if (limite == null || limite.getFecha() == null) {
+            out.writeByte(0);
+        } else if (limite.getFechaHora() == null) {
+            out.writeByte(1);
+            out.writeLong(limite.getFecha().toEpochDay());
+        } else {
+            out.writeByte(2);
+            writeDateTime(out, limite.getFechaHora());
+        }
+        out.writeByte(t.getPrioridad() != null ? t.getPrioridad().ordinal() : -1);
+        out.writeByte(t.getEstado() != null ? t.getEstado().ordinal() : -1);
+        List<Etiqueta> etiquetas = t.getEtiquetas();
+        out.writeInt(etiquetas.size());
+        for (Etiqueta e : etiquetas) {
+            writeString(out, e.getId());
+            writeString(out, e.getNombre());
+            writeString(out, e.getColor());
+        }
+        writeDateTime(out, t.getFechaCreacion());
+        writeDateTime(out, t.getFechaInicio());
+        writeDateTime(out, t.getFechaCierre());
+    }
+
+    /** Lee una tarea escrita con {@link #writeTarea} y crea una instancia nueva. */
+    static Tarea readTarea(DataInput in, Map<String, Usuario> usuarios) throws IOException {
+        return readTarea(in, usuarios, true);
+    }
+
+    /** Como {@link #readTarea(DataInput, Map)}; con {@code conId = false} lee el formato sin ids. */
+    static Tarea readTarea(DataInput in, Map<String, Usuario> usuarios, boolean conId) throws IOException {
+        String id = conId ? readString(in) : null;
+        Tarea t = new Tarea(id, null, "", null, null, null, null);
+        readCamposTarea(in, t, usuarios, conId);
+        return t;
+    }
+
+    /**
+     * Sobrescribe el estado de una tarea existente con los campos que siguen al id
+     * en {@code in} (quien llama ya ha leído el id para localizar la tarea).
+     */
+    static void readCamposTarea(DataInput in, Tarea t, Map<String, Usuario> usuarios, boolean conId)
+            throws IOException {
+        String titulo = readString(in);
+        String descripcion = readString(in);
+        String asignadoId = readString(in);
+        FechaLimite limite = switch (in.readByte()) {
+            case 1 -> new FechaLimite(LocalDate.ofEpochDay(in.readLong()));
+            case 2 -> new FechaLimite(readDateTime(in));
+            default -> null;
+        };
+        int prioridad = in.readByte();
+        int estado = in.readByte();
+        int numEtiquetas = in.readInt();
+        List<Etiqueta> etiquetas = new ArrayList<>(numEtiquetas);
+        for (int i = 0; i < numEtiquetas; i++) {
+            String id = conId ? readString(in) : null;
+            etiquetas.add(new Etiqueta(id, readString(in), readString(in)));
+        }
+        LocalDateTime creacion = readDateTime(in);
+        LocalDateTime inicio = readDateTime(in);
+        LocalDateTime cierre = readDateTime(in);
+
+        t.setTitulo(titulo);
+        t.setDescripcion(descripcion);
+        t.asignarUsuario(asignadoId != null ? usuarios.get(asignadoId) : null);
+        t.setFechaLimite(limite);
+        if (prioridad >= 0) t.setPrioridad(Prioridad.values()[prioridad]);
+        if (estado >= 0) t.cambiarEstado(EstadoTarea.values()[estado]);
+        t.limpiarEtiquetas();
+        for (Etiqueta e : etiquetas) t.agregarEtiqueta(e);
+        // cambiarEstado registra "ahora" como inicio/cierre: se reemplaza por lo guardado
+        t.restaurarFechas(creacion, inicio, cierre);
+    }
+
+    /** Escribe la cabecera de un proyecto (sin miembros ni tareas). */
+    static void writeProyecto(DataOutput out, Proyecto p) throws IOException {
+        writeString(out, p.getId());
+        writeString(out, p.getNombre());
+        writeString(out, p.getDescripcion());
+    }
+
+    static Proyecto readProyecto(DataInput in) throws IOException {
+        return new Proyecto(readString(in), readString(in), readString(in));
+    }
+}
@@ -1,29 +1,141 @@
 package com.proyecto.kanban.storage;
 
 import com.proyecto.kanban.model.Proyecto;
+import com.proyecto.kanban.model.Tarea;
 import com.proyecto.kanban.model.Usuario;
 
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
- * Repositorio en memoria sencillo.
+ * Punto de acceso de los servicios a los datos.
  *
- * Solo mantiene listas en memoria de usuarios y proyectos. No realiza
- * persistencia en disco (esto simplifica el proyecto para principiantes).
+ * Delega en un {@link StorageEngine}: por defecto {@link InMemoryStorageEngine}
+ * (listas en memoria, comportamiento original) o, por ejemplo,
+ * {@link SqlStorageEngine}. Además admite un {@link ChangeJournal} externo
+ * (ver {@link DurableStorage}) que recibe las mismas mutaciones que el motor.
+ *
+ * Los servicios deben dar de alta usuarios y proyectos con {@link #agregarUsuario}
+ * y {@link #agregarProyecto}, y notificar el resto de cambios vía {@link #getJournal()}.
+ *
+ * Concurrencia: los motores incluidos admiten llamadas desde varios hilos. Los
+ * cambios de un proyecto se notifican con su cerrojo tomado
+ * ({@link com.proyecto.kanban.model.CerrojosProyecto}), así que el journal los
+ * recibe en el mismo orden en que se aplicaron. Las altas de usuarios se serializan
+ * sobre este objeto para que no se registren dos veces con el mismo email.
  */
 public class Repository {
 
-    private List<Usuario> usuarios;
-    private List<Proyecto> proyectos;
+    private final StorageEngine engine;
+    private volatile ChangeJournal journal = ChangeJournal.NONE;
+
+    /** Notifica primero al motor y después al journal externo. */
+    private final ChangeJournal difusor = new ChangeJournal() {
+        @Override
+        public void miembroAgregado(Proyecto proyecto, Usuario usuario) {
+            engine.miembroAgregado(proyecto, usuario);
+            journal.miembroAgregado(proyecto, usuario);
+        }
+
+        @Override
+        public void miembroEliminado(Proyecto proyecto, Usuario usuario) {
+            engine.miembroEliminado(proyecto, usuario);
+            journal.miembroEliminado(proyecto, usuario);
+        }
+
+        @Override
+        public void tareaAgregada(Proyecto proyecto, Tarea tarea) {
+            engine.tareaAgregada(proyecto, tarea);
+            journal.tareaAgregada(proyecto, tarea);
+        }
+
+        @Override
+        public void tareaModificada(Tarea tarea) {
+            engine.tareaModificada(tarea);
+            journal.tareaModificada(tarea);
+        }
+
+        @Override
+        public void tareasModificadas(Collection<Tarea> tareas) {
+            engine.tareasModificadas(tareas);
+            journal.tareasModificadas(tareas);
+        }
+    };
 
     public Repository() {
-        this.usuarios = new ArrayList<>();
-        this.proyectos = new ArrayList<>();
+        this(new InMemoryStorageEngine());
+    }
+
+    public Repository(StorageEngine engine) {
+        this.engine = engine;
+    }
+
+    public StorageEngine getEngine() { return engine; }
+
+    public List<Usuario> getUsuarios() { return engine.getUsuarios(); }
+    public void setUsuarios(List<Usuario> usuarios) { engine.setUsuarios(usuarios); }
+    public List<Proyecto> getProyectos() { return engine.getProyectos(); }
+    public void setProyectos(List<Proyecto> proyectos) { engine.setProyectos(proyectos); }
+
+    public Optional<Usuario> buscarUsuarioPorEmail(String email) {
+        return engine.buscarUsuarioPorEmail(email);
+    }
+
+    public synchronized void agregarUsuario(Usuario usuario) {
+        engine.agregarUsuario(usuario);
+        journal.usuarioCreado(usuario);
     }
 
-    public List<Usuario> getUsuarios() { return usuarios; }
-    public void setUsuarios(List<Usuario> usuarios) { this.usuarios = usuarios; }
-    public List<Proyecto> getProyectos() { return proyectos; }
-    public void setProyectos(List<Proyecto> proyectos) { this.proyectos = proyectos; }
+    /**
+     * Alta masiva de usuarios; se omiten los de email ya registrado.
+     * @return los usuarios añadidos
+     */
+    public synchronized List<Usuario> importarUsuarios(Collection<Usuario> usuarios) {
+        List<Usuario> agregados = engine.importarUsuarios(usuarios);
+        for (Usuario u : agregados) journal.usuarioCreado(u);
+        return agregados;
+    }
+
+    public void agregarProyecto(Proyecto proyecto) {
+        engine.agregarProyecto(proyecto);
+        journal.proyectoCreado(proyecto);
+    }
+
+    public List<Proyecto> proyectosDeUsuario(Usuario usuario) {
+        return engine.proyectosDeUsuario(usuario);
+    }
+
+    /** Proyecto por id (registro del motor, sin recorrer la lista en los motores incluidos). */
+    public Optional<Proyecto> buscarProyecto(String id) {
+        return id != null ? engine.buscarProyectoPorId(id) : Optional.empty();
+    }
+
+    /** Tarea por id en cualquier proyecto. */
+    public Optional<Tarea> buscarTarea(String id) {
+        return id != null ? engine.buscarTareaPorId(id) : Optional.empty();
+    }
+
+    public List<Tarea> buscarTareas(Proyecto proyecto, FiltroTareas filtro) {
+        return engine.buscarTareas(proyecto, filtro != null ? filtro : FiltroTareas.TODAS);
+    }
+
+    /**
+     * Página de tareas del proyecto que cumplen el filtro.
+     * @param continuacion cursor devuelto por la página anterior, o {@code null} para la primera
+     * @param limite tamaño máximo de la página (mayor que cero)
+     */
+    public PaginaTareas paginaTareas(Proyecto proyecto, FiltroTareas filtro, String continuacion, int limite) {
+        if (limite <= 0) throw new IllegalArgumentException("El tamaño de página debe ser positivo");
+        return engine.paginaTareas(proyecto, filtro != null ? filtro : FiltroTareas.TODAS,
+                PaginaTareas.posicion(continuacion), limite);
+    }
+
+    /** Journal al que los servicios notifican cambios de miembros y tareas; nunca es null. */
+    public ChangeJournal getJournal() { return difusor; }
+
+    /** Journal externo adicional (por ejemplo {@link DurableStorage}). */
+    public void setJournal(ChangeJournal journal) {
+        this.journal = journal != null ? journal : ChangeJournal.NONE;
+    }
 }
@@ -0,0 +1,325 @@
+package com.proyecto.kanban.storage;
+
+import com.proyecto.kanban.model.ClaveId;
+import com.proyecto.kanban.model.FuenteTareas;
+import com.proyecto.kanban.model.Proyecto;
+import com.proyecto.kanban.model.Tarea;
+import com.proyecto.kanban.model.TareasPaginadas;
+import com.proyecto.kanban.model.Usuario;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Snapshots binarios completos del {@link Repository}, leídos mediante un
+ * {@link FileChannel} mapeado en memoria.
+ *
+ * Cada snapshot se llama {@code snapshot-<lsn>.bin} y contiene el estado que
+ * resulta de aplicar todos los registros del log con LSN menor que {@code lsn}.
+ * Se escribe primero en un archivo temporal y luego se renombra de forma
+ * atómica, así nunca queda un snapshot a medio escribir con nombre válido.
+ *
+ * Formato (versión 5):
+ * <pre>
+ * [int magic][int version][long offsetDirectorio]
+ * [usuarios: int n, n x usuario]
+ * [bloques de tareas: uno por proyecto, cada uno int n + int[n] offsets + n x tarea]
+ * [directorio: int n, n x (proyecto, miembros, long offsetBloque, int longitudBloque)]
+ * [índice de ids de tarea: ver {@link IndiceIdsSnapshot}]
+ * </pre>
+ * Al abrir solo se decodifican usuarios y directorio. Cada proyecto recibe una
+ * {@link FuenteTareas} sobre su bloque: gracias a la tabla de offsets (relativos al
+ * inicio del bloque) se puede decodificar cualquier rango de tareas sin leer las
+ * anteriores, lo que permite la carga paginada de {@link TareasPaginadas}. Cada
+ * tarea empieza por su id. Para localizar por id una tarea sin cargar, el índice
+ * de ids dice en qué proyecto y posición está: el motor en memoria lo usa para
+ * cargar solo el bloque que la contiene.
+ *
+ * Los snapshots de la versión 4 (sin índice de ids) se siguen pudiendo leer:
+ * localizar una tarea lee los ids de cada bloque, y la próxima compactación ya
+ * escribe el índice. Los de la versión 3 (tareas sin id) se marcan como
+ * {@code legado} para que {@link DurableStorage} los reescriba.
+ */
+final class SnapshotStore {
+
+    private static final int MAGIC = 0x4B42534E; // "KBSN"
+    private static final int VERSION = 5;
+    private static final int VERSION_SIN_INDICE = 4;
+    private static final int VERSION_SIN_IDS = 3;
+    private static final int HEADER = 4 + 4 + 8;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+
+    /**
+     * Snapshot abierto: el repositorio (con proyectos de carga diferida), los
+     * bloques de tareas que aún no se han decodificado, indexados por proyecto, y
+     * si el archivo usa el formato anterior a los ids de tarea.
+     */
+    record Loaded(Repository repo, Map<Proyecto, ByteBuffer> bloquesPendientes, boolean legado) {}
+
+    private SnapshotStore() {}
+
+    /**
+     * Serializa el repositorio completo a memoria. Debe llamarse desde el hilo que lo modifica.
+     * Los proyectos cuyas tareas siguen sin cargar copian su bloque tal cual desde
+     * {@code pendientes}, sin decodificarlo.
+     */
+    static byte[] encode(Repository repo, Map<Proyecto, ByteBuffer> pendientes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(0); // offset del directorio, se rellena al final
+
+        // Copias: se pueden dar de alta usuarios y proyectos mientras se escribe
+        // (lo que falte aquí lo repone el WAL, que ya tolera altas repetidas)
+        List<Usuario> usuarios = List.copyOf(repo.getUsuarios());
+        out.writeInt(usuarios.size());
+        for (Usuario u : usuarios) RecordCodec.writeUsuario(out, u);
+
+        List<Proyecto> proyectos = List.copyOf(repo.getProyectos());
+        IndiceIdsSnapshot.Constructor ids = new IndiceIdsSnapshot.Constructor();
+        long[] offsets = new long[proyectos.size()];
+        int[] longitudes = new int[proyectos.size()];
+        for (int i = 0; i < proyectos.size(); i++) {
+            Proyecto p = proyectos.get(i);
+            offsets[i] = out.size();
+            ByteBuffer crudo = p.isTareasCargadas() ? null : pendientes.get(p);
+            if (crudo != null) {
+                ByteBuffer copia = crudo.duplicate();
+                byte[] tmp = new byte[copia.remaining()];
+                copia.get(tmp);
+                out.write(tmp);
+                for (int j = 0; j < crudo.getInt(0); j++) ids.agregar(ClaveId.de(leerId(crudo, j)), i, j);
+            } else {
+                escribirBloque(out, p.getTareas(), ids, i);
+            }
+            longitudes[i] = (int) (out.size() - offsets[i]);
+        }
+
+        long offsetDirectorio = out.size();
+        out.writeInt(proyectos.size());
+        for (int i = 0; i < proyectos.size(); i++) {
+            Proyecto p = proyectos.get(i);
+            RecordCodec.writeProyecto(out, p);
+            out.writeInt(p.getMiembros().size());
+            for (Usuario m : p.getMiembros()) RecordCodec.writeString(out, m.getId());
+            out.writeLong(offsets[i]);
+            out.writeInt(longitudes[i]);
+        }
+        ids.escribir(out);
+        out.flush();
+        byte[] body = bytes.toByteArray();
+        ByteBuffer.wrap(body).putLong(8, offsetDirectorio);
+        return body;
+    }
+
+    /** Escribe un bloque de tareas (cantidad, tabla de offsets relativos y tareas) y anota sus ids. */
+    private static void escribirBloque(DataOutputStream out, List<Tarea> tareas, IndiceIdsSnapshot.Constructor ids,
+                                       int proyecto) throws IOException {
+        int n = tareas.size();
+        ByteArrayOutputStream cuerpo = new ByteArrayOutputStream(n * 96 + 16);
+        DataOutputStream cuerpoOut = new DataOutputStream(cuerpo);
+        int[] offsets = new int[n];
+        int cabecera = 4 + 4 * n;
+        for (int i = 0; i < n; i++) {
+            offsets[i] = cabecera + cuerpoOut.size();
+            RecordCodec.writeTarea(cuerpoOut, tareas.get(i));
+            ids.agregar(tareas.get(i).getClaveId(), proyecto, i);
+        }
+        cuerpoOut.flush();
+        out.writeInt(n);
+        for (int off : offsets) out.writeInt(off);
+        cuerpo.writeTo(out);
+    }
+
+    /**
+     * Mapea el snapshot en memoria y decodifica solo usuarios y proyectos. Las
+     * tareas de cada proyecto quedan como un cargador sobre su región del archivo.
+     */
+    static Loaded read(Path dir, long lsn) throws IOException {
+        MappedByteBuffer mapa;
+        try (FileChannel ch = FileChannel.open(snapshotPath(dir, lsn), StandardOpenOption.READ)) {
+            mapa = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        try {
+            return decode(mapa);
+        } catch (RuntimeException ex) {
+            // BufferUnderflow / índices fuera de rango: archivo truncado o corrupto
+            throw new IOException("Snapshot corrupto: " + ex, ex);
+        }
+    }
+
+    private static Loaded decode(ByteBuffer mapa) throws IOException {
+        if (mapa.capacity() < HEADER || mapa.getInt(0) != MAGIC) {
+            throw new IOException("Snapshot con formato desconocido");
+        }
+        int version = mapa.getInt(4);
+        boolean conId = version == VERSION || version == VERSION_SIN_INDICE;
+        if (!conId && version != VERSION_SIN_IDS) throw new IOException("Versión de snapshot no soportada: " + version);
+        long offsetDirectorio = mapa.getLong(8);
+        if (offsetDirectorio < HEADER || offsetDirectorio > mapa.capacity()) {
+            throw new IOException("Offset de directorio inválido");
+        }
+
+        InMemoryStorageEngine motor = new InMemoryStorageEngine();
+        Repository repo = new Repository(motor);
+        Map<String, Usuario> usuarios = new HashMap<>();
+        DataInputStream in = new DataInputStream(new ByteBufferInputStream(mapa.duplicate().position(HEADER)));
+        int numUsuarios = in.readInt();
+        List<Usuario> listaUsuarios = new ArrayList<>(Math.min(numUsuarios, 1024));
+        for (int i = 0; i < numUsuarios; i++) {
+            Usuario u = RecordCodec.readUsuario(in);
+            usuarios.put(u.getId(), u);
+            listaUsuarios.add(u);
+        }
+        // De una vez: la lista del motor agranda su array una sola vez
+        repo.getUsuarios().addAll(listaUsuarios);
+
+        Map<Proyecto, ByteBuffer> pendientes = new HashMap<>();
+        ByteBuffer directorio = mapa.duplicate().position((int) offsetDirectorio);
+        in = new DataInputStream(new ByteBufferInputStream(directorio));
+        int numProyectos = in.readInt();
+        List<ByteBuffer> bloques = new ArrayList<>(Math.min(numProyectos, 1024));
+        List<Proyecto> listaProyectos = new ArrayList<>(Math.min(numProyectos, 1024));
+        for (int i = 0; i < numProyectos; i++) {
+            Proyecto p = RecordCodec.readProyecto(in);
+            int numMiembros = in.readInt();
+            for (int m = 0; m < numMiembros; m++) {
+                Usuario u = usuarios.get(RecordCodec.readString(in));
+                if (u != null) p.agregarMiembro(u);
+            }
+            int offset = (int) in.readLong();
+            int longitud = in.readInt();
+            bloques.add(mapa.slice(offset, longitud));
+            listaProyectos.add(p);
+        }
+        // El índice sigue al directorio, que se acaba de leer entero
+        IndiceIdsSnapshot indice = version == VERSION ? IndiceIdsSnapshot.leer(mapa, directorio.position()) : null;
+        for (int i = 0; i < listaProyectos.size(); i++) {
+            Proyecto p = listaProyectos.get(i);
+            pendientes.put(p, bloques.get(i));
+            p.setFuenteTareas(new FuenteBloque(bloques.get(i), usuarios, conId, indice, i));
+        }
+        repo.getProyectos().addAll(listaProyectos);
+        if (indice != null) {
+            motor.setLocalizadorPendientes(clave -> {
+                IndiceIdsSnapshot.Ubicacion u = indice.buscar(clave);
+                return u != null && u.proyecto() < listaProyectos.size() ? listaProyectos.get(u.proyecto()) : null;
+            });
+        }
+        return new Loaded(repo, pendientes, !conId);
+    }
+
+    /** Fuente de tareas sobre el bloque mapeado de un proyecto. */
+    private static final class FuenteBloque implements FuenteTareas {
+        private final ByteBuffer bloque;
+        private final Map<String, Usuario> usuarios;
+        private final boolean conId;
+        // Índice de ids del snapshot y posición de este proyecto en él; null en versiones anteriores
+        private final IndiceIdsSnapshot indice;
+        private final int numProyecto;
+        // Sin índice: id -> posición, construido la primera vez que se busca una tarea por id
+        private Map<String, Integer> posiciones;
+
+        FuenteBloque(ByteBuffer bloque, Map<String, Usuario> usuarios, boolean conId, IndiceIdsSnapshot indice,
+                     int numProyecto) {
+            this.bloque = bloque;
+            this.usuarios = usuarios;
+            this.conId = conId;
+            this.indice = indice;
+            this.numProyecto = numProyecto;
+        }
+
+        @Override
+        public int contar() {
+            return bloque.getInt(0);
+        }
+
+        @Override
+        public List<Tarea> cargar(int desde, int cantidad) {
+            ByteBuffer b = bloque.duplicate();
+            b.position(b.getInt(4 + 4 * desde));
+            DataInputStream in = new DataInputStream(new ByteBufferInputStream(b));
+            List<Tarea> tareas = new ArrayList<>(cantidad);
+            try {
+                for (int i = 0; i < cantidad; i++) tareas.add(RecordCodec.readTarea(in, usuarios, conId));
+            } catch (IOException ex) {
+                throw new UncheckedIOException("No se pudieron leer las tareas del snapshot", ex);
+            }
+            return tareas;
+        }
+
+        /** Con índice, una consulta; sin él, lee solo el id con el que empieza cada tarea del bloque. */
+        @Override
+        public int posicionDe(String tareaId) {
+            if (!conId) return -1;
+            if (indice != null) {
+                IndiceIdsSnapshot.Ubicacion u = indice.buscar(ClaveId.de(tareaId));
+                return u != null && u.proyecto() == numProyecto ? u.posicion() : -1;
+            }
+            if (posiciones == null) {
+                int n = contar();
+                Map<String, Integer> mapa = new HashMap<>(n * 2);
+                for (int i = 0; i < n; i++) mapa.put(leerId(bloque, i), i);
+                posiciones = mapa;
+            }
+            return posiciones.getOrDefault(tareaId, -1);
+        }
+    }
+
+    /** Id de la tarea {@code i} de un bloque (con ids), sin decodificar el resto de la tarea. */
+    private static String leerId(ByteBuffer bloque, int i) {
+        ByteBuffer b = bloque.duplicate();
+        b.position(b.getInt(4 + 4 * i));
+        try {
+            return RecordCodec.readString(new DataInputStream(new ByteBufferInputStream(b)));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("No se pudieron leer los ids del snapshot", ex);
+        }
+    }
+
+    /** Escribe el snapshot de forma atómica y forzada a disco. */
+    static void write(Path dir, long lsn, byte[] body) throws IOException {
+        Path destino = snapshotPath(dir, lsn);
+        Path tmp = dir.resolve(destino.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buf = ByteBuffer.wrap(body);
+            while (buf.hasRemaining()) ch.write(buf);
+            ch.force(true);
+        }
+        Files.move(tmp, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    static Path snapshotPath(Path dir, long lsn) {
+        return dir.resolve(String.format("%s%020d%s", PREFIX, lsn, SUFFIX));
+    }
+
+    /** LSN de cada snapshot presente en {@code dir}, en orden ascendente. */
+    static List<Long> listSnapshots(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith(PREFIX) && n.endsWith(SUFFIX))
+                    .map(n -> Long.parseLong(n.substring(PREFIX.length(), n.length() - SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
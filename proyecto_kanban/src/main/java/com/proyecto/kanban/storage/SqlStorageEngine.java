@@ -0,0 +1,874 @@
+package com.proyecto.kanban.storage;
+
+import com.proyecto.kanban.exceptions.AlmacenamientoException;
+import com.proyecto.kanban.model.CerrojosProyecto;
+import com.proyecto.kanban.model.ClaveId;
+import com.proyecto.kanban.model.Etiqueta;
+import com.proyecto.kanban.model.EstadoTarea;
+import com.proyecto.kanban.model.FechaLimite;
+import com.proyecto.kanban.model.FuenteTareas;
+import com.proyecto.kanban.model.ObservadorTareas;
+import com.proyecto.kanban.model.Prioridad;
+import com.proyecto.kanban.model.Proyecto;
+import com.proyecto.kanban.model.Tarea;
+import com.proyecto.kanban.model.Usuario;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Motor de almacenamiento sobre una base de datos H2 embebida (en proceso, en archivo).
+ *
+ * Diseño:
+ * - Tablas indexadas para usuarios (por email normalizado), proyectos, membresías
+ *   (por usuario), tareas (por proyecto/estado/prioridad y por asignado) y etiquetas
+ *   (por proyecto/nombre). {@link #proyectosDeUsuario} y {@link #buscarTareas} son
+ *   consultas sobre esos índices.
+ * - Carga bajo demanda: solo se materializan los objetos consultados. Las tareas
+ *   de un proyecto se leen por bloques de posiciones al accederlas y
+ *   {@link #paginaTareas} usa {@code LIMIT}, de modo que la historia completa no
+ *   necesita estar en el heap.
+ * - Una caché de identidad garantiza que el mismo id devuelve siempre la misma
+ *   instancia, porque la UI trabaja por referencia.
+ * - Las escrituras se acumulan y se coalescen (la última versión de cada tarea
+ *   gana) y se envían con sentencias preparadas en lote, en una sola transacción.
+ *   Cualquier consulta vacía antes el lote pendiente.
+ *
+ * Las tareas y etiquetas se guardan con su id; la tarea conserva además su
+ * posición en el proyecto, que da el orden y permite cargarlas por rangos. El
+ * observador de cada proyecto ({@link ObservadorTareas}) avisa de las tareas que
+ * salen de la lista, que se borran, y de las que cambian de posición, que se vuelven
+ * a escribir con la nueva.
+ * {@link #buscarTareaPorId} resuelve primero contra la caché de identidad y, si
+ * la tarea no se ha cargado, con una consulta por clave primaria.
+ *
+ * Concurrencia: la conexión JDBC, las cachés y el lote pendiente se protegen con
+ * el monitor de este objeto. Las tareas de un proyecto se cargan con el cerrojo del
+ * proyecto tomado ({@link CerrojosProyecto}) y el monitor solo durante la consulta,
+ * siempre en ese orden; la búsqueda de tareas ya cargadas por id no toma ninguno.
+ *
+ * Requiere el driver de H2 en tiempo de ejecución (dependencia {@code com.h2database:h2}).
+ */
+public class SqlStorageEngine implements StorageEngine {
+
+    /** Número de cambios pendientes que dispara un envío del lote. */
+    private static final int LOTE_MAXIMO = 500;
+
+    private static final String[] ESQUEMA = {
+        "CREATE TABLE IF NOT EXISTS usuarios (fila BIGINT GENERATED BY DEFAULT AS IDENTITY, "
+            + "id VARCHAR(64) PRIMARY KEY, nombre VARCHAR, email VARCHAR, email_norm VARCHAR)",
+        "CREATE INDEX IF NOT EXISTS ix_usuarios_email ON usuarios(email_norm)",
+        "CREATE TABLE IF NOT EXISTS proyectos (fila BIGINT GENERATED BY DEFAULT AS IDENTITY, "
+            + "id VARCHAR(64) PRIMARY KEY, nombre VARCHAR, descripcion VARCHAR)",
+        "CREATE TABLE IF NOT EXISTS miembros (proyecto_id VARCHAR(64), usuario_id VARCHAR(64), "
+            + "PRIMARY KEY (proyecto_id, usuario_id))",
+        "CREATE INDEX IF NOT EXISTS ix_miembros_usuario ON miembros(usuario_id)",
+        "CREATE TABLE IF NOT EXISTS tareas (id VARCHAR(64) PRIMARY KEY, proyecto_id VARCHAR(64), posicion INT, "
+            + "titulo VARCHAR, descripcion VARCHAR, asignado_id VARCHAR(64), fecha_limite DATE, "
+            + "fecha_limite_hora TIMESTAMP, prioridad TINYINT, estado TINYINT, creada TIMESTAMP, "
+            + "inicio TIMESTAMP, cierre TIMESTAMP)",
+        "CREATE UNIQUE INDEX IF NOT EXISTS ix_tareas_posicion ON tareas(proyecto_id, posicion)",
+        "CREATE INDEX IF NOT EXISTS ix_tareas_estado ON tareas(proyecto_id, estado, prioridad)",
+        "CREATE INDEX IF NOT EXISTS ix_tareas_asignado ON tareas(asignado_id)",
+        "CREATE TABLE IF NOT EXISTS etiquetas (tarea_id VARCHAR(64), orden INT, id VARCHAR(64), "
+            + "proyecto_id VARCHAR(64), nombre VARCHAR, nombre_norm VARCHAR, color VARCHAR, "
+            + "PRIMARY KEY (tarea_id, orden))",
+        "CREATE INDEX IF NOT EXISTS ix_etiquetas_nombre ON etiquetas(proyecto_id, nombre_norm, tarea_id)",
+    };
+
+    private record ClaveMiembro(String proyectoId, String usuarioId) {}
+
+    private final Connection conn;
+
+    // Caché de identidad de lo ya materializado
+    private final Map<String, Usuario> usuarios = new HashMap<>();
+    private final Map<String, Proyecto> proyectos = new HashMap<>();
+    // Solo las ya cargadas; la alimenta el observador de cada proyecto, que se llama
+    // con el cerrojo del proyecto y sin el de este motor
+    private final Map<ClaveId, Tarea> tareas = new ConcurrentHashMap<>();
+    // Usuarios materializados por email normalizado: los login repetidos no consultan la base
+    private final Map<String, Usuario> usuariosPorEmail = new HashMap<>();
+
+    // Cambios pendientes de enviar (coalescidos por clave)
+    private final Map<String, Usuario> usuariosNuevos = new LinkedHashMap<>();
+    private final Map<String, Proyecto> proyectosNuevos = new LinkedHashMap<>();
+    private final Map<ClaveMiembro, Boolean> membresias = new LinkedHashMap<>();
+    private final Map<ClaveId, Tarea> tareasSucias = new LinkedHashMap<>();
+    // Posición que hay que escribir: tareas nuevas y tareas que cambiaron de posición
+    // (las demás solo se actualizan)
+    private final Map<ClaveId, Integer> posicionesNuevas = new HashMap<>();
+    // Tareas ya guardadas que cambiaron de posición: se les quita antes de escribir las nuevas
+    private final Set<String> idsReubicados = new HashSet<>();
+    // Tareas que salieron de la lista de su proyecto
+    private final Set<String> tareasBorradas = new LinkedHashSet<>();
+
+    private SqlStorageEngine(Connection conn) {
+        this.conn = conn;
+    }
+
+    /**
+     * Abre (o crea) la base de datos. {@code archivoBase} es la ruta sin extensión;
+     * H2 crea a su lado el archivo {@code .mv.db}.
+     */
+    public static SqlStorageEngine open(Path archivoBase) {
+        String url = "jdbc:h2:file:" + archivoBase.toAbsolutePath();
+        try {
+            Connection conn = DriverManager.getConnection(url, "sa", "");
+            try {
+                conn.setAutoCommit(false);
+                comprobarEsquemaAnterior(conn);
+                try (Statement st = conn.createStatement()) {
+                    for (String ddl : ESQUEMA) st.execute(ddl);
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException ex) {
+                conn.close();
+                throw ex;
+            }
+            return new SqlStorageEngine(conn);
+        } catch (SQLException ex) {
+            if (ex.getMessage() != null && ex.getMessage().contains("No suitable driver")) {
+                throw new IllegalStateException("Driver H2 no encontrado en el classpath", ex);
+            }
+            throw new AlmacenamientoException("No se pudo abrir la base de datos " + url, ex);
+        }
+    }
+
+    /** Las bases creadas antes de los ids de tarea no son compatibles con este esquema. */
+    private static void comprobarEsquemaAnterior(Connection conn) throws SQLException {
+        boolean tablaTareas;
+        boolean columnaId;
+        try (ResultSet rs = conn.getMetaData().getTables(null, null, "TAREAS", null)) {
+            tablaTareas = rs.next();
+        }
+        try (ResultSet rs = conn.getMetaData().getColumns(null, null, "TAREAS", "ID")) {
+            columnaId = rs.next();
+        }
+        if (tablaTareas && !columnaId) {
+            throw new AlmacenamientoException("La base de datos usa un esquema anterior (tareas sin id); "
+                    + "expórtala con la versión previa o elimina el archivo", null);
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Consultas
+    // ---------------------------------------------------------------------
+
+    @Override
+    public synchronized List<Usuario> getUsuarios() {
+        flush();
+        List<Usuario> lista = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT id, nombre, email FROM usuarios ORDER BY fila");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) lista.add(usuarioDesdeFila(rs));
+        } catch (SQLException ex) {
+            throw error("listar usuarios", ex);
+        }
+        return lista;
+    }
+
+    @Override
+    public synchronized List<Proyecto> getProyectos() {
+        flush();
+        return consultarProyectos("SELECT id, nombre, descripcion FROM proyectos ORDER BY fila", null);
+    }
+
+    @Override
+    public synchronized Optional<Usuario> buscarUsuarioPorEmail(String email) {
+        if (email == null) return Optional.empty();
+        String clave = normalizar(email);
+        Usuario cacheado = usuariosPorEmail.get(clave);
+        if (cacheado != null && clave.equals(normalizar(cacheado.getEmail()))) return Optional.of(cacheado);
+        flush();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT id, nombre, email FROM usuarios WHERE email_norm = ? ORDER BY fila LIMIT 1")) {
+            ps.setString(1, clave);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? Optional.of(usuarioDesdeFila(rs)) : Optional.empty();
+            }
+        } catch (SQLException ex) {
+            throw error("buscar usuario", ex);
+        }
+    }
+
+    @Override
+    public synchronized List<Proyecto> proyectosDeUsuario(Usuario usuario) {
+        if (usuario == null) return List.of();
+        flush();
+        return consultarProyectos("SELECT p.id, p.nombre, p.descripcion FROM miembros m "
+                + "JOIN proyectos p ON p.id = m.proyecto_id WHERE m.usuario_id = ? ORDER BY p.fila", usuario.getId());
+    }
+
+    @Override
+    public synchronized Optional<Proyecto> buscarProyectoPorId(String id) {
+        Proyecto cacheado = proyectos.get(id);
+        if (cacheado != null) return Optional.of(cacheado);
+        flush();
+        List<Proyecto> lista = consultarProyectos("SELECT id, nombre, descripcion FROM proyectos WHERE id = ?", id);
+        return lista.isEmpty() ? Optional.empty() : Optional.of(lista.get(0));
+    }
+
+    @Override
+    public Optional<Tarea> buscarTareaPorId(String id) {
+        Tarea cacheada = tareas.get(ClaveId.de(id));
+        if (cacheada != null && cacheada.isEnProyecto()) return Optional.of(cacheada);
+        Ubicacion u = ubicarTarea(id);
+        if (u == null) return Optional.empty();
+        Optional<Proyecto> p = buscarProyectoPorId(u.proyectoId());
+        if (p.isEmpty()) return Optional.empty();
+        // Cargar el bloque registra la tarea en la caché a través del observador. Se
+        // hace con el cerrojo del proyecto y fuera del monitor del motor (orden: proyecto, motor);
+        // quien llama puede tener ya el de otro proyecto, así que se respeta el orden de franjas
+        List<Tarea> todas = p.get().getTareas();
+        return Optional.ofNullable(CerrojosProyecto.escribirEnOrden(p.get(),
+                () -> u.posicion() < todas.size() ? todas.get(u.posicion()) : null));
+    }
+
+    @Override
+    public List<Tarea> buscarTareas(Proyecto proyecto, FiltroTareas filtro) {
+        List<Tarea> todas = proyecto.getTareas();
+        List<Tarea> resultado = new ArrayList<>();
+        for (int pos : posicionesFiltradas(proyecto, filtro, 0, -1)) {
+            if (pos < todas.size()) resultado.add(todas.get(pos));
+        }
+        return resultado;
+    }
+
+    /**
+     * Página resuelta con {@code LIMIT}: solo se cargan los bloques de las tareas
+     * devueltas. Si el proyecto ya está entero en memoria bastan sus bitmaps.
+     */
+    @Override
+    public PaginaTareas paginaTareas(Proyecto proyecto, FiltroTareas filtro, int desde, int limite) {
+        if (!proyecto.hayTareasPendientes()) return StorageEngine.super.paginaTareas(proyecto, filtro, desde, limite);
+        List<Integer> posiciones = posicionesFiltradas(proyecto, filtro, desde, limite + 1);
+        List<Tarea> todas = proyecto.getTareas();
+        List<Tarea> pagina = new ArrayList<>(Math.min(limite, posiciones.size()));
+        for (int i = 0; i < posiciones.size() && i < limite; i++) {
+            int pos = posiciones.get(i);
+            if (pos < todas.size()) pagina.add(todas.get(pos));
+        }
+        return posiciones.size() > limite
+                ? PaginaTareas.conContinuacion(pagina, posiciones.get(limite))
+                : PaginaTareas.ultima(pagina);
+    }
+
+    /** Posiciones de las tareas que cumplen el filtro a partir de {@code desde}; {@code limite < 0} = sin límite. */
+    private synchronized List<Integer> posicionesFiltradas(Proyecto proyecto, FiltroTareas filtro, int desde, int limite) {
+        flush();
+        StringBuilder sql = new StringBuilder("SELECT t.posicion FROM tareas t WHERE t.proyecto_id = ?");
+        List<Object> params = new ArrayList<>();
+        params.add(proyecto.getId());
+        if (desde > 0) {
+            sql.append(" AND t.posicion >= ?");
+            params.add(desde);
+        }
+        if (filtro.estado() != null) {
+            sql.append(" AND t.estado = ?");
+            params.add(filtro.estado().ordinal());
+        }
+        if (filtro.prioridad() != null) {
+            sql.append(" AND t.prioridad = ?");
+            params.add(filtro.prioridad().ordinal());
+        }
+        if (filtro.asignado() != null) {
+            sql.append(" AND t.asignado_id = ?");
+            params.add(filtro.asignado().getId());
+        }
+        if (filtro.etiqueta() != null) {
+            sql.append(" AND EXISTS (SELECT 1 FROM etiquetas e WHERE e.proyecto_id = t.proyecto_id")
+               .append(" AND e.nombre_norm = ? AND e.tarea_id = t.id)");
+            params.add(normalizar(filtro.etiqueta()));
+        }
+        sql.append(" ORDER BY t.posicion");
+        if (limite >= 0) {
+            sql.append(" LIMIT ?");
+            params.add(limite);
+        }
+
+        List<Integer> posiciones = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) ps.setObject(i + 1, params.get(i));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) posiciones.add(rs.getInt(1));
+            }
+        } catch (SQLException ex) {
+            throw error("buscar tareas", ex);
+        }
+        return posiciones;
+    }
+
+    // ---------------------------------------------------------------------
+    // Escrituras (acumuladas en lote)
+    // ---------------------------------------------------------------------
+
+    @Override
+    public synchronized void agregarUsuario(Usuario usuario) {
+        usuarios.put(usuario.getId(), usuario);
+        usuariosPorEmail.putIfAbsent(normalizar(usuario.getEmail()), usuario);
+        usuariosNuevos.put(usuario.getId(), usuario);
+        cambioPendiente();
+    }
+
+    /** Comprueba los emails existentes con una consulta {@code IN} por lote y encola las altas. */
+    @Override
+    public synchronized List<Usuario> importarUsuarios(Collection<Usuario> nuevos) {
+        flush();
+        List<Usuario> lote = new ArrayList<>(nuevos);
+        Set<String> ocupados = new HashSet<>();
+        try {
+            for (int desde = 0; desde < lote.size(); desde += LOTE_MAXIMO) {
+                List<Usuario> tramo = lote.subList(desde, Math.min(lote.size(), desde + LOTE_MAXIMO));
+                String marcas = String.join(", ", Collections.nCopies(tramo.size(), "?"));
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT email_norm FROM usuarios WHERE email_norm IN (" + marcas + ")")) {
+                    for (int i = 0; i < tramo.size(); i++) ps.setString(i + 1, normalizar(tramo.get(i).getEmail()));
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) ocupados.add(rs.getString(1));
+                    }
+                }
+            }
+        } catch (SQLException ex) {
+            throw error("importar usuarios", ex);
+        }
+        List<Usuario> agregados = new ArrayList<>();
+        for (Usuario u : lote) {
+            if (ocupados.add(normalizar(u.getEmail()))) {
+                agregarUsuario(u);
+                agregados.add(u);
+            }
+        }
+        return agregados;
+    }
+
+    /**
+     * Borra todos los usuarios y da de alta los de la lista, en una transacción. Las
+     * membresías y asignaciones de los que desaparecen se quedan en la base, pero al
+     * materializar se omiten (como cualquier referencia a un usuario inexistente).
+     */
+    @Override
+    public synchronized void setUsuarios(List<Usuario> lista) {
+        flush();
+        vaciar("reemplazar usuarios", "DELETE FROM usuarios");
+        usuarios.clear();
+        usuariosPorEmail.clear();
+        for (Usuario u : lista) {
+            usuarios.put(u.getId(), u);
+            usuariosPorEmail.putIfAbsent(normalizar(u.getEmail()), u);
+            usuariosNuevos.put(u.getId(), u);
+        }
+        confirmar("reemplazar usuarios");
+    }
+
+    /**
+     * Borra todos los proyectos con sus miembros, tareas y etiquetas y da de alta los
+     * de la lista, en una transacción. Las tareas de la lista que aún están en la base
+     * se cargan antes de borrarlas, cada proyecto con su cerrojo (orden: proyecto, motor).
+     */
+    @Override
+    public void setProyectos(List<Proyecto> lista) {
+        for (Proyecto p : lista) {
+            if (p.hayTareasPendientes()) CerrojosProyecto.modificar(p, p::cargarTodasLasTareas);
+        }
+        reemplazarProyectos(lista);
+    }
+
+    private synchronized void reemplazarProyectos(List<Proyecto> lista) {
+        flush();
+        vaciar("reemplazar proyectos",
+                "DELETE FROM etiquetas", "DELETE FROM tareas", "DELETE FROM miembros", "DELETE FROM proyectos");
+        // Los proyectos que se van dejan de avisar a este motor
+        for (Proyecto anterior : proyectos.values()) anterior.setObservadorTareas(null);
+        proyectos.clear();
+        tareas.clear();
+        for (Proyecto p : lista) {
+            proyectos.put(p.getId(), p);
+            proyectosNuevos.put(p.getId(), p);
+            for (Usuario m : p.getMiembros()) {
+                membresias.put(new ClaveMiembro(p.getId(), m.getId()), Boolean.TRUE);
+            }
+            List<Tarea> todas = p.getTareas();
+            for (int i = 0; i < todas.size(); i++) {
+                Tarea t = todas.get(i);
+                posicionesNuevas.put(t.getClaveId(), i);
+                tareasSucias.put(t.getClaveId(), t);
+            }
+            p.setObservadorTareas(observador(p));
+        }
+        confirmar("reemplazar proyectos");
+    }
+
+    /** Ejecuta los borrados sin confirmarlos, para hacerlo junto con las altas en {@link #confirmar}. */
+    private void vaciar(String operacion, String... borrados) {
+        try (Statement st = conn.createStatement()) {
+            for (String sql : borrados) st.executeUpdate(sql);
+        } catch (SQLException ex) {
+            try {
+                conn.rollback();
+            } catch (SQLException ignored) {
+                // se informa el error original
+            }
+            throw error(operacion, ex);
+        }
+    }
+
+    /** Envía las altas encoladas y confirma; sin altas, {@link #flush()} no confirmaría los borrados. */
+    private void confirmar(String operacion) {
+        flush();
+        try {
+            conn.commit();
+        } catch (SQLException ex) {
+            throw error(operacion, ex);
+        }
+    }
+
+    @Override
+    public synchronized void agregarProyecto(Proyecto proyecto) {
+        proyectos.put(proyecto.getId(), proyecto);
+        proyectosNuevos.put(proyecto.getId(), proyecto);
+        proyecto.setObservadorTareas(observador(proyecto));
+        for (Usuario m : proyecto.getMiembros()) {
+            membresias.put(new ClaveMiembro(proyecto.getId(), m.getId()), Boolean.TRUE);
+        }
+        cambioPendiente();
+    }
+
+    @Override
+    public synchronized void miembroAgregado(Proyecto proyecto, Usuario usuario) {
+        membresias.put(new ClaveMiembro(proyecto.getId(), usuario.getId()), Boolean.TRUE);
+        cambioPendiente();
+    }
+
+    @Override
+    public synchronized void miembroEliminado(Proyecto proyecto, Usuario usuario) {
+        membresias.put(new ClaveMiembro(proyecto.getId(), usuario.getId()), Boolean.FALSE);
+        cambioPendiente();
+    }
+
+    @Override
+    public synchronized void tareaAgregada(Proyecto proyecto, Tarea tarea) {
+        // agregarTarea añade al final: lo normal es que sea la última posición
+        List<Tarea> lista = proyecto.getTareas();
+        int pos = lista.size() - 1;
+        if (pos < 0 || lista.get(pos) != tarea) pos = lista.indexOf(tarea);
+        if (pos < 0) return;
+        posicionesNuevas.put(tarea.getClaveId(), pos);
+        tareasSucias.put(tarea.getClaveId(), tarea);
+        cambioPendiente();
+    }
+
+    @Override
+    public synchronized void tareaModificada(Tarea tarea) {
+        if (tarea.getProyecto() == null) return;
+        tareasSucias.put(tarea.getClaveId(), tarea);
+        cambioPendiente();
+    }
+
+    /** Todas pasan a pendientes antes de comprobar el lote, así un flush las envía en la misma transacción. */
+    @Override
+    public synchronized void tareasModificadas(Collection<Tarea> tareas) {
+        for (Tarea t : tareas) {
+            if (t.getProyecto() != null) tareasSucias.put(t.getClaveId(), t);
+        }
+        cambioPendiente();
+    }
+
+    private void cambioPendiente() {
+        int pendientes = usuariosNuevos.size() + proyectosNuevos.size() + membresias.size() + tareasSucias.size()
+                + tareasBorradas.size();
+        if (pendientes >= LOTE_MAXIMO) flush();
+    }
+
+    /** Envía todos los cambios pendientes en una transacción, con una sentencia en lote por tabla. */
+    @Override
+    public synchronized void flush() {
+        if (usuariosNuevos.isEmpty() && proyectosNuevos.isEmpty() && membresias.isEmpty() && tareasSucias.isEmpty()
+                && tareasBorradas.isEmpty()) {
+            return;
+        }
+        try {
+            if (!usuariosNuevos.isEmpty()) {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "MERGE INTO usuarios (id, nombre, email, email_norm) KEY (id) VALUES (?, ?, ?, ?)")) {
+                    for (Usuario u : usuariosNuevos.values()) {
+                        ps.setString(1, u.getId());
+                        ps.setString(2, u.getNombre());
+                        ps.setString(3, u.getEmail());
+                        ps.setString(4, normalizar(u.getEmail()));
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+            }
+            if (!proyectosNuevos.isEmpty()) {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "MERGE INTO proyectos (id, nombre, descripcion) KEY (id) VALUES (?, ?, ?)")) {
+                    for (Proyecto p : proyectosNuevos.values()) {
+                        ps.setString(1, p.getId());
+                        ps.setString(2, p.getNombre());
+                        ps.setString(3, p.getDescripcion());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+            }
+            if (!membresias.isEmpty()) {
+                try (PreparedStatement alta = conn.prepareStatement(
+                        "MERGE INTO miembros (proyecto_id, usuario_id) KEY (proyecto_id, usuario_id) VALUES (?, ?)");
+                     PreparedStatement baja = conn.prepareStatement(
+                        "DELETE FROM miembros WHERE proyecto_id = ? AND usuario_id = ?")) {
+                    for (Map.Entry<ClaveMiembro, Boolean> e : membresias.entrySet()) {
+                        PreparedStatement ps = e.getValue() ? alta : baja;
+                        ps.setString(1, e.getKey().proyectoId());
+                        ps.setString(2, e.getKey().usuarioId());
+                        ps.addBatch();
+                    }
+                    alta.executeBatch();
+                    baja.executeBatch();
+                }
+            }
+            if (!tareasBorradas.isEmpty()) borrarTareas();
+            if (!tareasSucias.isEmpty()) escribirTareas();
+            conn.commit();
+        } catch (SQLException ex) {
+            try {
+                conn.rollback();
+            } catch (SQLException ignored) {
+                // se informa el error original
+            }
+            throw error("guardar cambios", ex);
+        }
+        usuariosNuevos.clear();
+        proyectosNuevos.clear();
+        membresias.clear();
+        tareasSucias.clear();
+        posicionesNuevas.clear();
+        idsReubicados.clear();
+        tareasBorradas.clear();
+    }
+
+    private void borrarTareas() throws SQLException {
+        try (PreparedStatement etiquetas = conn.prepareStatement("DELETE FROM etiquetas WHERE tarea_id = ?");
+             PreparedStatement filas = conn.prepareStatement("DELETE FROM tareas WHERE id = ?")) {
+            for (String id : tareasBorradas) {
+                etiquetas.setString(1, id);
+                etiquetas.addBatch();
+                filas.setString(1, id);
+                filas.addBatch();
+            }
+            etiquetas.executeBatch();
+            filas.executeBatch();
+        }
+    }
+
+    private void escribirTareas() throws SQLException {
+        if (!idsReubicados.isEmpty()) {
+            // Sin posición primero: al escribir las nuevas no chocan con las antiguas (índice único)
+            try (PreparedStatement ps = conn.prepareStatement("UPDATE tareas SET posicion = NULL WHERE id = ?")) {
+                for (String id : idsReubicados) {
+                    ps.setString(1, id);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+        try (PreparedStatement altas = conn.prepareStatement(
+                "MERGE INTO tareas (titulo, descripcion, asignado_id, fecha_limite, fecha_limite_hora, prioridad, "
+                + "estado, creada, inicio, cierre, id, proyecto_id, posicion) KEY (id) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+             PreparedStatement cambios = conn.prepareStatement(
+                "UPDATE tareas SET titulo = ?, descripcion = ?, asignado_id = ?, fecha_limite = ?, "
+                + "fecha_limite_hora = ?, prioridad = ?, estado = ?, creada = ?, inicio = ?, cierre = ? WHERE id = ?");
+             PreparedStatement borrarEtiquetas = conn.prepareStatement(
+                "DELETE FROM etiquetas WHERE tarea_id = ?");
+             PreparedStatement etiquetas = conn.prepareStatement(
+                "INSERT INTO etiquetas (tarea_id, orden, id, proyecto_id, nombre, nombre_norm, color) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            for (Tarea t : tareasSucias.values()) {
+                String proyectoId = t.getProyecto().getId();
+                Integer posicion = posicionesNuevas.get(t.getClaveId());
+                PreparedStatement ps = posicion != null ? altas : cambios;
+                FechaLimite limite = t.getFechaLimite();
+                ps.setString(1, t.getTitulo());
+                ps.setString(2, t.getDescripcion());
+                ps.setString(3, t.getAsignadoA() != null ? t.getAsignadoA().getId() : null);
+                ps.setObject(4, limite != null ? limite.getFecha() : null, Types.DATE);
+                ps.setObject(5, limite != null ? limite.getFechaHora() : null, Types.TIMESTAMP);
+                setOrdinal(ps, 6, t.getPrioridad());
+                setOrdinal(ps, 7, t.getEstado());
+                ps.setObject(8, t.getFechaCreacion(), Types.TIMESTAMP);
+                ps.setObject(9, t.getFechaInicio(), Types.TIMESTAMP);
+                ps.setObject(10, t.getFechaCierre(), Types.TIMESTAMP);
+                ps.setString(11, t.getId());
+                if (posicion != null) {
+                    ps.setString(12, proyectoId);
+                    ps.setInt(13, posicion);
+                }
+                ps.addBatch();
+
+                borrarEtiquetas.setString(1, t.getId());
+                borrarEtiquetas.addBatch();
+
+                List<Etiqueta> lista = t.getEtiquetas();
+                for (int i = 0; i < lista.size(); i++) {
+                    Etiqueta et = lista.get(i);
+                    etiquetas.setString(1, t.getId());
+                    etiquetas.setInt(2, i);
+                    etiquetas.setString(3, et.getId());
+                    etiquetas.setString(4, proyectoId);
+                    etiquetas.setString(5, et.getNombre());
+                    etiquetas.setString(6, normalizar(et.getNombre()));
+                    etiquetas.setString(7, et.getColor());
+                    etiquetas.addBatch();
+                }
+            }
+            altas.executeBatch();
+            cambios.executeBatch();
+            borrarEtiquetas.executeBatch();
+            etiquetas.executeBatch();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+            conn.close();
+        } catch (SQLException | AlmacenamientoException ex) {
+            throw new IOException("No se pudo cerrar la base de datos", ex);
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Materialización
+    // ---------------------------------------------------------------------
+
+    private Usuario usuarioDesdeFila(ResultSet rs) throws SQLException {
+        String id = rs.getString(1);
+        Usuario cacheado = usuarios.get(id);
+        if (cacheado != null) return cacheado;
+        Usuario u = new Usuario(id, rs.getString(2), rs.getString(3));
+        usuarios.put(id, u);
+        usuariosPorEmail.putIfAbsent(normalizar(u.getEmail()), u);
+        return u;
+    }
+
+    private Usuario usuarioPorId(String id) throws SQLException {
+        if (id == null) return null;
+        Usuario cacheado = usuarios.get(id);
+        if (cacheado != null) return cacheado;
+        try (PreparedStatement ps = conn.prepareStatement("SELECT id, nombre, email FROM usuarios WHERE id = ?")) {
+            ps.setString(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? usuarioDesdeFila(rs) : null;
+            }
+        }
+    }
+
+    private List<Proyecto> consultarProyectos(String sql, String parametro) {
+        List<Proyecto> lista = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (parametro != null) ps.setString(1, parametro);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String id = rs.getString(1);
+                    Proyecto p = proyectos.get(id);
+                    if (p == null) {
+                        p = new Proyecto(id, rs.getString(2), rs.getString(3));
+                        proyectos.put(id, p);
+                        materializarProyecto(p);
+                    }
+                    lista.add(p);
+                }
+            }
+        } catch (SQLException ex) {
+            throw error("listar proyectos", ex);
+        }
+        return lista;
+    }
+
+    /** Carga los miembros y deja las tareas como fuente paginada sobre la tabla. */
+    private void materializarProyecto(Proyecto p) throws SQLException {
+        List<String> ids = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT usuario_id FROM miembros WHERE proyecto_id = ?")) {
+            ps.setString(1, p.getId());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) ids.add(rs.getString(1));
+            }
+        }
+        for (String id : ids) {
+            Usuario u = usuarioPorId(id);
+            if (u != null) p.agregarMiembro(u);
+        }
+        int total;
+        try (PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM tareas WHERE proyecto_id = ?")) {
+            ps.setString(1, p.getId());
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                total = rs.getInt(1);
+            }
+        }
+        p.setFuenteTareas(new FuenteTareas() {
+            @Override
+            public int contar() { return total; }
+
+            @Override
+            public List<Tarea> cargar(int desde, int cantidad) { return cargarTareas(p, desde, cantidad); }
+
+            @Override
+            public int posicionDe(String tareaId) {
+                Ubicacion u = ubicarTarea(tareaId);
+                return u != null && u.proyectoId().equals(p.getId()) ? u.posicion() : -1;
+            }
+        });
+        p.setObservadorTareas(observador(p));
+    }
+
+    private record Ubicacion(String proyectoId, int posicion) {}
+
+    /** Proyecto y posición de una tarea guardada, o {@code null} si no existe. */
+    private synchronized Ubicacion ubicarTarea(String tareaId) {
+        flush();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT proyecto_id, posicion FROM tareas WHERE id = ?")) {
+            ps.setString(1, tareaId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? new Ubicacion(rs.getString(1), rs.getInt(2)) : null;
+            }
+        } catch (SQLException ex) {
+            throw error("buscar tarea", ex);
+        }
+    }
+
+    /** Observador de las tareas del proyecto: registro por id, bajas y cambios de posición. */
+    private ObservadorTareas observador(Proyecto p) {
+        return new ObservadorTareas() {
+            @Override
+            public void cargada(Tarea tarea) {
+                tareas.put(tarea.getClaveId(), tarea);
+            }
+
+            @Override
+            public void quitada(Tarea tarea) {
+                tareaQuitada(tarea);
+            }
+
+            @Override
+            public void reordenadas(int desde, int hasta) {
+                tareasReordenadas(p, desde, hasta);
+            }
+        };
+    }
+
+    private synchronized void tareaQuitada(Tarea tarea) {
+        ClaveId clave = tarea.getClaveId();
+        tareas.remove(clave, tarea);
+        tareasSucias.remove(clave);
+        posicionesNuevas.remove(clave);
+        idsReubicados.remove(tarea.getId());
+        tareasBorradas.add(tarea.getId());
+    }
+
+    /** Se llama con el cerrojo del proyecto: las tareas del tramo están en memoria. */
+    private synchronized void tareasReordenadas(Proyecto p, int desde, int hasta) {
+        List<Tarea> lista = p.getTareas();
+        for (int i = desde; i < hasta; i++) {
+            Tarea t = lista.get(i);
+            // Una tarea metida en la lista sin agregarTarea no tiene proyecto: no se guarda
+            if (t.getProyecto() == null) continue;
+            posicionesNuevas.put(t.getClaveId(), i);
+            tareasSucias.put(t.getClaveId(), t);
+            idsReubicados.add(t.getId());
+        }
+        cambioPendiente();
+    }
+
+    /** Lee las tareas en posiciones {@code [desde, desde + cantidad)} con sus etiquetas. */
+    private synchronized List<Tarea> cargarTareas(Proyecto p, int desde, int cantidad) {
+        Map<Integer, Tarea> porPosicion = new LinkedHashMap<>();
+        Map<ClaveId, Tarea> porId = new HashMap<>();
+        try {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT posicion, titulo, descripcion, asignado_id, fecha_limite, fecha_limite_hora, "
+                    + "prioridad, estado, creada, inicio, cierre, id FROM tareas "
+                    + "WHERE proyecto_id = ? AND posicion >= ? AND posicion < ? ORDER BY posicion")) {
+                ps.setString(1, p.getId());
+                ps.setInt(2, desde);
+                ps.setInt(3, desde + cantidad);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Tarea t = tareaDesdeFila(rs);
+                        porPosicion.put(rs.getInt(1), t);
+                        porId.put(t.getClaveId(), t);
+                    }
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT e.tarea_id, e.id, e.nombre, e.color FROM etiquetas e JOIN tareas t ON t.id = e.tarea_id "
+                    + "WHERE t.proyecto_id = ? AND t.posicion >= ? AND t.posicion < ? ORDER BY t.posicion, e.orden")) {
+                ps.setString(1, p.getId());
+                ps.setInt(2, desde);
+                ps.setInt(3, desde + cantidad);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Tarea t = porId.get(ClaveId.de(rs.getString(1)));
+                        if (t != null) t.agregarEtiqueta(new Etiqueta(rs.getString(2), rs.getString(3), rs.getString(4)));
+                    }
+                }
+            }
+        } catch (SQLException ex) {
+            throw error("cargar tareas del proyecto " + p.getId(), ex);
+        }
+        return new ArrayList<>(porPosicion.values());
+    }
+
+    private Tarea tareaDesdeFila(ResultSet rs) throws SQLException {
+        LocalDateTime limiteHora = rs.getObject(6, LocalDateTime.class);
+        LocalDate limite = rs.getObject(5, LocalDate.class);
+        FechaLimite fechaLimite = limiteHora != null ? new FechaLimite(limiteHora)
+                : limite != null ? new FechaLimite(limite) : null;
+        int prioridad = rs.getInt(7);
+        Prioridad p = rs.wasNull() ? null : Prioridad.values()[prioridad];
+        int estado = rs.getInt(8);
+        EstadoTarea e = rs.wasNull() ? null : EstadoTarea.values()[estado];
+        Tarea t = new Tarea(rs.getString(12), rs.getString(2), rs.getString(3), usuarioPorId(rs.getString(4)),
+                fechaLimite, p, e);
+        t.restaurarFechas(rs.getObject(9, LocalDateTime.class), rs.getObject(10, LocalDateTime.class),
+                rs.getObject(11, LocalDateTime.class));
+        return t;
+    }
+
+    private static void setOrdinal(PreparedStatement ps, int indice, Enum<?> valor) throws SQLException {
+        if (valor == null) ps.setNull(indice, Types.TINYINT);
+        else ps.setInt(indice, valor.ordinal());
+    }
+
+    private static String normalizar(String s) {
+        return s == null ? null : s.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static AlmacenamientoException error(String operacion, SQLException ex) {
+        return new AlmacenamientoException("Error de base de datos al " + operacion + ": " + ex.getMessage(), ex);
+    }
+}
@@ -0,0 +1,123 @@
+package com.proyecto.kanban.storage;
+
+import com.proyecto.kanban.model.IndiceTareas;
+import com.proyecto.kanban.model.Proyecto;
+import com.proyecto.kanban.model.Tarea;
+import com.proyecto.kanban.model.TareasPaginadas;
+import com.proyecto.kanban.model.Usuario;
+import com.proyecto.kanban.util.RoaringBitmap;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * SPI del motor de almacenamiento que hay detrás de {@link Repository}.
+ *
+ * Implementaciones incluidas:
+ * - {@link InMemoryStorageEngine}: listas en memoria (comportamiento original).
+ * - {@link SqlStorageEngine}: base de datos H2 embebida en archivo, con tablas
+ *   indexadas y carga bajo demanda.
+ *
+ * Las altas de usuarios y proyectos entran por {@link #agregarUsuario} y
+ * {@link #agregarProyecto}; el resto de cambios (miembros, tareas) llegan como
+ * notificaciones de {@link ChangeJournal} desde los servicios.
+ */
+public interface StorageEngine extends ChangeJournal, AutoCloseable {
+
+    /** Todos los usuarios. En motores persistentes es una copia materializada. */
+    List<Usuario> getUsuarios();
+
+    /** Todos los proyectos. En motores persistentes es una copia materializada. */
+    List<Proyecto> getProyectos();
+
+    /** Sustituye todos los usuarios por los de la lista, en su orden. */
+    void setUsuarios(List<Usuario> usuarios);
+
+    /** Sustituye todos los proyectos (con sus miembros y tareas) por los de la lista, en su orden. */
+    void setProyectos(List<Proyecto> proyectos);
+
+    /** Busca un usuario por email sin distinguir mayúsculas. */
+    Optional<Usuario> buscarUsuarioPorEmail(String email);
+
+    void agregarUsuario(Usuario usuario);
+
+    /**
+     * Alta masiva: añade los usuarios cuyo email (sin distinguir mayúsculas) no
+     * está registrado ni repetido antes en el lote.
+     * @return los usuarios efectivamente añadidos, en el orden del lote
+     */
+    default List<Usuario> importarUsuarios(Collection<Usuario> usuarios) {
+        List<Usuario> agregados = new ArrayList<>();
+        for (Usuario u : usuarios) {
+            if (buscarUsuarioPorEmail(u.getEmail()).isEmpty()) {
+                agregarUsuario(u);
+                agregados.add(u);
+            }
+        }
+        return agregados;
+    }
+
+    void agregarProyecto(Proyecto proyecto);
+
+    /** Proyectos en los que el usuario es miembro, en orden de creación. */
+    List<Proyecto> proyectosDeUsuario(Usuario usuario);
+
+    /** Proyecto con ese id. Por defecto recorre {@link #getProyectos()}. */
+    default Optional<Proyecto> buscarProyectoPorId(String id) {
+        return getProyectos().stream().filter(p -> p.getId().equals(id)).findFirst();
+    }
+
+    /** Tarea con ese id, en cualquier proyecto. Por defecto recorre todas las tareas. */
+    default Optional<Tarea> buscarTareaPorId(String id) {
+        for (Proyecto p : getProyectos()) {
+            for (Tarea t : p.getTareas()) {
+                if (t.getId().equals(id)) return Optional.of(t);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /** Tareas del proyecto que cumplen el filtro, en el orden del proyecto. */
+    List<Tarea> buscarTareas(Proyecto proyecto, FiltroTareas filtro);
+
+    /**
+     * Hasta {@code limite} tareas que cumplen el filtro, empezando en la posición
+     * {@code desde} del proyecto. Solo carga los bloques necesarios para llenar la
+     * página; dentro de cada bloque las coincidencias salen de la intersección de
+     * los bitmaps de {@link Proyecto#getIndice()}, sin evaluar tarea por tarea.
+     */
+    default PaginaTareas paginaTareas(Proyecto proyecto, FiltroTareas filtro, int desde, int limite) {
+        List<Tarea> todas = proyecto.getTareas();
+        IndiceTareas indice = proyecto.getIndice();
+        List<Tarea> pagina = new ArrayList<>(Math.min(limite, 64));
+        RoaringBitmap coinciden = null;
+        long version = -1;
+        int pos = desde;
+        while (pos < todas.size()) {
+            int fin = todas.size();
+            if (proyecto.hayTareasPendientes()) {
+                fin = Math.min(fin, (pos / TareasPaginadas.TAMANO_BLOQUE + 1) * TareasPaginadas.TAMANO_BLOQUE);
+                todas.get(pos); // carga el bloque si aún no está en memoria (y lo indexa)
+            }
+            if (coinciden == null || version != indice.getVersion()) {
+                coinciden = filtro.coincidencias(indice);
+                version = indice.getVersion();
+            }
+            for (int i = coinciden.nextSetBit(pos); i >= 0 && i < fin; i = coinciden.nextSetBit(i + 1)) {
+                if (pagina.size() == limite) return PaginaTareas.conContinuacion(pagina, i);
+                pagina.add(todas.get(i));
+            }
+            pos = fin;
+        }
+        return PaginaTareas.ultima(pagina);
+    }
+
+    /** Escribe los cambios pendientes, si el motor los agrupa. */
+    default void flush() {}
+
+    @Override
+    default void close() throws IOException {}
+}
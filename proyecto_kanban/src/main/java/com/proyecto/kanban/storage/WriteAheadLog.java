@@ -0,0 +1,290 @@
+package com.proyecto.kanban.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Log de escritura anticipada (append-only) dividido en segmentos.
+ *
+ * Formato de cada registro: {@code [int longitud][int crc32][long lsn][byte tipo][payload]}.
+ * El CRC cubre lsn, tipo y payload; al recuperar, la lectura se detiene en el primer
+ * registro incompleto o corrupto (cola de una escritura interrumpida).
+ *
+ * Group commit: {@link #append} solo asigna el número de secuencia (LSN) y encola
+ * el registro. Un hilo escritor drena la cola por lotes, escribe todo el lote y
+ * hace un único {@code force()}, así una ráfaga de ediciones cuesta un solo fsync.
+ *
+ * Durabilidad: {@code append} vuelve antes de que el registro esté en disco. Si el
+ * proceso o la máquina caen antes del {@code force()} de su lote (lo que tarda en
+ * escribirse un lote, normalmente milisegundos) el registro se pierde aunque quien
+ * lo añadió ya lo diera por hecho. Quien necesite la garantía espera con
+ * {@link #sync} o {@link #awaitDurable}. Si el escritor falla, los registros de su
+ * lote se pierden igual, y desde ese momento {@code append} lanza el error en lugar
+ * de aceptar registros que ya no se van a escribir.
+ *
+ * Los segmentos se llaman {@code wal-<lsnInicial>.log}; {@link #roll} cierra el
+ * actual y abre uno nuevo para que el compactor pueda borrar los antiguos una
+ * vez que quedan cubiertos por un snapshot.
+ */
+final class WriteAheadLog implements AutoCloseable {
+
+    /** Registro ya leído del disco durante la recuperación. */
+    record Entry(long lsn, byte tipo, byte[] payload) {}
+
+    private static final int HEADER = 4 + 4 + 8 + 1;
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+    /** Marca interna en la cola que pide abrir un segmento nuevo. */
+    private static final byte ROLL = -1;
+
+    private final Path dir;
+    private final BlockingQueue<Pending> cola = new LinkedBlockingQueue<>();
+    private final Thread escritor;
+    private final Object durableLock = new Object();
+
+    private FileChannel canal;
+    private long siguienteLsn;
+    private long durableLsn;
+    private long segmentoActual;
+    private volatile boolean abierto = true;
+    private volatile IOException error;
+
+    private record Pending(long lsn, byte tipo, byte[] payload) {}
+
+    /**
+     * Abre el log para escritura. {@code siguienteLsn} debe ser el LSN siguiente
+     * al último registro recuperado; se abre un segmento nuevo que empieza ahí.
+     */
+    WriteAheadLog(Path dir, long siguienteLsn) throws IOException {
+        this.dir = dir;
+        this.siguienteLsn = siguienteLsn;
+        this.durableLsn = siguienteLsn - 1;
+        this.segmentoActual = siguienteLsn;
+        this.canal = abrirSegmento(siguienteLsn);
+        this.escritor = new Thread(this::bucleEscritor, "kanban-wal-writer");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    /**
+     * Encola un registro y devuelve su LSN. No espera a que llegue a disco.
+     * @throws IOException si el escritor ya falló: no se admiten más registros
+     */
+    synchronized long append(byte tipo, byte[] payload) throws IOException {
+        if (!abierto) throw new IllegalStateException("El log está cerrado");
+        comprobarEscritor();
+        long lsn = siguienteLsn++;
+        cola.add(new Pending(lsn, tipo, payload));
+        return lsn;
+    }
+
+    /**
+     * Cierra el segmento actual y empieza otro en el próximo LSN, que se devuelve.
+     * Todos los registros anteriores a ese LSN quedan en segmentos previos.
+     */
+    synchronized long roll() throws IOException {
+        comprobarEscritor();
+        cola.add(new Pending(siguienteLsn, ROLL, null));
+        return siguienteLsn;
+    }
+
+    private void comprobarEscritor() throws IOException {
+        IOException fallo = error;
+        if (fallo != null) throw new IOException("El log no pudo escribir en disco y no admite más registros", fallo);
+        if (!escritor.isAlive()) throw new IOException("El hilo escritor del log terminó");
+    }
+
+    /** Bloquea hasta que todo lo encolado hasta ahora esté en disco. */
+    void sync() throws IOException {
+        long objetivo;
+        synchronized (this) {
+            objetivo = siguienteLsn - 1;
+        }
+        awaitDurable(objetivo);
+    }
+
+    void awaitDurable(long lsn) throws IOException {
+        synchronized (durableLock) {
+            while (durableLsn < lsn && error == null && escritor.isAlive()) {
+                try {
+                    durableLock.wait(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrumpido esperando al log", e);
+                }
+            }
+        }
+        if (error != null) throw error;
+    }
+
+    /** Bloquea hasta que el hilo escritor haya abierto el segmento que empieza en {@code lsn}. */
+    void awaitRoll(long lsn) throws IOException {
+        synchronized (durableLock) {
+            while (segmentoActual < lsn && error == null && escritor.isAlive()) {
+                try {
+                    durableLock.wait(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrumpido esperando al log", e);
+                }
+            }
+        }
+        if (error != null) throw error;
+    }
+
+    private void bucleEscritor() {
+        List<Pending> lote = new ArrayList<>();
+        while (abierto || !cola.isEmpty()) {
+            try {
+                Pending primero = cola.poll(100, TimeUnit.MILLISECONDS);
+                if (primero == null) continue;
+                lote.add(primero);
+                cola.drainTo(lote);
+                escribirLote(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                error = e instanceof IOException io ? io : new IOException("Error en el escritor del log", e);
+                synchronized (durableLock) { durableLock.notifyAll(); }
+                return;
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    private void escribirLote(List<Pending> lote) throws IOException {
+        long ultimo = -1;
+        List<ByteBuffer> buffers = new ArrayList<>(lote.size());
+        for (Pending p : lote) {
+            if (p.tipo() == ROLL) {
+                volcar(buffers);
+                canal.force(false);
+                canal.close();
+                canal = abrirSegmento(p.lsn());
+                synchronized (durableLock) {
+                    segmentoActual = p.lsn();
+                    durableLock.notifyAll();
+                }
+                continue;
+            }
+            buffers.add(encode(p));
+            ultimo = p.lsn();
+        }
+        volcar(buffers);
+        canal.force(false);
+        if (ultimo >= 0) {
+            synchronized (durableLock) {
+                durableLsn = ultimo;
+                durableLock.notifyAll();
+            }
+        }
+    }
+
+    private void volcar(List<ByteBuffer> buffers) throws IOException {
+        if (buffers.isEmpty()) return;
+        ByteBuffer[] arr = buffers.toArray(new ByteBuffer[0]);
+        long pendiente = 0;
+        for (ByteBuffer b : arr) pendiente += b.remaining();
+        while (pendiente > 0) pendiente -= canal.write(arr);
+        buffers.clear();
+    }
+
+    private static ByteBuffer encode(Pending p) {
+        int len = HEADER + p.payload().length;
+        ByteBuffer buf = ByteBuffer.allocate(len);
+        buf.putInt(len);
+        buf.putInt(0); // crc, se rellena abajo
+        buf.putLong(p.lsn());
+        buf.put(p.tipo());
+        buf.put(p.payload());
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 8, len - 8);
+        buf.putInt(4, (int) crc.getValue());
+        buf.flip();
+        return buf;
+    }
+
+    private FileChannel abrirSegmento(long lsnInicial) throws IOException {
+        return FileChannel.open(segmentPath(dir, lsnInicial),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            abierto = false;
+        }
+        try {
+            escritor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        canal.close();
+        if (error != null) throw error;
+    }
+
+    // ---------------------------------------------------------------------
+    // Gestión de segmentos y recuperación
+    // ---------------------------------------------------------------------
+
+    static Path segmentPath(Path dir, long lsnInicial) {
+        return dir.resolve(String.format("%s%020d%s", PREFIX, lsnInicial, SUFFIX));
+    }
+
+    /** LSN inicial de cada segmento presente en {@code dir}, en orden ascendente. */
+    static List<Long> listSegments(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith(PREFIX) && n.endsWith(SUFFIX))
+                    .map(n -> Long.parseLong(n.substring(PREFIX.length(), n.length() - SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Lee todos los registros válidos de un segmento. Si encuentra una cola
+     * incompleta o corrupta la recorta para que el segmento vuelva a ser válido.
+     */
+    static List<Entry> readSegment(Path segment) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = ch.size();
+            ByteBuffer all = ByteBuffer.allocate((int) size);
+            while (all.hasRemaining() && ch.read(all) >= 0) { /* leer completo */ }
+            all.flip();
+            long valido = 0;
+            while (all.remaining() >= HEADER) {
+                int start = all.position();
+                int len = all.getInt();
+                if (len < HEADER || len > all.remaining() + 4) break;
+                int crcGuardado = all.getInt();
+                CRC32 crc = new CRC32();
+                crc.update(all.array(), start + 8, len - 8);
+                if ((int) crc.getValue() != crcGuardado) break;
+                long lsn = all.getLong();
+                byte tipo = all.get();
+                byte[] payload = new byte[len - HEADER];
+                all.get(payload);
+                entries.add(new Entry(lsn, tipo, payload));
+                valido = start + len;
+            }
+            if (valido < size) ch.truncate(valido);
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,131 @@
+package com.proyecto.kanban.util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Lista segura entre hilos pensada para crecer por el final: lecturas sin cerrojo
+ * y altas al final en O(1) amortizado.
+ *
+ * Los elementos están en un array con holgura. Añadir al final escribe el siguiente
+ * hueco y después publica el estado nuevo (array y tamaño) en un campo volatile; las
+ * posiciones por debajo del tamaño publicado ya no cambian, así que quien lee el
+ * estado lo ve completo sin tomar ningún cerrojo. A diferencia de
+ * {@link java.util.concurrent.CopyOnWriteArrayList}, un alta no copia el array
+ * entero: solo cuando hay que agrandarlo, al doble.
+ *
+ * Las escrituras se serializan sobre la lista. Las que no añaden al final (insertar
+ * en medio, sustituir, quitar) copian el array y publican uno nuevo: son raras en
+ * las listas que la usan (usuarios y proyectos del motor en memoria).
+ *
+ * Los iteradores recorren el estado del momento en que se crean, como los de
+ * CopyOnWriteArrayList: no lanzan ConcurrentModificationException y no modifican.
+ */
+public final class ListaAnexable<E> extends AbstractList<E> implements RandomAccess {
+
+    // Array y número de elementos válidos; se publica entero en cada escritura
+    private record Estado(Object[] elementos, int tamano) {}
+
+    private volatile Estado estado = new Estado(new Object[8], 0);
+
+    public ListaAnexable() {}
+
+    public ListaAnexable(Collection<? extends E> elementos) {
+        addAll(elementos);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int indice) {
+        Estado e = estado;
+        Objects.checkIndex(indice, e.tamano());
+        return (E) e.elementos()[indice];
+    }
+
+    @Override
+    public int size() {
+        return estado.tamano();
+    }
+
+    @Override
+    public synchronized boolean add(E elemento) {
+        Estado e = estado;
+        Object[] elementos = conHueco(e, 1);
+        elementos[e.tamano()] = elemento;
+        estado = new Estado(elementos, e.tamano() + 1);
+        return true;
+    }
+
+    /** Añade todos al final agrandando el array una sola vez. */
+    @Override
+    public synchronized boolean addAll(Collection<? extends E> nuevos) {
+        Object[] lote = nuevos.toArray();
+        if (lote.length == 0) return false;
+        Estado e = estado;
+        Object[] elementos = conHueco(e, lote.length);
+        System.arraycopy(lote, 0, elementos, e.tamano(), lote.length);
+        estado = new Estado(elementos, e.tamano() + lote.length);
+        return true;
+    }
+
+    @Override
+    public synchronized void add(int indice, E elemento) {
+        Estado e = estado;
+        Objects.checkIndex(indice, e.tamano() + 1);
+        Object[] elementos = new Object[Math.max(8, (e.tamano() + 1) * 2)];
+        System.arraycopy(e.elementos(), 0, elementos, 0, indice);
+        elementos[indice] = elemento;
+        System.arraycopy(e.elementos(), indice, elementos, indice + 1, e.tamano() - indice);
+        estado = new Estado(elementos, e.tamano() + 1);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized E set(int indice, E elemento) {
+        Estado e = estado;
+        Objects.checkIndex(indice, e.tamano());
+        Object[] elementos = Arrays.copyOf(e.elementos(), e.elementos().length);
+        Object anterior = elementos[indice];
+        elementos[indice] = elemento;
+        estado = new Estado(elementos, e.tamano());
+        return (E) anterior;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized E remove(int indice) {
+        Estado e = estado;
+        Objects.checkIndex(indice, e.tamano());
+        Object[] elementos = new Object[e.elementos().length];
+        System.arraycopy(e.elementos(), 0, elementos, 0, indice);
+        System.arraycopy(e.elementos(), indice + 1, elementos, indice, e.tamano() - indice - 1);
+        estado = new Estado(elementos, e.tamano() - 1);
+        return (E) e.elementos()[indice];
+    }
+
+    @Override
+    public synchronized void clear() {
+        estado = new Estado(new Object[8], 0);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterator<E> iterator() {
+        Estado e = estado;
+        List<E> vista = (List<E>) Arrays.asList(e.elementos()).subList(0, e.tamano());
+        return Collections.unmodifiableList(vista).iterator();
+    }
+
+    // El array del estado si le caben `n` más; si no, una copia al doble (o a lo necesario)
+    private static Object[] conHueco(Estado e, int n) {
+        int necesario = e.tamano() + n;
+        if (necesario <= e.elementos().length) return e.elementos();
+        return Arrays.copyOf(e.elementos(), Math.max(necesario, e.elementos().length * 2));
+    }
+}
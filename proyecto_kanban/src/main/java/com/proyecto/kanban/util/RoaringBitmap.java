@@ -0,0 +1,363 @@
+package com.proyecto.kanban.util;
+
+import java.util.Arrays;
+
+/**
+ * Conjunto de enteros no negativos comprimido al estilo "roaring".
+ *
+ * El espacio se divide en tramos de 65536 valores según los 16 bits altos. Cada
+ * tramo con algún valor tiene un contenedor:
+ * - de array (valores bajos ordenados, {@code char[]}) mientras tiene pocos valores;
+ * - de bits ({@code long[1024]}, 8 KB fijos) cuando supera {@link #LIMITE_ARRAY}.
+ * Así un índice poco selectivo ocupa como un bitset y uno muy selectivo como una
+ * lista ordenada, y la intersección ({@link #and}) solo recorre los tramos comunes.
+ *
+ * No es seguro para uso concurrente.
+ */
+public final class RoaringBitmap {
+
+    /** Máximo de valores de un contenedor de array antes de pasar a bits. */
+    static final int LIMITE_ARRAY = 4096;
+
+    private char[] claves = new char[4];
+    private Contenedor[] contenedores = new Contenedor[4];
+    private int tramos;
+
+    /** Añade el valor; devuelve {@code true} si no estaba. */
+    public boolean add(int valor) {
+        comprobar(valor);
+        char clave = (char) (valor >>> 16);
+        int i = buscarTramo(clave);
+        if (i < 0) {
+            i = -i - 1;
+            insertarTramo(i, clave, new ContenedorArray());
+        }
+        Contenedor c = contenedores[i];
+        if (c.contains((char) valor)) return false;
+        contenedores[i] = c.add((char) valor);
+        return true;
+    }
+
+    /** Quita el valor; devuelve {@code true} si estaba. */
+    public boolean remove(int valor) {
+        if (valor < 0) return false;
+        int i = buscarTramo((char) (valor >>> 16));
+        if (i < 0 || !contenedores[i].contains((char) valor)) return false;
+        Contenedor c = contenedores[i].remove((char) valor);
+        if (c.cardinalidad() == 0) {
+            quitarTramo(i);
+        } else {
+            contenedores[i] = c;
+        }
+        return true;
+    }
+
+    public boolean contains(int valor) {
+        if (valor < 0) return false;
+        int i = buscarTramo((char) (valor >>> 16));
+        return i >= 0 && contenedores[i].contains((char) valor);
+    }
+
+    /** Número de valores del conjunto. */
+    public int cardinality() {
+        int total = 0;
+        for (int i = 0; i < tramos; i++) total += contenedores[i].cardinalidad();
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return tramos == 0;
+    }
+
+    public void clear() {
+        claves = new char[4];
+        contenedores = new Contenedor[4];
+        tramos = 0;
+    }
+
+    /** Menor valor mayor o igual que {@code desde}, o {@code -1} si no hay. */
+    public int nextSetBit(int desde) {
+        if (desde < 0) desde = 0;
+        char clave = (char) (desde >>> 16);
+        int i = buscarTramo(clave);
+        if (i >= 0) {
+            int bajo = contenedores[i].siguiente(desde & 0xFFFF);
+            if (bajo >= 0) return (clave << 16) | bajo;
+            i++;
+        } else {
+            i = -i - 1;
+        }
+        return i < tramos ? (claves[i] << 16) | contenedores[i].siguiente(0) : -1;
+    }
+
+    /** Copia independiente del conjunto. */
+    public RoaringBitmap copia() {
+        RoaringBitmap r = new RoaringBitmap();
+        r.claves = Arrays.copyOf(claves, Math.max(4, tramos));
+        r.contenedores = new Contenedor[r.claves.length];
+        for (int i = 0; i < tramos; i++) r.contenedores[i] = contenedores[i].copia();
+        r.tramos = tramos;
+        return r;
+    }
+
+    /** Intersección de dos conjuntos (no modifica ninguno). */
+    public static RoaringBitmap and(RoaringBitmap a, RoaringBitmap b) {
+        RoaringBitmap r = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.tramos && j < b.tramos) {
+            char ka = a.claves[i];
+            char kb = b.claves[j];
+            if (ka < kb) {
+                i++;
+            } else if (ka > kb) {
+                j++;
+            } else {
+                Contenedor c = a.contenedores[i].and(b.contenedores[j]);
+                if (c.cardinalidad() > 0) r.insertarTramo(r.tramos, ka, c);
+                i++;
+                j++;
+            }
+        }
+        return r;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int v = nextSetBit(0); v >= 0; v = nextSetBit(v + 1)) {
+            if (sb.length() > 1) sb.append(", ");
+            sb.append(v);
+            if (v == Integer.MAX_VALUE) break;
+        }
+        return sb.append('}').toString();
+    }
+
+    private static void comprobar(int valor) {
+        if (valor < 0) throw new IllegalArgumentException("Solo se admiten valores no negativos: " + valor);
+    }
+
+    private int buscarTramo(char clave) {
+        int lo = 0;
+        int hi = tramos - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char k = claves[mid];
+            if (k < clave) lo = mid + 1;
+            else if (k > clave) hi = mid - 1;
+            else return mid;
+        }
+        return -(lo + 1);
+    }
+
+    private void insertarTramo(int i, char clave, Contenedor c) {
+        if (tramos == claves.length) {
+            claves = Arrays.copyOf(claves, tramos * 2);
+            contenedores = Arrays.copyOf(contenedores, tramos * 2);
+        }
+        System.arraycopy(claves, i, claves, i + 1, tramos - i);
+        System.arraycopy(contenedores, i, contenedores, i + 1, tramos - i);
+        claves[i] = clave;
+        contenedores[i] = c;
+        tramos++;
+    }
+
+    private void quitarTramo(int i) {
+        System.arraycopy(claves, i + 1, claves, i, tramos - i - 1);
+        System.arraycopy(contenedores, i + 1, contenedores, i, tramos - i - 1);
+        contenedores[--tramos] = null;
+    }
+
+    /** Valores de un tramo (16 bits bajos). Las operaciones pueden devolver otro tipo de contenedor. */
+    private abstract static class Contenedor {
+        abstract boolean contains(char v);
+        abstract Contenedor add(char v);
+        abstract Contenedor remove(char v);
+        abstract int cardinalidad();
+        abstract int siguiente(int desde);
+        abstract Contenedor copia();
+        abstract Contenedor and(Contenedor otro);
+    }
+
+    private static final class ContenedorArray extends Contenedor {
+        private char[] valores;
+        private int n;
+
+        ContenedorArray() {
+            this(new char[4], 0);
+        }
+
+        ContenedorArray(char[] valores, int n) {
+            this.valores = valores;
+            this.n = n;
+        }
+
+        @Override
+        boolean contains(char v) {
+            return Arrays.binarySearch(valores, 0, n, v) >= 0;
+        }
+
+        @Override
+        Contenedor add(char v) {
+            int i = Arrays.binarySearch(valores, 0, n, v);
+            if (i >= 0) return this;
+            if (n == LIMITE_ARRAY) {
+                ContenedorBits bits = new ContenedorBits();
+                for (int k = 0; k < n; k++) bits.add(valores[k]);
+                return bits.add(v);
+            }
+            i = -i - 1;
+            if (n == valores.length) valores = Arrays.copyOf(valores, Math.min(LIMITE_ARRAY, n * 2));
+            System.arraycopy(valores, i, valores, i + 1, n - i);
+            valores[i] = v;
+            n++;
+            return this;
+        }
+
+        @Override
+        Contenedor remove(char v) {
+            int i = Arrays.binarySearch(valores, 0, n, v);
+            if (i >= 0) {
+                System.arraycopy(valores, i + 1, valores, i, n - i - 1);
+                n--;
+            }
+            return this;
+        }
+
+        @Override
+        int cardinalidad() {
+            return n;
+        }
+
+        @Override
+        int siguiente(int desde) {
+            int i = Arrays.binarySearch(valores, 0, n, (char) desde);
+            if (i < 0) i = -i - 1;
+            return i < n ? valores[i] : -1;
+        }
+
+        @Override
+        Contenedor copia() {
+            return new ContenedorArray(Arrays.copyOf(valores, Math.max(4, n)), n);
+        }
+
+        @Override
+        Contenedor and(Contenedor otro) {
+            char[] r = new char[Math.max(4, n)];
+            int k = 0;
+            if (otro instanceof ContenedorArray b) {
+                // Mezcla de dos listas ordenadas
+                int i = 0;
+                int j = 0;
+                while (i < n && j < b.n) {
+                    char va = valores[i];
+                    char vb = b.valores[j];
+                    if (va < vb) {
+                        i++;
+                    } else if (va > vb) {
+                        j++;
+                    } else {
+                        r[k++] = va;
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    if (otro.contains(valores[i])) r[k++] = valores[i];
+                }
+            }
+            return new ContenedorArray(r, k);
+        }
+    }
+
+    private static final class ContenedorBits extends Contenedor {
+        private final long[] palabras;
+        private int n;
+
+        ContenedorBits() {
+            this(new long[1024], 0);
+        }
+
+        ContenedorBits(long[] palabras, int n) {
+            this.palabras = palabras;
+            this.n = n;
+        }
+
+        @Override
+        boolean contains(char v) {
+            return (palabras[v >>> 6] & (1L << v)) != 0;
+        }
+
+        @Override
+        Contenedor add(char v) {
+            long antes = palabras[v >>> 6];
+            long despues = antes | (1L << v);
+            if (antes != despues) {
+                palabras[v >>> 6] = despues;
+                n++;
+            }
+            return this;
+        }
+
+        @Override
+        Contenedor remove(char v) {
+            long antes = palabras[v >>> 6];
+            long despues = antes & ~(1L << v);
+            if (antes == despues) return this;
+            palabras[v >>> 6] = despues;
+            n--;
+            return n <= LIMITE_ARRAY ? aArray() : this;
+        }
+
+        @Override
+        int cardinalidad() {
+            return n;
+        }
+
+        @Override
+        int siguiente(int desde) {
+            if (desde > 0xFFFF) return -1;
+            int w = desde >>> 6;
+            long palabra = palabras[w] & (-1L << desde);
+            while (true) {
+                if (palabra != 0) return (w << 6) + Long.numberOfTrailingZeros(palabra);
+                if (++w == palabras.length) return -1;
+                palabra = palabras[w];
+            }
+        }
+
+        @Override
+        Contenedor copia() {
+            return new ContenedorBits(palabras.clone(), n);
+        }
+
+        @Override
+        Contenedor and(Contenedor otro) {
+            if (otro instanceof ContenedorArray) return otro.and(this);
+            long[] a = palabras;
+            long[] b = ((ContenedorBits) otro).palabras;
+            long[] r = new long[1024];
+            int card = 0;
+            for (int i = 0; i < r.length; i++) {
+                r[i] = a[i] & b[i];
+                card += Long.bitCount(r[i]);
+            }
+            ContenedorBits bits = new ContenedorBits(r, card);
+            return card <= LIMITE_ARRAY ? bits.aArray() : bits;
+        }
+
+        private ContenedorArray aArray() {
+            char[] valores = new char[Math.max(4, n)];
+            int k = 0;
+            for (int w = 0; w < palabras.length; w++) {
+                long palabra = palabras[w];
+                while (palabra != 0) {
+                    valores[k++] = (char) ((w << 6) + Long.numberOfTrailingZeros(palabra));
+                    palabra &= palabra - 1;
+                }
+            }
+            return new ContenedorArray(valores, k);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.proyecto.kanban.view;
+
+import com.proyecto.kanban.service.ExportJob;
+import com.proyecto.kanban.service.ExportJobs;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.Tooltip;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Panel de estado de las exportaciones en segundo plano del tablero.
+ *
+ * Muestra una línea por exportación de {@link ExportJobs} con su progreso (filas
+ * y tamaño del PDF) y un botón para cancelarla, y se oculta cuando no hay ninguna.
+ * Se actualiza con los avisos de la cola, que llegan ya en el hilo de JavaFX, así
+ * que nunca espera a una exportación.
+ */
+public class ExportStatusPanel extends VBox {
+    private final ExportJobs exportaciones;
+    private final Map<ExportJob, Fila> filas = new HashMap<>();
+    private final VBox lista = new VBox(4);
+    private final Consumer<ExportJob> oyente = this::actualizar;
+
+    public ExportStatusPanel(ExportJobs exportaciones) {
+        this.exportaciones = exportaciones;
+        setSpacing(4);
+        setPadding(new Insets(8, 0, 0, 0));
+
+        Label titulo = new Label("Exportaciones");
+        titulo.setStyle("-fx-font-weight: bold;");
+        Region hueco = new Region();
+        HBox.setHgrow(hueco, Priority.ALWAYS);
+        Button limpiar = new Button("Limpiar terminadas");
+        limpiar.setOnAction(e -> {
+            exportaciones.limpiarTerminados();
+            recargar();
+        });
+        HBox cabecera = new HBox(10, titulo, hueco, limpiar);
+        cabecera.setAlignment(Pos.CENTER_LEFT);
+        getChildren().addAll(cabecera, lista);
+
+        exportaciones.agregarOyente(oyente);
+        recargar();
+    }
+
+    /** Deja de seguir la cola (al cerrar sesión o cambiar de vista). */
+    public void desconectar() {
+        exportaciones.quitarOyente(oyente);
+    }
+
+    private void actualizar(ExportJob job) {
+        Fila fila = filas.get(job);
+        if (fila == null) {
+            // Exportación nueva, o la lista ha cambiado por el historial
+            recargar();
+            return;
+        }
+        fila.mostrar();
+    }
+
+    // Rehace las líneas a partir de la lista de la cola
+    private void recargar() {
+        filas.clear();
+        lista.getChildren().clear();
+        for (ExportJob job : exportaciones.getTrabajos()) {
+            Fila fila = new Fila(job);
+            filas.put(job, fila);
+            lista.getChildren().add(fila);
+            fila.mostrar();
+        }
+        boolean hay = !filas.isEmpty();
+        setVisible(hay);
+        setManaged(hay);
+    }
+
+    private static String tamano(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+        return String.format("%.1f MB", bytes / (1024.0 * 1024));
+    }
+
+    /** Línea de una exportación. */
+    private static final class Fila extends HBox {
+        private final ExportJob job;
+        private final ProgressBar barra = new ProgressBar(0);
+        private final Label detalle = new Label();
+        private final Button cancelar = new Button("Cancelar");
+
+        Fila(ExportJob job) {
+            super(10);
+            this.job = job;
+            setAlignment(Pos.CENTER_LEFT);
+            Label descripcion = new Label(job.getDescripcion());
+            descripcion.setMinWidth(220);
+            barra.setPrefWidth(160);
+            cancelar.setOnAction(e -> job.cancelar());
+            getChildren().addAll(descripcion, barra, detalle, cancelar);
+        }
+
+        void mostrar() {
+            cancelar.setDisable(job.isTerminado() || job.isCancelado());
+            switch (job.getEstado()) {
+                case EN_COLA -> {
+                    barra.setProgress(0);
+                    detalle.setText("En cola");
+                }
+                case EN_CURSO -> {
+                    barra.setProgress(job.getFraccion() < 0 ? ProgressBar.INDETERMINATE_PROGRESS : job.getFraccion());
+                    // En un lote no se sabe de antemano cuántas filas habrá
+                    String filasTexto = job.getFilasPrevistas() > 0
+                            ? job.getFilasRenderizadas() + " / " + job.getFilasPrevistas() : String.valueOf(job.getFilasRenderizadas());
+                    detalle.setText(filasTexto + " filas, " + tamano(job.getBytesEscritos()));
+                }
+                case TERMINADO -> {
+                    barra.setProgress(1);
+                    // Un lote (o un informe repartido en partes) deja varios PDFs: se muestra su carpeta
+                    int n = job.getArchivos().size();
+                    Path archivo = n == 1 ? job.getArchivos().get(0) : n > 1 ? job.getArchivos().get(0).getParent() : job.getDestino();
+                    String nombre = n > 1 ? n + " PDFs" : String.valueOf(archivo.getFileName());
+                    detalle.setText("Terminado: " + nombre + " (" + tamano(job.getBytesEscritos()) + ")");
+                    detalle.setTooltip(new Tooltip(archivo.toAbsolutePath().toString()));
+                }
+                case FALLIDO -> {
+                    barra.setProgress(0);
+                    Throwable error = job.getError();
+                    String msg = error != null && error.getMessage() != null ? error.getMessage() : String.valueOf(error);
+                    detalle.setText("Error: " + msg);
+                    detalle.setTooltip(new Tooltip(msg));
+                }
+                case CANCELADO -> {
+                    barra.setProgress(0);
+                    detalle.setText("Cancelada");
+                }
+            }
+        }
+    }
+}
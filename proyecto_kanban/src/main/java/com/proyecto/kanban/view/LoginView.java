@@ -1,10 +1,13 @@
 package com.proyecto.kanban.view;
 
 import com.proyecto.kanban.model.Usuario;
+import com.proyecto.kanban.service.AsyncServices;
 import com.proyecto.kanban.service.AuthService;
 import com.proyecto.kanban.service.ProjectService;
+import com.proyecto.kanban.service.ReportService;
 import com.proyecto.kanban.service.TaskService;
 import com.proyecto.kanban.util.ImageService;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -13,21 +16,46 @@ import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import javafx.stage.WindowEvent;
+
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Vista de login y registro de usuarios.
  * Esta clase maneja la interfaz gráfica para autenticación y registro de usuarios.
  */
 public class LoginView {
-    private final AuthService authService;
+    // Login y registro se hacen fuera del hilo de JavaFX
+    private final AsyncServices servicios;
+    // Creados por esta vista (constructor con AuthService): los cierra al cerrarse la ventana
+    private final boolean serviciosPropios;
+    private boolean cierreRegistrado;
     private ProjectBoardView projectBoardView;
+    private Button loginButton;
+    private Button registerButton;
 
     /**
-     * Constructor de LoginView
+     * Constructor de LoginView. Crea su propia fachada asíncrona, que se cierra
+     * (con sus hilos) al cerrarse la ventana; la aplicación usa
+     * {@link #LoginView(AsyncServices)} con la suya.
      * @param authService Servicio de autenticación para manejar login/registro
      */
     public LoginView(AuthService authService) {
-        this.authService = authService;
+        this(new AsyncServices(authService, new ProjectService(authService.getRepo()),
+                new TaskService(authService.getRepo()), new ReportService(), Platform::runLater), true);
+    }
+
+    /**
+     * Constructor de LoginView con la fachada asíncrona compartida por las vistas
+     * @param servicios Servicios de la aplicación; el tablero usa los mismos
+     */
+    public LoginView(AsyncServices servicios) {
+        this(servicios, false);
+    }
+
+    private LoginView(AsyncServices servicios, boolean serviciosPropios) {
+        this.servicios = servicios;
+        this.serviciosPropios = serviciosPropios;
         this.projectBoardView = null;
     }
 
@@ -36,6 +64,10 @@ public class LoginView {
      * @param stage Stage principal de la aplicación
      */
     public void show(Stage stage) {
+        if (serviciosPropios && !cierreRegistrado) {
+            stage.addEventHandler(WindowEvent.WINDOW_HIDDEN, e -> servicios.close());
+            cierreRegistrado = true;
+        }
         VBox loginRoot = new VBox(10);
         loginRoot.setPadding(new Insets(20));
         loginRoot.setAlignment(Pos.TOP_CENTER);
@@ -65,7 +97,7 @@ public class LoginView {
         TextField emailField = new TextField();
         emailField.setPromptText("Email");
         emailField.setMaxWidth(300);
-        Button loginButton = new Button("Iniciar Sesión");
+        loginButton = new Button("Iniciar Sesión");
 
     // Sección de registro
     Label registerLabel = new Label("Registro");
@@ -76,7 +108,7 @@ public class LoginView {
     TextField registerEmailField = new TextField();
     registerEmailField.setPromptText("Email");
     registerEmailField.setMaxWidth(300);
-    Button registerButton = new Button("Registrarse");
+    registerButton = new Button("Registrarse");
 
         // Configurar eventos
         loginButton.setOnAction(e -> handleLogin(emailField.getText(), stage));
@@ -116,23 +148,7 @@ public class LoginView {
             showError("Error de inicio de sesión", "El email no puede estar vacío");
             return;
         }
-
-        try {
-            Usuario usuario = authService.login(email);
-            if (usuario != null) {
-                // create ProjectBoardView with logout handler and services (reuse same repo)
-                if (projectBoardView == null) {
-                    ProjectService ps = new ProjectService(authService.getRepo());
-                    TaskService ts = new TaskService();
-                    projectBoardView = new ProjectBoardView(s -> this.show(s), ps, ts, authService);
-                }
-                projectBoardView.show(stage, usuario);
-            } else {
-                showError("Error de inicio de sesión", "Usuario no encontrado");
-            }
-        } catch (Exception ex) {
-            showError("Error de inicio de sesión", ex.getMessage());
-        }
+        entrar(servicios.login(email), stage, "Error de inicio de sesión", "Usuario no encontrado");
     }
 
     /**
@@ -146,22 +162,33 @@ public class LoginView {
             showError("Error de registro", "El nombre y el email son obligatorios");
             return;
         }
+        entrar(servicios.signup(nombre, email), stage, "Error de registro", "El email ya está registrado");
+    }
 
-        try {
-            Usuario usuario = authService.signup(nombre, email);
-            if (usuario != null) {
-                if (projectBoardView == null) {
-                    ProjectService ps = new ProjectService(authService.getRepo());
-                    TaskService ts = new TaskService();
-                    projectBoardView = new ProjectBoardView(s -> this.show(s), ps, ts, authService);
-                }
-                projectBoardView.show(stage, usuario);
-            } else {
-                showError("Error de registro", "El email ya está registrado");
+    /**
+     * Espera al login o registro sin bloquear la ventana (los botones se desactivan
+     * mientras tanto) y, con el usuario, abre el tablero.
+     */
+    private void entrar(CompletableFuture<Usuario> peticion, Stage stage, String tituloError, String sinUsuario) {
+        loginButton.setDisable(true);
+        registerButton.setDisable(true);
+        AsyncServices.atender(peticion, usuario -> {
+            loginButton.setDisable(false);
+            registerButton.setDisable(false);
+            if (usuario == null) {
+                showError(tituloError, sinUsuario);
+                return;
             }
-        } catch (Exception ex) {
-            showError("Error de registro", ex.getMessage());
-        }
+            // create ProjectBoardView with logout handler and services (reuse same repo)
+            if (projectBoardView == null) {
+                projectBoardView = new ProjectBoardView(s -> this.show(s), servicios);
+            }
+            projectBoardView.show(stage, usuario);
+        }, ex -> {
+            loginButton.setDisable(false);
+            registerButton.setDisable(false);
+            showError(tituloError, ex.getMessage());
+        });
     }
 
     /**
@@ -1,6 +1,7 @@
 package com.proyecto.kanban.view;
 
 import com.proyecto.kanban.model.*;
+import com.proyecto.kanban.view.util.ColorEtiqueta;
 import com.proyecto.kanban.view.util.MiembroTableData;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -10,14 +11,33 @@ import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 // Nota: Eliminado FileChooser - los informes se guardan siempre en la carpeta 'informes'
-import com.proyecto.kanban.export.ReportData;
 import com.proyecto.kanban.service.ReportService;
-import com.proyecto.kanban.export.PdfReportGenerator;
+import com.proyecto.kanban.service.AsyncServices;
+import com.proyecto.kanban.service.BatchExport;
+import com.proyecto.kanban.service.ReportPeriod;
 import com.proyecto.kanban.util.ImageService;
+import com.proyecto.kanban.service.ProjectService;
+import com.proyecto.kanban.service.SearchService;
+import com.proyecto.kanban.service.TaskService;
+import com.proyecto.kanban.service.DeadlineService;
+import com.proyecto.kanban.storage.FiltroTareas;
+import com.proyecto.kanban.storage.Repository;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
 import javafx.stage.Stage;
+import javafx.stage.WindowEvent;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.scene.paint.Color;
+import javafx.util.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -29,7 +49,8 @@ import java.util.List;
  */
 public class ProjectBoardView {
     private final ObservableList<Proyecto> proyectosUsuario;
-    private final ObservableList<Tarea> tareasProyecto;
+    // Columnas del tablero por estado; cada una carga sus tareas por páginas al hacer scroll
+    private final Map<EstadoTarea, ColumnaTareas> columnas = new EnumMap<>(EstadoTarea.class);
     private Usuario usuarioActual;
     private Proyecto proyectoActual;
     // El directorio de trabajo (user.dir) se usa para crear /informes
@@ -39,11 +60,45 @@ public class ProjectBoardView {
     private final com.proyecto.kanban.service.ProjectService projectService;
     private final com.proyecto.kanban.service.TaskService taskService;
     private final com.proyecto.kanban.service.AuthService authService;
+    // Servicio usado para paginar tareas (el inyectado o uno en memoria si no hay)
+    private final ProjectService paginador;
     // Controles de filtrado
     private ComboBox<Prioridad> filterPriorityCombo;
     private ComboBox<Usuario> filterAssignedCombo;
     private ComboBox<Etiqueta> filterTagCombo;
     private Button filterClearButton;
+    // Búsqueda de texto (se lanza al dejar de escribir durante RETARDO_BUSQUEDA)
+    private static final Duration RETARDO_BUSQUEDA = Duration.millis(250);
+    private static final String CLAVE_BUSQUEDA = "busqueda";
+    private static final String CLAVE_ETIQUETAS_FILTRO = "etiquetas-filtro";
+    private final SearchService buscador;
+    private TextField searchField;
+    private CheckBox searchAllCheck;
+    private ListView<SearchService.Resultado> searchResults;
+    private PauseTransition searchDebounce;
+    // Consultas de vencimiento (resumen del botón "Vencimientos")
+    private static final int DIAS_VENCIMIENTOS = 7;
+    private final DeadlineService plazos;
+    // Selección múltiple: las tarjetas marcadas reciben las operaciones en lote
+    private final TaskService lotes;
+    private final Set<Tarea> seleccionadas = new LinkedHashSet<>();
+    private ToggleButton selectionButton;
+    private HBox bulkBar;
+    private Label selectionLabel;
+    // Llamadas a los servicios fuera del hilo de JavaFX; los resultados vuelven a él
+    private final AsyncServices servicios;
+    // Creados por este tablero (constructores sin fachada): los cierra al cerrarse la ventana
+    private final boolean serviciosPropios;
+    private boolean cierreRegistrado;
+    // Panel de las exportaciones en segundo plano (parte inferior del tablero)
+    private ExportStatusPanel panelExportaciones;
+    // Cada operación del servicio llega como un único aviso; los redibujados se agrupan.
+    // Los cambios hechos desde los hilos de AsyncServices avisan fuera del hilo de JavaFX.
+    private final Consumer<TaskService.CambioTareas> oyenteCambios = cambio -> {
+        if (Platform.isFxApplicationThread()) atenderCambio(cambio);
+        else Platform.runLater(() -> atenderCambio(cambio));
+    };
+    private boolean refrescoPendiente;
 
     public ProjectBoardView() {
         this(null, null, null, null);
@@ -57,16 +112,52 @@ public class ProjectBoardView {
                             com.proyecto.kanban.service.ProjectService projectService,
                             com.proyecto.kanban.service.TaskService taskService,
                             com.proyecto.kanban.service.AuthService authService) {
+        this(logoutHandler, projectService, taskService, authService, null);
+    }
+
+    /** Tablero que usa los servicios de la fachada asíncrona (compartida con el login). */
+    public ProjectBoardView(Consumer<Stage> logoutHandler, AsyncServices servicios) {
+        this(logoutHandler, servicios.getProjectService(), servicios.getTaskService(), servicios.getAuthService(),
+                servicios);
+    }
+
+    private ProjectBoardView(Consumer<Stage> logoutHandler,
+                             com.proyecto.kanban.service.ProjectService projectService,
+                             com.proyecto.kanban.service.TaskService taskService,
+                             com.proyecto.kanban.service.AuthService authService,
+                             AsyncServices servicios) {
         this.proyectosUsuario = FXCollections.observableArrayList();
-        this.tareasProyecto = FXCollections.observableArrayList();
         this.logoutHandler = logoutHandler;
         this.projectService = projectService;
         this.taskService = taskService;
         this.authService = authService;
+        this.paginador = projectService != null ? projectService : new ProjectService(new Repository());
+        Repository repo = authService != null ? authService.getRepo() : new Repository();
+        this.buscador = new SearchService(repo);
+        this.plazos = new DeadlineService(repo);
+        this.lotes = taskService != null ? taskService : new TaskService();
+        this.serviciosPropios = servicios == null;
+        this.servicios = servicios != null ? servicios
+                : new AsyncServices(authService, paginador, lotes, new ReportService(), Platform::runLater);
     }
 
     public void show(Stage stage, Usuario usuario) {
         this.usuarioActual = usuario;
+        if (serviciosPropios && !cierreRegistrado) {
+            stage.addEventHandler(WindowEvent.WINDOW_HIDDEN, e -> servicios.close());
+            cierreRegistrado = true;
+        }
+        // Cargar los proyectos del usuario (p. ej. recuperados desde disco)
+        proyectosUsuario.clear();
+        columnas.clear();
+        proyectoActual = null;
+        seleccionadas.clear();
+        lotes.quitarOyente(oyenteCambios);
+        lotes.agregarOyente(oyenteCambios);
+        if (projectService != null) {
+            AsyncServices.atender(servicios.getProyectosUsuario(usuario), proyectos -> proyectosUsuario.setAll(proyectos),
+                    ex -> showAlert("Error", "No se pudieron cargar los proyectos: " + ex.getMessage()));
+        }
         
         BorderPane root = new BorderPane();
         root.setPadding(new Insets(10));
@@ -97,8 +188,13 @@ public class ProjectBoardView {
         
         Button logoutButton = new Button("Cerrar Sesión");
         logoutButton.setOnAction(e -> {
+            lotes.quitarOyente(oyenteCambios);
+            if (panelExportaciones != null) panelExportaciones.desconectar();
             if (logoutHandler != null) {
                 logoutHandler.accept(stage);
+            } else if (servicios.getAuthService() != null) {
+                // fallback: volver al login con los mismos servicios (y los mismos datos)
+                new LoginView(servicios).show(stage);
             } else {
                 // fallback: recreate a fresh login view (may lose in-memory state)
                 new LoginView(new com.proyecto.kanban.service.AuthService(new com.proyecto.kanban.storage.Repository())).show(stage);
@@ -115,6 +211,11 @@ public class ProjectBoardView {
         VBox centerPanel = createKanbanBoard();
         root.setCenter(centerPanel);
 
+        // Panel inferior con las exportaciones en segundo plano
+        if (panelExportaciones != null) panelExportaciones.desconectar();
+        panelExportaciones = new ExportStatusPanel(servicios.getExportaciones());
+        root.setBottom(panelExportaciones);
+
         Scene scene = new Scene(root, 1200, 800);
         // Aplicar estilos CSS
         String css = "* { -fx-font-family: 'Segoe UI', Arial, sans-serif; }" +
@@ -196,6 +297,8 @@ public class ProjectBoardView {
 
         filterTagCombo = new ComboBox<>();
         filterTagCombo.setPromptText("Etiqueta (Todas)");
+        // Las etiquetas se recopilan al desplegar la lista, no al abrir el proyecto
+        filterTagCombo.setOnShowing(e -> cargarEtiquetasFiltro());
         // Personalizar cómo se muestran las etiquetas
         filterTagCombo.setCellFactory(param -> new ListCell<Etiqueta>() {
             @Override
@@ -205,18 +308,14 @@ public class ProjectBoardView {
                     setText(null);
                 } else {
                     setText(etiqueta.getNombre());
-                    String rawColor = etiqueta.getColor() != null ? etiqueta.getColor() : "#999999";
-                    String cssColor = rawColor;
-                    if (rawColor.startsWith("0x") && rawColor.length() >= 8) {
-                        cssColor = "#" + rawColor.substring(2, 8);
-                    }
-                    if (!cssColor.startsWith("#")) cssColor = "#" + cssColor;
-                    setStyle("-fx-text-fill: " + cssColor + ";");
+                    setStyle("-fx-text-fill: " + ColorEtiqueta.css(etiqueta.getColor()) + ";");
                 }
             }
         });
 
         filterClearButton = new Button("Limpiar");
+        Button tagsButton = new Button("Etiquetas...");
+        tagsButton.setOnAction(e -> showTagsDialog());
 
         // Aplicar filtros automáticamente cuando cambian los valores
         filterPriorityCombo.setOnAction(e -> refreshBoard());
@@ -235,9 +334,9 @@ public class ProjectBoardView {
             new Label("Prioridad:"), filterPriorityCombo,
             new Label("Asignado:"), filterAssignedCombo,
             new Label("Etiqueta:"), filterTagCombo,
-            filterClearButton
+            filterClearButton, tagsButton
         );
-        board.getChildren().add(filterBar);
+        board.getChildren().addAll(filterBar, createSearchBar(), createSearchResults());
 
         // Cabecera del tablero
         HBox header = new HBox(10);
@@ -276,33 +375,37 @@ public class ProjectBoardView {
                 if (bt.getButtonData() == ButtonBar.ButtonData.OK_DONE) {
                     java.time.LocalDate dDesde = desde.getValue();
                     java.time.LocalDate dHasta = hasta.getValue();
+                    Proyecto proyecto = proyectoActual;
                     try {
                         // Guardar por defecto dentro de la carpeta 'Informes' en el repositorio (directorio de trabajo)
-                        java.nio.file.Path informesDir = java.nio.file.Paths.get(System.getProperty("user.dir"), "Informes");
+                        java.nio.file.Path informesDir = BatchExport.carpetaInformes();
                         java.nio.file.Files.createDirectories(informesDir);
 
-                        String fileName = proyectoActual.getNombre().replaceAll("\\s+","_")
-                                + "-resumen_" + (dDesde != null ? dDesde.toString() : "inicio")
-                                + "_" + (dHasta != null ? dHasta.toString() : "hoy") + ".pdf";
-
-                        java.nio.file.Path destino = informesDir.resolve(fileName);
-
-                        ReportService rs = new ReportService();
-                        ReportData data = rs.buildResumenProyecto(proyectoActual, dDesde, dHasta);
-                        PdfReportGenerator gen = new PdfReportGenerator();
-                        gen.generatePdf(data, destino);
-                        showAlert("Exportado", "Informe exportado correctamente: " + destino.toAbsolutePath().toString());
-                    } catch (Exception ex) {
-                        ex.printStackTrace();
-                        Throwable root = ex.getCause() != null ? ex.getCause() : ex;
-                        String msg = root.getMessage() != null ? root.getMessage() : root.toString();
-                        showAlert("Error", "No se pudo generar el PDF: " + msg);
+                        String fileName = BatchExport.nombreArchivo(proyecto, dDesde, dHasta);
+
+                        // Los datos y el PDF se generan en la cola de exportaciones; el progreso se ve en el panel inferior
+                        servicios.getExportaciones().exportarResumen(proyecto, dDesde, dHasta, informesDir.resolve(fileName));
+                    } catch (java.io.IOException | IllegalStateException ex) {
+                        showAlert("Error", "No se pudo iniciar la exportación: " + ex.getMessage());
                     }
                 }
             });
         });
         header.getChildren().addAll(boardTitle, addTaskButton);
         header.getChildren().add(exportButton);
+        Button batchExportButton = new Button("Exportar lote");
+        batchExportButton.setOnAction(e -> showBatchExportDialog());
+        header.getChildren().add(batchExportButton);
+        Button deadlinesButton = new Button("Vencimientos");
+        deadlinesButton.setOnAction(e -> showDeadlinesDialog());
+        header.getChildren().add(deadlinesButton);
+        selectionButton = new ToggleButton("Selección múltiple");
+        selectionButton.setOnAction(e -> {
+            seleccionadas.clear();
+            actualizarBarraLote();
+            refreshBoard();
+        });
+        header.getChildren().add(selectionButton);
 
         // Columnas del tablero
         HBox columns = new HBox(20);
@@ -314,11 +417,199 @@ public class ProjectBoardView {
         VBox completedColumn = createKanbanColumn("Completada", EstadoTarea.COMPLETADA);
 
         columns.getChildren().addAll(pendingColumn, inProgressColumn, completedColumn);
-        board.getChildren().addAll(header, columns);
+        board.getChildren().addAll(header, createBulkBar(), columns);
 
         return board;
     }
 
+    /**
+     * Barra de operaciones en lote sobre las tarjetas marcadas; solo visible en modo
+     * selección múltiple. Cada acción es una única llamada a {@link TaskService}.
+     */
+    private HBox createBulkBar() {
+        bulkBar = new HBox(8);
+        bulkBar.setAlignment(Pos.CENTER_LEFT);
+        bulkBar.setPadding(new Insets(0, 5, 0, 5));
+        selectionLabel = new Label();
+
+        ComboBox<EstadoTarea> estadoCombo = new ComboBox<>();
+        estadoCombo.getItems().addAll(EstadoTarea.values());
+        estadoCombo.setPromptText("Mover a...");
+        estadoCombo.setOnAction(e -> {
+            EstadoTarea estado = estadoCombo.getValue();
+            if (estado == null) return;
+            aplicarEnLote(tareas -> lotes.moverTareas(tareas, estado));
+            estadoCombo.setValue(null);
+        });
+
+        ComboBox<Usuario> asignadoCombo = new ComboBox<>();
+        asignadoCombo.setPromptText("Asignar a...");
+        asignadoCombo.setOnShowing(e -> {
+            if (proyectoActual != null) asignadoCombo.getItems().setAll(proyectoActual.getMiembros());
+        });
+        asignadoCombo.setCellFactory(param -> new ListCell<Usuario>() {
+            @Override
+            protected void updateItem(Usuario usuario, boolean empty) {
+                super.updateItem(usuario, empty);
+                setText(empty || usuario == null ? null : usuario.getNombre() + " (" + usuario.getEmail() + ")");
+            }
+        });
+        asignadoCombo.setOnAction(e -> {
+            Usuario usuario = asignadoCombo.getValue();
+            if (usuario == null) return;
+            aplicarEnLote(tareas -> lotes.reasignarTareas(tareas, usuario));
+            asignadoCombo.setValue(null);
+        });
+        Button desasignarButton = new Button("Desasignar");
+        desasignarButton.setOnAction(e -> aplicarEnLote(tareas -> lotes.reasignarTareas(tareas, null)));
+
+        ComboBox<Prioridad> prioridadCombo = new ComboBox<>();
+        prioridadCombo.getItems().addAll(Prioridad.values());
+        prioridadCombo.setPromptText("Prioridad...");
+        prioridadCombo.setOnAction(e -> {
+            Prioridad prioridad = prioridadCombo.getValue();
+            if (prioridad == null) return;
+            aplicarEnLote(tareas -> lotes.cambiarPrioridad(tareas, prioridad));
+            prioridadCombo.setValue(null);
+        });
+
+        TextField etiquetaField = new TextField();
+        etiquetaField.setPromptText("Etiqueta");
+        etiquetaField.setPrefWidth(120);
+        ColorPicker colorPicker = new ColorPicker(Color.BLUE);
+        Button etiquetarButton = new Button("Etiquetar");
+        etiquetarButton.setOnAction(e -> aplicarEnLote(tareas ->
+                lotes.etiquetarTareas(tareas, etiquetaField.getText(), ColorEtiqueta.hex(colorPicker.getValue()))));
+        Button quitarEtiquetaButton = new Button("Quitar etiqueta");
+        quitarEtiquetaButton.setOnAction(e -> aplicarEnLote(tareas ->
+                lotes.desetiquetarTareas(tareas, etiquetaField.getText())));
+
+        Button limpiarButton = new Button("Desmarcar todo");
+        limpiarButton.setOnAction(e -> {
+            seleccionadas.clear();
+            actualizarBarraLote();
+            refreshBoard();
+        });
+
+        bulkBar.getChildren().addAll(selectionLabel, estadoCombo, asignadoCombo, desasignarButton, prioridadCombo,
+                etiquetaField, colorPicker, etiquetarButton, quitarEtiquetaButton, limpiarButton);
+        actualizarBarraLote();
+        return bulkBar;
+    }
+
+    private void actualizarBarraLote() {
+        boolean activo = selectionButton != null && selectionButton.isSelected();
+        bulkBar.setVisible(activo);
+        bulkBar.setManaged(activo);
+        selectionLabel.setText(seleccionadas.size() + " seleccionada(s)");
+    }
+
+    /**
+     * Aplica una operación en lote a las tarjetas marcadas y vacía la selección. El
+     * tablero se redibuja una vez, con el aviso del servicio.
+     */
+    private void aplicarEnLote(ToIntFunction<List<Tarea>> operacion) {
+        if (seleccionadas.isEmpty()) {
+            showAlert("Selección vacía", "Marca al menos una tarjeta");
+            return;
+        }
+        List<Tarea> tareas = new ArrayList<>(seleccionadas);
+        AsyncServices.atender(servicios.ejecutar(() -> operacion.applyAsInt(tareas)), cambiadas -> {
+            seleccionadas.clear();
+            actualizarBarraLote();
+            // Aunque ninguna tarea cambiara, las casillas marcadas deben desaparecer
+            solicitarRefresco();
+        }, ex -> showAlert("Error", ex.getMessage()));
+    }
+
+    /** Caja de búsqueda: busca mientras se escribe, con un pequeño retardo entre teclas. */
+    private HBox createSearchBar() {
+        HBox searchBar = new HBox(8);
+        searchBar.setAlignment(Pos.CENTER_LEFT);
+        searchBar.setPadding(new Insets(0, 5, 0, 5));
+
+        searchField = new TextField();
+        searchField.setPromptText("Buscar tareas (título, descripción, etiquetas)");
+        searchField.setPrefWidth(360);
+        searchAllCheck = new CheckBox("En todos mis proyectos");
+
+        // Cada tecla reinicia la espera: solo se busca cuando el usuario hace una pausa
+        searchDebounce = new PauseTransition(RETARDO_BUSQUEDA);
+        searchDebounce.setOnFinished(e -> ejecutarBusqueda());
+        searchField.textProperty().addListener((obs, anterior, texto) -> searchDebounce.playFromStart());
+        searchAllCheck.setOnAction(e -> ejecutarBusqueda());
+
+        searchBar.getChildren().addAll(new Label("Buscar:"), searchField, searchAllCheck);
+        return searchBar;
+    }
+
+    private ListView<SearchService.Resultado> createSearchResults() {
+        searchResults = new ListView<>();
+        searchResults.setPrefHeight(150);
+        searchResults.setVisible(false);
+        searchResults.setManaged(false);
+        searchResults.setPlaceholder(new Label("Sin resultados"));
+        searchResults.setCellFactory(param -> new ListCell<>() {
+            @Override
+            protected void updateItem(SearchService.Resultado resultado, boolean empty) {
+                super.updateItem(resultado, empty);
+                if (empty || resultado == null) {
+                    setText(null);
+                } else {
+                    Tarea t = resultado.tarea();
+                    setText(t.getTitulo() + "  ·  " + resultado.proyecto().getNombre() + " (" + t.getEstado() + ")");
+                }
+            }
+        });
+        searchResults.setOnMouseClicked(e -> {
+            SearchService.Resultado seleccionado = searchResults.getSelectionModel().getSelectedItem();
+            if (seleccionado != null) abrirResultado(seleccionado);
+        });
+        return searchResults;
+    }
+
+    /**
+     * Ejecuta la consulta de la caja de búsqueda y muestra los resultados. Una
+     * consulta nueva sustituye a la anterior si aún no había terminado.
+     */
+    private void ejecutarBusqueda() {
+        if (searchField == null) return;
+        String consulta = searchField.getText();
+        boolean mostrar = consulta != null && !consulta.isBlank();
+        if (!mostrar) {
+            servicios.cancelar(CLAVE_BUSQUEDA);
+            mostrarResultados(List.of(), false);
+            return;
+        }
+        Proyecto proyecto = proyectoActual;
+        List<Proyecto> todos = searchAllCheck.isSelected() ? List.copyOf(proyectosUsuario) : null;
+        AsyncServices.atender(servicios.ultimo(CLAVE_BUSQUEDA, () -> todos != null
+                        ? buscador.buscar(todos, consulta, SearchService.LIMITE_DEFECTO)
+                        : buscador.buscar(proyecto, consulta, SearchService.LIMITE_DEFECTO)),
+                resultados -> mostrarResultados(resultados, true),
+                ex -> showAlert("Error", "No se pudo buscar: " + ex.getMessage()));
+    }
+
+    private void mostrarResultados(List<SearchService.Resultado> resultados, boolean mostrar) {
+        searchResults.getItems().setAll(resultados);
+        searchResults.setVisible(mostrar);
+        searchResults.setManaged(mostrar);
+    }
+
+    /** Abre el proyecto del resultado y muestra su tarjeta para verla o editarla. */
+    private void abrirResultado(SearchService.Resultado resultado) {
+        if (resultado.proyecto() != proyectoActual) showProjectTasks(resultado.proyecto());
+        Dialog<Void> dialog = new Dialog<>();
+        dialog.setTitle("Tarea");
+        dialog.setHeaderText(resultado.proyecto().getNombre());
+        dialog.getDialogPane().setContent(new TaskCard(resultado.tarea(), () -> {
+            refreshBoard();
+            ejecutarBusqueda();
+        }, taskService, servicios));
+        dialog.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+        dialog.showAndWait();
+    }
+
     private VBox createKanbanColumn(String title, EstadoTarea estado) {
         VBox column = new VBox(10);
         column.setPrefWidth(300);
@@ -328,49 +619,139 @@ public class ProjectBoardView {
         Label titleLabel = new Label(title);
         titleLabel.setStyle("-fx-font-size: 14px; -fx-font-weight: bold;");
 
-            ScrollPane scrollPane = new ScrollPane();
-            VBox tasksContainer = new VBox(10);
-            tasksContainer.setPadding(new Insets(5));
-            tasksContainer.setSpacing(10);
-            tasksContainer.setPrefWidth(280);  // Un poco menos que el ancho de la columna para el scroll
-        
-            scrollPane.setContent(tasksContainer);
-            scrollPane.setFitToWidth(true);
-            scrollPane.setPrefHeight(500);
-            scrollPane.setStyle("-fx-background: transparent; -fx-background-color: transparent;");
-        
-            // Observar cambios en las tareas y actualizar la vista
-            tareasProyecto.addListener((javafx.collections.ListChangeListener.Change<? extends Tarea> change) -> {
-                updateTasksInColumn(tasksContainer, estado);
-            });
-        
-            // Carga inicial de tareas
-            updateTasksInColumn(tasksContainer, estado);
+        ScrollPane scrollPane = new ScrollPane();
+        VBox tasksContainer = new VBox(10);
+        tasksContainer.setPadding(new Insets(5));
+        tasksContainer.setSpacing(10);
+        tasksContainer.setPrefWidth(280);  // Un poco menos que el ancho de la columna para el scroll
+
+        scrollPane.setContent(tasksContainer);
+        scrollPane.setFitToWidth(true);
+        scrollPane.setPrefHeight(500);
+        scrollPane.setStyle("-fx-background: transparent; -fx-background-color: transparent;");
+
+        ColumnaTareas columna = new ColumnaTareas(estado, scrollPane, tasksContainer, titleLabel, title);
+        columnas.put(estado, columna);
+        // Al acercarse al final del scroll se pide la siguiente página
+        scrollPane.vvalueProperty().addListener((obs, anterior, valor) -> {
+            if (valor.doubleValue() >= scrollPane.getVmax() * 0.9) columna.cargarSiguiente();
+        });
+        // Al mostrarse o agrandarse la vista puede sobrar sitio bajo las tarjetas
+        scrollPane.viewportBoundsProperty().addListener((obs, anterior, valor) -> columna.rellenarVista());
+
+        // Carga inicial de tareas
+        columna.recargar();
 
-            column.getChildren().addAll(titleLabel, scrollPane);
+        column.getChildren().addAll(titleLabel, scrollPane);
 
         return column;
     }
 
-        private void updateTasksInColumn(VBox container, EstadoTarea estado) {
-            container.getChildren().clear();
-                // Aplicar filtros seleccionados
-                Prioridad selectedPriority = filterPriorityCombo != null ? filterPriorityCombo.getValue() : null;
-                Usuario selectedAssigned = filterAssignedCombo != null ? filterAssignedCombo.getValue() : null;
-                Etiqueta selectedTag = filterTagCombo != null ? filterTagCombo.getValue() : null;
-
-                tareasProyecto.stream()
-                    .filter(t -> t.getEstado() == estado)
-                    .filter(t -> selectedPriority == null || t.getPrioridad() == selectedPriority)
-                    .filter(t -> selectedAssigned == null || (t.getAsignadoA() != null && t.getAsignadoA().equals(selectedAssigned)))
-                    .filter(t -> selectedTag == null || (t.getEtiquetas() != null && t.getEtiquetas().contains(selectedTag)))
-                    .forEach(tarea -> {
-                        TaskCard card = new TaskCard(tarea, this::refreshBoard, taskService);
-                        container.getChildren().add(card);
-                    });
+    /** Filtro de la barra de filtros para las tareas de un estado. */
+    private FiltroTareas filtroActual(EstadoTarea estado) {
+        Prioridad selectedPriority = filterPriorityCombo != null ? filterPriorityCombo.getValue() : null;
+        Usuario selectedAssigned = filterAssignedCombo != null ? filterAssignedCombo.getValue() : null;
+        Etiqueta selectedTag = filterTagCombo != null ? filterTagCombo.getValue() : null;
+        return new FiltroTareas(estado, selectedPriority, selectedAssigned,
+                selectedTag != null ? selectedTag.getNombre() : null);
+    }
+
+    /**
+     * Estado de una columna: sus tarjetas y el cursor de la siguiente página.
+     * Solo se crean tarjetas para las tareas ya mostradas.
+     *
+     * Las páginas se piden a {@link AsyncServices} con la columna como clave: al
+     * recargar (otro filtro, otro proyecto) la petición anterior se cancela y su
+     * resultado ya no se muestra. Las tarjetas actuales se sustituyen cuando llega la
+     * primera página nueva, sin dejar la columna vacía mientras tanto.
+     *
+     * Mientras las tarjetas no llenan la vista no hay scroll que dispare la página
+     * siguiente, así que tras cada página se siguen pidiendo hasta llenarla o agotar
+     * las tareas.
+     */
+    private class ColumnaTareas {
+        private final EstadoTarea estado;
+        private final ScrollPane scrollPane;
+        private final VBox container;
+        private final Label cabecera;
+        private final String titulo;
+        private String continuacion;
+        private boolean agotada = true;
+        private boolean cargando;
+
+        ColumnaTareas(EstadoTarea estado, ScrollPane scrollPane, VBox container, Label cabecera, String titulo) {
+            this.estado = estado;
+            this.scrollPane = scrollPane;
+            this.container = container;
+            this.cabecera = cabecera;
+            this.titulo = titulo;
         }
+
+        /** Muestra en la cabecera el número de tareas de la columna (sin número si es negativo). */
+        void mostrarTotal(int total) {
+            cabecera.setText(total < 0 ? titulo : titulo + " (" + total + ")");
+        }
+
+        /** Carga la primera página con los filtros actuales en lugar de las tarjetas mostradas. */
+        void recargar() {
+            continuacion = null;
+            agotada = proyectoActual == null;
+            if (agotada) {
+                servicios.cancelar(this);
+                cargando = false;
+                container.getChildren().clear();
+                return;
+            }
+            cargar(true);
+        }
+
+        void cargarSiguiente() {
+            if (agotada || cargando) return;
+            cargar(false);
+        }
+
+        /** Pide la página siguiente si las tarjetas no llegan al final de la vista. */
+        void rellenarVista() {
+            if (container.getHeight() < scrollPane.getViewportBounds().getHeight()) cargarSiguiente();
+        }
+
+        private void cargar(boolean reemplazar) {
+            cargando = true;
+            AsyncServices.atender(servicios.paginaTareas(this, proyectoActual, filtroActual(estado), continuacion,
+                    ProjectService.TAMANO_PAGINA_DEFECTO), pagina -> {
+                cargando = false;
+                List<TaskCard> tarjetas = new ArrayList<>(pagina.tareas().size());
+                for (Tarea tarea : pagina.tareas()) tarjetas.add(crearTarjeta(tarea));
+                if (reemplazar) container.getChildren().setAll(tarjetas);
+                else container.getChildren().addAll(tarjetas);
+                continuacion = pagina.continuacion();
+                agotada = !pagina.hayMas();
+                if (agotada) return;
+                // Maquetar ya las tarjetas nuevas para conocer la altura que ocupan
+                scrollPane.applyCss();
+                scrollPane.layout();
+                rellenarVista();
+            }, ex -> {
+                cargando = false;
+                agotada = true;
+                showAlert("Error", "No se pudieron cargar las tareas: " + ex.getMessage());
+            });
+        }
+    }
+
+    private TaskCard crearTarjeta(Tarea tarea) {
+        TaskCard card = new TaskCard(tarea, this::solicitarRefresco, taskService, servicios);
+        if (selectionButton != null && selectionButton.isSelected()) {
+            card.mostrarSeleccion(seleccionadas.contains(tarea), marcada -> {
+                if (marcada) seleccionadas.add(tarea); else seleccionadas.remove(tarea);
+                actualizarBarraLote();
+            });
+        }
+        return card;
+    }
+
     private void showNewProjectDialog() {
-        Dialog<Proyecto> dialog = new Dialog<>();
+        Dialog<ButtonType> dialog = new Dialog<>();
         dialog.setTitle("Nuevo Proyecto");
         dialog.setHeaderText("Crear nuevo proyecto");
 
@@ -394,25 +775,20 @@ public class ProjectBoardView {
 
         dialog.getDialogPane().setContent(grid);
 
-        dialog.setResultConverter(dialogButton -> {
-            if (dialogButton == createButtonType && projectService != null) {
+        dialog.showAndWait().filter(bt -> bt == createButtonType).ifPresent(bt -> {
+            if (projectService != null) {
                 // Usar el servicio para crear el proyecto con el usuario actual como líder
-                return projectService.crearProyecto(
+                AsyncServices.atender(servicios.crearProyecto(
                     nombreField.getText(),
                     descripcionArea.getText(),
                     usuarioActual
-                );
-            } else if (dialogButton == createButtonType) {
+                ), proyectosUsuario::add, ex -> showAlert("Error", "No se pudo crear el proyecto: " + ex.getMessage()));
+            } else {
                 // Fallback al comportamiento anterior si no hay servicio
                 Proyecto p = new Proyecto(nombreField.getText(), descripcionArea.getText());
                 p.agregarMiembro(usuarioActual); // Agregar el creador como primer miembro
-                return p;
+                proyectosUsuario.add(p);
             }
-            return null;
-        });
-
-        dialog.showAndWait().ifPresent(proyecto -> {
-            proyectosUsuario.add(proyecto);
         });
     }
 
@@ -493,7 +869,23 @@ public class ProjectBoardView {
 
         dialog.showAndWait().ifPresent(tarea -> {
             // Si se inyectó TaskService, delegamos la creación/registro en el servicio.
-            if (taskService != null) {
+            if (taskService != null && projectService != null) {
+                // Mantener coherencia: registrar en TaskService y anexar al proyecto (fuera del hilo de JavaFX)
+                AsyncServices.atender(servicios.crearTarea(
+                    proyectoActual,
+                    nombreField.getText(),
+                    descripcionArea.getText(),
+                    asignadoCombo.getValue(),
+                    new FechaLimite(fechaLimite.getValue()),
+                    prioridadCombo.getValue(),
+                    EstadoTarea.PENDIENTE
+                ), nueva -> {
+                    refreshBoard();
+                    // Actualizar filtros (etiquetas, asignados) tras crear nueva tarea
+                    updateFilterControls();
+                }, ex -> showAlert("Error", "No se pudo crear la tarea: " + ex.getMessage()));
+                return;
+            } else if (taskService != null) {
                 Tarea nueva = taskService.createTask(
                     nombreField.getText(),
                     descripcionArea.getText(),
@@ -502,13 +894,8 @@ public class ProjectBoardView {
                     prioridadCombo.getValue(),
                     EstadoTarea.PENDIENTE
                 );
-                // Mantener coherencia: registrar en TaskService y anexar al proyecto
                 taskService.agregarTarea(nueva);
-                if (proyectoActual != null) {
-                    proyectoActual.agregarTarea(nueva);
-                }
-                // Actualizar la vista
-                if (tareasProyecto != null) tareasProyecto.add(nueva);
+                addTaskToCurrentProject(nueva);
             } else {
                 // Comportamiento previo: añadir la tarea creada por el diálogo
                 addTaskToCurrentProject(tarea);
@@ -521,9 +908,9 @@ public class ProjectBoardView {
 
     private void showProjectTasks(Proyecto proyecto) {
         this.proyectoActual = proyecto;
-        tareasProyecto.clear();
-        tareasProyecto.addAll(proyecto.getTareas());
-        
+        seleccionadas.clear();
+        if (bulkBar != null) actualizarBarraLote();
+
         // Habilitar botón de miembros cuando hay proyecto seleccionado
         if (membersButton != null) {
             membersButton.setDisable(false);
@@ -531,6 +918,10 @@ public class ProjectBoardView {
         
         // Actualizar controles de filtrado con datos del proyecto
         updateFilterControls();
+        // Con persistencia activa, solo se decodifican las tareas de la primera página de cada columna
+        refreshBoard();
+        // Una búsqueda limitada al proyecto pasa a buscar en el nuevo
+        if (searchField != null && !searchAllCheck.isSelected() && !searchField.getText().isBlank()) ejecutarBusqueda();
     }
 
     /**
@@ -551,18 +942,10 @@ public class ProjectBoardView {
         }
 
         if (filterTagCombo != null) {
+            // Las opciones se cargan al desplegar el combo (ver cargarEtiquetasFiltro)
             filterTagCombo.getItems().clear();
-            // Obtener todas las etiquetas únicas de todas las tareas
-            List<Etiqueta> etiquetasUnicas = proyectoActual.getTareas().stream()
-                    .flatMap(t -> t.getEtiquetas().stream())
-                    .distinct()
-                    .collect(Collectors.toList());
-
-            if (!etiquetasUnicas.isEmpty()) {
-                filterTagCombo.getItems().addAll(etiquetasUnicas);
-            }
             filterTagCombo.setValue(null);
-            filterTagCombo.setDisable(etiquetasUnicas.isEmpty());
+            filterTagCombo.setDisable(proyectoActual.getTareas().isEmpty());
         }
 
         if (filterPriorityCombo != null) {
@@ -571,18 +954,145 @@ public class ProjectBoardView {
         }
     }
 
+    /**
+     * Rellena el combo de etiquetas con el catálogo del proyecto: una entrada por
+     * nombre, solo las que usa alguna tarea. El catálogo completo exige cargar las
+     * tareas pendientes, así que se lee en un hilo de trabajo con el cerrojo del proyecto.
+     */
+    private void cargarEtiquetasFiltro() {
+        Proyecto proyecto = proyectoActual;
+        if (proyecto == null) return;
+        AsyncServices.atender(servicios.ultimo(CLAVE_ETIQUETAS_FILTRO, () -> CerrojosProyecto.leer(proyecto,
+                () -> proyecto.catalogoEtiquetasCompleto().getEtiquetasEnUso())), etiquetas -> {
+            if (proyecto != proyectoActual) return;
+            Etiqueta seleccionada = filterTagCombo.getValue();
+            filterTagCombo.getItems().setAll(etiquetas);
+            if (seleccionada != null && etiquetas.contains(seleccionada)) filterTagCombo.setValue(seleccionada);
+        }, ex -> showAlert("Error", "No se pudieron cargar las etiquetas: " + ex.getMessage()));
+    }
+
+    /**
+     * Renombrar o cambiar el color de una etiqueta del proyecto (afecta a todas sus
+     * tareas). Las etiquetas y sus usos se leen antes de abrir el diálogo, en un hilo
+     * de trabajo y con el cerrojo del proyecto.
+     */
+    private void showTagsDialog() {
+        Proyecto proyecto = proyectoActual;
+        if (proyecto == null) {
+            showAlert("Error", "Selecciona un proyecto primero");
+            return;
+        }
+        AsyncServices.atender(servicios.ejecutar(() -> CerrojosProyecto.leer(proyecto, () -> {
+            CatalogoEtiquetas catalogo = proyecto.catalogoEtiquetasCompleto();
+            Map<Etiqueta, Integer> usos = new LinkedHashMap<>();
+            for (Etiqueta et : catalogo.getEtiquetas()) usos.put(et, catalogo.getUsos(et));
+            return usos;
+        })), usos -> {
+            if (proyecto == proyectoActual) mostrarDialogoEtiquetas(usos);
+        }, ex -> showAlert("Error", "No se pudieron cargar las etiquetas: " + ex.getMessage()));
+    }
+
+    private void mostrarDialogoEtiquetas(Map<Etiqueta, Integer> usos) {
+        ComboBox<Etiqueta> etiquetaCombo = new ComboBox<>();
+        etiquetaCombo.getItems().setAll(usos.keySet());
+        etiquetaCombo.setCellFactory(filterTagCombo.getCellFactory());
+        etiquetaCombo.setButtonCell(filterTagCombo.getCellFactory().call(null));
+        TextField nombreField = new TextField();
+        ColorPicker colorPicker = new ColorPicker();
+        Label usosLabel = new Label();
+        etiquetaCombo.setOnAction(e -> {
+            Etiqueta et = etiquetaCombo.getValue();
+            if (et == null) return;
+            nombreField.setText(et.getNombre());
+            try {
+                colorPicker.setValue(javafx.scene.paint.Color.web(et.getColor()));
+            } catch (RuntimeException ex) {
+                colorPicker.setValue(javafx.scene.paint.Color.GRAY);
+            }
+            usosLabel.setText(usos.get(et) + " tareas");
+        });
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.setPadding(new Insets(20));
+        grid.add(new Label("Etiqueta:"), 0, 0);
+        grid.add(etiquetaCombo, 1, 0);
+        grid.add(usosLabel, 2, 0);
+        grid.add(new Label("Nombre:"), 0, 1);
+        grid.add(nombreField, 1, 1);
+        grid.add(new Label("Color:"), 0, 2);
+        grid.add(colorPicker, 1, 2);
+
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Etiquetas del proyecto");
+        dialog.setHeaderText("Los cambios se aplican a todas las tareas con la etiqueta");
+        ButtonType aplicar = new ButtonType("Aplicar", ButtonBar.ButtonData.OK_DONE);
+        dialog.getDialogPane().getButtonTypes().addAll(aplicar, ButtonType.CANCEL);
+        dialog.getDialogPane().setContent(grid);
+        dialog.showAndWait().ifPresent(bt -> {
+            Etiqueta et = etiquetaCombo.getValue();
+            if (bt != aplicar || et == null) return;
+            Proyecto proyecto = proyectoActual;
+            String nombre = nombreField.getText();
+            boolean renombrar = !nombre.trim().equals(et.getNombre());
+            String color = ColorEtiqueta.igual(et.getColor(), colorPicker.getValue())
+                    ? null : ColorEtiqueta.hex(colorPicker.getValue());
+            if (!renombrar && color == null) return;
+            // Recorre todas las tareas del proyecto: fuera del hilo de JavaFX
+            TaskService servicio = servicios.getTaskService();
+            AsyncServices.atender(servicios.ejecutar(() -> {
+                if (renombrar) servicio.renombrarEtiqueta(proyecto, et, nombre);
+                if (color != null) servicio.recolorearEtiqueta(proyecto, et, color);
+            }), v -> refreshBoard(), ex -> showAlert("Error", ex.getMessage()));
+        });
+    }
+
     private void addTaskToCurrentProject(Tarea tarea) {
         if (proyectoActual != null && tarea != null) {
             proyectoActual.agregarTarea(tarea);
-            tareasProyecto.add(tarea);
         }
     }
     
     private void refreshBoard() {
-        if (proyectoActual != null) {
-            tareasProyecto.clear();
-            tareasProyecto.addAll(proyectoActual.getTareas());
+        for (ColumnaTareas columna : columnas.values()) columna.recargar();
+        actualizarContadores();
+    }
+
+    /**
+     * Pone en la cabecera de cada columna el número de tareas del proyecto en ese
+     * estado (sin filtros), leído de los contadores del proyecto.
+     */
+    private void actualizarContadores() {
+        if (proyectoActual == null) {
+            servicios.cancelar(AsyncServices.CLAVE_ESTADISTICAS);
+            for (ColumnaTareas columna : columnas.values()) columna.mostrarTotal(-1);
+            return;
         }
+        AsyncServices.atender(servicios.getEstadisticas(proyectoActual), stats -> {
+            for (ColumnaTareas columna : columnas.values()) columna.mostrarTotal(stats.contar(columna.estado));
+        }, ex -> {
+            // Sin contadores las columnas siguen funcionando: solo se quitan los números
+            for (ColumnaTareas columna : columnas.values()) columna.mostrarTotal(-1);
+        });
+    }
+
+    /**
+     * Pide redibujar el tablero en el siguiente pulso de JavaFX. Las peticiones que
+     * llegan antes (la tarjeta editada y el aviso del servicio) se atienden con un
+     * único redibujado.
+     */
+    private void atenderCambio(TaskService.CambioTareas cambio) {
+        if (proyectoActual != null && cambio.proyectos().contains(proyectoActual)) solicitarRefresco();
+    }
+
+    private void solicitarRefresco() {
+        if (refrescoPendiente) return;
+        refrescoPendiente = true;
+        Platform.runLater(() -> {
+            refrescoPendiente = false;
+            refreshBoard();
+        });
     }
 
     private boolean isValidEmail(String email) {
@@ -591,20 +1101,109 @@ public class ProjectBoardView {
         return pattern.matcher(email).matches();
     }
 
-    private Usuario findUserByEmail(String email) {
+    /**
+     * Busca el usuario del email en un hilo de trabajo (el alta puede escribir en
+     * el diario). El futuro se completa en el hilo de JavaFX; con {@code null} si no
+     * se encontró.
+     */
+    private java.util.concurrent.CompletableFuture<Usuario> findUserByEmail(String email) {
         if (authService != null) {
-            try {
-                return authService.login(email);
-            } catch (Exception e) {
-                return null;
-            }
+            return servicios.login(email).exceptionally(ex -> null);
         }
         // Fallback si no hay AuthService disponible
         if (email.contains("@")) {
             String nombre = email.substring(0, email.indexOf("@"));
-            return new Usuario(nombre, email);
+            return java.util.concurrent.CompletableFuture.completedFuture(new Usuario(nombre, email));
         }
-        return null;
+        return java.util.concurrent.CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Exportación por lotes: el resumen de los proyectos del usuario (o de todos)
+     * para cada una de las últimas semanas o meses, a la carpeta Informes. Se encola
+     * como una sola exportación y su progreso se ve en el panel inferior.
+     */
+    private void showBatchExportDialog() {
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Exportar - Lote de resúmenes PDF");
+        dialog.setHeaderText("Exportar resúmenes de varios proyectos y periodos");
+
+        ComboBox<String> alcance = new ComboBox<>(FXCollections.observableArrayList("Mis proyectos", "Todos los proyectos"));
+        alcance.getSelectionModel().selectFirst();
+        ComboBox<String> tipo = new ComboBox<>(FXCollections.observableArrayList("Semanas", "Meses"));
+        tipo.getSelectionModel().selectFirst();
+        Spinner<Integer> cantidad = new Spinner<>(1, 60, 12);
+        cantidad.setEditable(true);
+        DatePicker hasta = new DatePicker(java.time.LocalDate.now());
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.setPadding(new Insets(20));
+        grid.add(new Label("Proyectos:"), 0, 0);
+        grid.add(alcance, 1, 0);
+        grid.add(new Label("Periodos:"), 0, 1);
+        grid.add(new HBox(10, cantidad, tipo), 1, 1);
+        grid.add(new Label("Hasta:"), 0, 2);
+        grid.add(hasta, 1, 2);
+        grid.add(new Label("Carpeta: " + BatchExport.carpetaInformes()), 0, 3, 2, 1);
+
+        dialog.getDialogPane().getButtonTypes().addAll(new ButtonType("Exportar", ButtonBar.ButtonData.OK_DONE), ButtonType.CANCEL);
+        dialog.getDialogPane().setContent(grid);
+
+        dialog.showAndWait().ifPresent(bt -> {
+            if (bt.getButtonData() != ButtonBar.ButtonData.OK_DONE) return;
+            java.time.LocalDate dia = hasta.getValue() != null ? hasta.getValue() : java.time.LocalDate.now();
+            List<ReportPeriod> periodos = "Meses".equals(tipo.getValue())
+                    ? ReportPeriod.ultimosMeses(cantidad.getValue(), dia)
+                    : ReportPeriod.ultimasSemanas(cantidad.getValue(), dia);
+            boolean todos = "Todos los proyectos".equals(alcance.getValue());
+            Usuario usuario = usuarioActual;
+            // La lista de proyectos puede salir del disco: se pide fuera del hilo de JavaFX
+            AsyncServices.atender(servicios.ejecutar(() -> todos ? paginador.getProyectos() : paginador.getProyectosUsuario(usuario)),
+                    proyectos -> {
+                        if (proyectos.isEmpty()) {
+                            showAlert("Exportar lote", "No hay proyectos que exportar");
+                            return;
+                        }
+                        try {
+                            servicios.getExportaciones().exportarLote(proyectos, periodos, BatchExport.carpetaInformes());
+                        } catch (IllegalStateException ex) {
+                            showAlert("Error", "No se pudo iniciar la exportación: " + ex.getMessage());
+                        }
+                    },
+                    ex -> showAlert("Error", "No se pudieron obtener los proyectos: " + ex.getMessage()));
+        });
+    }
+
+    /**
+     * Resumen de vencimientos del proyecto actual y de todos los proyectos del
+     * usuario: tareas vencidas, las que vencen en la próxima semana y la siguiente.
+     */
+    private void showDeadlinesDialog() {
+        java.time.LocalDateTime ahora = java.time.LocalDateTime.now();
+        Proyecto proyecto = proyectoActual;
+        List<Proyecto> todos = List.copyOf(proyectosUsuario);
+        AsyncServices.atender(servicios.ejecutar(() -> {
+            StringBuilder sb = new StringBuilder();
+            if (proyecto != null) {
+                sb.append("Proyecto ").append(proyecto.getNombre()).append(":\n");
+                appendVencimientos(sb, List.of(proyecto), ahora);
+                sb.append("\n");
+            }
+            sb.append("Todos mis proyectos:\n");
+            appendVencimientos(sb, todos, ahora);
+            return sb.toString();
+        }), texto -> showAlert("Vencimientos", texto), ex -> showAlert("Error", ex.getMessage()));
+    }
+
+    private void appendVencimientos(StringBuilder sb, java.util.Collection<Proyecto> proyectos, java.time.LocalDateTime ahora) {
+        List<Tarea> vencidas = plazos.vencidas(proyectos, ahora);
+        List<Tarea> proximas = plazos.vencenEnDias(proyectos, ahora, DIAS_VENCIMIENTOS);
+        sb.append("  Vencidas: ").append(vencidas.size()).append("\n");
+        sb.append("  Vencen en ").append(DIAS_VENCIMIENTOS).append(" días: ").append(proximas.size()).append("\n");
+        plazos.proximoVencimiento(proyectos, ahora).ifPresent(t -> sb.append("  Próxima: ").append(t.getTitulo())
+                .append(" (").append(t.getFechaLimite()).append(")\n"));
     }
 
     private void showAlert(String title, String content) {
@@ -616,14 +1215,15 @@ public class ProjectBoardView {
     }
 
     private void showMembersDialog() {
-        if (proyectoActual == null) {
+        Proyecto proyecto = proyectoActual;
+        if (proyecto == null) {
             showAlert("Error", "Selecciona un proyecto primero");
             return;
         }
 
         Dialog<ButtonType> dialog = new Dialog<>();
         dialog.setTitle("Gestionar Miembros");
-        dialog.setHeaderText("Miembros del proyecto: " + proyectoActual.getNombre());
+        dialog.setHeaderText("Miembros del proyecto: " + proyecto.getNombre());
 
         // Botones del diálogo
         ButtonType closeButtonType = new ButtonType("Cerrar", ButtonBar.ButtonData.CANCEL_CLOSE);
@@ -692,12 +1292,18 @@ public class ProjectBoardView {
                             if (response == ButtonType.OK) {
                                 memberTable.getItems().remove(data);
                                 if (projectService != null) {
-                                    projectService.eliminarMiembro(proyectoActual, data.getUsuario());
+                                    // Toma el cerrojo del proyecto y escribe en el diario: fuera del hilo de JavaFX
+                                    AsyncServices.atender(servicios.ejecutar(
+                                            () -> projectService.eliminarMiembro(proyecto, data.getUsuario())),
                                             // Refrescar filtros tras eliminar miembro
-                                            updateFilterControls();
+                                            v -> updateFilterControls(),
+                                            ex -> {
+                                                memberTable.getItems().add(data);
+                                                showAlert("Error", "No se pudo eliminar el miembro: " + ex.getMessage());
+                                            });
                                 } else {
-                                    proyectoActual.eliminarMiembro(data.getUsuario());
-                                            updateFilterControls();
+                                    proyecto.eliminarMiembro(data.getUsuario());
+                                    updateFilterControls();
                                 }
                             }
                         });
@@ -713,9 +1319,9 @@ public class ProjectBoardView {
         });
         actionColumn.setPrefWidth(100);
 
-    memberTable.getColumns().addAll(java.util.Arrays.asList(nameColumn, rolColumn, actionColumn));
+        memberTable.getColumns().addAll(java.util.Arrays.asList(nameColumn, rolColumn, actionColumn));
         memberTable.setItems(FXCollections.observableArrayList(
-            proyectoActual.getMiembros().stream()
+            proyecto.getMiembros().stream()
                 .map(u -> new MiembroTableData(u, RolMiembro.EDITOR))
                 .collect(Collectors.toList())
         ));
@@ -748,33 +1354,13 @@ public class ProjectBoardView {
             }
 
             // Buscar usuario en AuthService
-            Usuario usuarioExistente = findUserByEmail(email);
-            if (usuarioExistente == null) {
-                showAlert("Error", "No se encontró ningún usuario con ese email");
-                return;
-            }
-
-            // Confirmar añadir miembro
-            Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
-            confirm.setTitle("Confirmar nuevo miembro");
-            confirm.setHeaderText("Añadir nuevo miembro");
-            confirm.setContentText("¿Deseas añadir a " + usuarioExistente.getNombre() + 
-                " (" + email + ") como " + rolCombo.getValue() + "?");
-
-            confirm.showAndWait().ifPresent(response -> {
-                if (response == ButtonType.OK) {
-                    MiembroTableData newMember = new MiembroTableData(usuarioExistente, rolCombo.getValue());
-                    memberTable.getItems().add(newMember);
-                    if (projectService != null) {
-                        projectService.agregarMiembro(proyectoActual, usuarioExistente);
-                                    // Refrescar filtros tras agregar miembro
-                                    updateFilterControls();
-                    } else {
-                        proyectoActual.agregarMiembro(usuarioExistente);
-                                    updateFilterControls();
-                    }
-                    emailField.clear();
-                }
+            addButton.setDisable(true);
+            AsyncServices.atender(findUserByEmail(email), usuarioExistente -> {
+                addButton.setDisable(false);
+                confirmarNuevoMiembro(proyecto, usuarioExistente, email, rolCombo.getValue(), memberTable, emailField);
+            }, ex -> {
+                addButton.setDisable(false);
+                showAlert("Error", "No se pudo buscar el usuario: " + ex.getMessage());
             });
         });
 
@@ -789,4 +1375,43 @@ public class ProjectBoardView {
         dialog.getDialogPane().setContent(content);
         dialog.showAndWait();
     }
+
+    /** Pide confirmación y añade al proyecto el usuario encontrado para el email. */
+    private void confirmarNuevoMiembro(Proyecto proyecto, Usuario usuarioExistente, String email, RolMiembro rol,
+                                       TableView<MiembroTableData> memberTable, TextField emailField) {
+        if (usuarioExistente == null) {
+            showAlert("Error", "No se encontró ningún usuario con ese email");
+            return;
+        }
+        if (proyecto.esMiembro(usuarioExistente)) {
+            showAlert("Aviso", usuarioExistente.getNombre() + " ya es miembro del proyecto");
+            return;
+        }
+
+        // Confirmar añadir miembro
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
+        confirm.setTitle("Confirmar nuevo miembro");
+        confirm.setHeaderText("Añadir nuevo miembro");
+        confirm.setContentText("¿Deseas añadir a " + usuarioExistente.getNombre() +
+            " (" + email + ") como " + rol + "?");
+
+        confirm.showAndWait().ifPresent(response -> {
+            if (response != ButtonType.OK) return;
+            MiembroTableData newMember = new MiembroTableData(usuarioExistente, rol);
+            memberTable.getItems().add(newMember);
+            if (projectService != null) {
+                AsyncServices.atender(servicios.ejecutar(() -> projectService.agregarMiembro(proyecto, usuarioExistente)),
+                        // Refrescar filtros tras agregar miembro
+                        v -> updateFilterControls(),
+                        ex -> {
+                            memberTable.getItems().remove(newMember);
+                            showAlert("Error", "No se pudo añadir el miembro: " + ex.getMessage());
+                        });
+            } else {
+                proyecto.agregarMiembro(usuarioExistente);
+                updateFilterControls();
+            }
+            emailField.clear();
+        });
+    }
 }
\ No newline at end of file
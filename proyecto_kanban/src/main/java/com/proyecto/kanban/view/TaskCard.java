@@ -1,6 +1,9 @@
 package com.proyecto.kanban.view;
 
 import com.proyecto.kanban.model.*;
+import com.proyecto.kanban.service.AsyncServices;
+import com.proyecto.kanban.service.TaskService;
+import com.proyecto.kanban.view.util.ColorEtiqueta;
 import javafx.geometry.Insets;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
@@ -10,20 +13,38 @@ import javafx.scene.shape.Circle;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 
 public class TaskCard extends VBox {
+    /** Días de antelación con los que se avisa de un vencimiento próximo. */
+    private static final int DIAS_AVISO = 2;
+    private static final String ESTILO = "-fx-background-color: white; -fx-border-color: #e0e0e0; -fx-border-radius: 5; -fx-background-radius: 5;";
+    private static final String ESTILO_SELECCIONADA = "-fx-background-color: #e3f2fd; -fx-border-color: #1976d2; -fx-border-width: 2; -fx-border-radius: 5; -fx-background-radius: 5;";
+
     private final Tarea tarea;
     private final com.proyecto.kanban.service.TaskService taskService;
+    // Si está, los cambios se guardan fuera del hilo de JavaFX
+    private final AsyncServices servicios;
+    private final HBox header;
     
     public TaskCard(Tarea tarea, Runnable onTaskUpdated, com.proyecto.kanban.service.TaskService taskService) {
+        this(tarea, onTaskUpdated, taskService, null);
+    }
+
+    public TaskCard(Tarea tarea, Runnable onTaskUpdated, com.proyecto.kanban.service.TaskService taskService,
+                    AsyncServices servicios) {
         this.tarea = tarea;
         this.taskService = taskService;
+        this.servicios = servicios;
         
         setPadding(new Insets(10));
         setSpacing(5);
         getStyleClass().add("task-card");
-        setStyle("-fx-background-color: white; -fx-border-color: #e0e0e0; -fx-border-radius: 5; -fx-background-radius: 5;");
+        setStyle(ESTILO);
         
         // Título de la tarea
     Label titleLabel = new Label(tarea.getTitulo());
@@ -33,11 +54,12 @@ public class TaskCard extends VBox {
         Circle prioridadIndicator = new Circle(5);
         prioridadIndicator.setFill(getPrioridadColor(tarea.getPrioridad()));
         
-        // Fecha límite si existe
+        // Fecha límite si existe (resaltada si la tarea abierta está vencida o vence pronto)
         Label dateLabel = new Label();
         if (tarea.getFechaLimite() != null) {
             dateLabel.setText("Fecha límite: " + tarea.getFechaLimite().toString());
             dateLabel.setStyle("-fx-text-fill: #666666; -fx-font-size: 11px;");
+            resaltarPlazo(dateLabel);
         }
         
         // Etiquetas
@@ -46,15 +68,8 @@ public class TaskCard extends VBox {
         tagsPane.setVgap(5);
         for (Etiqueta etiqueta : tarea.getEtiquetas()) {
             Label tagLabel = new Label(etiqueta.getNombre());
-            String rawColor = etiqueta.getColor() != null ? etiqueta.getColor() : "#999999";
-            String cssColor = rawColor;
-            if (rawColor.startsWith("0x") && rawColor.length() >= 8) {
-                cssColor = "#" + rawColor.substring(2, 8);
-            }
-            // fallback ensure starts with #
-            if (!cssColor.startsWith("#")) cssColor = "#" + cssColor;
             tagLabel.setStyle(
-                "-fx-background-color: " + cssColor + ";" +
+                "-fx-background-color: " + ColorEtiqueta.css(etiqueta.getColor()) + ";" +
                 "-fx-text-fill: white;" +
                 "-fx-padding: 2 5;" +
                 "-fx-background-radius: 3;"
@@ -67,12 +82,46 @@ public class TaskCard extends VBox {
         editButton.setOnAction(e -> showEditDialog(onTaskUpdated));
         
         // Layout
-        HBox header = new HBox(5, prioridadIndicator, titleLabel);
+        header = new HBox(5, prioridadIndicator, titleLabel);
         header.setAlignment(Pos.CENTER_LEFT);
         
         getChildren().addAll(header, dateLabel, tagsPane, editButton);
     }
     
+    /**
+     * Añade una casilla para marcar la tarjeta en la selección múltiple del tablero.
+     * @param marcada estado inicial de la casilla
+     * @param alCambiar recibe el nuevo estado cada vez que el usuario la marca o desmarca
+     */
+    public void mostrarSeleccion(boolean marcada, Consumer<Boolean> alCambiar) {
+        CheckBox casilla = new CheckBox();
+        casilla.setSelected(marcada);
+        setStyle(marcada ? ESTILO_SELECCIONADA : ESTILO);
+        casilla.selectedProperty().addListener((obs, antes, ahora) -> {
+            setStyle(ahora ? ESTILO_SELECCIONADA : ESTILO);
+            alCambiar.accept(ahora);
+        });
+        header.getChildren().add(0, casilla);
+    }
+
+    /**
+     * Marca en rojo una tarea abierta con el plazo vencido y en naranja una que vence
+     * en los próximos {@link #DIAS_AVISO} días. Usa el mismo final de plazo que el
+     * índice de vencimientos, comprobado solo para esta tarea.
+     */
+    private void resaltarPlazo(Label dateLabel) {
+        FechaLimite limite = tarea.getFechaLimite();
+        if (limite.getFecha() == null || tarea.getEstado() == EstadoTarea.COMPLETADA) return;
+        LocalDateTime ahora = LocalDateTime.now();
+        if (limite.estaVencida(ahora)) {
+            dateLabel.setText("Vencida: " + limite);
+            dateLabel.setStyle("-fx-text-fill: #c62828; -fx-font-size: 11px; -fx-font-weight: bold;");
+        } else if (!limite.getFinDelPlazo().isAfter(ahora.toLocalDate().plusDays(DIAS_AVISO).atTime(LocalTime.MAX))) {
+            dateLabel.setText("Vence pronto: " + limite);
+            dateLabel.setStyle("-fx-text-fill: #ef6c00; -fx-font-size: 11px; -fx-font-weight: bold;");
+        }
+    }
+
     private Color getPrioridadColor(Prioridad prioridad) {
         if (prioridad == null) return Color.GRAY;
         return switch (prioridad) {
@@ -83,7 +132,13 @@ public class TaskCard extends VBox {
         };
     }
     
+    /**
+     * Diálogo de edición. Parte de una instantánea de la tarea y la guarda de forma
+     * condicional: si otro cambió los mismos campos mientras el diálogo estaba
+     * abierto, se muestran los conflictos en lugar de sobrescribirlos sin avisar.
+     */
     private void showEditDialog(Runnable onTaskUpdated) {
+        TaskService.Instantanea base = taskService != null ? taskService.leerParaEditar(tarea) : null;
         Dialog<ButtonType> dialog = new Dialog<>();
         dialog.setTitle("Editar Tarea");
         dialog.setHeaderText("Modificar " + tarea.getTitulo());
@@ -96,19 +151,20 @@ public class TaskCard extends VBox {
         grid.setVgap(10);
         grid.setPadding(new Insets(20));
         
-        TextField titleField = new TextField(tarea.getTitulo());
-        TextArea descArea = new TextArea(tarea.getDescripcion());
+        TextField titleField = new TextField(base != null ? base.titulo() : tarea.getTitulo());
+        TextArea descArea = new TextArea(base != null ? base.descripcion() : tarea.getDescripcion());
         ComboBox<EstadoTarea> estadoCombo = new ComboBox<>();
         estadoCombo.getItems().addAll(EstadoTarea.values());
-        estadoCombo.setValue(tarea.getEstado());
+        estadoCombo.setValue(base != null ? base.estado() : tarea.getEstado());
         
         ComboBox<Prioridad> prioridadCombo = new ComboBox<>();
         prioridadCombo.getItems().addAll(Prioridad.values());
-        prioridadCombo.setValue(tarea.getPrioridad());
+        prioridadCombo.setValue(base != null ? base.prioridad() : tarea.getPrioridad());
         
         DatePicker fechaPicker = new DatePicker();
-        if (tarea.getFechaLimite() != null) {
-            fechaPicker.setValue(tarea.getFechaLimite().getFecha());
+        FechaLimite limiteInicial = base != null ? base.fechaLimite() : tarea.getFechaLimite();
+        if (limiteInicial != null) {
+            fechaPicker.setValue(limiteInicial.getFecha());
         }
         
         // Campo para nueva etiqueta
@@ -119,7 +175,7 @@ public class TaskCard extends VBox {
         addTagButton.setOnAction(e -> {
             String nombre = nuevaEtiqueta.getText().trim();
             if (!nombre.isEmpty()) {
-                String colorHex = colorPicker.getValue().toString();
+                String colorHex = ColorEtiqueta.hex(colorPicker.getValue());
                 if (taskService != null) {
                     taskService.addEtiqueta(tarea, nombre, colorHex);
                 } else {
@@ -151,7 +207,7 @@ public class TaskCard extends VBox {
         if (proyecto != null) {
             asignadoCombo.getItems().addAll(proyecto.getMiembros());
         }
-        asignadoCombo.setValue(tarea.getAsignadoA());
+        asignadoCombo.setValue(base != null ? base.asignado() : tarea.getAsignadoA());
         asignadoCombo.setPromptText("Sin asignar");
         asignadoCombo.setCellFactory(param -> new ListCell<Usuario>() {
             @Override
@@ -184,15 +240,19 @@ public class TaskCard extends VBox {
         dialog.setResultConverter(dialogButton -> {
             if (dialogButton == saveButtonType) {
                 if (taskService != null) {
-                    taskService.updateTask(
-                        tarea,
-                        titleField.getText(),
-                        descArea.getText(),
-                        fechaPicker.getValue() != null ? new FechaLimite(fechaPicker.getValue()) : null,
-                        prioridadCombo.getValue(),
-                        estadoCombo.getValue(),
-                        asignadoCombo.getValue()
-                    );
+                    FechaLimite limite = fechaPicker.getValue() != null ? new FechaLimite(fechaPicker.getValue()) : null;
+                    TaskService.Instantanea mia = new TaskService.Instantanea(0, titleField.getText(),
+                            descArea.getText(), estadoCombo.getValue(), prioridadCombo.getValue(), limite,
+                            asignadoCombo.getValue());
+                    if (servicios != null) {
+                        guardar(base, mia, onTaskUpdated);
+                        return dialogButton;
+                    }
+                    TaskService.ResultadoEdicion resultado = actualizar(base, mia);
+                    // Conflicto: se muestra y, si el usuario lo pide, se guarda sobre el estado actual
+                    while (!resultado.aplicada() && confirmarSobrescritura(resultado, mia)) {
+                        resultado = actualizar(resultado.actual(), mia);
+                    }
                 } else {
                     tarea.setTitulo(titleField.getText());
                     tarea.setDescripcion(descArea.getText());
@@ -212,4 +272,67 @@ public class TaskCard extends VBox {
         
         dialog.showAndWait();
     }
+
+    private TaskService.ResultadoEdicion actualizar(TaskService.Instantanea base, TaskService.Instantanea mia) {
+        return taskService.updateTask(tarea, base, mia.titulo(), mia.descripcion(), mia.fechaLimite(),
+                mia.prioridad(), mia.estado(), mia.asignado());
+    }
+
+    /**
+     * Guarda la edición {@code mia} con {@link AsyncServices}; si hay conflicto y el
+     * usuario decide sobrescribir, vuelve a guardarla sobre el estado actual.
+     */
+    private void guardar(TaskService.Instantanea base, TaskService.Instantanea mia, Runnable onTaskUpdated) {
+        AsyncServices.atender(servicios.updateTask(tarea, base, mia.titulo(), mia.descripcion(), mia.fechaLimite(),
+                mia.prioridad(), mia.estado(), mia.asignado()), resultado -> {
+            if (!resultado.aplicada() && confirmarSobrescritura(resultado, mia)) {
+                guardar(resultado.actual(), mia, onTaskUpdated);
+            } else {
+                onTaskUpdated.run();
+            }
+        }, ex -> {
+            Alert alerta = new Alert(Alert.AlertType.ERROR, ex.getMessage());
+            alerta.setTitle("Error");
+            alerta.setHeaderText("No se pudo guardar la tarea");
+            alerta.showAndWait();
+        });
+    }
+
+    /**
+     * Muestra, campo a campo, los valores que otro guardó mientras se editaba junto a
+     * los de esta edición ({@code mia}).
+     * @return {@code true} si el usuario quiere sobrescribirlos con los suyos
+     */
+    private boolean confirmarSobrescritura(TaskService.ResultadoEdicion resultado, TaskService.Instantanea mia) {
+        StringBuilder detalle = new StringBuilder();
+        for (TaskService.CampoTarea campo : resultado.conflictos()) {
+            detalle.append(nombreCampo(campo)).append(":\n")
+                   .append("  guardado por otro: ").append(texto(resultado.actual().valor(campo))).append('\n')
+                   .append("  tu cambio: ").append(texto(mia.valor(campo))).append('\n');
+        }
+        ButtonType sobrescribir = new ButtonType("Sobrescribir", ButtonBar.ButtonData.OK_DONE);
+        ButtonType descartar = new ButtonType("Descartar mis cambios", ButtonBar.ButtonData.CANCEL_CLOSE);
+        Alert alerta = new Alert(Alert.AlertType.WARNING, detalle.toString(), sobrescribir, descartar);
+        alerta.setTitle("Conflicto de edición");
+        alerta.setHeaderText("Otra persona modificó esta tarea mientras la editabas");
+        Optional<ButtonType> eleccion = alerta.showAndWait();
+        return eleccion.isPresent() && eleccion.get() == sobrescribir;
+    }
+
+    private static String nombreCampo(TaskService.CampoTarea campo) {
+        return switch (campo) {
+            case TITULO -> "Título";
+            case DESCRIPCION -> "Descripción";
+            case ESTADO -> "Estado";
+            case PRIORIDAD -> "Prioridad";
+            case FECHA_LIMITE -> "Fecha límite";
+            case ASIGNADO -> "Asignado a";
+        };
+    }
+
+    private static String texto(Object valor) {
+        if (valor == null) return "(vacío)";
+        if (valor instanceof Usuario u) return u.getNombre();
+        return valor.toString();
+    }
 }
\ No newline at end of file
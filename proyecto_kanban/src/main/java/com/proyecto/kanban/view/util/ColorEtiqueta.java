@@ -0,0 +1,51 @@
+package com.proyecto.kanban.view.util;
+
+import javafx.scene.paint.Color;
+
+/**
+ * Formato de los colores de etiqueta que guarda la interfaz: {@code #rrggbb} en
+ * minúsculas. Las etiquetas guardadas antes pueden tener el de
+ * {@link Color#toString()} ({@code 0xrrggbbaa}); por eso se comparan como colores
+ * y no como texto.
+ */
+public final class ColorEtiqueta {
+    // Color de las etiquetas sin color o con uno ilegible
+    private static final String GRIS = "#999999";
+
+    private ColorEtiqueta() {}
+
+    /** El color en el formato que se guarda, {@code #rrggbb} (sin transparencia). */
+    public static String hex(Color color) {
+        return String.format("#%02x%02x%02x", canal(color.getRed()), canal(color.getGreen()), canal(color.getBlue()));
+    }
+
+    /**
+     * Indica si el color guardado es el mismo que {@code color}, esté en el formato
+     * que esté. Un color guardado que no se puede leer no es igual a ninguno.
+     */
+    public static boolean igual(String guardado, Color color) {
+        if (guardado == null) return false;
+        try {
+            return hex(Color.web(guardado)).equals(hex(color));
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * El color guardado como color CSS ({@code #rrggbb}), esté en el formato que
+     * esté; sin color o con uno que no se puede leer, el gris por defecto.
+     */
+    public static String css(String guardado) {
+        if (guardado == null) return GRIS;
+        try {
+            return hex(Color.web(guardado));
+        } catch (IllegalArgumentException ex) {
+            return GRIS;
+        }
+    }
+
+    private static int canal(double valor) {
+        return (int) Math.round(valor * 255);
+    }
+}
@@ -4,6 +4,7 @@ module com.proyecto.kanban {
     requires transitive javafx.graphics;
     requires javafx.base;
     requires java.desktop;
+    requires java.sql;
 
     opens com.proyecto.kanban.main to javafx.fxml, javafx.graphics;
     opens com.proyecto.kanban.model to javafx.base;
@@ -17,4 +18,5 @@ module com.proyecto.kanban {
     exports com.proyecto.kanban.export;
     exports com.proyecto.kanban.storage;
     exports com.proyecto.kanban.view.util;
+    exports com.proyecto.kanban.util;
 }
\ No newline at end of file